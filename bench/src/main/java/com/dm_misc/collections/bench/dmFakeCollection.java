@@ -0,0 +1,369 @@
+/**
+ * In-memory IDfCollection generator for the dmRecordSet benchmarks.
+ *
+ * (C) 2013 MS Roth
+ * <p/>
+ *
+ * Example use: <br/>
+ * <pre>
+ *     dmFakeCollection data = dmFakeCollection.standard()
+ *             .setRepeatingValues(3)
+ *             .generate(100000);
+ *     dmRecordSet dmRS = new dmRecordSet(data.open());
+ * </pre>
+ *
+ * @author M. Scott Roth, http://msroth.wordpress.com
+ * @version 1.3
+ */
+package com.dm_misc.collections.bench;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+
+import com.documentum.fc.client.IDfCollection;
+import com.documentum.fc.client.IDfTypedObject;
+import com.documentum.fc.common.DfId;
+import com.documentum.fc.common.DfTime;
+import com.documentum.fc.common.IDfAttr;
+import com.documentum.fc.common.IDfId;
+import com.documentum.fc.common.IDfTime;
+
+/**
+ * A dmFakeCollection generates rows with configurable columns, column types
+ * and repeating attributes and serves them through IDfCollection objects,
+ * so dmRecordSet can be measured without a Content Server. The rows are
+ * generated once, by generate(), and each open() returns a new collection
+ * over them; the cost of creating the rows is therefore not part of a
+ * measured load.
+ *
+ * Values are deterministic functions of the row and column number. Each
+ * ID column holds a unique object ID per row; string columns cycle
+ * through a pool of distinct values per column; repeating columns hold
+ * getRepeatingValues() values in every row.
+ *
+ * The IDfCollection, IDfTypedObject and IDfAttr objects are dynamic
+ * proxies, so the generator compiles and runs against any DFC version.
+ * Their per-call dispatch cost is included in measurements that read
+ * values from the rows (e.g., Storage.OBJECTS access paths).
+ */
+public class dmFakeCollection {
+
+    private static final long BASE_TIME = 1356998400000L; // 2013-01-01
+    private static final int STRING_POOL = 4096;
+
+    private ArrayList<IDfAttr> _columns = new ArrayList<IDfAttr>();
+    private HashMap<String, Integer> _columnNumbers = new HashMap<String, Integer>();
+    private int _repeatingValues = 3;
+    private ArrayList<IDfTypedObject> _rows = new ArrayList<IDfTypedObject>();
+
+    /**
+     * Return a generator with the columns of a typical dm_document query:
+     * r_object_id (ID), object_name (STRING), r_full_content_size (DOUBLE),
+     * i_vstamp (INTEGER), r_modify_date (TIME), a_is_template (BOOLEAN),
+     * keywords (repeating STRING) and owner_name (STRING).
+     *
+     * @return dmFakeCollection without rows
+     *
+     */
+    public static dmFakeCollection standard() {
+        return new dmFakeCollection()
+                .addColumn("r_object_id", IDfAttr.DM_ID, false)
+                .addColumn("object_name", IDfAttr.DM_STRING, false)
+                .addColumn("r_full_content_size", IDfAttr.DM_DOUBLE, false)
+                .addColumn("i_vstamp", IDfAttr.DM_INTEGER, false)
+                .addColumn("r_modify_date", IDfAttr.DM_TIME, false)
+                .addColumn("a_is_template", IDfAttr.DM_BOOLEAN, false)
+                .addColumn("keywords", IDfAttr.DM_STRING, true)
+                .addColumn("owner_name", IDfAttr.DM_STRING, false);
+    }
+
+    /**
+     * Add a column. Columns must be added before generate().
+     *
+     * @param name column name
+     * @param dataType IDfAttr.DM_BOOLEAN, DM_INTEGER, DM_STRING, DM_ID,
+     * DM_TIME or DM_DOUBLE
+     * @param repeating true for a repeating attribute
+     * @return this generator
+     *
+     */
+    public dmFakeCollection addColumn(String name, int dataType, boolean repeating) {
+        _columnNumbers.put(name.toLowerCase(), _columns.size());
+        _columns.add(newAttr(name, dataType, repeating));
+        return this;
+    }
+
+    /**
+     * Set the number of values of repeating columns in each row (default 3).
+     *
+     * @param count values per repeating column
+     * @return this generator
+     *
+     */
+    public dmFakeCollection setRepeatingValues(int count) {
+        _repeatingValues = count;
+        return this;
+    }
+
+    public int getRepeatingValues() {
+        return _repeatingValues;
+    }
+
+    /**
+     * Generate the rows, replacing any generated before.
+     *
+     * @param rowCount number of rows
+     * @return this generator
+     *
+     */
+    public dmFakeCollection generate(int rowCount) {
+        String[][] pools = new String[_columns.size()][];
+        for (int col = 0; col < _columns.size(); col++) {
+            if (_columns.get(col).getDataType() == IDfAttr.DM_STRING) {
+                pools[col] = new String[STRING_POOL];
+                for (int i = 0; i < STRING_POOL; i++) {
+                    pools[col][i] = _columns.get(col).getName() + "_" + i;
+                }
+            }
+        }
+        _rows = new ArrayList<IDfTypedObject>(rowCount);
+        for (int row = 0; row < rowCount; row++) {
+            Object[] values = new Object[_columns.size()];
+            for (int col = 0; col < values.length; col++) {
+                IDfAttr attr = _columns.get(col);
+                if (attr.isRepeating()) {
+                    Object[] repeating = new Object[_repeatingValues];
+                    for (int i = 0; i < repeating.length; i++) {
+                        repeating[i] = newValue(attr.getDataType(), pools[col], col, row, i);
+                    }
+                    values[col] = repeating;
+                } else {
+                    values[col] = newValue(attr.getDataType(), pools[col], col, row, 0);
+                }
+            }
+            _rows.add(newRow(values));
+        }
+        return this;
+    }
+
+    /**
+     * Return the number of rows generated.
+     *
+     * @return int row count
+     *
+     */
+    public int getRowCount() {
+        return _rows.size();
+    }
+
+    /**
+     * Return the generated rows.
+     *
+     * @return List of IDfTypedObject
+     *
+     */
+    public List<IDfTypedObject> getRows() {
+        return _rows;
+    }
+
+    public ArrayList<IDfAttr> getColumnDefs() {
+        return new ArrayList<IDfAttr>(_columns);
+    }
+
+    /**
+     * Return a new collection over all generated rows.
+     *
+     * @return IDfCollection in the ready state
+     *
+     */
+    public IDfCollection open() {
+        return open(_rows.size());
+    }
+
+    /**
+     * Return a new collection over the first rowCount generated rows, e.g.,
+     * open(0) for an empty collection with the generator's columns.
+     *
+     * @param rowCount number of rows
+     * @return IDfCollection in the ready state
+     *
+     */
+    public IDfCollection open(final int rowCount) {
+        return (IDfCollection) Proxy.newProxyInstance(dmFakeCollection.class.getClassLoader(),
+                new Class<?>[] { IDfCollection.class }, new InvocationHandler() {
+
+            private int _row = -1;
+            private boolean _closed = false;
+
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                String name = method.getName();
+                if (name.equals("next")) {
+                    if (_closed || _row + 1 >= rowCount) {
+                        return false;
+                    }
+                    _row++;
+                    return true;
+                } else if (name.equals("getTypedObject")) {
+                    return _rows.get(_row);
+                } else if (name.equals("getState")) {
+                    return (_closed ? IDfCollection.DF_CLOSED_STATE : IDfCollection.DF_READY_STATE);
+                } else if (name.equals("close")) {
+                    _closed = true;
+                    return null;
+                } else if (name.equals("getAttrCount")) {
+                    return _columns.size();
+                } else if (name.equals("getAttr")) {
+                    return _columns.get((Integer) args[0]);
+                } else if (method.getDeclaringClass() == Object.class) {
+                    return objectMethod(proxy, method, args, "dmFakeCollection");
+                }
+                // typed getters read the current row
+                try {
+                    return method.invoke(_rows.get(_row), args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+        });
+    }
+
+    private Object newValue(int dataType, String[] pool, int col, int row, int index) {
+        switch (dataType) {
+            case IDfAttr.DM_BOOLEAN:
+                return ((row + index) & 1) == 0;
+            case IDfAttr.DM_INTEGER:
+                return row % 1000 + index;
+            case IDfAttr.DM_DOUBLE:
+                return row * 1.5 + index;
+            case IDfAttr.DM_TIME:
+                return new DfTime(new Date(BASE_TIME + row * 60000L + index));
+            case IDfAttr.DM_ID:
+                return new DfId(String.format("09%06x%08x", (col << 8) + index, row));
+            default:
+                return pool[(row * 31 + index) % pool.length];
+        }
+    }
+
+    private IDfAttr newAttr(final String name, final int dataType, final boolean repeating) {
+        return (IDfAttr) Proxy.newProxyInstance(dmFakeCollection.class.getClassLoader(),
+                new Class<?>[] { IDfAttr.class }, new InvocationHandler() {
+
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                String methodName = method.getName();
+                if (methodName.equals("getName")) {
+                    return name;
+                } else if (methodName.equals("getDataType")) {
+                    return dataType;
+                } else if (methodName.equals("isRepeating")) {
+                    return repeating;
+                } else if (methodName.equals("getLength")) {
+                    return (dataType == IDfAttr.DM_STRING ? 255 : 0);
+                } else if (methodName.equals("getAllowedLength")) {
+                    return (dataType == IDfAttr.DM_STRING ? 255 : 0);
+                } else if (methodName.equals("isQualifiable")) {
+                    return true;
+                } else if (method.getDeclaringClass() == Object.class) {
+                    return objectMethod(proxy, method, args, name);
+                }
+                return defaultValue(method);
+            }
+        });
+    }
+
+    /**
+     * Create a row. values[col] holds the column's value, or an Object[] of
+     * values for repeating columns.
+     */
+    private IDfTypedObject newRow(final Object[] values) {
+        return (IDfTypedObject) Proxy.newProxyInstance(dmFakeCollection.class.getClassLoader(),
+                new Class<?>[] { IDfTypedObject.class }, new InvocationHandler() {
+
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                String name = method.getName();
+                if (name.equals("getAttrCount")) {
+                    return _columns.size();
+                } else if (name.equals("getAttr")) {
+                    return _columns.get((Integer) args[0]);
+                } else if (method.getDeclaringClass() == Object.class) {
+                    return objectMethod(proxy, method, args, "dmFakeRow");
+                } else if (args == null || !(args[0] instanceof String)) {
+                    throw new UnsupportedOperationException(name);
+                }
+
+                Integer col = _columnNumbers.get(((String) args[0]).toLowerCase());
+                if (name.equals("hasAttr")) {
+                    return col != null;
+                } else if (col == null) {
+                    throw new IllegalArgumentException("No such attribute: " + args[0]);
+                } else if (name.equals("findAttrIndex")) {
+                    return col;
+                } else if (name.equals("isAttrRepeating")) {
+                    return _columns.get(col).isRepeating();
+                } else if (name.equals("getAttrDataType")) {
+                    return _columns.get(col).getDataType();
+                } else if (name.equals("getValueCount")) {
+                    return (values[col] instanceof Object[] ? ((Object[]) values[col]).length : 1);
+                }
+
+                // getX(name) or getRepeatingX(name, index)
+                Object value = values[col];
+                if (value instanceof Object[]) {
+                    int index = (args.length > 1 ? (Integer) args[1] : 0);
+                    value = ((Object[]) value)[index];
+                }
+                Class<?> type = method.getReturnType();
+                if (type == String.class) {
+                    return format(value);
+                } else if (type == int.class) {
+                    return ((Number) value).intValue();
+                } else if (type == double.class) {
+                    return ((Number) value).doubleValue();
+                } else if (type == boolean.class || type == IDfTime.class || type == IDfId.class) {
+                    return value;
+                }
+                throw new UnsupportedOperationException(name);
+            }
+        });
+    }
+
+    private static String format(Object value) {
+        if (value instanceof Boolean) {
+            return ((Boolean) value ? "T" : "F");
+        } else if (value instanceof IDfId) {
+            return ((IDfId) value).getId();
+        } else if (value instanceof IDfTime) {
+            return ((IDfTime) value).asString(IDfTime.DF_TIME_PATTERN2);
+        }
+        return String.valueOf(value);
+    }
+
+    private static Object objectMethod(Object proxy, Method method, Object[] args, String label) {
+        String name = method.getName();
+        if (name.equals("equals")) {
+            return proxy == args[0];
+        } else if (name.equals("hashCode")) {
+            return System.identityHashCode(proxy);
+        }
+        return label + "@" + Integer.toHexString(System.identityHashCode(proxy));
+    }
+
+    private static Object defaultValue(Method method) {
+        Class<?> type = method.getReturnType();
+        if (type == boolean.class) {
+            return false;
+        } else if (type == int.class) {
+            return 0;
+        }
+        return null;
+    }
+}
+
+/*
+ *  <SDG><
+ */
@@ -0,0 +1,86 @@
+/**
+ * JMH benchmark of loading a dmRecordSet from an IDfCollection.
+ *
+ * (C) 2013 MS Roth
+ * <p/>
+ *
+ * Example use: <br/>
+ * <pre>
+ *     java -jar bench/target/benchmarks.jar dmLoadBenchmark -p rows=1000000
+ * </pre>
+ *
+ * @author M. Scott Roth, http://msroth.wordpress.com
+ * @version 1.3
+ */
+package com.dm_misc.collections.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.dm_misc.collections.dmRecordSet;
+
+/**
+ * Measures the constructor's load loop: draining a collection of
+ * <code>rows</code> rows into a record set with each Storage, and the
+ * streaming constructor, which retains a window of rows only.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+@State(Scope.Benchmark)
+public class dmLoadBenchmark {
+
+    @Param({ "10000", "100000", "1000000" })
+    public int rows;
+
+    @Param({ "OBJECTS", "COLUMNAR", "OFF_HEAP" })
+    public String storage;
+
+    @Param({ "3" })
+    public int repeatingValues;
+
+    private dmFakeCollection _data;
+
+    @Setup
+    public void setup() {
+        _data = dmFakeCollection.standard().setRepeatingValues(repeatingValues).generate(rows);
+    }
+
+    @Benchmark
+    public dmRecordSet load() throws Exception {
+        dmRecordSet dmRS = new dmRecordSet(_data.open(), dmRecordSet.Storage.valueOf(storage));
+
+        // free OFF_HEAP memory now rather than when the record set is
+        // garbage collected
+        dmRS.close();
+        return dmRS;
+    }
+
+    @Benchmark
+    public int loadStreaming() throws Exception {
+        dmRecordSet dmRS = new dmRecordSet(_data.open(), 100);
+        int count = 0;
+        while (dmRS.hasNext()) {
+            dmRS.getNextRow();
+            count++;
+        }
+        return count;
+    }
+}
+
+/*
+ *  <SDG><
+ */
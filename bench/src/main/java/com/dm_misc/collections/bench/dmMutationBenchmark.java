@@ -0,0 +1,104 @@
+/**
+ * JMH benchmark of appending rows to a dmRecordSet.
+ *
+ * (C) 2013 MS Roth
+ * <p/>
+ *
+ * Example use: <br/>
+ * <pre>
+ *     java -jar bench/target/benchmarks.jar dmMutationBenchmark -p rows=100000
+ * </pre>
+ *
+ * @author M. Scott Roth, http://msroth.wordpress.com
+ * @version 1.3
+ */
+package com.dm_misc.collections.bench;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.documentum.fc.client.IDfTypedObject;
+import com.documentum.fc.common.IDfAttr;
+import com.dm_misc.collections.dmRecordSet;
+
+/**
+ * Measures appending <code>rows</code> rows, each checked against the
+ * record set's schema, to an empty record set with addRow() one at a time
+ * and with one addRows() call, and the cost of rejecting a row whose
+ * columns do not match.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+@State(Scope.Benchmark)
+public class dmMutationBenchmark {
+
+    @Param({ "10000", "100000", "1000000" })
+    public int rows;
+
+    @Param({ "OBJECTS", "COLUMNAR" })
+    public String storage;
+
+    private dmFakeCollection _data;
+    private ArrayList<IDfTypedObject> _rows;
+    private IDfTypedObject _otherRow;
+    private dmRecordSet _rejecting;
+
+    @Setup
+    public void setup() throws Exception {
+        _data = dmFakeCollection.standard().generate(rows);
+        _rows = new ArrayList<IDfTypedObject>(_data.getRows());
+        _otherRow = new dmFakeCollection()
+                .addColumn("r_object_id", IDfAttr.DM_ID, false)
+                .addColumn("object_name", IDfAttr.DM_STRING, false)
+                .generate(1)
+                .getRows()
+                .get(0);
+        _rejecting = new dmRecordSet(_data.open(0), dmRecordSet.Storage.valueOf(storage));
+    }
+
+    @Benchmark
+    public dmRecordSet addRow() throws Exception {
+        dmRecordSet dmRS = new dmRecordSet(_data.open(0), dmRecordSet.Storage.valueOf(storage));
+        for (IDfTypedObject row : _rows) {
+            dmRS.addRow(row);
+        }
+        return dmRS;
+    }
+
+    @Benchmark
+    public dmRecordSet addRows() throws Exception {
+        dmRecordSet dmRS = new dmRecordSet(_data.open(0), dmRecordSet.Storage.valueOf(storage));
+        dmRS.addRows(_rows);
+        return dmRS;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public boolean addRowRejected() {
+        try {
+            _rejecting.addRow(_otherRow);
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+}
+
+/*
+ *  <SDG><
+ */
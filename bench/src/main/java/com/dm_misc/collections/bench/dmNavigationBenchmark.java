@@ -0,0 +1,131 @@
+/**
+ * JMH benchmark of navigating and reading a loaded dmRecordSet.
+ *
+ * (C) 2013 MS Roth
+ * <p/>
+ *
+ * Example use: <br/>
+ * <pre>
+ *     java -jar bench/target/benchmarks.jar dmNavigationBenchmark -p storage=COLUMNAR
+ * </pre>
+ *
+ * @author M. Scott Roth, http://msroth.wordpress.com
+ * @version 1.3
+ */
+package com.dm_misc.collections.bench;
+
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.documentum.fc.client.IDfTypedObject;
+import com.dm_misc.collections.dmRecordSet;
+
+/**
+ * Measures getRow(int) and typed getString(row, column) reads at random
+ * row numbers, full passes with getNextRow(), advance() and forEachRow(),
+ * and getRecordSetAsSet(), over a record set of <code>rows</code> rows.
+ * The random access benchmarks report time per row.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+@State(Scope.Benchmark)
+public class dmNavigationBenchmark {
+
+    private static final int RANDOM_ROWS = 1 << 16;
+
+    @Param({ "10000", "100000", "1000000" })
+    public int rows;
+
+    @Param({ "OBJECTS", "COLUMNAR", "OFF_HEAP" })
+    public String storage;
+
+    private dmRecordSet _dmRS;
+    private int[] _randomRows;
+    private int _next = 0;
+    private int _nameColumn;
+    private int _sizeColumn;
+
+    @Setup
+    public void setup() throws Exception {
+        dmFakeCollection data = dmFakeCollection.standard().generate(rows);
+        _dmRS = new dmRecordSet(data.open(), dmRecordSet.Storage.valueOf(storage));
+        _nameColumn = _dmRS.getColumnNumber("object_name");
+        _sizeColumn = _dmRS.getColumnNumber("r_full_content_size");
+        Random random = new Random(42);
+        _randomRows = new int[RANDOM_ROWS];
+        for (int i = 0; i < RANDOM_ROWS; i++) {
+            _randomRows[i] = random.nextInt(rows);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        _dmRS.close();
+    }
+
+    @Benchmark
+    public IDfTypedObject getRowRandom() throws Exception {
+        _next = (_next + 1) & (RANDOM_ROWS - 1);
+        return _dmRS.getRow(_randomRows[_next]);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void getNextRowPass(Blackhole bh) throws Exception {
+        _dmRS.resetToBeginning();
+        while (_dmRS.hasNext()) {
+            bh.consume(_dmRS.getNextRow());
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public double advancePass() throws Exception {
+        double total = 0;
+        _dmRS.resetToBeginning();
+        while (_dmRS.advance()) {
+            total += _dmRS.getRowView().getDouble(_sizeColumn);
+        }
+        return total;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int forEachRowPass(final Blackhole bh) throws Exception {
+        return _dmRS.forEachRow(row -> bh.consume(row.getDouble(_sizeColumn)));
+    }
+
+    @Benchmark
+    public String getStringRandom() throws Exception {
+        _next = (_next + 1) & (RANDOM_ROWS - 1);
+        return _dmRS.getString(_randomRows[_next], _nameColumn);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Set<IDfTypedObject> getRecordSetAsSet() {
+        return _dmRS.getRecordSetAsSet();
+    }
+}
+
+/*
+ *  <SDG><
+ */
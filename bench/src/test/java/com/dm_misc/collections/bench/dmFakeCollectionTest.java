@@ -0,0 +1,109 @@
+/**
+ * Tests of the dmFakeCollection generator used by the benchmarks.
+ *
+ * (C) 2013 MS Roth
+ * <p/>
+ *
+ * @author M. Scott Roth, http://msroth.wordpress.com
+ * @version 1.3
+ */
+package com.dm_misc.collections.bench;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+
+import org.junit.Test;
+
+import com.dm_misc.collections.dmRecordSet;
+import com.documentum.fc.client.IDfCollection;
+import com.documentum.fc.client.IDfTypedObject;
+import com.documentum.fc.common.IDfAttr;
+
+public class dmFakeCollectionTest {
+
+    @Test
+    public void testStandardColumns() {
+        dmFakeCollection data = dmFakeCollection.standard();
+        String[] names = { "r_object_id", "object_name", "r_full_content_size", "i_vstamp", "r_modify_date",
+            "a_is_template", "keywords", "owner_name" };
+        int[] types = { IDfAttr.DM_ID, IDfAttr.DM_STRING, IDfAttr.DM_DOUBLE, IDfAttr.DM_INTEGER, IDfAttr.DM_TIME,
+            IDfAttr.DM_BOOLEAN, IDfAttr.DM_STRING, IDfAttr.DM_STRING };
+        assertEquals(names.length, data.getColumnDefs().size());
+        for (int col = 0; col < names.length; col++) {
+            IDfAttr attr = data.getColumnDefs().get(col);
+            assertEquals(names[col], attr.getName());
+            assertEquals(types[col], attr.getDataType());
+            assertEquals(names[col].equals("keywords"), attr.isRepeating());
+        }
+        assertEquals(0, data.getRowCount());
+    }
+
+    @Test
+    public void testEachOpenReadsTheRowsAgain() throws Exception {
+        dmFakeCollection data = dmFakeCollection.standard().generate(100);
+        for (int pass = 0; pass < 2; pass++) {
+            IDfCollection col = data.open();
+            HashSet<String> ids = new HashSet<String>();
+            while (col.next()) {
+                ids.add(col.getId("r_object_id").getId());
+            }
+            assertEquals(100, ids.size());
+            assertFalse(col.next());
+            col.close();
+            assertEquals(IDfCollection.DF_CLOSED_STATE, col.getState());
+        }
+
+        IDfCollection first = data.open(3);
+        assertTrue(first.next());
+        assertTrue(first.next());
+        assertTrue(first.next());
+        assertFalse(first.next());
+        assertFalse(data.open(0).next());
+    }
+
+    @Test
+    public void testValuesAreDeterministic() throws Exception {
+        IDfTypedObject a = dmFakeCollection.standard().setRepeatingValues(5).generate(10).getRows().get(7);
+        IDfTypedObject b = dmFakeCollection.standard().setRepeatingValues(5).generate(10).getRows().get(7);
+        assertEquals(a.getString("r_object_id"), b.getString("r_object_id"));
+        assertEquals(a.getString("object_name"), b.getString("object_name"));
+        assertEquals(a.getTime("r_modify_date").getDate(), b.getTime("r_modify_date").getDate());
+        assertEquals(5, a.getValueCount("keywords"));
+        assertNotEquals(a.getRepeatingString("keywords", 0), a.getRepeatingString("keywords", 1));
+        assertEquals(10.5, a.getDouble("r_full_content_size"), 0);
+        assertEquals(7, a.getInt("i_vstamp"));
+        assertFalse(a.getBoolean("a_is_template"));
+    }
+
+    @Test
+    public void testLoadsIntoEachStorage() throws Exception {
+        dmFakeCollection data = new dmFakeCollection()
+                .addColumn("r_object_id", IDfAttr.DM_ID, false)
+                .addColumn("i_folder_id", IDfAttr.DM_ID, true)
+                .addColumn("r_version_label", IDfAttr.DM_STRING, true)
+                .setRepeatingValues(2)
+                .generate(1000);
+        for (dmRecordSet.Storage storage : dmRecordSet.Storage.values()) {
+            dmRecordSet rs = new dmRecordSet(data.open(), storage);
+            String message = storage.toString();
+            assertEquals(message, 1000, rs.getRowCount());
+            assertEquals(message, 3, rs.getColumnCount());
+            for (int row = 0; row < 1000; row += 99) {
+                IDfTypedObject expected = data.getRows().get(row);
+                assertEquals(message, expected.getString("r_object_id"), rs.getString(row, "r_object_id"));
+                assertEquals(2, rs.getValueCount(row, "i_folder_id"));
+                assertEquals(expected.getRepeatingString("r_version_label", 1),
+                        rs.getRepeatingString(row, "r_version_label", 1));
+            }
+            rs.close();
+        }
+    }
+}
+
+/*
+ *  <SDG><
+ */
@@ -0,0 +1,159 @@
+/**
+ * Background reader of the rows of an IDfCollection.
+ *
+ * (C) 2013 MS Roth
+ * <p/>
+ *
+ * @author M. Scott Roth, http://msroth.wordpress.com
+ * @version 1.3
+ */
+package com.dm_misc.collections;
+
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.documentum.fc.client.IDfCollection;
+import com.documentum.fc.client.IDfTypedObject;
+import com.documentum.fc.common.DfException;
+import com.documentum.fc.common.DfLogger;
+
+/**
+ * A dmAsyncLoader reads the rows of an IDfCollection on a daemon thread
+ * and hands them to the record set that consumes them through take(). The
+ * loader thread only touches the collection and a list of pending rows;
+ * the consuming record set adds the rows to its store on its own thread,
+ * so the store is never shared between threads. The collection is closed
+ * by the loader thread when its last row has been read, when reading
+ * fails, or after cancel().
+ */
+class dmAsyncLoader implements Runnable {
+
+    private static final AtomicInteger _threadNumber = new AtomicInteger();
+
+    private IDfCollection _col;
+    private ArrayList<IDfTypedObject> _pending = new ArrayList<IDfTypedObject>();
+    private boolean _done = false;
+    private Throwable _error = null;
+    private volatile boolean _cancelled = false;
+    private long _loadNanos = 0;
+    private CompletableFuture<Integer> _future = new CompletableFuture<Integer>();
+
+    dmAsyncLoader(IDfCollection col) {
+        _col = col;
+    }
+
+    /**
+     * Start reading on a new daemon thread.
+     */
+    void start() {
+        Thread thread = new Thread(this, "dmRecordSet-loader-" + _threadNumber.incrementAndGet());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void run() {
+        long start = System.nanoTime();
+        int count = 0;
+        Throwable error = null;
+        try {
+            while (!_cancelled && _col.next()) {
+                IDfTypedObject row = _col.getTypedObject();
+                synchronized (this) {
+                    _pending.add(row);
+
+                    // the consumer only waits when it has taken every row
+                    if (_pending.size() == 1) {
+                        notifyAll();
+                    }
+                }
+                count++;
+            }
+        } catch (Throwable e) {
+            DfLogger.warn(dmAsyncLoader.class, "Could not read next row from IDfCollection: " + e.getMessage(), null, e);
+            error = e;
+        } finally {
+            try {
+                _col.close();
+            } catch (Exception e) {
+                DfLogger.warn(dmAsyncLoader.class, "Could not close IDfCollection: " + e.getMessage(), null, e);
+            }
+            synchronized (this) {
+                _loadNanos = System.nanoTime() - start;
+                _error = error;
+                _done = true;
+                notifyAll();
+            }
+        }
+        if (error != null) {
+            _future.completeExceptionally(error);
+        } else {
+            _future.complete(count);
+        }
+    }
+
+    /**
+     * Return the rows read since the last call. If there are none and
+     * <code>wait</code> is true, block until a row is read or loading ends.
+     *
+     * @return rows read, possibly none, or null when loading has ended and
+     * every row has been taken
+     * @exception DfException if reading the collection failed (after the
+     * rows read before the failure have been taken), or the wait was
+     * interrupted
+     */
+    synchronized ArrayList<IDfTypedObject> take(boolean wait) throws DfException {
+        while (wait && _pending.isEmpty() && !_done) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new DfException("Interrupted while waiting for rows.");
+            }
+        }
+        if (!_pending.isEmpty()) {
+            ArrayList<IDfTypedObject> rows = _pending;
+            _pending = new ArrayList<IDfTypedObject>();
+            return rows;
+        }
+        if (_done) {
+            if (_error != null) {
+                Throwable error = _error;
+                _error = null;
+                throw new DfException("Could not read next row from IDfCollection: " + error.getMessage());
+            }
+            return null;
+        }
+        return new ArrayList<IDfTypedObject>();
+    }
+
+    /**
+     * Return the time the loader thread took to read the collection, once
+     * take() has returned null.
+     */
+    synchronized long getLoadNanos() {
+        return _loadNanos;
+    }
+
+    /**
+     * Stop reading. Rows not taken yet are discarded.
+     */
+    void cancel() {
+        _cancelled = true;
+        synchronized (this) {
+            _pending.clear();
+        }
+    }
+
+    /**
+     * Return the future completed with the number of rows read when
+     * loading ends.
+     */
+    CompletableFuture<Integer> getFuture() {
+        return _future;
+    }
+}
+
+/*
+ *  <SDG><
+ */
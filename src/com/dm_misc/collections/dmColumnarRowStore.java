@@ -0,0 +1,729 @@
+/**
+ * Row store that keeps each column in a primitive typed array.
+ *
+ * (C) 2013 MS Roth
+ * <p/>
+ *
+ * @author M. Scott Roth, http://msroth.wordpress.com
+ * @version 1.3
+ */
+package com.dm_misc.collections;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+
+import com.documentum.fc.client.IDfTypedObject;
+import com.documentum.fc.common.DfException;
+import com.documentum.fc.common.IDfAttr;
+
+/**
+ * Columnar dmRecordSet storage. Values are copied out of each row as it is
+ * added and the IDfTypedObject is not retained. The column layout is
+ * driven by IDfAttr.getDataType():
+ * <ul>
+ * <li>INTEGER - int[]</li>
+ * <li>DOUBLE - double[]</li>
+ * <li>BOOLEAN - BitSet</li>
+ * <li>TIME - long[] of epoch milliseconds</li>
+ * <li>ID - long[] holding the 16 hex digits of the id</li>
+ * <li>STRING - int[] of codes into a dictionary of distinct values</li>
+ * </ul>
+ * Repeating attributes keep the values of all rows in one flat column of
+ * the same layout, with the position and number of values of each row.
+ * Rows are returned by getRow() as lightweight IDfTypedObject views (see
+ * dmRowProxy).
+ */
+class dmColumnarRowStore extends dmRowStore {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private Column[] _columns;
+    private int _size = 0;
+    private int _capacity = 0;
+
+    dmColumnarRowStore(dmRecordSetSchema schema) {
+        super(schema);
+        _columns = new Column[_columnDefs.size()];
+        for (int i = 0; i < _columns.length; i++) {
+            IDfAttr attr = _columnDefs.get(i);
+            if (attr.isRepeating()) {
+                _columns[i] = new RepeatingColumn(attr.getDataType());
+            } else {
+                _columns[i] = newColumn(attr.getDataType());
+            }
+        }
+    }
+
+    @Override
+    int size() {
+        return _size;
+    }
+
+    @Override
+    void add(IDfTypedObject row) throws DfException {
+        ensureCapacity();
+        for (int i = 0; i < _columns.length; i++) {
+            _columns[i].set(_size, row, _columnDefs.get(i).getName());
+        }
+        _size++;
+    }
+
+    /**
+     * Append a row of values. Values are given in column order as Java
+     * objects (see dmRowStore.intValue() and friends); the value of a
+     * repeating attribute is an Object[] holding all of its values.
+     */
+    void addValues(Object[] values) {
+        ensureCapacity();
+        for (int i = 0; i < _columns.length; i++) {
+            _columns[i].setValue(_size, values[i]);
+        }
+        _size++;
+    }
+
+    private void ensureCapacity() {
+        if (_size == _capacity) {
+            _capacity = (_capacity == 0 ? INITIAL_CAPACITY : _capacity * 2);
+            for (Column column : _columns) {
+                column.ensureCapacity(_capacity);
+            }
+        }
+    }
+
+    @Override
+    void removeLast() {
+
+        // the values of the row are overwritten by the next row added
+        _size--;
+        for (Column column : _columns) {
+            column.clear(_size, _size + 1);
+        }
+    }
+
+    @Override
+    void setValue(int row, int col, Object value) {
+        _columns[col].setValue(row, value);
+    }
+
+    @Override
+    long estimateBytes() {
+        long bytes = 0;
+        for (Column column : _columns) {
+            bytes += column.estimateBytes(_size);
+        }
+        return bytes;
+    }
+
+    @Override
+    IDfTypedObject getRow(int row) {
+        if (row < 0 || row >= _size) {
+            throw new IndexOutOfBoundsException(String.format("Row %d is not in the record set.", row));
+        }
+        return dmRowProxy.newRow(this, row);
+    }
+
+    @Override
+    int getValueCount(int row, int col) {
+        return _columns[col].getValueCount(row);
+    }
+
+    @Override
+    String getString(int row, int col, int index) throws DfException {
+        checkIndex(row, col, index);
+        return _columns[col].getString(row, index);
+    }
+
+    @Override
+    int getInt(int row, int col, int index) throws DfException {
+        checkIndex(row, col, index);
+        return _columns[col].getInt(row, index);
+    }
+
+    @Override
+    double getDouble(int row, int col, int index) throws DfException {
+        checkIndex(row, col, index);
+        return _columns[col].getDouble(row, index);
+    }
+
+    @Override
+    boolean getBoolean(int row, int col, int index) throws DfException {
+        checkIndex(row, col, index);
+        return _columns[col].getBoolean(row, index);
+    }
+
+    @Override
+    long getTime(int row, int col, int index) throws DfException {
+        checkIndex(row, col, index);
+        return _columns[col].getTime(row, index);
+    }
+
+    @Override
+    String getId(int row, int col, int index) throws DfException {
+        checkIndex(row, col, index);
+        return _columns[col].getId(row, index);
+    }
+
+    private void checkIndex(int row, int col, int index) throws DfException {
+        if (row < 0 || row >= _size) {
+            throw new DfException(String.format("Row %d is not in the record set.", row));
+        }
+        if (index < 0 || index >= _columns[col].getValueCount(row)) {
+            throw new DfException(String.format("Value %d of %s does not exist in row %d.", index, _columnDefs.get(col).getName(), row));
+        }
+    }
+
+    private static Column newColumn(int dataType) {
+        switch (dataType) {
+            case IDfAttr.DM_BOOLEAN:
+                return new BooleanColumn();
+            case IDfAttr.DM_INTEGER:
+                return new IntColumn();
+            case IDfAttr.DM_DOUBLE:
+                return new DoubleColumn();
+            case IDfAttr.DM_TIME:
+                return new TimeColumn();
+            case IDfAttr.DM_ID:
+                return new IdColumn();
+            default:
+                return new StringColumn();
+        }
+    }
+
+    /**
+     * Storage for the values of one column. The typed getters of the base
+     * class convert from the string form of the value; subclasses override
+     * the getters for their native type.
+     */
+    private abstract static class Column {
+
+        abstract void ensureCapacity(int capacity);
+
+        abstract void set(int row, IDfTypedObject src, String name) throws DfException;
+
+        abstract void setValue(int row, Object value);
+
+        /**
+         * Set the value at a position of a flat column from a value of a
+         * repeating attribute. Only columns of single values are used as
+         * flat columns.
+         */
+        void setRepeating(int pos, IDfTypedObject src, String name, int index) throws DfException {
+            throw new UnsupportedOperationException();
+        }
+
+        /**
+         * Copy the value at one position of a flat column to another (see
+         * RepeatingColumn.compact()).
+         */
+        void move(int from, int to) {
+            throw new UnsupportedOperationException();
+        }
+
+        abstract String getString(int row, int index);
+
+        /**
+         * Release the values of rows no longer in use.
+         */
+        void clear(int from, int to) {
+        }
+
+        /**
+         * Return the approximate heap size of the column's values.
+         */
+        abstract long estimateBytes(int size);
+
+        int getValueCount(int row) {
+            return 1;
+        }
+
+        int getInt(int row, int index) {
+            return parseInt(getString(row, index));
+        }
+
+        double getDouble(int row, int index) {
+            return parseDouble(getString(row, index));
+        }
+
+        boolean getBoolean(int row, int index) {
+            return parseBoolean(getString(row, index));
+        }
+
+        long getTime(int row, int index) {
+            return NULL_TIME;
+        }
+
+        String getId(int row, int index) {
+            return getString(row, index);
+        }
+    }
+
+    private static class IntColumn extends Column {
+
+        private int[] _values = new int[0];
+
+        void ensureCapacity(int capacity) {
+            _values = Arrays.copyOf(_values, capacity);
+        }
+
+        void set(int row, IDfTypedObject src, String name) throws DfException {
+            _values[row] = src.getInt(name);
+        }
+
+        void setValue(int row, Object value) {
+            _values[row] = intValue(value);
+        }
+
+        void setRepeating(int pos, IDfTypedObject src, String name, int index) throws DfException {
+            _values[pos] = src.getRepeatingInt(name, index);
+        }
+
+        void move(int from, int to) {
+            _values[to] = _values[from];
+        }
+
+        String getString(int row, int index) {
+            return Integer.toString(_values[row]);
+        }
+
+        int getInt(int row, int index) {
+            return _values[row];
+        }
+
+        double getDouble(int row, int index) {
+            return _values[row];
+        }
+
+        boolean getBoolean(int row, int index) {
+            return _values[row] != 0;
+        }
+
+        long estimateBytes(int size) {
+            return 4L * _values.length;
+        }
+    }
+
+    private static class DoubleColumn extends Column {
+
+        private double[] _values = new double[0];
+
+        void ensureCapacity(int capacity) {
+            _values = Arrays.copyOf(_values, capacity);
+        }
+
+        void set(int row, IDfTypedObject src, String name) throws DfException {
+            _values[row] = src.getDouble(name);
+        }
+
+        void setValue(int row, Object value) {
+            _values[row] = doubleValue(value);
+        }
+
+        void setRepeating(int pos, IDfTypedObject src, String name, int index) throws DfException {
+            _values[pos] = src.getRepeatingDouble(name, index);
+        }
+
+        void move(int from, int to) {
+            _values[to] = _values[from];
+        }
+
+        String getString(int row, int index) {
+            return Double.toString(_values[row]);
+        }
+
+        int getInt(int row, int index) {
+            return (int) _values[row];
+        }
+
+        double getDouble(int row, int index) {
+            return _values[row];
+        }
+
+        long estimateBytes(int size) {
+            return 8L * _values.length;
+        }
+    }
+
+    private static class BooleanColumn extends Column {
+
+        private BitSet _values = new BitSet();
+
+        void ensureCapacity(int capacity) {
+        }
+
+        void set(int row, IDfTypedObject src, String name) throws DfException {
+            _values.set(row, src.getBoolean(name));
+        }
+
+        void setValue(int row, Object value) {
+            _values.set(row, booleanValue(value));
+        }
+
+        void setRepeating(int pos, IDfTypedObject src, String name, int index) throws DfException {
+            _values.set(pos, src.getRepeatingBoolean(name, index));
+        }
+
+        void move(int from, int to) {
+            _values.set(to, _values.get(from));
+        }
+
+        String getString(int row, int index) {
+            return formatBoolean(_values.get(row));
+        }
+
+        int getInt(int row, int index) {
+            return (_values.get(row) ? 1 : 0);
+        }
+
+        boolean getBoolean(int row, int index) {
+            return _values.get(row);
+        }
+
+        long estimateBytes(int size) {
+            return _values.size() / 8;
+        }
+    }
+
+    private static class TimeColumn extends Column {
+
+        private long[] _values = new long[0];
+
+        void ensureCapacity(int capacity) {
+            _values = Arrays.copyOf(_values, capacity);
+        }
+
+        void set(int row, IDfTypedObject src, String name) throws DfException {
+            _values[row] = toMillis(src.getTime(name));
+        }
+
+        void setValue(int row, Object value) {
+            _values[row] = timeValue(value);
+        }
+
+        void setRepeating(int pos, IDfTypedObject src, String name, int index) throws DfException {
+            _values[pos] = toMillis(src.getRepeatingTime(name, index));
+        }
+
+        void move(int from, int to) {
+            _values[to] = _values[from];
+        }
+
+        String getString(int row, int index) {
+            return formatTime(_values[row]);
+        }
+
+        long getTime(int row, int index) {
+            return _values[row];
+        }
+
+        long estimateBytes(int size) {
+            return 8L * _values.length;
+        }
+    }
+
+    /**
+     * Object ids are 16 hex digits and are stored as the 64 bit number they
+     * spell. The rare value that is not a valid id is kept as a string.
+     */
+    private static class IdColumn extends Column {
+
+        private long[] _values = new long[0];
+        private HashMap<Integer, String> _invalid = null;
+
+        void ensureCapacity(int capacity) {
+            _values = Arrays.copyOf(_values, capacity);
+        }
+
+        void set(int row, IDfTypedObject src, String name) throws DfException {
+            setValue(row, toIdString(src.getId(name)));
+        }
+
+        void setValue(int row, Object idValue) {
+            String id = idValue(idValue);
+            long value = parseId(id);
+            if (_invalid != null) {
+                _invalid.remove(row);
+            }
+            if (value == -1 && !id.equalsIgnoreCase("ffffffffffffffff")) {
+                if (_invalid == null) {
+                    _invalid = new HashMap<Integer, String>();
+                }
+                _invalid.put(row, id);
+            }
+            _values[row] = value;
+        }
+
+        void setRepeating(int pos, IDfTypedObject src, String name, int index) throws DfException {
+            setValue(pos, toIdString(src.getRepeatingId(name, index)));
+        }
+
+        void move(int from, int to) {
+            if (_invalid != null && _invalid.containsKey(from)) {
+                _invalid.put(to, _invalid.remove(from));
+            } else if (_invalid != null) {
+                _invalid.remove(to);
+            }
+            _values[to] = _values[from];
+        }
+
+        void clear(int from, int to) {
+            if (_invalid != null) {
+                for (int row = from; row < to; row++) {
+                    _invalid.remove(row);
+                }
+            }
+        }
+
+        String getString(int row, int index) {
+            if (_invalid != null && _invalid.containsKey(row)) {
+                return _invalid.get(row);
+            }
+            return formatId(_values[row]);
+        }
+
+        long estimateBytes(int size) {
+            return 8L * _values.length + (_invalid != null ? 96L * _invalid.size() : 0);
+        }
+    }
+
+    /**
+     * Strings are dictionary encoded: each distinct value is stored once and
+     * rows hold its code. Query results typically repeat a small number of
+     * values (types, owners, formats, ...) many times.
+     */
+    private static class StringColumn extends Column {
+
+        private int[] _codes = new int[0];
+        private ArrayList<String> _dictionary = new ArrayList<String>();
+        private HashMap<String, Integer> _lookup = new HashMap<String, Integer>();
+
+        void ensureCapacity(int capacity) {
+            _codes = Arrays.copyOf(_codes, capacity);
+        }
+
+        void set(int row, IDfTypedObject src, String name) throws DfException {
+            _codes[row] = encode(src.getString(name));
+        }
+
+        void setValue(int row, Object value) {
+            _codes[row] = encode(stringValue(value));
+        }
+
+        void setRepeating(int pos, IDfTypedObject src, String name, int index) throws DfException {
+            _codes[pos] = encode(src.getRepeatingString(name, index));
+        }
+
+        void move(int from, int to) {
+            _codes[to] = _codes[from];
+        }
+
+        private int encode(String value) {
+            Integer code = _lookup.get(value);
+            if (code == null) {
+                code = _dictionary.size();
+                _dictionary.add(value);
+                _lookup.put(value, code);
+            }
+            return code;
+        }
+
+        String getString(int row, int index) {
+            return _dictionary.get(_codes[row]);
+        }
+
+        long estimateBytes(int size) {
+
+            // each distinct value is held once, in the list and the map
+            long bytes = 4L * _codes.length;
+            for (String value : _dictionary) {
+                bytes += stringBytes(value) + 56;
+            }
+            return bytes;
+        }
+    }
+
+    /**
+     * Repeating attributes keep the values of all rows in one flat column of
+     * the attribute's type, e.g., an int[] or dictionary codes, and for each
+     * row the position of its first value and its number of values. No
+     * object is created per row or per value.
+     *
+     * New values of a row overwrite its old ones when they fit and are
+     * appended otherwise. The flat column is compacted when it has to grow
+     * while less than half of it holds values of rows.
+     */
+    private static class RepeatingColumn extends Column {
+
+        private Column _flat;
+        private int[] _starts = new int[0];
+        private int[] _counts = new int[0];
+        private int _used = 0;
+        private int _live = 0;
+        private int _flatCapacity = 0;
+
+        RepeatingColumn(int dataType) {
+            _flat = newColumn(dataType);
+        }
+
+        void ensureCapacity(int capacity) {
+            _starts = Arrays.copyOf(_starts, capacity);
+            _counts = Arrays.copyOf(_counts, capacity);
+        }
+
+        void set(int row, IDfTypedObject src, String name) throws DfException {
+            int count = src.getValueCount(name);
+            int start = allocate(row, count);
+            for (int i = 0; i < count; i++) {
+                _flat.setRepeating(start + i, src, name, i);
+            }
+        }
+
+        void setValue(int row, Object value) {
+            Object[] values = (value instanceof Object[] ? (Object[]) value : new Object[]{value});
+            int start = allocate(row, values.length);
+            for (int i = 0; i < values.length; i++) {
+                _flat.setValue(start + i, values[i]);
+            }
+        }
+
+        /**
+         * Return the flat position for count values of a row, reusing the
+         * row's current position if they fit.
+         */
+        private int allocate(int row, int count) {
+            int old = _counts[row];
+            if (count <= old) {
+                _counts[row] = count;
+                _live -= old - count;
+                return _starts[row];
+            }
+            _counts[row] = 0;
+            _live -= old;
+            if (_used + count > _flatCapacity) {
+                if (_live < _used / 2) {
+                    compact();
+                }
+                if (_used + count > _flatCapacity) {
+                    _flatCapacity = Math.max(INITIAL_CAPACITY, Math.max(_flatCapacity * 2, _used + count));
+                    _flat.ensureCapacity(_flatCapacity);
+                }
+            }
+            _starts[row] = _used;
+            _counts[row] = count;
+            _used += count;
+            _live += count;
+            return _starts[row];
+        }
+
+        /**
+         * Move the values of all rows to the front of the flat column,
+         * keeping their order.
+         */
+        private void compact() {
+            long[] order = new long[_counts.length];
+            int rows = 0;
+            for (int row = 0; row < _counts.length; row++) {
+                if (_counts[row] > 0) {
+                    order[rows++] = ((long) _starts[row] << 32) | row;
+                }
+            }
+            Arrays.sort(order, 0, rows);
+            int to = 0;
+            for (int i = 0; i < rows; i++) {
+                int row = (int) order[i];
+                int from = _starts[row];
+                if (from != to) {
+                    for (int v = 0; v < _counts[row]; v++) {
+                        _flat.move(from + v, to + v);
+                    }
+                }
+                _starts[row] = to;
+                to += _counts[row];
+            }
+            _flat.clear(to, _used);
+            _used = to;
+        }
+
+        void clear(int from, int to) {
+            for (int row = from; row < to; row++) {
+                int count = _counts[row];
+                if (count > 0 && _starts[row] + count == _used) {
+
+                    // the last values added, e.g., of a row just removed
+                    _flat.clear(_starts[row], _used);
+                    _used = _starts[row];
+                }
+                _live -= count;
+                _counts[row] = 0;
+            }
+        }
+
+        int getValueCount(int row) {
+            return _counts[row];
+        }
+
+        String getString(int row, int index) {
+            return _flat.getString(_starts[row] + index, 0);
+        }
+
+        int getInt(int row, int index) {
+            return _flat.getInt(_starts[row] + index, 0);
+        }
+
+        double getDouble(int row, int index) {
+            return _flat.getDouble(_starts[row] + index, 0);
+        }
+
+        boolean getBoolean(int row, int index) {
+            return _flat.getBoolean(_starts[row] + index, 0);
+        }
+
+        long getTime(int row, int index) {
+            return _flat.getTime(_starts[row] + index, 0);
+        }
+
+        String getId(int row, int index) {
+            return _flat.getId(_starts[row] + index, 0);
+        }
+
+        long estimateBytes(int size) {
+            return 8L * _starts.length + _flat.estimateBytes(_used);
+        }
+    }
+
+    /**
+     * Convert a 16 hex digit object id to the number it spells, or -1 if it
+     * is not a valid id.
+     */
+    static long parseId(String id) {
+        if (id == null || id.length() != 16) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = 0; i < 16; i++) {
+            int digit = Character.digit(id.charAt(i), 16);
+            if (digit < 0) {
+                return -1;
+            }
+            value = (value << 4) | digit;
+        }
+        return value;
+    }
+
+    /**
+     * Convert a number back to its 16 hex digit object id.
+     */
+    static String formatId(long value) {
+        char[] chars = new char[16];
+        for (int i = 15; i >= 0; i--) {
+            chars[i] = Character.forDigit((int) (value & 0xf), 16);
+            value >>>= 4;
+        }
+        return new String(chars);
+    }
+}
+
+/*
+ *  <SDG><
+ */
@@ -0,0 +1,128 @@
+/**
+ * The outcome of writing the changed values of a dmRecordSet back to the
+ * repository.
+ *
+ * (C) 2013 MS Roth
+ * <p/>
+ *
+ * Example use: <br/>
+ * <pre>
+ *     dmCommitResult result = dmRS.commit(session, 500);
+ *     for (int row : result.getFailedRows()) {
+ *         System.out.println("row " + row + ": " + result.getFailure(row));
+ *     }
+ * </pre>
+ *
+ * @author M. Scott Roth, http://msroth.wordpress.com
+ * @version 1.3
+ */
+package com.dm_misc.collections;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * A dmCommitResult lists the rows dmRecordSet.commit() wrote, the rows it
+ * could not write with the reason for each, and the DQL statements it
+ * ran. Rows that failed stay changed in the record set and are written
+ * again by the next commit().
+ */
+public final class dmCommitResult {
+
+    private TreeSet<Integer> _updated = new TreeSet<Integer>();
+    private TreeMap<Integer, String> _failures = new TreeMap<Integer, String>();
+    private ArrayList<String> _statements = new ArrayList<String>();
+
+    dmCommitResult() {
+    }
+
+    void updated(int row) {
+        _updated.add(row);
+    }
+
+    void failed(int row, String message) {
+        _failures.put(row, message);
+    }
+
+    void executed(String dql) {
+        _statements.add(dql);
+    }
+
+    /**
+     * Return the numbers of the rows whose changes were written.
+     *
+     * @return int[] row numbers in ascending order
+     *
+     */
+    public int[] getUpdatedRows() {
+        return toArray(_updated);
+    }
+
+    /**
+     * Return the numbers of the rows whose changes could not be written.
+     *
+     * @return int[] row numbers in ascending order
+     *
+     */
+    public int[] getFailedRows() {
+        return toArray(_failures.keySet());
+    }
+
+    /**
+     * Return why the changes of a row could not be written.
+     *
+     * @param rowNumber row number
+     * @return String error message, or null if the row did not fail
+     *
+     */
+    public String getFailure(int rowNumber) {
+        return _failures.get(rowNumber);
+    }
+
+    /**
+     * Return the DQL statements run, in the order they were run, including
+     * statements that failed.
+     *
+     * @return List of DQL statements
+     *
+     */
+    public List<String> getStatements() {
+        return Collections.unmodifiableList(_statements);
+    }
+
+    public int getStatementCount() {
+        return _statements.size();
+    }
+
+    /**
+     * Indicates if the changes of all rows were written.
+     *
+     * @return true, if no row failed, else false.
+     *
+     */
+    public boolean isSuccessful() {
+        return _failures.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("updated=%d, failed=%d, statements=%d", _updated.size(), _failures.size(), _statements.size());
+    }
+
+    private static int[] toArray(Set<Integer> rows) {
+        int[] result = new int[rows.size()];
+        int i = 0;
+        for (int row : rows) {
+            result[i++] = row;
+        }
+        return result;
+    }
+}
+
+/*
+ *  <SDG><
+ */
@@ -0,0 +1,164 @@
+/**
+ * Options for exporting a dmRecordSet to CSV or JSON Lines.
+ *
+ * (C) 2013 MS Roth
+ * <p/>
+ *
+ * Example use: <br/>
+ * <pre>
+ *     dmExportOptions options = new dmExportOptions()
+ *             .setDelimiter(';')
+ *             .setRepeatingSeparator(",");
+ *     Writer out = Files.newBufferedWriter(Paths.get("docs.csv"), StandardCharsets.UTF_8);
+ *     dmRS.exportCsv(out, options);
+ *     out.close();
+ * </pre>
+ *
+ * @author M. Scott Roth, http://msroth.wordpress.com
+ * @version 1.3
+ */
+package com.dm_misc.collections;
+
+import java.nio.charset.Charset;
+
+/**
+ * Export options. The defaults write RFC 4180 CSV (comma delimited,
+ * double quote, CRLF line ends, with a header row), join the values of
+ * repeating attributes with "|" in CSV, and write times in ISO 8601 format
+ * (yyyy-MM-dd'T'HH:mm:ss, local time). Setters return the options so they
+ * can be chained.
+ */
+public class dmExportOptions {
+
+    private char _delimiter = ',';
+    private char _quote = '"';
+    private boolean _header = true;
+    private String _repeatingSeparator = "|";
+    private String _lineSeparator = "\r\n";
+    private String _timePattern = null;
+    private Charset _charset = Charset.forName("UTF-8");
+
+    /**
+     * Set the CSV field delimiter (default ',').
+     *
+     * @param delimiter field delimiter
+     * @return these options
+     *
+     */
+    public dmExportOptions setDelimiter(char delimiter) {
+        _delimiter = delimiter;
+        return this;
+    }
+
+    public char getDelimiter() {
+        return _delimiter;
+    }
+
+    /**
+     * Set the CSV quote character (default '"'). Fields containing the
+     * delimiter, the quote, the repeating separator or a line break are
+     * quoted, with quotes doubled.
+     *
+     * @param quote quote character
+     * @return these options
+     *
+     */
+    public dmExportOptions setQuote(char quote) {
+        _quote = quote;
+        return this;
+    }
+
+    public char getQuote() {
+        return _quote;
+    }
+
+    /**
+     * Set whether CSV output starts with a row of column names (default
+     * true).
+     *
+     * @param header true to write a header row
+     * @return these options
+     *
+     */
+    public dmExportOptions setHeader(boolean header) {
+        _header = header;
+        return this;
+    }
+
+    public boolean isHeader() {
+        return _header;
+    }
+
+    /**
+     * Set the separator placed between the values of a repeating attribute
+     * in a CSV field (default "|"). JSON Lines output writes repeating
+     * attributes as arrays.
+     *
+     * @param separator repeating value separator
+     * @return these options
+     *
+     */
+    public dmExportOptions setRepeatingSeparator(String separator) {
+        _repeatingSeparator = separator;
+        return this;
+    }
+
+    public String getRepeatingSeparator() {
+        return _repeatingSeparator;
+    }
+
+    /**
+     * Set the line separator (default "\r\n").
+     *
+     * @param separator line separator
+     * @return these options
+     *
+     */
+    public dmExportOptions setLineSeparator(String separator) {
+        _lineSeparator = separator;
+        return this;
+    }
+
+    public String getLineSeparator() {
+        return _lineSeparator;
+    }
+
+    /**
+     * Set a java.text.SimpleDateFormat pattern for times, or null for ISO
+     * 8601 (default). ISO 8601 times are formatted without creating
+     * objects; other patterns go through SimpleDateFormat.
+     *
+     * @param pattern date format pattern or null
+     * @return these options
+     *
+     */
+    public dmExportOptions setTimePattern(String pattern) {
+        _timePattern = pattern;
+        return this;
+    }
+
+    public String getTimePattern() {
+        return _timePattern;
+    }
+
+    /**
+     * Set the character set used when exporting to an OutputStream (default
+     * UTF-8).
+     *
+     * @param charset character set
+     * @return these options
+     *
+     */
+    public dmExportOptions setCharset(Charset charset) {
+        _charset = charset;
+        return this;
+    }
+
+    public Charset getCharset() {
+        return _charset;
+    }
+}
+
+/*
+ *  <SDG><
+ */
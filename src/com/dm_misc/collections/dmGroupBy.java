@@ -0,0 +1,740 @@
+/**
+ * Group-by and aggregate operations over a dmRecordSet.
+ *
+ * (C) 2013 MS Roth
+ * <p/>
+ *
+ * Example use: <br/>
+ * <pre>
+ *     // bytes and document count per content type
+ *     dmRecordSet report = dmRS.groupBy("a_content_type")
+ *             .count()
+ *             .sum("r_full_content_size")
+ *             .countDistinct("owner_name")
+ *             .aggregate();
+ *
+ *     while (report.hasNext()) {
+ *         tObj = report.getNextRow();
+ *         System.out.println(tObj.getString("a_content_type") + "\t"
+ *             + tObj.getInt("count") + "\t"
+ *             + tObj.getDouble("sum_r_full_content_size"));
+ *     }
+ * </pre>
+ *
+ * @author M. Scott Roth, http://msroth.wordpress.com
+ * @version 1.3
+ */
+package com.dm_misc.collections;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import com.documentum.fc.common.DfException;
+import com.documentum.fc.common.IDfAttr;
+
+/**
+ * A dmGroupBy collects aggregates to compute for each distinct combination
+ * of values of its key columns. aggregate() returns a new dmRecordSet with
+ * one row per group, in order of first appearance. Its columns are the key
+ * columns followed by one column per aggregate, named:
+ * <ul>
+ * <li>count() - "count" (INTEGER, number of rows)</li>
+ * <li>sum(col) - "sum_col" (DOUBLE)</li>
+ * <li>avg(col) - "avg_col" (DOUBLE)</li>
+ * <li>min(col) - "min_col" (type of col)</li>
+ * <li>max(col) - "max_col" (type of col)</li>
+ * <li>countDistinct(col) - "count_distinct_col" (INTEGER)</li>
+ * </ul>
+ * All values of a repeating attribute contribute to its aggregates; a
+ * repeating key column is grouped by its first value. Key values,
+ * distinct values and the values of min() and max() are compared by type
+ * as findRows() and distinct() compare them: object ids ignore case
+ * (min() and max() return them in lower case), times compare by
+ * millisecond.
+ *
+ * Rows are grouped with an open addressing table of group numbers, hashed
+ * from the typed key values of each row; the values of two rows are only
+ * compared when their hashes are equal. countDistinct() keeps a similar
+ * table of (group, value) entries per aggregate. Values are referred to by
+ * row number, so no key objects are created per row. Aggregates are
+ * accumulated in primitive arrays indexed by group. Large record sets are
+ * split into partitions that are aggregated in parallel and then merged.
+ */
+public class dmGroupBy {
+
+    private static final int COUNT = 0;
+    private static final int SUM = 1;
+    private static final int AVG = 2;
+    private static final int MIN = 3;
+    private static final int MAX = 4;
+    private static final int COUNT_DISTINCT = 5;
+    private static final String[] PREFIXES = {"count", "sum_", "avg_", "min_", "max_", "count_distinct_"};
+
+    private dmRowStore _store;
+    private int[] _keys;
+    private ArrayList<Aggregate> _aggregates = new ArrayList<Aggregate>();
+
+    dmGroupBy(dmRowStore store, int[] keys) {
+        _store = store;
+        _keys = keys;
+    }
+
+    /**
+     * Count the rows in each group.
+     *
+     * @return this dmGroupBy
+     *
+     */
+    public dmGroupBy count() {
+        _aggregates.add(new Aggregate(COUNT, -1, IDfAttr.DM_INTEGER));
+        return this;
+    }
+
+    /**
+     * Sum the values of a numeric column in each group.
+     *
+     * @param columnName INTEGER or DOUBLE column
+     * @return this dmGroupBy
+     * @exception DfException if the column does not exist or is not numeric
+     *
+     */
+    public dmGroupBy sum(String columnName) throws DfException {
+        return addNumeric(SUM, columnName);
+    }
+
+    /**
+     * Average the values of a numeric column in each group.
+     *
+     * @param columnName INTEGER or DOUBLE column
+     * @return this dmGroupBy
+     * @exception DfException if the column does not exist or is not numeric
+     *
+     */
+    public dmGroupBy avg(String columnName) throws DfException {
+        return addNumeric(AVG, columnName);
+    }
+
+    /**
+     * Find the smallest value of a column in each group.
+     *
+     * @param columnName name of the column
+     * @return this dmGroupBy
+     * @exception DfException if the column does not exist
+     *
+     */
+    public dmGroupBy min(String columnName) throws DfException {
+        int col = column(columnName);
+        _aggregates.add(new Aggregate(MIN, col, dataType(col)));
+        return this;
+    }
+
+    /**
+     * Find the largest value of a column in each group.
+     *
+     * @param columnName name of the column
+     * @return this dmGroupBy
+     * @exception DfException if the column does not exist
+     *
+     */
+    public dmGroupBy max(String columnName) throws DfException {
+        int col = column(columnName);
+        _aggregates.add(new Aggregate(MAX, col, dataType(col)));
+        return this;
+    }
+
+    /**
+     * Count the distinct values of a column in each group.
+     *
+     * @param columnName name of the column
+     * @return this dmGroupBy
+     * @exception DfException if the column does not exist
+     *
+     */
+    public dmGroupBy countDistinct(String columnName) throws DfException {
+        _aggregates.add(new Aggregate(COUNT_DISTINCT, column(columnName), IDfAttr.DM_INTEGER));
+        return this;
+    }
+
+    /**
+     * Compute the aggregates and return them as a record set with one row
+     * per group.
+     *
+     * @return dmRecordSet of groups and their aggregates
+     * @exception DfException
+     *
+     */
+    public dmRecordSet aggregate() throws DfException {
+        Partial result = aggregateRows();
+
+        // build result columns: keys, then aggregates
+        ArrayList<IDfAttr> columnDefs = new ArrayList<IDfAttr>();
+        for (int col : _keys) {
+            IDfAttr attr = _store.getColumnDefs().get(col);
+            if (attr.isRepeating()) {
+                attr = dmRecordSetSchema.newAttr(attr.getName(), attr.getDataType(), false);
+            }
+            columnDefs.add(attr);
+        }
+        for (Aggregate aggregate : _aggregates) {
+            columnDefs.add(aggregate._attr);
+        }
+
+        // the key values of a group are those of its first row
+        dmColumnarRowStore store = new dmColumnarRowStore(new dmRecordSetSchema(columnDefs));
+        Object[] values = new Object[columnDefs.size()];
+        for (int g = 0; g < result._groupCount; g++) {
+            int row = result._groupRows[g];
+            for (int k = 0; k < _keys.length; k++) {
+                values[k] = (_store.getValueCount(row, _keys[k]) > 0 ? readValue(row, _keys[k], 0) : null);
+            }
+            for (int a = 0; a < _aggregates.size(); a++) {
+                values[_keys.length + a] = result._accumulators[a].result(g, result._rows[g]);
+            }
+            store.addValues(values);
+        }
+        return new dmRecordSet(store);
+    }
+
+    private dmGroupBy addNumeric(int function, String columnName) throws DfException {
+        int col = column(columnName);
+        int type = dataType(col);
+        if (type != IDfAttr.DM_INTEGER && type != IDfAttr.DM_DOUBLE) {
+            throw new DfException(String.format("Column %s is not numeric.", columnName));
+        }
+        _aggregates.add(new Aggregate(function, col, IDfAttr.DM_DOUBLE));
+        return this;
+    }
+
+    private int column(String columnName) throws DfException {
+        int col = _store.findColumn(columnName);
+        if (col < 0) {
+            throw new DfException(String.format("Column %s does not exist in the record set.", columnName));
+        }
+        return col;
+    }
+
+    private int dataType(int col) {
+        return _store.getColumnDefs().get(col).getDataType();
+    }
+
+    /**
+     * Aggregate all rows, in parallel partitions for large record sets.
+     */
+    private Partial aggregateRows() throws DfException {
+        int size = _store.size();
+        if (size < dmRowOrdering.PARALLEL_THRESHOLD) {
+            return new Partial(0, size).call();
+        }
+
+        int partitions = ForkJoinPool.commonPool().getParallelism() * 4;
+        List<Callable<Partial>> tasks = new ArrayList<Callable<Partial>>();
+        for (int p = 0; p < partitions; p++) {
+            tasks.add(new Partial((int) ((long) size * p / partitions), (int) ((long) size * (p + 1) / partitions)));
+        }
+        Partial result = null;
+        for (Future<Partial> future : ForkJoinPool.commonPool().invokeAll(tasks)) {
+            Partial partial;
+            try {
+                partial = future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new DfException("Interrupted while aggregating the record set.");
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof DfException) {
+                    throw (DfException) e.getCause();
+                }
+                throw new RuntimeException(e.getCause());
+            }
+            if (result == null) {
+                result = partial;
+            } else {
+                result.merge(partial);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Read a value of a column in the form dmColumnarRowStore.addValues()
+     * accepts.
+     */
+    private Object readValue(int row, int col, int index) throws DfException {
+        switch (dataType(col)) {
+            case IDfAttr.DM_BOOLEAN:
+                return _store.getBoolean(row, col, index);
+            case IDfAttr.DM_INTEGER:
+                return _store.getInt(row, col, index);
+            case IDfAttr.DM_DOUBLE:
+                return _store.getDouble(row, col, index);
+            case IDfAttr.DM_TIME:
+                return _store.getTime(row, col, index);
+            case IDfAttr.DM_ID:
+                return _store.getId(row, col, index);
+            default:
+                return _store.getString(row, col, index);
+        }
+    }
+
+    /**
+     * Hash a value of a column by its type; object ids ignore case.
+     */
+    private long valueHash(int row, int col, int index) throws DfException {
+        switch (dataType(col)) {
+            case IDfAttr.DM_BOOLEAN:
+                return (_store.getBoolean(row, col, index) ? 1 : 0);
+            case IDfAttr.DM_INTEGER:
+                return _store.getInt(row, col, index);
+            case IDfAttr.DM_DOUBLE:
+                return Double.doubleToLongBits(_store.getDouble(row, col, index));
+            case IDfAttr.DM_TIME:
+                return _store.getTime(row, col, index);
+            case IDfAttr.DM_ID:
+                return _store.getId(row, col, index).toLowerCase().hashCode();
+            default:
+                return _store.getString(row, col, index).hashCode();
+        }
+    }
+
+    /**
+     * Compare two values of a column by their type.
+     */
+    private boolean valueEquals(int col, int rowA, int indexA, int rowB, int indexB) throws DfException {
+        switch (dataType(col)) {
+            case IDfAttr.DM_BOOLEAN:
+                return _store.getBoolean(rowA, col, indexA) == _store.getBoolean(rowB, col, indexB);
+            case IDfAttr.DM_INTEGER:
+                return _store.getInt(rowA, col, indexA) == _store.getInt(rowB, col, indexB);
+            case IDfAttr.DM_DOUBLE:
+                return Double.doubleToLongBits(_store.getDouble(rowA, col, indexA))
+                        == Double.doubleToLongBits(_store.getDouble(rowB, col, indexB));
+            case IDfAttr.DM_TIME:
+                return _store.getTime(rowA, col, indexA) == _store.getTime(rowB, col, indexB);
+            case IDfAttr.DM_ID:
+                return _store.getId(rowA, col, indexA).equalsIgnoreCase(_store.getId(rowB, col, indexB));
+            default:
+                return _store.getString(rowA, col, indexA).equals(_store.getString(rowB, col, indexB));
+        }
+    }
+
+    /**
+     * Hash the key values of a row. An empty repeating key is a null key.
+     */
+    private long keyHash(int row) throws DfException {
+        long h = 1;
+        for (int col : _keys) {
+            h = h * 31 + (_store.getValueCount(row, col) > 0 ? valueHash(row, col, 0) : 0);
+        }
+        return mix(h);
+    }
+
+    private boolean keyEquals(int rowA, int rowB) throws DfException {
+        for (int col : _keys) {
+            boolean present = (_store.getValueCount(rowA, col) > 0);
+            if (present != (_store.getValueCount(rowB, col) > 0)) {
+                return false;
+            }
+            if (present && !valueEquals(col, rowA, 0, rowB, 0)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Spread the bits of a hash, so its low bits (slots) vary.
+     */
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * An aggregate function applied to a column.
+     */
+    private class Aggregate {
+
+        private int _function;
+        private int _col;
+        private int _sourceType;
+        private IDfAttr _attr;
+
+        Aggregate(int function, int col, int resultType) {
+            _function = function;
+            _col = col;
+            _sourceType = (col >= 0 ? dataType(col) : IDfAttr.DM_INTEGER);
+            if (function == MIN || function == MAX) {
+                resultType = _sourceType;
+            }
+            String name = PREFIXES[function] + (col >= 0 ? _store.getColumnDefs().get(col).getName() : "");
+            _attr = dmRecordSetSchema.newAttr(name, resultType, false);
+        }
+    }
+
+    /**
+     * Accumulated values of one aggregate for each group. Depending on the
+     * function and the column type, only some of the arrays are used; for
+     * countDistinct(), _longs holds the number of distinct values.
+     */
+    private class Accumulator {
+
+        private Aggregate _aggregate;
+        private long[] _counts = new long[16];
+        private double[] _doubles;
+        private long[] _longs;
+        private String[] _strings;
+        private ValueSet _distinct;
+
+        Accumulator(Aggregate aggregate) {
+            _aggregate = aggregate;
+            int function = aggregate._function;
+            if (function == COUNT_DISTINCT) {
+                _distinct = new ValueSet(aggregate._col);
+                _longs = new long[16];
+            } else if (function == SUM || function == AVG) {
+                _doubles = new double[16];
+            } else if (function == MIN || function == MAX) {
+                switch (aggregate._sourceType) {
+                    case IDfAttr.DM_TIME:
+                        _longs = new long[16];
+                        break;
+                    case IDfAttr.DM_STRING:
+                    case IDfAttr.DM_ID:
+                        _strings = new String[16];
+                        break;
+                    default:
+                        _doubles = new double[16];
+                }
+            }
+        }
+
+        void grow(int groups) {
+            if (groups > _counts.length) {
+                int capacity = Math.max(groups, _counts.length * 2);
+                _counts = Arrays.copyOf(_counts, capacity);
+                if (_doubles != null) {
+                    _doubles = Arrays.copyOf(_doubles, capacity);
+                }
+                if (_longs != null) {
+                    _longs = Arrays.copyOf(_longs, capacity);
+                }
+                if (_strings != null) {
+                    _strings = Arrays.copyOf(_strings, capacity);
+                }
+            }
+        }
+
+        void add(int group, int row) throws DfException {
+            int col = _aggregate._col;
+            if (col < 0) {
+                return;
+            }
+            int count = _store.getValueCount(row, col);
+            for (int i = 0; i < count; i++) {
+                switch (_aggregate._function) {
+                    case SUM:
+                    case AVG:
+                        _doubles[group] += _store.getDouble(row, col, i);
+                        break;
+                    case MIN:
+                    case MAX:
+                        boolean first = (_counts[group] == 0);
+                        boolean min = (_aggregate._function == MIN);
+                        if (_longs != null) {
+                            long value = _store.getTime(row, col, i);
+                            if (first || (min ? value < _longs[group] : value > _longs[group])) {
+                                _longs[group] = value;
+                            }
+                        } else if (_strings != null) {
+                            // ids are compared and returned in lower case, as
+                            // they are grouped
+                            String value = (_aggregate._sourceType == IDfAttr.DM_ID
+                                    ? _store.getId(row, col, i).toLowerCase() : _store.getString(row, col, i));
+                            if (first || (min ? value.compareTo(_strings[group]) < 0 : value.compareTo(_strings[group]) > 0)) {
+                                _strings[group] = value;
+                            }
+                        } else {
+                            double value = (_aggregate._sourceType == IDfAttr.DM_BOOLEAN
+                                    ? (_store.getBoolean(row, col, i) ? 1 : 0) : _store.getDouble(row, col, i));
+                            if (first || (min ? value < _doubles[group] : value > _doubles[group])) {
+                                _doubles[group] = value;
+                            }
+                        }
+                        break;
+                    case COUNT_DISTINCT:
+                        if (_distinct.add(group, row, i)) {
+                            _longs[group]++;
+                        }
+                        break;
+                }
+                _counts[group]++;
+            }
+        }
+
+        /**
+         * Combine the accumulated values of the groups of another partition
+         * into the groups of this one.
+         *
+         * @param groups group in this partition of each group of the other
+         */
+        void merge(Accumulator other, int[] groups) throws DfException {
+            for (int otherGroup = 0; otherGroup < groups.length; otherGroup++) {
+                merge(groups[otherGroup], other, otherGroup);
+            }
+            if (_distinct != null) {
+                _distinct.addAll(other._distinct, groups, _longs);
+            }
+        }
+
+        private void merge(int group, Accumulator other, int otherGroup) {
+            if (other._counts[otherGroup] == 0) {
+                return;
+            }
+            boolean first = (_counts[group] == 0);
+            switch (_aggregate._function) {
+                case SUM:
+                case AVG:
+                    _doubles[group] += other._doubles[otherGroup];
+                    break;
+                case MIN:
+                case MAX:
+                    boolean min = (_aggregate._function == MIN);
+                    if (_longs != null) {
+                        long value = other._longs[otherGroup];
+                        if (first || (min ? value < _longs[group] : value > _longs[group])) {
+                            _longs[group] = value;
+                        }
+                    } else if (_strings != null) {
+                        String value = other._strings[otherGroup];
+                        if (first || (min ? value.compareTo(_strings[group]) < 0 : value.compareTo(_strings[group]) > 0)) {
+                            _strings[group] = value;
+                        }
+                    } else {
+                        double value = other._doubles[otherGroup];
+                        if (first || (min ? value < _doubles[group] : value > _doubles[group])) {
+                            _doubles[group] = value;
+                        }
+                    }
+                    break;
+            }
+            _counts[group] += other._counts[otherGroup];
+        }
+
+        /**
+         * Return the value of the aggregate for a group.
+         */
+        Object result(int group, long rows) {
+            switch (_aggregate._function) {
+                case COUNT:
+                    return (int) rows;
+                case SUM:
+                    return _doubles[group];
+                case AVG:
+                    return (_counts[group] == 0 ? 0.0 : _doubles[group] / _counts[group]);
+                case COUNT_DISTINCT:
+                    return (int) _longs[group];
+                default:
+                    if (_counts[group] == 0) {
+                        return null;
+                    } else if (_longs != null) {
+                        return _longs[group];
+                    } else if (_strings != null) {
+                        return _strings[group];
+                    } else if (_aggregate._sourceType == IDfAttr.DM_BOOLEAN) {
+                        return _doubles[group] != 0;
+                    }
+                    return _doubles[group];
+            }
+        }
+    }
+
+    /**
+     * The distinct (group, value) pairs of a column, in an open addressing
+     * table. A value is referred to by its row number and value index.
+     */
+    private class ValueSet {
+
+        private int _col;
+        private int _size = 0;
+        private int[] _groups = new int[16]; // group + 1; 0 is an empty slot
+        private long[] _refs = new long[16];
+        private long[] _hashes = new long[16];
+
+        ValueSet(int col) {
+            _col = col;
+        }
+
+        /**
+         * Add a value of a row to a group.
+         *
+         * @return true, if the group did not contain the value yet
+         */
+        boolean add(int group, int row, int index) throws DfException {
+            return add(group, ((long) row << 32) | index, valueHash(row, _col, index));
+        }
+
+        /**
+         * Add the pairs of another set, mapping its groups to the groups of
+         * this set, and count the new values per group.
+         */
+        void addAll(ValueSet other, int[] groups, long[] counts) throws DfException {
+            for (int slot = 0; slot < other._groups.length; slot++) {
+                if (other._groups[slot] != 0) {
+                    int group = groups[other._groups[slot] - 1];
+                    if (add(group, other._refs[slot], other._hashes[slot])) {
+                        counts[group]++;
+                    }
+                }
+            }
+        }
+
+        private boolean add(int group, long ref, long hash) throws DfException {
+            int mask = _groups.length - 1;
+            int slot = (int) mix(hash * 31 + group) & mask;
+            while (_groups[slot] != 0) {
+                if (_groups[slot] == group + 1 && _hashes[slot] == hash
+                        && valueEquals(_col, (int) (ref >>> 32), (int) ref, (int) (_refs[slot] >>> 32), (int) _refs[slot])) {
+                    return false;
+                }
+                slot = (slot + 1) & mask;
+            }
+            _groups[slot] = group + 1;
+            _refs[slot] = ref;
+            _hashes[slot] = hash;
+            if (++_size * 2 > _groups.length) {
+                resize();
+            }
+            return true;
+        }
+
+        private void resize() {
+            int[] groups = _groups;
+            long[] refs = _refs;
+            long[] hashes = _hashes;
+            _groups = new int[groups.length * 2];
+            _refs = new long[groups.length * 2];
+            _hashes = new long[groups.length * 2];
+            int mask = _groups.length - 1;
+            for (int i = 0; i < groups.length; i++) {
+                if (groups[i] != 0) {
+                    int slot = (int) mix(hashes[i] * 31 + groups[i] - 1) & mask;
+                    while (_groups[slot] != 0) {
+                        slot = (slot + 1) & mask;
+                    }
+                    _groups[slot] = groups[i];
+                    _refs[slot] = refs[i];
+                    _hashes[slot] = hashes[i];
+                }
+            }
+        }
+    }
+
+    /**
+     * Groups and accumulators for a range of rows. A group is identified by
+     * its first row, whose key values are compared with those of the rows
+     * that follow.
+     */
+    private class Partial implements Callable<Partial> {
+
+        private int _from;
+        private int _to;
+        private int[] _table = new int[32]; // group + 1; 0 is an empty slot
+        private int[] _groupRows = new int[16];
+        private long[] _groupHashes = new long[16];
+        private long[] _rows = new long[16];
+        private int _groupCount = 0;
+        private Accumulator[] _accumulators;
+
+        Partial(int from, int to) {
+            _from = from;
+            _to = to;
+            _accumulators = new Accumulator[_aggregates.size()];
+            for (int a = 0; a < _accumulators.length; a++) {
+                _accumulators[a] = new Accumulator(_aggregates.get(a));
+            }
+        }
+
+        public Partial call() throws DfException {
+            for (int row = _from; row < _to; row++) {
+                int group = group(row, keyHash(row));
+                _rows[group]++;
+                for (Accumulator accumulator : _accumulators) {
+                    accumulator.add(group, row);
+                }
+            }
+            return this;
+        }
+
+        /**
+         * Return the group of the key values of a row, creating it if it
+         * does not exist yet.
+         */
+        private int group(int row, long hash) throws DfException {
+            int mask = _table.length - 1;
+            int slot = (int) hash & mask;
+            while (_table[slot] != 0) {
+                int group = _table[slot] - 1;
+                if (_groupHashes[group] == hash && keyEquals(row, _groupRows[group])) {
+                    return group;
+                }
+                slot = (slot + 1) & mask;
+            }
+
+            int group = _groupCount++;
+            if (_groupCount > _rows.length) {
+                int capacity = _rows.length * 2;
+                _rows = Arrays.copyOf(_rows, capacity);
+                _groupRows = Arrays.copyOf(_groupRows, capacity);
+                _groupHashes = Arrays.copyOf(_groupHashes, capacity);
+            }
+            _groupRows[group] = row;
+            _groupHashes[group] = hash;
+            _table[slot] = group + 1;
+            if (_groupCount * 2 > _table.length) {
+                rehash();
+            }
+            for (Accumulator accumulator : _accumulators) {
+                accumulator.grow(_groupCount);
+            }
+            return group;
+        }
+
+        private void rehash() {
+            _table = new int[_table.length * 2];
+            int mask = _table.length - 1;
+            for (int group = 0; group < _groupCount; group++) {
+                int slot = (int) _groupHashes[group] & mask;
+                while (_table[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                _table[slot] = group + 1;
+            }
+        }
+
+        /**
+         * Merge the groups of a later partition into this one.
+         */
+        void merge(Partial other) throws DfException {
+            int[] groups = new int[other._groupCount];
+            for (int g = 0; g < groups.length; g++) {
+                groups[g] = group(other._groupRows[g], other._groupHashes[g]);
+                _rows[groups[g]] += other._rows[g];
+            }
+            for (int a = 0; a < _accumulators.length; a++) {
+                _accumulators[a].merge(other._accumulators[a], groups);
+            }
+        }
+    }
+}
+
+/*
+ *  <SDG><
+ */
@@ -0,0 +1,358 @@
+/**
+ * Row store combining the rows of two stores matched by a hash join.
+ *
+ * (C) 2013 MS Roth
+ * <p/>
+ *
+ * @author M. Scott Roth, http://msroth.wordpress.com
+ * @version 1.3
+ */
+package com.dm_misc.collections;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import com.documentum.fc.client.IDfTypedObject;
+import com.documentum.fc.common.DfException;
+import com.documentum.fc.common.IDfAttr;
+
+/**
+ * A dmJoinRowStore pairs rows of a left and a right store through two
+ * int[]s (join row number to left and right row number). Its columns are
+ * the left store's columns followed by the right store's; right columns
+ * whose names clash with a left column are renamed with a "_2" suffix
+ * ("_3", ... if that clashes too). Values are read from the underlying
+ * stores; no rows are copied. A right row number of -1 (an unmatched row
+ * of a left join) reads as null values: a value count of 0 for repeating
+ * attributes, and "", 0, false, nulldate or the null ID for single
+ * attributes, like the DFC does for NULLs. Join stores are read-only.
+ *
+ * join() matches rows with a hash join. The hash table is built on the
+ * smaller input (always on the right input for a left join) as chains of
+ * row numbers in an int[], and the other input is probed once. Joined rows
+ * are ordered by left row number, then right row number, whichever side
+ * the table was built on.
+ */
+class dmJoinRowStore extends dmRowStore {
+
+    private static final int NO_ROW = -1;
+
+    private dmRowStore _left;
+    private dmRowStore _right;
+    private int[] _leftRows;
+    private int[] _rightRows;
+    private int _leftColumns;
+
+    dmJoinRowStore(dmRowStore left, dmRowStore right, int[] leftRows, int[] rightRows) {
+        super(joinSchema(left, right));
+        _left = left;
+        _right = right;
+        _leftRows = leftRows;
+        _rightRows = rightRows;
+        _leftColumns = left.getColumnDefs().size();
+    }
+
+    /**
+     * Return the schema of the join: the left columns followed by the right
+     * columns, renaming right columns whose names are already used.
+     */
+    private static dmRecordSetSchema joinSchema(dmRowStore left, dmRowStore right) {
+        ArrayList<IDfAttr> columnDefs = new ArrayList<IDfAttr>(left.getColumnDefs());
+        HashMap<String, Boolean> names = new HashMap<String, Boolean>();
+        for (IDfAttr attr : columnDefs) {
+            names.put(attr.getName().toLowerCase(), Boolean.TRUE);
+        }
+        for (IDfAttr attr : right.getColumnDefs()) {
+            String name = attr.getName();
+            if (names.containsKey(name.toLowerCase())) {
+                int suffix = 2;
+                while (names.containsKey((name + "_" + suffix).toLowerCase())) {
+                    suffix++;
+                }
+                name = name + "_" + suffix;
+                attr = dmRecordSetSchema.newAttr(name, attr.getDataType(), attr.isRepeating(), attr.getLength());
+            }
+            names.put(name.toLowerCase(), Boolean.TRUE);
+            columnDefs.add(attr);
+        }
+        return new dmRecordSetSchema(columnDefs);
+    }
+
+    /**
+     * Join two stores on the values of a column of each.
+     *
+     * @param type INNER, LEFT or SEMI; a semi join returns a view of the
+     * left store
+     * @exception DfException
+     */
+    static dmRowStore join(dmRowStore left, int leftCol, dmRowStore right, int rightCol, dmRecordSet.JoinType type) throws DfException {
+        int keyType = keyType(left.getColumnDefs().get(leftCol), right.getColumnDefs().get(rightCol));
+        boolean buildLeft = (type != dmRecordSet.JoinType.LEFT && left.size() < right.size());
+        dmRowStore build = (buildLeft ? left : right);
+        dmRowStore probe = (buildLeft ? right : left);
+        int buildCol = (buildLeft ? leftCol : rightCol);
+        int probeCol = (buildLeft ? rightCol : leftCol);
+
+        // hash table: key -> first build row, next[] chains rows with equal
+        // keys in ascending order
+        int buildSize = build.size();
+        HashMap<Object, Integer> heads = new HashMap<Object, Integer>(Math.max(16, buildSize * 4 / 3 + 1));
+        int[] next = new int[buildSize];
+        for (int row = buildSize - 1; row >= 0; row--) {
+            Object key = readKey(build, row, buildCol, keyType);
+            if (key != null) {
+                Integer head = heads.put(key, row);
+                next[row] = (head == null ? NO_ROW : head);
+            }
+        }
+
+        // probe
+        int probeSize = probe.size();
+        IntList buildMatches = new IntList(probeSize);
+        IntList probeMatches = new IntList(probeSize);
+        boolean[] matched = (type == dmRecordSet.JoinType.SEMI && buildLeft ? new boolean[buildSize] : null);
+        for (int row = 0; row < probeSize; row++) {
+            Object key = readKey(probe, row, probeCol, keyType);
+            Integer head = (key == null ? null : heads.get(key));
+            if (type == dmRecordSet.JoinType.SEMI) {
+                if (head != null) {
+                    if (matched == null) {
+                        probeMatches.add(row);
+                    } else {
+                        for (int b = head; b != NO_ROW; b = next[b]) {
+                            matched[b] = true;
+                        }
+                    }
+                }
+            } else if (head != null) {
+                for (int b = head; b != NO_ROW; b = next[b]) {
+                    buildMatches.add(b);
+                    probeMatches.add(row);
+                }
+            } else if (type == dmRecordSet.JoinType.LEFT) {
+                buildMatches.add(NO_ROW);
+                probeMatches.add(row);
+            }
+        }
+
+        if (type == dmRecordSet.JoinType.SEMI) {
+            if (matched != null) {
+                for (int row = 0; row < buildSize; row++) {
+                    if (matched[row]) {
+                        probeMatches.add(row);
+                    }
+                }
+            }
+            return new dmViewRowStore(left, probeMatches.toArray());
+        }
+        if (!buildLeft) {
+            return new dmJoinRowStore(left, right, probeMatches.toArray(), buildMatches.toArray());
+        }
+
+        // pairs are in right row order; counting sort them by left row
+        int[] leftRows = buildMatches.toArray();
+        int[] rightRows = probeMatches.toArray();
+        int[] starts = new int[buildSize + 1];
+        for (int l : leftRows) {
+            starts[l + 1]++;
+        }
+        for (int i = 0; i < buildSize; i++) {
+            starts[i + 1] += starts[i];
+        }
+        int[] sortedLeft = new int[leftRows.length];
+        int[] sortedRight = new int[rightRows.length];
+        for (int i = 0; i < leftRows.length; i++) {
+            int p = starts[leftRows[i]]++;
+            sortedLeft[p] = leftRows[i];
+            sortedRight[p] = rightRows[i];
+        }
+        return new dmJoinRowStore(left, right, sortedLeft, sortedRight);
+    }
+
+    /**
+     * Return the data type the join keys are compared as. Equal types are
+     * compared as such, INTEGER and DOUBLE as DOUBLE, ID and STRING as
+     * case-insensitive IDs, and any other mix as strings.
+     */
+    private static int keyType(IDfAttr left, IDfAttr right) {
+        int l = left.getDataType();
+        int r = right.getDataType();
+        if (l == r) {
+            return l;
+        }
+        if ((l == IDfAttr.DM_INTEGER || l == IDfAttr.DM_DOUBLE) && (r == IDfAttr.DM_INTEGER || r == IDfAttr.DM_DOUBLE)) {
+            return IDfAttr.DM_DOUBLE;
+        }
+        if (l == IDfAttr.DM_ID || r == IDfAttr.DM_ID) {
+            return IDfAttr.DM_ID;
+        }
+        return IDfAttr.DM_STRING;
+    }
+
+    /**
+     * Read the join key of a row: the first value of the column, or null if
+     * it has none. Null IDs and null dates never match.
+     */
+    private static Object readKey(dmRowStore store, int row, int col, int keyType) throws DfException {
+        if (store.getValueCount(row, col) == 0) {
+            return null;
+        }
+        int dataType = store.getColumnDefs().get(col).getDataType();
+        switch (keyType) {
+            case IDfAttr.DM_BOOLEAN:
+                return store.getBoolean(row, col, 0);
+            case IDfAttr.DM_INTEGER:
+                return store.getInt(row, col, 0);
+            case IDfAttr.DM_DOUBLE:
+                return store.getDouble(row, col, 0);
+            case IDfAttr.DM_TIME:
+                long millis = store.getTime(row, col, 0);
+                return (millis == NULL_TIME ? null : (Object) millis);
+            case IDfAttr.DM_ID:
+                String id = (dataType == IDfAttr.DM_ID ? store.getId(row, col, 0) : store.getString(row, col, 0));
+                return (id.length() == 0 || id.equals(NULL_ID) ? null : id.toLowerCase());
+            default:
+                return store.getString(row, col, 0);
+        }
+    }
+
+    @Override
+    int size() {
+        return _leftRows.length;
+    }
+
+    /**
+     * A join retains the pair of row numbers of each result row; the rows
+     * belong to the joined stores.
+     */
+    @Override
+    long estimateBytes() {
+        return 8L * _leftRows.length;
+    }
+
+    @Override
+    void add(IDfTypedObject row) {
+        throw new UnsupportedOperationException("Rows cannot be added to a joined record set.");
+    }
+
+    @Override
+    void removeLast() {
+        throw new UnsupportedOperationException("Rows cannot be removed from a joined record set.");
+    }
+
+    @Override
+    IDfTypedObject getRow(int row) {
+        return dmRowProxy.newRow(this, row);
+    }
+
+    @Override
+    int getValueCount(int row, int col) throws DfException {
+        if (col < _leftColumns) {
+            return _left.getValueCount(_leftRows[row], col);
+        }
+        int rightRow = _rightRows[row];
+        if (rightRow == NO_ROW) {
+            return (getColumnDefs().get(col).isRepeating() ? 0 : 1);
+        }
+        return _right.getValueCount(rightRow, col - _leftColumns);
+    }
+
+    @Override
+    String getString(int row, int col, int index) throws DfException {
+        if (col < _leftColumns) {
+            return _left.getString(_leftRows[row], col, index);
+        }
+        int rightRow = _rightRows[row];
+        if (rightRow == NO_ROW) {
+            switch (getColumnDefs().get(col).getDataType()) {
+                case IDfAttr.DM_BOOLEAN:
+                    return formatBoolean(false);
+                case IDfAttr.DM_INTEGER:
+                    return "0";
+                case IDfAttr.DM_DOUBLE:
+                    return "0.0";
+                case IDfAttr.DM_TIME:
+                    return formatTime(NULL_TIME);
+                case IDfAttr.DM_ID:
+                    return NULL_ID;
+                default:
+                    return "";
+            }
+        }
+        return _right.getString(rightRow, col - _leftColumns, index);
+    }
+
+    @Override
+    int getInt(int row, int col, int index) throws DfException {
+        if (col < _leftColumns) {
+            return _left.getInt(_leftRows[row], col, index);
+        }
+        int rightRow = _rightRows[row];
+        return (rightRow == NO_ROW ? 0 : _right.getInt(rightRow, col - _leftColumns, index));
+    }
+
+    @Override
+    double getDouble(int row, int col, int index) throws DfException {
+        if (col < _leftColumns) {
+            return _left.getDouble(_leftRows[row], col, index);
+        }
+        int rightRow = _rightRows[row];
+        return (rightRow == NO_ROW ? 0 : _right.getDouble(rightRow, col - _leftColumns, index));
+    }
+
+    @Override
+    boolean getBoolean(int row, int col, int index) throws DfException {
+        if (col < _leftColumns) {
+            return _left.getBoolean(_leftRows[row], col, index);
+        }
+        int rightRow = _rightRows[row];
+        return (rightRow != NO_ROW && _right.getBoolean(rightRow, col - _leftColumns, index));
+    }
+
+    @Override
+    long getTime(int row, int col, int index) throws DfException {
+        if (col < _leftColumns) {
+            return _left.getTime(_leftRows[row], col, index);
+        }
+        int rightRow = _rightRows[row];
+        return (rightRow == NO_ROW ? NULL_TIME : _right.getTime(rightRow, col - _leftColumns, index));
+    }
+
+    @Override
+    String getId(int row, int col, int index) throws DfException {
+        if (col < _leftColumns) {
+            return _left.getId(_leftRows[row], col, index);
+        }
+        int rightRow = _rightRows[row];
+        return (rightRow == NO_ROW ? NULL_ID : _right.getId(rightRow, col - _leftColumns, index));
+    }
+
+    /**
+     * Growable int array.
+     */
+    private static final class IntList {
+
+        private int[] _values;
+        private int _size = 0;
+
+        IntList(int capacity) {
+            _values = new int[Math.max(16, capacity)];
+        }
+
+        void add(int value) {
+            if (_size == _values.length) {
+                _values = Arrays.copyOf(_values, _size * 2);
+            }
+            _values[_size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(_values, _size);
+        }
+    }
+}
+
+/*
+ *  <SDG><
+ */
@@ -0,0 +1,496 @@
+/**
+ * Row store reading a dmRecordSet file through memory-mapped buffers.
+ *
+ * (C) 2013 MS Roth
+ * <p/>
+ *
+ * @author M. Scott Roth, http://msroth.wordpress.com
+ * @version 1.3
+ */
+package com.dm_misc.collections;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+
+import com.documentum.fc.client.IDfTypedObject;
+import com.documentum.fc.common.DfException;
+import com.documentum.fc.common.IDfAttr;
+
+/**
+ * A dmMappedRowStore reads the rows of a file written by write(). The
+ * file holds a schema header followed by one block per column:
+ * <pre>
+ *   header:  int magic ("DMRS"), int format version, int row count,
+ *            int column count, and for each column:
+ *              short name length, UTF-8 name, int data type,
+ *              byte repeating, int length, byte encoding,
+ *              long block offset, long block length,
+ *              int values position, int string offsets position
+ *   block:   [int[rows + 1] first value of each row]   repeating only
+ *            values, either FIXED:
+ *              byte (BOOLEAN), int (INTEGER), double (DOUBLE),
+ *              long millis (TIME) or long (ID) per value
+ *            or STRINGS:
+ *              UTF-8 bytes of all values, then int[values + 1] offsets
+ *              of each value in the bytes
+ * </pre>
+ * Positions in a block are relative to the block. IDs are stored as
+ * longs unless a value of the column is not a 16 digit hex ID, in which
+ * case the column is stored as STRINGS. Numbers are big-endian.
+ *
+ * open() maps each column block into its own read-only MappedByteBuffer
+ * and values are read from the buffers when they are requested, so
+ * opening a file costs the same whatever its size and the operating
+ * system pages the data in as it is used. Mapped stores are read-only.
+ */
+class dmMappedRowStore extends dmRowStore {
+
+    private static final int MAGIC = 0x444d5253;
+    private static final int FORMAT_VERSION = 1;
+    private static final byte FIXED = 0;
+    private static final byte STRINGS = 1;
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private int _size;
+    private Column[] _columns;
+
+    private dmMappedRowStore(dmRecordSetSchema schema, int size, Column[] columns) {
+        super(schema);
+        _size = size;
+        _columns = columns;
+    }
+
+    /**
+     * Map a file written by write().
+     *
+     * @exception IOException if the file cannot be read, is not a record
+     * set file or is truncated
+     */
+    static dmMappedRowStore open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(channel.size(), 16));
+            if (header.limit() < 16 || header.getInt(0) != MAGIC) {
+                throw new IOException(String.format("%s is not a dmRecordSet file.", file));
+            }
+            if (header.getInt(4) != FORMAT_VERSION) {
+                throw new IOException(String.format("%s has unsupported format version %d.", file, header.getInt(4)));
+            }
+            int size = header.getInt(8);
+            int columnCount = header.getInt(12);
+
+            // the header is at most this long: 36 bytes of fixed fields and
+            // a name of up to 65535 bytes per column
+            header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(channel.size(), 16 + columnCount * (36L + 65535)));
+            header.position(16);
+            ArrayList<IDfAttr> columnDefs = new ArrayList<IDfAttr>();
+            Column[] columns = new Column[columnCount];
+            for (int col = 0; col < columnCount; col++) {
+                byte[] name = new byte[header.getShort() & 0xffff];
+                header.get(name);
+                int dataType = header.getInt();
+                boolean repeating = (header.get() != 0);
+                int length = header.getInt();
+                Column column = new Column();
+                column._type = dataType;
+                column._repeating = repeating;
+                column._encoding = header.get();
+                long offset = header.getLong();
+                long blockLength = header.getLong();
+                column._valuesPos = header.getInt();
+                column._offsetsPos = header.getInt();
+                if (offset < 0 || blockLength < 0 || offset + blockLength > channel.size()) {
+                    throw new IOException(String.format("%s is truncated.", file));
+                }
+                column._buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, blockLength);
+                columns[col] = column;
+                columnDefs.add(dmRecordSetSchema.newAttr(new String(name, UTF8), dataType, repeating, length));
+            }
+            return new dmMappedRowStore(new dmRecordSetSchema(columnDefs), size, columns);
+        } catch (BufferUnderflowException e) {
+            throw new IOException(String.format("%s is truncated.", file));
+        } finally {
+
+            // mapped buffers remain valid after the channel is closed
+            channel.close();
+        }
+    }
+
+    /**
+     * Write the rows of a store to a file in the format read by open().
+     *
+     * @exception IOException if the file cannot be written or a column
+     * holds more than 2GB of data
+     */
+    static void write(dmRowStore store, Path file) throws IOException, DfException {
+        int size = store.size();
+        ArrayList<IDfAttr> columnDefs = store.getColumnDefs();
+        int columnCount = columnDefs.size();
+
+        // choose encodings and size the header
+        byte[] encodings = new byte[columnCount];
+        byte[][] names = new byte[columnCount][];
+        long headerLength = 16;
+        for (int col = 0; col < columnCount; col++) {
+            encodings[col] = encoding(store, col);
+            names[col] = columnDefs.get(col).getName().getBytes(UTF8);
+            headerLength += 36 + names[col].length;
+        }
+
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            Output out = new Output(channel);
+            out.position(headerLength);
+            long[] offsets = new long[columnCount];
+            long[] lengths = new long[columnCount];
+            int[] valuesPos = new int[columnCount];
+            int[] offsetsPos = new int[columnCount];
+            for (int col = 0; col < columnCount; col++) {
+                offsets[col] = out.position();
+                IDfAttr attr = columnDefs.get(col);
+
+                // value starts of repeating attributes
+                int valueCount = size;
+                if (attr.isRepeating()) {
+                    valueCount = 0;
+                    for (int row = 0; row < size; row++) {
+                        out.putInt(valueCount);
+                        valueCount += store.getValueCount(row, col);
+                    }
+                    out.putInt(valueCount);
+                }
+                valuesPos[col] = (int) (out.position() - offsets[col]);
+
+                if (encodings[col] == STRINGS) {
+                    int[] stringOffsets = new int[valueCount + 1];
+                    long bytes = 0;
+                    int v = 0;
+                    for (int row = 0; row < size; row++) {
+                        int count = (attr.isRepeating() ? store.getValueCount(row, col) : 1);
+                        for (int i = 0; i < count; i++) {
+                            String value = (attr.getDataType() == IDfAttr.DM_ID ? store.getId(row, col, i) : store.getString(row, col, i));
+                            byte[] b = value.getBytes(UTF8);
+                            out.put(b);
+                            bytes += b.length;
+                            if (bytes > Integer.MAX_VALUE) {
+                                throw new IOException(String.format("Column %s is too large to write.", attr.getName()));
+                            }
+                            stringOffsets[++v] = (int) bytes;
+                        }
+                    }
+                    offsetsPos[col] = (int) (out.position() - offsets[col]);
+                    for (int offset : stringOffsets) {
+                        out.putInt(offset);
+                    }
+                } else {
+                    for (int row = 0; row < size; row++) {
+                        int count = (attr.isRepeating() ? store.getValueCount(row, col) : 1);
+                        for (int i = 0; i < count; i++) {
+                            switch (attr.getDataType()) {
+                                case IDfAttr.DM_BOOLEAN:
+                                    out.put((byte) (store.getBoolean(row, col, i) ? 1 : 0));
+                                    break;
+                                case IDfAttr.DM_INTEGER:
+                                    out.putInt(store.getInt(row, col, i));
+                                    break;
+                                case IDfAttr.DM_DOUBLE:
+                                    out.putDouble(store.getDouble(row, col, i));
+                                    break;
+                                case IDfAttr.DM_TIME:
+                                    out.putLong(store.getTime(row, col, i));
+                                    break;
+                                default:
+                                    out.putLong(dmColumnarRowStore.parseId(store.getId(row, col, i)));
+                            }
+                        }
+                    }
+                }
+                lengths[col] = out.position() - offsets[col];
+                if (lengths[col] > Integer.MAX_VALUE) {
+                    throw new IOException(String.format("Column %s is too large to write.", attr.getName()));
+                }
+            }
+
+            // header
+            out.position(0);
+            out.putInt(MAGIC);
+            out.putInt(FORMAT_VERSION);
+            out.putInt(size);
+            out.putInt(columnCount);
+            for (int col = 0; col < columnCount; col++) {
+                IDfAttr attr = columnDefs.get(col);
+                out.putShort((short) names[col].length);
+                out.put(names[col]);
+                out.putInt(attr.getDataType());
+                out.put((byte) (attr.isRepeating() ? 1 : 0));
+                out.putInt(attr.getLength());
+                out.put(encodings[col]);
+                out.putLong(offsets[col]);
+                out.putLong(lengths[col]);
+                out.putInt(valuesPos[col]);
+                out.putInt(offsetsPos[col]);
+            }
+            out.flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Return the encoding of a column: FIXED for numbers, booleans, times
+     * and IDs that are all 16 digit hex IDs, else STRINGS.
+     */
+    private static byte encoding(dmRowStore store, int col) throws DfException {
+        switch (store.getColumnDefs().get(col).getDataType()) {
+            case IDfAttr.DM_BOOLEAN:
+            case IDfAttr.DM_INTEGER:
+            case IDfAttr.DM_DOUBLE:
+            case IDfAttr.DM_TIME:
+                return FIXED;
+            case IDfAttr.DM_ID:
+                for (int row = 0; row < store.size(); row++) {
+                    for (int i = 0; i < store.getValueCount(row, col); i++) {
+                        if (dmColumnarRowStore.parseId(store.getId(row, col, i)) == -1) {
+                            return STRINGS;
+                        }
+                    }
+                }
+                return FIXED;
+            default:
+                return STRINGS;
+        }
+    }
+
+    @Override
+    int size() {
+        return _size;
+    }
+
+    /**
+     * The values are read from the mapped file and are not on the heap.
+     */
+    @Override
+    long estimateBytes() {
+        return 0;
+    }
+
+    @Override
+    void add(IDfTypedObject row) {
+        throw new UnsupportedOperationException("Rows cannot be added to a record set read from a file.");
+    }
+
+    @Override
+    void removeLast() {
+        throw new UnsupportedOperationException("Rows cannot be removed from a record set read from a file.");
+    }
+
+    @Override
+    IDfTypedObject getRow(int row) {
+        if (row < 0 || row >= _size) {
+            throw new IndexOutOfBoundsException(String.format("Row %d is not in the record set.", row));
+        }
+        return dmRowProxy.newRow(this, row);
+    }
+
+    @Override
+    int getValueCount(int row, int col) {
+        return _columns[col].getValueCount(row);
+    }
+
+    @Override
+    String getString(int row, int col, int index) throws DfException {
+        Column column = _columns[col];
+        int v = valueIndex(row, col, index);
+        if (column._encoding == STRINGS) {
+            return column.getString(v);
+        }
+        switch (column._type) {
+            case IDfAttr.DM_BOOLEAN:
+                return formatBoolean(column._buffer.get(column._valuesPos + v) != 0);
+            case IDfAttr.DM_INTEGER:
+                return Integer.toString(column._buffer.getInt(column._valuesPos + v * 4));
+            case IDfAttr.DM_DOUBLE:
+                return Double.toString(column._buffer.getDouble(column._valuesPos + v * 8));
+            case IDfAttr.DM_TIME:
+                return formatTime(column._buffer.getLong(column._valuesPos + v * 8));
+            default:
+                return dmColumnarRowStore.formatId(column._buffer.getLong(column._valuesPos + v * 8));
+        }
+    }
+
+    @Override
+    int getInt(int row, int col, int index) throws DfException {
+        Column column = _columns[col];
+        if (column._type == IDfAttr.DM_INTEGER) {
+            return column._buffer.getInt(column._valuesPos + valueIndex(row, col, index) * 4);
+        } else if (column._type == IDfAttr.DM_DOUBLE) {
+            return (int) getDouble(row, col, index);
+        } else if (column._type == IDfAttr.DM_BOOLEAN) {
+            return (getBoolean(row, col, index) ? 1 : 0);
+        }
+        return parseInt(getString(row, col, index));
+    }
+
+    @Override
+    double getDouble(int row, int col, int index) throws DfException {
+        Column column = _columns[col];
+        if (column._type == IDfAttr.DM_DOUBLE) {
+            return column._buffer.getDouble(column._valuesPos + valueIndex(row, col, index) * 8);
+        } else if (column._type == IDfAttr.DM_INTEGER) {
+            return getInt(row, col, index);
+        }
+        return parseDouble(getString(row, col, index));
+    }
+
+    @Override
+    boolean getBoolean(int row, int col, int index) throws DfException {
+        Column column = _columns[col];
+        if (column._type == IDfAttr.DM_BOOLEAN) {
+            return column._buffer.get(column._valuesPos + valueIndex(row, col, index)) != 0;
+        }
+        return parseBoolean(getString(row, col, index));
+    }
+
+    @Override
+    long getTime(int row, int col, int index) throws DfException {
+        Column column = _columns[col];
+        if (column._type == IDfAttr.DM_TIME) {
+            return column._buffer.getLong(column._valuesPos + valueIndex(row, col, index) * 8);
+        }
+        return NULL_TIME;
+    }
+
+    @Override
+    String getId(int row, int col, int index) throws DfException {
+        return getString(row, col, index);
+    }
+
+    /**
+     * Return the position of a value in its column's values.
+     */
+    private int valueIndex(int row, int col, int index) throws DfException {
+        if (row < 0 || row >= _size) {
+            throw new DfException(String.format("Row %d is not in the record set.", row));
+        }
+        Column column = _columns[col];
+        if (index < 0 || index >= column.getValueCount(row)) {
+            throw new DfException(String.format("Value %d of %s does not exist in row %d.", index, _columnDefs.get(col).getName(), row));
+        }
+        return (column._repeating ? column._buffer.getInt(row * 4) + index : row);
+    }
+
+    /**
+     * Mapped block of one column.
+     */
+    private static final class Column {
+
+        private int _type;
+        private boolean _repeating;
+        private byte _encoding;
+        private ByteBuffer _buffer;
+        private int _valuesPos;
+        private int _offsetsPos;
+
+        int getValueCount(int row) {
+            if (!_repeating) {
+                return 1;
+            }
+            return _buffer.getInt((row + 1) * 4) - _buffer.getInt(row * 4);
+        }
+
+        String getString(int v) {
+            int start = _buffer.getInt(_offsetsPos + v * 4);
+            int end = _buffer.getInt(_offsetsPos + (v + 1) * 4);
+            byte[] bytes = new byte[end - start];
+
+            // read through a duplicate so concurrent readers do not share
+            // the buffer's position
+            ByteBuffer buffer = _buffer.duplicate();
+            buffer.position(_valuesPos + start);
+            buffer.get(bytes);
+            return new String(bytes, UTF8);
+        }
+    }
+
+    /**
+     * Buffered writer tracking its position in the file.
+     */
+    private static final class Output {
+
+        private FileChannel _channel;
+        private ByteBuffer _buffer = ByteBuffer.allocate(64 * 1024);
+
+        Output(FileChannel channel) {
+            _channel = channel;
+        }
+
+        long position() throws IOException {
+            return _channel.position() + _buffer.position();
+        }
+
+        void position(long position) throws IOException {
+            flush();
+            _channel.position(position);
+        }
+
+        void put(byte value) throws IOException {
+            ensure(1);
+            _buffer.put(value);
+        }
+
+        void put(byte[] values) throws IOException {
+            if (values.length > _buffer.capacity()) {
+                flush();
+                _channel.write(ByteBuffer.wrap(values));
+                return;
+            }
+            ensure(values.length);
+            _buffer.put(values);
+        }
+
+        void putShort(short value) throws IOException {
+            ensure(2);
+            _buffer.putShort(value);
+        }
+
+        void putInt(int value) throws IOException {
+            ensure(4);
+            _buffer.putInt(value);
+        }
+
+        void putLong(long value) throws IOException {
+            ensure(8);
+            _buffer.putLong(value);
+        }
+
+        void putDouble(double value) throws IOException {
+            ensure(8);
+            _buffer.putDouble(value);
+        }
+
+        void flush() throws IOException {
+            _buffer.flip();
+            while (_buffer.hasRemaining()) {
+                _channel.write(_buffer);
+            }
+            _buffer.clear();
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (_buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+    }
+}
+
+/*
+ *  <SDG><
+ */
@@ -0,0 +1,227 @@
+/**
+ * Batched fetch of the objects identified by a column of a dmRecordSet.
+ *
+ * (C) 2013 MS Roth
+ * <p/>
+ *
+ * Example use: <br/>
+ * <pre>
+ *     dmObjectFetcher fetcher = dmRS.fetchObjects(session, "r_object_id", 200);
+ *     try {
+ *         while (fetcher.hasNext()) {
+ *             IDfSysObject sObj = (IDfSysObject) fetcher.getNextObject();
+ *             if (sObj != null &amp;&amp; sObj.isCheckedOut())
+ *                 System.out.println("checked out: " + sObj.getObjectName());
+ *         }
+ *     } finally {
+ *         fetcher.close();
+ *     }
+ * </pre>
+ *
+ * @author M. Scott Roth, http://msroth.wordpress.com
+ * @version 1.3
+ */
+package com.dm_misc.collections;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.documentum.fc.client.IDfEnumeration;
+import com.documentum.fc.client.IDfPersistentObject;
+import com.documentum.fc.client.IDfSession;
+import com.documentum.fc.common.DfException;
+
+/**
+ * A dmObjectFetcher returns the persistent object for each row of a record
+ * set, in row order, without a server round trip per row. Rows are read in
+ * batches; the objects of each batch are fetched with one query,
+ * <pre>
+ *     select * from &lt;type&gt; where r_object_id in ('...', '...', ...)
+ * </pre>
+ * through IDfSession.getObjectsByQuery(). While the caller processes the
+ * objects of one batch, the next batch is fetched on a background thread.
+ *
+ * getNextObject() returns null for rows whose ID is null or whose object
+ * no longer exists. Rows with the same ID in one batch share one object.
+ * A fetcher is not thread safe. Call close() if the objects are not all
+ * read, to stop the background fetch.
+ */
+public class dmObjectFetcher {
+
+    private static final AtomicInteger _threadNumber = new AtomicInteger();
+
+    private IDfSession _session;
+    private String _typeName;
+    private String[] _ids;
+    private int _batchSize;
+    private ExecutorService _executor;
+    private Future<HashMap<String, IDfPersistentObject>> _nextBatch = null;
+    private HashMap<String, IDfPersistentObject> _batch = null;
+    private int _batchStart = 0;
+    private int _row = -1;
+    private AtomicInteger _roundTrips = new AtomicInteger();
+
+    /**
+     * @param ids object ID of each row (null for none), lowercase
+     */
+    dmObjectFetcher(IDfSession session, String typeName, String[] ids, int batchSize) {
+        _session = session;
+        _typeName = typeName;
+        _ids = ids;
+        _batchSize = batchSize;
+        _executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "dmObjectFetcher-" + _threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        if (_ids.length > 0) {
+            _nextBatch = submit(0);
+        } else {
+            _executor.shutdown();
+        }
+    }
+
+    /**
+     * Indicates if there are more rows.
+     *
+     * @return true, if getNextObject() will return another row's object,
+     * else false.
+     *
+     */
+    public boolean hasNext() {
+        return _row + 1 < _ids.length;
+    }
+
+    /**
+     * Return the object of the next row.
+     *
+     * @return IDfPersistentObject of the next row, or null if the row has no
+     * ID or its object does not exist.
+     * @exception DfException if the batch query failed or there are no more
+     * rows
+     *
+     */
+    public IDfPersistentObject getNextObject() throws DfException {
+        if (!hasNext()) {
+            throw new DfException("There are no more objects to fetch.");
+        }
+        _row++;
+        if (_batch == null || _row >= _batchStart + _batchSize) {
+            _batchStart = (_batch == null ? 0 : _batchStart + _batchSize);
+            _batch = await(_nextBatch);
+            if (_batchStart + _batchSize < _ids.length) {
+                _nextBatch = submit(_batchStart + _batchSize);
+            } else {
+                _nextBatch = null;
+                _executor.shutdown();
+            }
+        }
+        String id = _ids[_row];
+        return (id == null ? null : _batch.get(id));
+    }
+
+    /**
+     * Return the row number of the object last returned by getNextObject().
+     *
+     * @return int row number, -1 before the first object
+     *
+     */
+    public int getRowNumber() {
+        return _row;
+    }
+
+    /**
+     * Return the number of queries sent to the server so far.
+     *
+     * @return int number of batch queries
+     *
+     */
+    public int getRoundTrips() {
+        return _roundTrips.get();
+    }
+
+    /**
+     * Stop fetching. Objects of rows not yet read are not fetched.
+     *
+     */
+    public void close() {
+        if (_nextBatch != null) {
+            _nextBatch.cancel(true);
+            _nextBatch = null;
+        }
+        _executor.shutdownNow();
+        _row = _ids.length - 1;
+    }
+
+    private Future<HashMap<String, IDfPersistentObject>> submit(final int start) {
+        return _executor.submit(new Callable<HashMap<String, IDfPersistentObject>>() {
+
+            public HashMap<String, IDfPersistentObject> call() throws DfException {
+                return fetch(start, Math.min(start + _batchSize, _ids.length));
+            }
+        });
+    }
+
+    private HashMap<String, IDfPersistentObject> await(Future<HashMap<String, IDfPersistentObject>> batch) throws DfException {
+        try {
+            return batch.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DfException("Interrupted while fetching objects.");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof DfException) {
+                throw (DfException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    /**
+     * Fetch the objects of rows [start, end) with one query.
+     */
+    private HashMap<String, IDfPersistentObject> fetch(int start, int end) throws DfException {
+        HashMap<String, IDfPersistentObject> objects = new HashMap<String, IDfPersistentObject>();
+        LinkedHashSet<String> ids = new LinkedHashSet<String>();
+        for (int row = start; row < end; row++) {
+            if (_ids[row] != null) {
+                ids.add(_ids[row]);
+            }
+        }
+        if (ids.isEmpty()) {
+            return objects;
+        }
+
+        StringBuilder dql = new StringBuilder("select * from ").append(_typeName).append(" where r_object_id in (");
+        boolean first = true;
+        for (String id : ids) {
+            if (!first) {
+                dql.append(',');
+            }
+            dql.append('\'').append(id).append('\'');
+            first = false;
+        }
+        dql.append(')');
+
+        _roundTrips.incrementAndGet();
+        IDfEnumeration e = _session.getObjectsByQuery(dql.toString(), null);
+        while (e.hasMoreElements()) {
+            IDfPersistentObject obj = (IDfPersistentObject) e.nextElement();
+            objects.put(obj.getObjectId().getId().toLowerCase(), obj);
+        }
+        return objects;
+    }
+}
+
+/*
+ *  <SDG><
+ */
@@ -0,0 +1,218 @@
+/**
+ * Row store that retains one IDfTypedObject per row.
+ *
+ * (C) 2013 MS Roth
+ * <p/>
+ *
+ * @author M. Scott Roth, http://msroth.wordpress.com
+ * @version 1.3
+ */
+package com.dm_misc.collections;
+
+import java.util.ArrayList;
+
+import com.documentum.fc.client.IDfTypedObject;
+import com.documentum.fc.common.DfException;
+import com.documentum.fc.common.DfId;
+import com.documentum.fc.common.IDfAttr;
+
+/**
+ * The default dmRecordSet storage. Rows are kept as the IDfTypedObjects
+ * returned by the IDfCollection. When created with a window size, only the
+ * most recent rows are retained in a ring buffer indexed by row number
+ * modulo the window size (used by streaming record sets).
+ */
+class dmObjectRowStore extends dmRowStore {
+
+    private ArrayList<IDfTypedObject> _rows = null;
+    private IDfTypedObject[] _window = null;
+    private int _size = 0;
+
+    dmObjectRowStore(dmRecordSetSchema schema) {
+        super(schema);
+        _rows = new ArrayList<IDfTypedObject>();
+    }
+
+    dmObjectRowStore(dmRecordSetSchema schema, int windowSize) {
+        super(schema);
+        _window = new IDfTypedObject[windowSize];
+    }
+
+    /**
+     * Return the list holding the rows, or null if the store is windowed.
+     */
+    ArrayList<IDfTypedObject> getRows() {
+        return _rows;
+    }
+
+    /**
+     * Return the window size, or 0 if all rows are retained.
+     */
+    int getWindowSize() {
+        return (_window != null ? _window.length : 0);
+    }
+
+    @Override
+    int size() {
+        return _size;
+    }
+
+    @Override
+    int getFirstAvailableRow() {
+        if (_window != null && _size > _window.length) {
+            return _size - _window.length;
+        }
+        return 0;
+    }
+
+    @Override
+    void add(IDfTypedObject row) {
+        if (_window != null) {
+            _window[_size % _window.length] = row;
+        } else {
+            _rows.add(row);
+        }
+        _size++;
+    }
+
+    @Override
+    void removeLast() {
+        _size--;
+        if (_window != null) {
+            _window[_size % _window.length] = null;
+        } else {
+            _rows.remove(_size);
+        }
+    }
+
+    /**
+     * Change a value through the setters of the row's IDfTypedObject. The
+     * values of a repeating attribute are truncated and appended again.
+     */
+    @Override
+    void setValue(int row, int col, Object value) throws DfException {
+        IDfTypedObject typedObject = getRow(row);
+        IDfAttr attr = _columnDefs.get(col);
+        String name = attr.getName();
+        if (!attr.isRepeating()) {
+            switch (attr.getDataType()) {
+                case IDfAttr.DM_BOOLEAN:
+                    typedObject.setBoolean(name, booleanValue(value));
+                    break;
+                case IDfAttr.DM_INTEGER:
+                    typedObject.setInt(name, intValue(value));
+                    break;
+                case IDfAttr.DM_DOUBLE:
+                    typedObject.setDouble(name, doubleValue(value));
+                    break;
+                case IDfAttr.DM_TIME:
+                    typedObject.setTime(name, dmRowProxy.toTime(timeValue(value)));
+                    break;
+                case IDfAttr.DM_ID:
+                    typedObject.setId(name, new DfId(idValue(value)));
+                    break;
+                default:
+                    typedObject.setString(name, stringValue(value));
+            }
+            return;
+        }
+        Object[] values = (value instanceof Object[] ? (Object[]) value : new Object[]{value});
+        typedObject.truncate(name, 0);
+        for (Object v : values) {
+            switch (attr.getDataType()) {
+                case IDfAttr.DM_BOOLEAN:
+                    typedObject.appendBoolean(name, booleanValue(v));
+                    break;
+                case IDfAttr.DM_INTEGER:
+                    typedObject.appendInt(name, intValue(v));
+                    break;
+                case IDfAttr.DM_DOUBLE:
+                    typedObject.appendDouble(name, doubleValue(v));
+                    break;
+                case IDfAttr.DM_TIME:
+                    typedObject.appendTime(name, dmRowProxy.toTime(timeValue(v)));
+                    break;
+                case IDfAttr.DM_ID:
+                    typedObject.appendId(name, new DfId(idValue(v)));
+                    break;
+                default:
+                    typedObject.appendString(name, stringValue(v));
+            }
+        }
+    }
+
+    @Override
+    IDfTypedObject getRow(int row) {
+        if (_window != null) {
+            return _window[row % _window.length];
+        }
+        return _rows.get(row);
+    }
+
+    @Override
+    int getValueCount(int row, int col) throws DfException {
+        IDfAttr attr = _columnDefs.get(col);
+        if (attr.isRepeating()) {
+            return getRow(row).getValueCount(attr.getName());
+        }
+        return 1;
+    }
+
+    @Override
+    String getString(int row, int col, int index) throws DfException {
+        IDfAttr attr = _columnDefs.get(col);
+        if (attr.isRepeating()) {
+            return getRow(row).getRepeatingString(attr.getName(), index);
+        }
+        return getRow(row).getString(attr.getName());
+    }
+
+    @Override
+    int getInt(int row, int col, int index) throws DfException {
+        IDfAttr attr = _columnDefs.get(col);
+        if (attr.isRepeating()) {
+            return getRow(row).getRepeatingInt(attr.getName(), index);
+        }
+        return getRow(row).getInt(attr.getName());
+    }
+
+    @Override
+    double getDouble(int row, int col, int index) throws DfException {
+        IDfAttr attr = _columnDefs.get(col);
+        if (attr.isRepeating()) {
+            return getRow(row).getRepeatingDouble(attr.getName(), index);
+        }
+        return getRow(row).getDouble(attr.getName());
+    }
+
+    @Override
+    boolean getBoolean(int row, int col, int index) throws DfException {
+        IDfAttr attr = _columnDefs.get(col);
+        if (attr.isRepeating()) {
+            return getRow(row).getRepeatingBoolean(attr.getName(), index);
+        }
+        return getRow(row).getBoolean(attr.getName());
+    }
+
+    @Override
+    long getTime(int row, int col, int index) throws DfException {
+        IDfAttr attr = _columnDefs.get(col);
+        if (attr.isRepeating()) {
+            return toMillis(getRow(row).getRepeatingTime(attr.getName(), index));
+        }
+        return toMillis(getRow(row).getTime(attr.getName()));
+    }
+
+    @Override
+    String getId(int row, int col, int index) throws DfException {
+        IDfAttr attr = _columnDefs.get(col);
+        if (attr.isRepeating()) {
+            return toIdString(getRow(row).getRepeatingId(attr.getName(), index));
+        }
+        return toIdString(getRow(row).getId(attr.getName()));
+    }
+}
+
+/*
+ *  <SDG><
+ */
@@ -0,0 +1,569 @@
+/**
+ * Row store that keeps the values of its rows in direct (off-heap) memory.
+ *
+ * (C) 2013 MS Roth
+ * <p/>
+ *
+ * @author M. Scott Roth, http://msroth.wordpress.com
+ * @version 1.3
+ */
+package com.dm_misc.collections;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import com.documentum.fc.client.IDfTypedObject;
+import com.documentum.fc.common.DfException;
+import com.documentum.fc.common.IDfAttr;
+
+/**
+ * OFF_HEAP dmRecordSet storage. Values are copied out of each row as it is
+ * added into direct ByteBuffers, so the garbage collector sees a few
+ * buffer objects per column however many rows there are. Each column is
+ * a series of chunks of CHUNK_ROWS fixed width slots, the width driven by
+ * IDfAttr.getDataType():
+ * <pre>
+ *   BOOLEAN  byte
+ *   INTEGER  int
+ *   DOUBLE   double
+ *   TIME     long epoch milliseconds
+ *   ID       byte flag, long: the 16 hex digits of the id, or (flag 1)
+ *            the reference of the string of a value that is not an id
+ *   STRING   long reference of the string in the value area
+ * </pre>
+ * Strings and the values of repeating attributes are written to a value
+ * area of direct buffers: a string as int length and UTF-8 bytes, the
+ * values of a repeating attribute as int count and one slot per value.
+ * The slot of a repeating attribute holds the reference of its values, or
+ * NO_VALUES. A reference is the number of an area buffer (high 32 bits)
+ * and a position in it (low 32 bits); area buffers are never moved, so
+ * references stay valid. Each string column remembers the references of
+ * its first CACHE_SIZE distinct values and writes them only once, which
+ * covers the low cardinality columns (types, owners, formats, ...) of most
+ * query results.
+ *
+ * Values replaced by setValue() leave their strings and repeating values
+ * in the area until the store is closed.
+ * close() frees the buffers immediately (see release()); reading a closed
+ * store throws a DfException. Rows are returned by getRow() as lightweight
+ * IDfTypedObject views (see dmRowProxy).
+ */
+class dmOffHeapRowStore extends dmRowStore {
+
+    private static final int CHUNK_SHIFT = 16;
+    private static final int CHUNK_ROWS = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_ROWS - 1;
+    private static final int FIRST_CHUNK_ROWS = 1024;
+    private static final int FIRST_AREA_BYTES = 64 * 1024;
+    private static final int AREA_BYTES = 4 * 1024 * 1024;
+    private static final int CACHE_SIZE = 4096;
+    private static final long NO_VALUES = -1;
+    private static final long IN_COLUMN = 1L << 62;
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    // sun.misc.Unsafe.invokeCleaner() on Java 9 and later
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            unsafe = theUnsafe.get(null);
+        } catch (Exception e) {
+
+            // Java 8: release() uses the buffer's own cleaner
+            invokeCleaner = null;
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    private Column[] _columns;
+    private ArrayList<ByteBuffer> _area = new ArrayList<ByteBuffer>();
+    private int _areaUsed = 0;
+    private long _offHeapBytes = 0;
+    private int _size = 0;
+    private volatile boolean _closed = false;
+
+    dmOffHeapRowStore(dmRecordSetSchema schema) {
+        super(schema);
+        _columns = new Column[_columnDefs.size()];
+        for (int i = 0; i < _columns.length; i++) {
+            IDfAttr attr = _columnDefs.get(i);
+            _columns[i] = new Column(attr.getDataType(), attr.isRepeating());
+        }
+    }
+
+    @Override
+    int size() {
+        return _size;
+    }
+
+    @Override
+    void add(IDfTypedObject row) throws DfException {
+        checkOpen();
+        for (Column column : _columns) {
+            ensureCapacity(column, _size);
+        }
+        write(_size, row);
+        _size++;
+    }
+
+    @Override
+    void removeLast() {
+
+        // the slots of the row are overwritten by the next row added
+        _size--;
+    }
+
+    /**
+     * Write the values of a row to its slots.
+     */
+    private void write(int row, IDfTypedObject values) throws DfException {
+        for (int col = 0; col < _columns.length; col++) {
+            Column column = _columns[col];
+            String name = _columnDefs.get(col).getName();
+            ByteBuffer buffer = column._chunks.get(row >>> CHUNK_SHIFT);
+            int pos = (row & CHUNK_MASK) * column._width;
+            if (!column._repeating) {
+                write(column, buffer, pos, values, name, -1);
+                continue;
+            }
+            int count = values.getValueCount(name);
+            long ref = NO_VALUES;
+            if (count > 0) {
+                ref = reserve(4 + count * column._valueWidth);
+                ByteBuffer area = _area.get((int) (ref >>> 32));
+                int start = (int) ref;
+                area.putInt(start, count);
+                for (int i = 0; i < count; i++) {
+                    write(column, area, start + 4 + i * column._valueWidth, values, name, i);
+                }
+            }
+            buffer.putLong(pos, ref);
+        }
+    }
+
+    @Override
+    void setValue(int row, int col, Object value) throws DfException {
+        checkOpen();
+        Column column = _columns[col];
+        ByteBuffer buffer = column._chunks.get(row >>> CHUNK_SHIFT);
+        int pos = (row & CHUNK_MASK) * column._width;
+        if (!column._repeating) {
+            write(column, buffer, pos, value);
+            return;
+        }
+        Object[] values = (value instanceof Object[] ? (Object[]) value : new Object[]{value});
+        long ref = NO_VALUES;
+        if (values.length > 0) {
+            ref = reserve(4 + values.length * column._valueWidth);
+            ByteBuffer area = _area.get((int) (ref >>> 32));
+            int start = (int) ref;
+            area.putInt(start, values.length);
+            for (int i = 0; i < values.length; i++) {
+                write(column, area, start + 4 + i * column._valueWidth, values[i]);
+            }
+        }
+        buffer.putLong(pos, ref);
+    }
+
+    /**
+     * Free the direct buffers now. The store cannot be used afterwards.
+     */
+    @Override
+    void close() {
+        if (_closed) {
+            return;
+        }
+        _closed = true;
+        for (Column column : _columns) {
+            for (ByteBuffer buffer : column._chunks) {
+                release(buffer);
+            }
+            column._chunks = null;
+            column._strings = null;
+        }
+        for (ByteBuffer buffer : _area) {
+            release(buffer);
+        }
+        _area = null;
+        _offHeapBytes = 0;
+    }
+
+    /**
+     * Only the string caches are on the heap, but the direct memory holding
+     * the values is included so a dmRecordSetCache bounded by size stays
+     * bounded.
+     */
+    @Override
+    long estimateBytes() {
+        long bytes = _offHeapBytes;
+        for (Column column : _columns) {
+            bytes += 16L * (column._chunks != null ? column._chunks.size() : 0);
+            if (column._strings != null) {
+                for (String value : column._strings.keySet()) {
+                    bytes += stringBytes(value) + 56;
+                }
+            }
+        }
+        return bytes;
+    }
+
+    @Override
+    IDfTypedObject getRow(int row) {
+        if (row < 0 || row >= _size) {
+            throw new IndexOutOfBoundsException(String.format("Row %d is not in the record set.", row));
+        }
+        return dmRowProxy.newRow(this, row);
+    }
+
+    @Override
+    int getValueCount(int row, int col) throws DfException {
+        checkRow(row);
+        Column column = _columns[col];
+        if (!column._repeating) {
+            return 1;
+        }
+        long ref = column._chunks.get(row >>> CHUNK_SHIFT).getLong((row & CHUNK_MASK) * column._width);
+        return (ref == NO_VALUES ? 0 : _area.get((int) (ref >>> 32)).getInt((int) ref));
+    }
+
+    @Override
+    String getString(int row, int col, int index) throws DfException {
+        long location = locate(row, col, index);
+        ByteBuffer buffer = buffer(col, location);
+        int pos = (int) location;
+        switch (_columns[col]._type) {
+            case IDfAttr.DM_BOOLEAN:
+                return formatBoolean(buffer.get(pos) != 0);
+            case IDfAttr.DM_INTEGER:
+                return Integer.toString(buffer.getInt(pos));
+            case IDfAttr.DM_DOUBLE:
+                return Double.toString(buffer.getDouble(pos));
+            case IDfAttr.DM_TIME:
+                return formatTime(buffer.getLong(pos));
+            case IDfAttr.DM_ID:
+                if (buffer.get(pos) != 0) {
+                    return readString(buffer.getLong(pos + 1));
+                }
+                return dmColumnarRowStore.formatId(buffer.getLong(pos + 1));
+            default:
+                return readString(buffer.getLong(pos));
+        }
+    }
+
+    @Override
+    int getInt(int row, int col, int index) throws DfException {
+        switch (_columns[col]._type) {
+            case IDfAttr.DM_INTEGER:
+                long location = locate(row, col, index);
+                return buffer(col, location).getInt((int) location);
+            case IDfAttr.DM_DOUBLE:
+                return (int) getDouble(row, col, index);
+            case IDfAttr.DM_BOOLEAN:
+                return (getBoolean(row, col, index) ? 1 : 0);
+            default:
+                return parseInt(getString(row, col, index));
+        }
+    }
+
+    @Override
+    double getDouble(int row, int col, int index) throws DfException {
+        switch (_columns[col]._type) {
+            case IDfAttr.DM_DOUBLE:
+                long location = locate(row, col, index);
+                return buffer(col, location).getDouble((int) location);
+            case IDfAttr.DM_INTEGER:
+                return getInt(row, col, index);
+            default:
+                return parseDouble(getString(row, col, index));
+        }
+    }
+
+    @Override
+    boolean getBoolean(int row, int col, int index) throws DfException {
+        switch (_columns[col]._type) {
+            case IDfAttr.DM_BOOLEAN:
+                long location = locate(row, col, index);
+                return buffer(col, location).get((int) location) != 0;
+            case IDfAttr.DM_INTEGER:
+                return getInt(row, col, index) != 0;
+            default:
+                return parseBoolean(getString(row, col, index));
+        }
+    }
+
+    @Override
+    long getTime(int row, int col, int index) throws DfException {
+        if (_columns[col]._type == IDfAttr.DM_TIME) {
+            long location = locate(row, col, index);
+            return buffer(col, location).getLong((int) location);
+        }
+        return NULL_TIME;
+    }
+
+    @Override
+    String getId(int row, int col, int index) throws DfException {
+        return getString(row, col, index);
+    }
+
+    private void checkOpen() throws DfException {
+        if (_closed) {
+            throw new DfException("The record set has been closed.");
+        }
+    }
+
+    private void checkRow(int row) throws DfException {
+        checkOpen();
+        if (row < 0 || row >= _size) {
+            throw new DfException(String.format("Row %d is not in the record set.", row));
+        }
+    }
+
+    /**
+     * Return the location of a value: IN_COLUMN, the chunk number and the
+     * position of its slot in the column, or the reference of the value in
+     * the area for a value of a repeating attribute.
+     */
+    private long locate(int row, int col, int index) throws DfException {
+        int count = getValueCount(row, col);
+        if (index < 0 || index >= count) {
+            throw new DfException(String.format("Value %d of %s does not exist in row %d.", index, _columnDefs.get(col).getName(), row));
+        }
+        Column column = _columns[col];
+        int chunk = row >>> CHUNK_SHIFT;
+        int pos = (row & CHUNK_MASK) * column._width;
+        if (!column._repeating) {
+            return IN_COLUMN | ((long) chunk << 32) | pos;
+        }
+        return column._chunks.get(chunk).getLong(pos) + 4 + index * column._valueWidth;
+    }
+
+    private ByteBuffer buffer(int col, long location) {
+        int number = (int) (location >>> 32) & 0x3fffffff;
+        if ((location & IN_COLUMN) != 0) {
+            return _columns[col]._chunks.get(number);
+        }
+        return _area.get(number);
+    }
+
+    /**
+     * Write a value of a row to a slot; index is -1 for a single valued
+     * attribute.
+     */
+    private void write(Column column, ByteBuffer buffer, int pos, IDfTypedObject src, String name, int index) throws DfException {
+        boolean single = (index < 0);
+        switch (column._type) {
+            case IDfAttr.DM_BOOLEAN:
+                buffer.put(pos, (byte) ((single ? src.getBoolean(name) : src.getRepeatingBoolean(name, index)) ? 1 : 0));
+                break;
+            case IDfAttr.DM_INTEGER:
+                buffer.putInt(pos, (single ? src.getInt(name) : src.getRepeatingInt(name, index)));
+                break;
+            case IDfAttr.DM_DOUBLE:
+                buffer.putDouble(pos, (single ? src.getDouble(name) : src.getRepeatingDouble(name, index)));
+                break;
+            case IDfAttr.DM_TIME:
+                buffer.putLong(pos, toMillis(single ? src.getTime(name) : src.getRepeatingTime(name, index)));
+                break;
+            case IDfAttr.DM_ID:
+                writeId(column, buffer, pos, toIdString(single ? src.getId(name) : src.getRepeatingId(name, index)));
+                break;
+            default:
+                buffer.putLong(pos, writeString(column, (single ? src.getString(name) : src.getRepeatingString(name, index))));
+        }
+    }
+
+    /**
+     * Write a value given as a Java object to a slot.
+     */
+    private void write(Column column, ByteBuffer buffer, int pos, Object value) {
+        switch (column._type) {
+            case IDfAttr.DM_BOOLEAN:
+                buffer.put(pos, (byte) (booleanValue(value) ? 1 : 0));
+                break;
+            case IDfAttr.DM_INTEGER:
+                buffer.putInt(pos, intValue(value));
+                break;
+            case IDfAttr.DM_DOUBLE:
+                buffer.putDouble(pos, doubleValue(value));
+                break;
+            case IDfAttr.DM_TIME:
+                buffer.putLong(pos, timeValue(value));
+                break;
+            case IDfAttr.DM_ID:
+                writeId(column, buffer, pos, idValue(value));
+                break;
+            default:
+                buffer.putLong(pos, writeString(column, stringValue(value)));
+        }
+    }
+
+    private void writeId(Column column, ByteBuffer buffer, int pos, String id) {
+        if (id == null) {
+            id = NULL_ID;
+        }
+        long value = dmColumnarRowStore.parseId(id);
+        if (value == -1 && !"ffffffffffffffff".equalsIgnoreCase(id)) {
+            buffer.put(pos, (byte) 1);
+            buffer.putLong(pos + 1, writeString(column, id));
+        } else {
+            buffer.put(pos, (byte) 0);
+            buffer.putLong(pos + 1, value);
+        }
+    }
+
+    /**
+     * Write a string to the area, or find it in the column's cache, and
+     * return its reference.
+     */
+    private long writeString(Column column, String value) {
+        if (value == null) {
+            value = "";
+        }
+        Long cached = column._strings.get(value);
+        if (cached != null) {
+            return cached;
+        }
+        byte[] bytes = value.getBytes(UTF8);
+        long ref = reserve(4 + bytes.length);
+        ByteBuffer area = _area.get((int) (ref >>> 32));
+        area.putInt((int) ref, bytes.length);
+        ByteBuffer target = area.duplicate();
+        target.position((int) ref + 4);
+        target.put(bytes);
+        if (column._strings.size() < CACHE_SIZE) {
+            column._strings.put(value, ref);
+        }
+        return ref;
+    }
+
+    private String readString(long ref) {
+        ByteBuffer area = _area.get((int) (ref >>> 32));
+        int pos = (int) ref;
+        byte[] bytes = new byte[area.getInt(pos)];
+
+        // read through a duplicate so concurrent readers do not share the
+        // buffer's position
+        ByteBuffer source = area.duplicate();
+        source.position(pos + 4);
+        source.get(bytes);
+        return new String(bytes, UTF8);
+    }
+
+    /**
+     * Reserve bytes in the area and return their reference. Area buffers
+     * double in size up to AREA_BYTES; a value larger than that gets a
+     * buffer of its own.
+     */
+    private long reserve(int bytes) {
+        ByteBuffer last = (_area.isEmpty() ? null : _area.get(_area.size() - 1));
+        if (last == null || _areaUsed + bytes > last.capacity()) {
+            int capacity = (last == null ? FIRST_AREA_BYTES : Math.min(AREA_BYTES, last.capacity() * 2));
+            _area.add(allocate(Math.max(capacity, bytes)));
+            _areaUsed = 0;
+        }
+        long ref = ((long) (_area.size() - 1) << 32) | _areaUsed;
+        _areaUsed += bytes;
+        return ref;
+    }
+
+    /**
+     * Make room for a row in a column. The first chunk starts with
+     * FIRST_CHUNK_ROWS rows and doubles until it holds CHUNK_ROWS, so small
+     * record sets stay small.
+     */
+    private void ensureCapacity(Column column, int row) {
+        int chunk = row >>> CHUNK_SHIFT;
+        if (chunk == column._chunks.size()) {
+            column._chunks.add(allocate((chunk == 0 ? FIRST_CHUNK_ROWS : CHUNK_ROWS) * column._width));
+            return;
+        }
+        ByteBuffer buffer = column._chunks.get(chunk);
+        if (((row & CHUNK_MASK) + 1) * column._width > buffer.capacity()) {
+            ByteBuffer grown = allocate(Math.min(CHUNK_ROWS * column._width, buffer.capacity() * 2));
+            ByteBuffer source = buffer.duplicate();
+            source.clear();
+            grown.duplicate().put(source);
+            column._chunks.set(chunk, grown);
+            _offHeapBytes -= buffer.capacity();
+            release(buffer);
+        }
+    }
+
+    private ByteBuffer allocate(int capacity) {
+        _offHeapBytes += capacity;
+        return ByteBuffer.allocateDirect(capacity).order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Free the memory of a direct buffer now rather than when the buffer is
+     * garbage collected: with sun.misc.Unsafe.invokeCleaner() on Java 9 and
+     * later, or the buffer's own Cleaner on Java 8. If neither can be
+     * reached the memory is freed by the garbage collector as usual.
+     */
+    private static void release(ByteBuffer buffer) {
+        try {
+            if (INVOKE_CLEANER != null) {
+                INVOKE_CLEANER.invoke(UNSAFE, buffer);
+                return;
+            }
+            Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+            cleanerMethod.setAccessible(true);
+            Object cleaner = cleanerMethod.invoke(buffer);
+            if (cleaner != null) {
+                cleaner.getClass().getMethod("clean").invoke(cleaner);
+            }
+        } catch (Exception e) {
+
+            // left to the garbage collector
+        }
+    }
+
+    /**
+     * Slot layout and chunks of one column.
+     */
+    private static final class Column {
+
+        private int _type;
+        private boolean _repeating;
+        private int _width;
+        private int _valueWidth;
+        private ArrayList<ByteBuffer> _chunks = new ArrayList<ByteBuffer>();
+        private HashMap<String, Long> _strings = new HashMap<String, Long>();
+
+        Column(int type, boolean repeating) {
+            _type = type;
+            _repeating = repeating;
+            switch (type) {
+                case IDfAttr.DM_BOOLEAN:
+                    _valueWidth = 1;
+                    break;
+                case IDfAttr.DM_INTEGER:
+                    _valueWidth = 4;
+                    break;
+                case IDfAttr.DM_ID:
+                    _valueWidth = 9;
+                    break;
+                default:
+                    _valueWidth = 8;
+            }
+            _width = (repeating ? 8 : _valueWidth);
+        }
+    }
+}
+
+/*
+ *  <SDG><
+ */
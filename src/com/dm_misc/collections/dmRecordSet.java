@@ -36,20 +36,59 @@
  *      }
  * </pre>
  *
+ * Very large results can be read in streaming mode, which pulls rows from the
+ * IDfCollection as the record set is traversed and only retains a bounded
+ * window of recent rows: <br/>
+ * <pre>
+ *     dmRecordSet dmRS = new dmRecordSet(col, 1000);
+ *     while (dmRS.hasNext()) {
+ *         tObj = dmRS.getNextRow();
+ *         ...
+ *     }
+ * </pre>
+ *
  * @author M. Scott Roth, http://msroth.wordpress.com
- * @version 1.2
+ * @version 1.3
  */
 package com.dm_misc.collections;
 
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+import com.documentum.fc.client.DfQuery;
 import com.documentum.fc.client.IDfCollection;
+import com.documentum.fc.client.IDfQuery;
+import com.documentum.fc.client.IDfSession;
 import com.documentum.fc.client.IDfTypedObject;
+import com.documentum.fc.common.DfException;
+import com.documentum.fc.common.DfId;
 import com.documentum.fc.common.DfLogger;
 import com.documentum.fc.common.IDfAttr;
+import com.documentum.fc.common.IDfId;
+import com.documentum.fc.common.IDfTime;
 
 /**
  * The dmRecordSet class provides a more functional alternative to the
@@ -59,7 +98,8 @@ public class dmRecordSet {
 
     // private class variables
     private ArrayList<IDfAttr> _columnDefs = new ArrayList<IDfAttr>();
-    private ArrayList<IDfTypedObject> _rows = new ArrayList<IDfTypedObject>();
+    private dmRowStore _store = null;
+    private boolean _storeShared = false;
     private IDfTypedObject _currentRow = null;
     private int _rowCount = 0;
     private int _currentRowNumber = -1;
@@ -67,8 +107,76 @@ public class dmRecordSet {
     private int _lastRow = -1;
     private boolean _bof = true;
     private boolean _eof = true;
-    private String _colNamesHash = "";
-    private static final String _version = "dmRecordSet v1.2, (c) 2013 MS Roth, http://msroth.wordpress.com";
+    private dmRecordSetSchema _schema = null;
+    private HashMap<Integer, dmRecordSetIndex> _indexes = new HashMap<Integer, dmRecordSetIndex>();
+    private HashMap<Integer, BitSet> _dirty = new HashMap<Integer, BitSet>();
+    private volatile boolean _frozen = false;
+    private IDfCollection _source = null;
+    private dmAsyncLoader _loader = null;
+    private CompletableFuture<Integer> _loadFuture = null;
+    private DfException _loadError = null;
+    private dmRecordSetMetrics _metrics = dmRecordSetMetrics.newInstance(this);
+    private dmRowView _rowView = null;
+    private long _sourceNanos = 0;
+    private static final AtomicBoolean _versionLogged = new AtomicBoolean(false);
+    private static final String _version = "dmRecordSet v1.3, (c) 2013 MS Roth, http://msroth.wordpress.com";
+
+    // where a requested row is, relative to the rows held (see moveTo())
+    private static final int ROW_FOUND = 0;
+    private static final int ROW_EXPIRED = 1;
+    private static final int ROW_BEFORE_FIRST = 2;
+    private static final int ROW_AFTER_LAST = 3;
+
+    // runs the UPDATE statements of commit()
+    private static final dmRecordSetCache.QueryExecutor UPDATE_EXECUTOR = new dmRecordSetCache.QueryExecutor() {
+
+        public IDfCollection execute(IDfSession session, String dql) throws DfException {
+            IDfQuery q = new DfQuery();
+            q.setDQL(dql);
+            return q.execute(session, IDfQuery.DF_QUERY);
+        }
+    };
+
+    /**
+     * Storage options for the rows of a record set.
+     */
+    public enum Storage {
+
+        /** Retain the IDfTypedObject of each row (default). */
+        OBJECTS,
+
+        /** Copy row values into typed column arrays. */
+        COLUMNAR,
+
+        /** Copy row values into direct memory outside the heap; call
+         * close() to free it. */
+        OFF_HEAP
+    }
+
+    /**
+     * Types of join between two record sets (see join()).
+     */
+    public enum JoinType {
+
+        /** Rows of both record sets with matching keys. */
+        INNER,
+
+        /** All rows of the left record set, with null values where no row
+         * of the right record set matches. */
+        LEFT,
+
+        /** Rows of the left record set that match a row of the right one,
+         * with the left record set's columns only. */
+        SEMI
+    }
+
+    /**
+     * Callback for forEachRow().
+     */
+    public interface RowConsumer {
+
+        void accept(dmRowView row) throws Exception;
+    }
 
     /**
      * Create a dmRecordSet from an IDfCollection.
@@ -78,39 +186,181 @@ public class dmRecordSet {
      *
      */
     public dmRecordSet(IDfCollection col) throws Exception {
+        this(col, 0, Storage.OBJECTS);
+    }
+
+    /**
+     * Create a dmRecordSet from an IDfCollection using the given storage.
+     * With Storage.COLUMNAR the values of each row are copied into typed
+     * column arrays and the rows' IDfTypedObjects are not retained, which
+     * greatly reduces the memory held by large record sets. Rows returned
+     * by getRow(), getNextRow(), etc. are then read-only IDfTypedObject
+     * views of the stored values.
+     *
+     * Storage.OFF_HEAP stores the values the same way in direct ByteBuffers,
+     * so even record sets of tens of millions of rows add almost nothing to
+     * the heap the garbage collector has to scan. Navigation and the value
+     * accessors work as with the other storages. Call close() when done to
+     * free the memory at once; otherwise it is freed when the record set is
+     * garbage collected.
+     *
+     * @param col The IDfCollection containing the query results
+     * @param storage how the rows of the record set are stored
+     * @exception Exception
+     *
+     */
+    public dmRecordSet(IDfCollection col, Storage storage) throws Exception {
+        this(col, 0, storage);
+    }
+
+    /**
+     * Create a dmRecordSet from an IDfCollection in streaming mode. Rows are
+     * pulled from the collection as the record set is traversed instead of
+     * all being read in the constructor, and only the most recent
+     * <code>windowSize</code> rows are retained for getPreviousRow() and
+     * getRow(). The collection is closed when its last row has been read or
+     * when close() is called.
+     *
+     * While streaming, getRowCount() returns the number of rows read from
+     * the collection so far. getLastRow(), resetToEnd() and addRow() read the
+     * remainder of the collection (retaining only the window) before they
+     * return.
+     *
+     * @param col The IDfCollection containing the query results
+     * @param windowSize number of rows to retain, 0 to read and retain the
+     * whole collection
+     * @exception Exception
+     *
+     */
+    public dmRecordSet(IDfCollection col, int windowSize) throws Exception {
+        this(col, windowSize, Storage.OBJECTS);
+    }
+
+    /**
+     * Create a frozen dmRecordSet over an existing row store. Used for
+     * record set views, which share the rows of another record set, and for
+     * results computed from a record set.
+     */
+    dmRecordSet(dmRowStore store) {
+        this(store, true);
+    }
+
+    /**
+     * Create a dmRecordSet over an existing row store, frozen or not. Used
+     * by dmRecordSetLoader, whose record sets own their rows.
+     */
+    dmRecordSet(dmRowStore store, boolean frozen) {
+        _store = store;
+        _schema = store.getSchema();
+        _columnDefs = _schema.getColumnDefs();
+        _rowCount = store.size();
+        if (_rowCount > 0) {
+            _eof = false;
+            _firstRow = 0;
+            _lastRow = _rowCount - 1;
+        }
+        _frozen = frozen;
+    }
+
+    /**
+     * Create an empty row store of the given storage.
+     */
+    static dmRowStore newStore(Storage storage, dmRecordSetSchema schema) {
+        if (storage == Storage.COLUMNAR) {
+            return new dmColumnarRowStore(schema);
+        } else if (storage == Storage.OFF_HEAP) {
+            return new dmOffHeapRowStore(schema);
+        }
+        return new dmObjectRowStore(schema);
+    }
+
+    /**
+     * Create a dmRecordSet that is filled from an IDfCollection on a
+     * background thread (see loadAsync()).
+     */
+    private dmRecordSet(IDfCollection col, Storage storage, dmAsyncLoader loader) throws Exception {
+        logVersion();
+        if (col == null || col.getState() == IDfCollection.DF_CLOSED_STATE) {
+            throw new Exception("The IDfCollection object is null or in the closed state.");
+        }
+        int c = col.getAttrCount();
+        for (int i = 0; i < c; i++) {
+            _columnDefs.add(col.getAttr(i));
+        }
+        _schema = new dmRecordSetSchema(_columnDefs);
+        _store = newStore(storage, _schema);
+
+        // more rows may arrive, so the record set is not at EOF until the
+        // loader has finished
+        _bof = true;
+        _eof = false;
+        _loader = loader;
+        _loadFuture = loader.getFuture();
+        loader.start();
+    }
+
+    private dmRecordSet(IDfCollection col, int windowSize, Storage storage) throws Exception {
+
+        if (windowSize < 0) {
+            throw new Exception("The streaming window size cannot be negative.");
+        }
 
-        DfLogger.info(dmRecordSet.class, _version, null, null);
+        logVersion();
         if (col != null && col.getState() != IDfCollection.DF_CLOSED_STATE) {
 
             /**
-             * The record set is maintained in two internal arrays: _columnDefs,
-             * _rows. _columnDefs contains IDfAttr objects for each column in
-             * the collection (in order). _rows contains IDfTypedObjects for
-             * each row in the collection. Using the two internal arrays
-             * together you can get everything you need to know about the
-             * collection.
+             * The record set is maintained in two internal structures:
+             * _columnDefs and _store. _columnDefs contains IDfAttr objects
+             * for each column in the collection (in order). _store holds
+             * the rows of the collection, either as IDfTypedObjects or as
+             * typed column arrays (see dmRowStore). Using the two together
+             * you can get everything you need to know about the collection.
              */
             // load column defs
             int c = col.getAttrCount();
             for (int i = 0; i < c; i++) {
                 _columnDefs.add(col.getAttr(i));
-                
-                // create column name hash
+            }
+
+            // create schema
+            /**
+             * The schema maps column names to column numbers and is used to
+             * compare the columns of IDfTypedObjects when trying to manually
+             * add them to the record set.
+             */
+            _schema = new dmRecordSetSchema(_columnDefs);
+
+            if (windowSize > 0) {
+
                 /**
-                 * This is really just a concatenation of column names used
-                 * to compare columns of IDfTypedObjects when trying to 
-                 * manually add to the record set.
+                 * In streaming mode the rows are kept in a ring buffer
+                 * indexed by row number modulo the window size. Read the
+                 * first row now so BOF/EOF and isEmpty() are meaningful
+                 * before the record set is traversed.
                  */
-                _colNamesHash += col.getAttr(i).getName();
+                _store = new dmObjectRowStore(_schema, windowSize);
+                _source = col;
+                fetchRow();
+
+                if (_rowCount > 0) {
+                    _bof = true;
+                    _eof = false;
+                    _firstRow = 0;
+                }
+                return;
             }
 
+            _store = newStore(storage, _schema);
+
             // load rows
+            long start = (_metrics != null ? System.nanoTime() : 0);
             while (col.next()) {
-                _rows.add(col.getTypedObject());
+                _store.add(col.getTypedObject());
             }
+            long loadNanos = (_metrics != null ? System.nanoTime() - start : 0);
 
             // init row counters
-            _rowCount = _rows.size();
+            _rowCount = _store.size();
 
             if (_rowCount > 0) {
                 _bof = true;
@@ -126,6 +376,9 @@ public class dmRecordSet {
            
             // close collection
             col.close();
+            if (_metrics != null) {
+                _metrics.loaded(_rowCount, loadNanos);
+            }
 
         } else {
             throw new Exception("The IDfCollection object is null or in the closed state.");
@@ -133,12 +386,93 @@ public class dmRecordSet {
     }
 
     /**
-     * Return the number of rows contained in the record set.
+     * Create a dmRecordSet that is filled from an IDfCollection on a
+     * background thread, so the caller can start processing rows while the
+     * rest are still being read from the server. The method returns as soon
+     * as the loader thread has started.
+     *
+     * hasNext(), getNextRow(), getRow() and the typed value accessors wait
+     * only when they need a row that has not been read yet.
+     * getRowCount() returns the number of rows read so far; use
+     * getLoadFuture() to wait for, or be notified of, the end of the load.
+     * Operations over the whole record set (getLastRow(), sortBy(),
+     * filter(), freeze(), ...) wait for the load to finish. The collection
+     * is closed when its last row has been read or when close() is called.
+     *
+     * Example:
+     * <pre>
+     *     dmRecordSet dmRS = dmRecordSet.loadAsync(col);
+     *     while (dmRS.hasNext()) {
+     *         tObj = dmRS.getNextRow();   // overlaps with the load
+     *         ...
+     *     }
+     * </pre>
+     *
+     * @param col The IDfCollection containing the query results
+     * @return dmRecordSet being loaded
+     * @exception Exception
+     *
+     */
+    public static dmRecordSet loadAsync(IDfCollection col) throws Exception {
+        return loadAsync(col, Storage.OBJECTS);
+    }
+
+    /**
+     * Create a dmRecordSet that is filled from an IDfCollection on a
+     * background thread using the given storage (see loadAsync()).
+     *
+     * @param col The IDfCollection containing the query results
+     * @param storage how the rows of the record set are stored
+     * @return dmRecordSet being loaded
+     * @exception Exception
+     *
+     */
+    public static dmRecordSet loadAsync(IDfCollection col, Storage storage) throws Exception {
+        return new dmRecordSet(col, storage, new dmAsyncLoader(col));
+    }
+
+    /**
+     * Indicates if rows are still being read by loadAsync().
+     *
+     * @return true, if more rows may still be added by the background load,
+     * else false.
+     *
+     */
+    public boolean isLoading() {
+        return _loader != null;
+    }
+
+    /**
+     * Return a future that completes with the number of rows read from the
+     * collection when a loadAsync() load ends, or exceptionally if reading
+     * the collection failed. For record sets that were not loaded
+     * asynchronously the future is already complete.
+     *
+     * @return CompletableFuture<Integer> completed when loading ends
+     *
+     */
+    public CompletableFuture<Integer> getLoadFuture() {
+        if (_loadFuture != null) {
+            return _loadFuture;
+        }
+        return CompletableFuture.completedFuture(_rowCount);
+    }
+
+    /**
+     * Return the number of rows contained in the record set. While a
+     * loadAsync() load is running, this is the number of rows read so far.
      *
      * @return int row count
      *
      */
     public int getRowCount() {
+        if (_loader != null) {
+            try {
+                loadRows(false);
+            } catch (DfException e) {
+                DfLogger.warn(dmRecordSet.class, "Could not read next row from IDfCollection: " + e.getMessage(), null, e);
+            }
+        }
         return _rowCount;
     }
 
@@ -151,6 +485,30 @@ public class dmRecordSet {
         return _columnDefs.size();
     }
 
+    /**
+     * Return the schema of the record set. The schema maps column names to
+     * column numbers.
+     *
+     * @return dmRecordSetSchema
+     *
+     */
+    public dmRecordSetSchema getSchema() {
+        return _schema;
+    }
+
+    /**
+     * Return the number of the column with the given name. Column names are
+     * not case sensitive. Resolve a column name once and use the column
+     * number with the typed value accessors when reading many rows.
+     *
+     * @param columnName name of the column
+     * @return int column number, or -1 if the record set has no such column
+     *
+     */
+    public int getColumnNumber(String columnName) {
+        return _schema.indexOf(columnName);
+    }
+
     /**
      * Returns an ArrayList holding IDfAttr objects for each column definition.
      *
@@ -191,7 +549,7 @@ public class dmRecordSet {
      *
      */
     public boolean isEmpty() {
-        if (_rowCount == 0) {
+        if (_rowCount == 0 && !peekRow()) {
             return true;
         } else {
             return false;
@@ -208,7 +566,7 @@ public class dmRecordSet {
         if (_currentRowNumber + 1 <= _lastRow) {
             return true;
         } else {
-            return false;
+            return peekRow();
         }
     }
 
@@ -242,13 +600,7 @@ public class dmRecordSet {
 //        }
 //
 //        return _currentRow;
-        IDfTypedObject tObj;
-        try {
-            tObj = getRow(_currentRowNumber + 1);
-        } catch (Exception e) {
-            tObj = null;
-        }
-        return tObj;
+        return tryGetRow(_currentRowNumber + 1);
     }
 
     /**
@@ -265,14 +617,16 @@ public class dmRecordSet {
     }
 
     /**
-     * Indicates if the record set has a row preceding the current row.
+     * Indicates if the record set has a row preceding the current row. In a
+     * streaming record set, rows that have left the window do not count, as
+     * getPreviousRow() cannot return them.
      *
      * @return true, if current record has a row preceding the current row, else
      * false.
      *
      */
     public boolean hasPrevious() {
-        if (_currentRowNumber - 1 >= _firstRow) {
+        if (_currentRowNumber - 1 >= getFirstAvailableRow()) {
             return true;
         } else {
             return false;
@@ -309,13 +663,7 @@ public class dmRecordSet {
 //        }
 //
 //        return _currentRow;
-        IDfTypedObject tObj;
-        try {
-            tObj = getRow(_currentRowNumber - 1);
-        } catch (Exception e) {
-            tObj = null;
-        }
-        return tObj;
+        return tryGetRow(_currentRowNumber - 1);
     }
 
     /**
@@ -358,8 +706,11 @@ public class dmRecordSet {
      *
      */
     public IDfTypedObject getFirstRow() {
+        if (_firstRow < getFirstAvailableRow()) {
+            throw new IllegalStateException("The first row is no longer in the streaming window.");
+        }
         _currentRowNumber = _firstRow;
-        _currentRow = _rows.get(_currentRowNumber);
+        _currentRow = rowAt(_currentRowNumber);
         _eof = false;
         _bof = true;
         return _currentRow;
@@ -392,8 +743,9 @@ public class dmRecordSet {
      *
      */
     public IDfTypedObject getLastRow() {
+        drainSource();
         _currentRowNumber = _lastRow;
-        _currentRow = _rows.get(_currentRowNumber);
+        _currentRow = rowAt(_currentRowNumber);
         _eof = true;
         _bof = false;
         return _currentRow;
@@ -408,27 +760,150 @@ public class dmRecordSet {
      *
      */
     public IDfTypedObject getRow(int rowNumber) throws Exception {
-        if ((rowNumber >= _firstRow) && (rowNumber <= _lastRow)) {
+
+        // in streaming mode, read ahead until the requested row is loaded
+        while (rowNumber > _lastRow && fetchRow()) {
+        }
+
+        int position = moveTo(rowNumber);
+        if (position != ROW_FOUND) {
+            String message;
+            if (position == ROW_EXPIRED) {
+                message = String.format("Row %d is no longer in the streaming window.", rowNumber);
+            } else if (position == ROW_BEFORE_FIRST) {
+                message = String.format("Row %d precedes first row.  dmRecordSet reset to BOF.", rowNumber);
+            } else {
+                message = String.format("Row %d is beyond last row.  dmRecordSet set to EOF.", rowNumber);
+            }
+            DfLogger.warn(dmRecordSet.class, message, null, null);
+            if (_metrics != null) {
+                _metrics.outOfRange(rowNumber);
+            }
+            throw new Exception("WARNING: " + message);
+        }
+        return _currentRow;
+    }
+
+    /**
+     * Get any record in the record set without an exception for a row that
+     * does not exist. The row pointer and BOF/EOF flags are set as by
+     * getRow(), but nothing is logged. Use this method, or advance(), in
+     * loops that run off the end of the record set.
+     *
+     * @param rowNumber record number to return
+     * @return IDfTypedObject object representing the specified record, or
+     * null if the row does not exist or is no longer in the streaming
+     * window.
+     *
+     */
+    public IDfTypedObject tryGetRow(int rowNumber) {
+
+        // in streaming mode, read ahead until the requested row is loaded
+        while (rowNumber > _lastRow && peekRow()) {
+        }
+        return (moveTo(rowNumber) == ROW_FOUND ? _currentRow : null);
+    }
+
+    /**
+     * Move to the next row. Unlike getNextRow(), this method does not throw
+     * at the end of the record set. Read the values of the row with
+     * getRowView(), which does not create an IDfTypedObject per row.
+     *
+     * Example:
+     * <pre>
+     *     dmRS.resetToBeginning();
+     *     while (dmRS.advance()) {
+     *         dmRowView row = dmRS.getRowView();
+     *         ...
+     *     }
+     * </pre>
+     *
+     * @return true, if the row pointer moved to the next row, false if there
+     * are no more rows.
+     *
+     */
+    public boolean advance() {
+        return tryGetRow(_currentRowNumber + 1) != null;
+    }
+
+    /**
+     * Return a view of the values of the current row. The same dmRowView is
+     * returned, repositioned to the current row, on every call.
+     *
+     * @return dmRowView of the current row
+     *
+     */
+    public dmRowView getRowView() {
+        if (_rowView == null || _rowView.getStore() != _store) {
+            _rowView = new dmRowView(_store);
+        }
+        _rowView.setRow(_currentRowNumber);
+        return _rowView;
+    }
+
+    /**
+     * Call a consumer for each row, in row order, with a dmRowView
+     * positioned on the row. The row pointer is not moved. For a streaming
+     * record set the loop reads the rest of the IDfCollection; for a
+     * loadAsync() record set it waits for rows as needed. An exception
+     * thrown by the consumer ends the loop and is thrown by this method.
+     *
+     * Example:
+     * <pre>
+     *     final int size = dmRS.getColumnNumber("r_full_content_size");
+     *     final double[] total = new double[1];
+     *     dmRS.forEachRow(row -&gt; total[0] += row.getDouble(size));
+     * </pre>
+     *
+     * @param consumer callback for each row
+     * @return int number of rows visited
+     * @exception Exception if the consumer throws an exception
+     *
+     */
+    public int forEachRow(RowConsumer consumer) throws Exception {
+        dmRowView view = new dmRowView(_store);
+        int count = 0;
+        for (int row = Math.max(0, getFirstAvailableRow()); row <= _lastRow || peekRow(); row++) {
+            view.setRow(row);
+            consumer.accept(view);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Move the row pointer to a row that has been read, setting the BOF and
+     * EOF flags as getRow() does, without logging or throwing.
+     *
+     * @return ROW_FOUND, or where the row is relative to the rows held
+     */
+    private int moveTo(int rowNumber) {
+        if (_lastRow < 0) {
+            _bof = true;
+            _eof = true;
+            return (rowNumber < 0 ? ROW_BEFORE_FIRST : ROW_AFTER_LAST);
+        }
+        if ((rowNumber >= _firstRow) && (rowNumber < getFirstAvailableRow())) {
+            return ROW_EXPIRED;
+        } else if ((rowNumber >= _firstRow) && (rowNumber <= _lastRow)) {
             _currentRowNumber = rowNumber;
-            _currentRow = _rows.get(_currentRowNumber);
+            _currentRow = rowAt(_currentRowNumber);
             _eof = false;
             _bof = false;
+            return ROW_FOUND;
         } else if (rowNumber < _firstRow) {
-            _currentRowNumber = _firstRow;
-            _currentRow = _rows.get(_currentRowNumber);
+            _currentRowNumber = getFirstAvailableRow();
+            _currentRow = rowAt(_currentRowNumber);
             _eof = false;
             _bof = true;
-            DfLogger.warn(dmRecordSet.class, String.format("Row %d precedes first row.  dmRecordSet reset to BOF.", rowNumber), null, null);
-            throw new Exception(String.format("WARNING: Row %d precedes first row.  dmRecordSet reset to BOF.", rowNumber));
-        } else if (rowNumber > _lastRow) {
+            return ROW_BEFORE_FIRST;
+        } else {
             _currentRowNumber = _lastRow;
-            _currentRow = _rows.get(_currentRowNumber);
+            _currentRow = rowAt(_currentRowNumber);
             _eof = true;
             _bof = false;
-            DfLogger.warn(dmRecordSet.class, String.format("Row %d is beyond last row.  dmRecordSet set to EOF.", rowNumber), null, null);
-            throw new Exception(String.format("WARNING: Row %d is beyond last row.  dmRecordSet set to EOF.", rowNumber));
+            return ROW_AFTER_LAST;
         }
-        return _currentRow;
     }
 
     /**
@@ -507,6 +982,7 @@ public class dmRecordSet {
      *
      */
     public void resetToEnd() {
+        drainSource();
         _currentRowNumber = _rowCount;
         _currentRow = null;
         _eof = true;
@@ -520,25 +996,18 @@ public class dmRecordSet {
      *
      */
     public void addRow(IDfTypedObject row) throws Exception {
-        String rowColNames = "";
-        
-        try {
-        
-            // get column names in the row
-            for (int i = 0; i < row.getAttrCount(); i++) {
-                rowColNames += (row.getAttr(i).getName());
-            }
-        } catch (Exception e) {
-            throw e;
-        }
-        
-        // if column hashes match, add row to record set
-        if (rowColNames.equalsIgnoreCase(_colNamesHash)) {
-            _rows.add(row);
-            _rowCount = _rows.size();
-            _lastRow = _rowCount - 1;
+        checkNotFrozen();
+
+        // if columns match the schema, add row to record set
+        if (_schema.matches(row)) {
+            drainSource();
+            awaitLoad();
+            appendRow(row);
         } else {
             DfLogger.warn(dmRecordSet.class, "Columns for row do not match record set. Row not added.", null, null);
+            if (_metrics != null) {
+                _metrics.rejected();
+            }
             throw new Exception("Columns for row do not match record set. Row not added.");
         }
     }
@@ -552,7 +1021,8 @@ public class dmRecordSet {
      *
      */
     public void addRows(ArrayList<IDfTypedObject> rows) throws Exception {
-        
+        checkNotFrozen();
+
         try {
             for (IDfTypedObject row : rows){
                 addRow(row);
@@ -564,54 +1034,420 @@ public class dmRecordSet {
     }
 
     /**
-     * Return the record set as a List of IDfTypedObjects.
+     * Bring the record set up to date with the results of re-running its
+     * query, changing only the rows that differ. Rows are matched on a key
+     * column with unique values, such as r_object_id. A matched row whose
+     * version column (e.g., i_vstamp or r_modify_date) has a different
+     * value is replaced by the new row; rows with new keys are appended
+     * after the last row; rows whose keys are no longer in the results are
+     * removed. The other rows keep their values and order. Indexes are
+     * rebuilt and the row pointer is reset to the beginning. The
+     * IDfCollection is read to the end and closed.
+     *
+     * The refreshed rows are built in new storage that replaces the old
+     * one, so views created before the refresh (filter(), sortBy(), topN(),
+     * page(), distinct(), project(), unnest(), join(), ...) keep the rows
+     * they were created from and do not see the refresh. Create the views
+     * again to see the refreshed rows. The old storage is freed once those
+     * views are no longer used; Storage.OFF_HEAP memory is freed by the
+     * refresh if no view, cursor or group by was created, and rows read
+     * from the record set before the refresh can no longer be read.
+     *
+     * Nothing is changed if the columns of the results do not match or a
+     * key appears twice. Values changed with setValue() must be committed
+     * first. If the new rows break a unique index, the index is
+     * dropped and a warning logged; the refresh itself is kept.
+     *
+     * Example:
+     * <pre>
+     *     dmRecordSetDelta delta = dmRS.refresh(q.execute(session, DfQuery.DF_READ_QUERY), "r_object_id", "i_vstamp");
+     *     System.out.println(delta);
+     * </pre>
+     *
+     * @param newResults IDfCollection of the re-run query
+     * @param keyColumn name of the single valued column identifying a row
+     * @param versionColumn name of the column whose value changes when a
+     * row changes, or null to compare all columns
+     * @return dmRecordSetDelta the rows added, updated and removed
+     * @exception Exception if the record set is frozen, streaming or has
+     * uncommitted changes, a column does not exist, the columns do not
+     * match or a key is not unique
      *
-     * Example using objects in List:
+     */
+    public dmRecordSetDelta refresh(IDfCollection newResults, String keyColumn, String versionColumn) throws Exception {
+        checkNotFrozen();
+        checkNotStreaming();
+        if (!_dirty.isEmpty()) {
+            throw new Exception("The record set has changes that have not been committed.");
+        }
+        if (newResults == null || newResults.getState() == IDfCollection.DF_CLOSED_STATE) {
+            throw new Exception("The IDfCollection object is null or in the closed state.");
+        }
+        int keyCol = resolveColumn(keyColumn);
+        int versionCol = (versionColumn == null ? -1 : resolveColumn(versionColumn));
+        int keyType = _columnDefs.get(keyCol).getDataType();
+        if (_columnDefs.get(keyCol).isRepeating()) {
+            throw new Exception(String.format("Key column %s is a repeating attribute.", keyColumn));
+        }
+
+        // read the new rows aside so nothing changes if they are unusable
+        dmObjectRowStore incoming = new dmObjectRowStore(_schema);
+        try {
+            ArrayList<IDfAttr> columnDefs = new ArrayList<IDfAttr>();
+            for (int i = 0; i < newResults.getAttrCount(); i++) {
+                columnDefs.add(newResults.getAttr(i));
+            }
+            if (!_schema.matches(new dmRecordSetSchema(columnDefs))) {
+                throw new Exception("Columns of the new results do not match record set. Record set not refreshed.");
+            }
+            while (newResults.next()) {
+                incoming.add(newResults.getTypedObject());
+            }
+        } finally {
+            newResults.close();
+        }
+
+        // match the new rows to the current rows by key
+        int oldCount = _rowCount;
+        HashMap<Object, Integer> rowsByKey = new HashMap<Object, Integer>(oldCount * 2);
+        for (int i = 0; i < oldCount; i++) {
+            Object key = dmRecordSetIndex.readKey(_store, i, keyCol, keyType, 0);
+            if (rowsByKey.put(key, i) != null) {
+                throw new Exception(String.format("Key %s appears in more than one row of the record set.", key));
+            }
+        }
+        int[] replacements = new int[oldCount];
+        Arrays.fill(replacements, -1);
+        int[] matches = new int[oldCount];
+        Arrays.fill(matches, -1);
+        int[] added = new int[incoming.size()];
+        int addedCount = 0;
+        for (int i = 0; i < incoming.size(); i++) {
+            Object key = dmRecordSetIndex.readKey(incoming, i, keyCol, keyType, 0);
+
+            // -1 marks a key already seen in the new results
+            Integer row = rowsByKey.put(key, -1);
+            if (row != null && row < 0) {
+                throw new Exception(String.format("Key %s appears in more than one row of the new results.", key));
+            } else if (row == null) {
+                added[addedCount++] = i;
+            } else {
+                matches[row] = i;
+                if (!sameValues(incoming, i, row, versionCol)) {
+                    replacements[row] = i;
+                }
+            }
+        }
+
+        // build the refreshed rows in new storage: kept and replaced rows
+        // in their order, then the new rows; views of the record set keep
+        // the old storage. Kept rows of Storage.OBJECTS are taken from the
+        // new results, so setValue() after the refresh does not change the
+        // IDfTypedObjects the views hold
+        boolean copyKept = (getStorage() == Storage.OBJECTS);
+        dmRowStore refreshed = newStore(getStorage(), _schema);
+        int[] removed = new int[oldCount];
+        int removedCount = 0;
+        int[] updated = new int[oldCount];
+        int updatedCount = 0;
+        ArrayList<Object> removedKeys = new ArrayList<Object>();
+        for (int i = 0; i < oldCount; i++) {
+            if (matches[i] < 0) {
+                removedKeys.add(dmRecordSetIndex.readKey(_store, i, keyCol, keyType, 0));
+                removed[removedCount++] = i;
+            } else if (replacements[i] >= 0) {
+                updated[updatedCount++] = refreshed.size();
+                refreshed.add(incoming.getRow(replacements[i]));
+            } else if (copyKept) {
+                refreshed.add(incoming.getRow(matches[i]));
+            } else {
+                refreshed.add(_store.getRow(i));
+            }
+        }
+        int firstAdded = refreshed.size();
+        for (int i = 0; i < addedCount; i++) {
+            refreshed.add(incoming.getRow(added[i]));
+            added[i] = firstAdded + i;
+        }
+
+        replaceStore(refreshed);
+        _rowCount = _store.size();
+        _lastRow = _rowCount - 1;
+        _firstRow = (_rowCount > 0 ? 0 : -1);
+        rebuildIndexes();
+        resetToBeginning();
+
+        dmRecordSetDelta delta = new dmRecordSetDelta(Arrays.copyOf(added, addedCount),
+                Arrays.copyOf(updated, updatedCount), Arrays.copyOf(removed, removedCount), removedKeys);
+        DfLogger.debug(dmRecordSet.class, "Record set refreshed: " + delta, null, null);
+        if (_metrics != null) {
+            _metrics.refreshed(delta);
+        }
+        return delta;
+    }
+
+    /**
+     * Change a value of a row. The value may be given as a String or as the
+     * column's type (Integer, Double, Boolean, IDfId, IDfTime or
+     * java.util.Date); the values of a repeating attribute are given as an
+     * Object[] and replace all of its values. The row is marked as changed
+     * until commit() writes it. Indexes over the column are updated.
+     *
+     * @param rowNumber row number
+     * @param columnNumber column number
+     * @param value new value
+     * @exception Exception if the record set is frozen or streaming, the row
+     * or column does not exist, a time given as a String does not parse, an
+     * object id is not 16 hex digits, or the value breaks a unique index
      *
-     * List<IDftypedObject> list = dmRS.getRecordSetAsList(); while
-     * (IDfTypedObject t : list) { String objId = t.getString("r_object_id");
-     * ... }
+     */
+    public void setValue(int rowNumber, int columnNumber, Object value) throws Exception {
+        checkNotFrozen();
+        checkNotStreaming();
+        checkValue(rowNumber, columnNumber);
+        dmRowStore.checkValue(_columnDefs.get(columnNumber).getDataType(), value);
+        dmRecordSetIndex index = _indexes.get(columnNumber);
+        if (index == null) {
+            _store.setValue(rowNumber, columnNumber, value);
+        } else {
+
+            // put the old value back if the new one breaks a unique index
+            Object oldValue = readValues(rowNumber, columnNumber);
+            index.remove(_store, rowNumber);
+            _store.setValue(rowNumber, columnNumber, value);
+            try {
+                index.check(_store, rowNumber);
+            } catch (DfException e) {
+                _store.setValue(rowNumber, columnNumber, oldValue);
+                index.add(_store, rowNumber);
+                throw e;
+            }
+            index.add(_store, rowNumber);
+        }
+        BitSet columns = _dirty.get(rowNumber);
+        if (columns == null) {
+            columns = new BitSet();
+            _dirty.put(rowNumber, columns);
+        }
+        columns.set(columnNumber);
+    }
+
+    /**
+     * Change a value of a row.
      *
-     * Note: You must use the IDfTypedObject.getString("") syntax to access data
-     * from these objects. IDfTypedObject.getObjectId() will not return
-     * meaningful data.
+     * @param rowNumber row number
+     * @param columnName name of the column
+     * @param value new value
+     * @exception Exception if the column does not exist
      *
-     * @return List<IDfTypedObjects> of records in the record set.
+     * @see dmRecordSet#setValue(int, int, Object) setValue
      *
      */
-    public List<IDfTypedObject> getRecordSetAsList() {
-        return _rows;
+    public void setValue(int rowNumber, String columnName, Object value) throws Exception {
+        setValue(rowNumber, resolveColumn(columnName), value);
     }
 
     /**
-     * Return the record set as a Set of IDfTypedObjects. Note: the Set will
-     * contain only unique objects (duplicates will not be included even if they
-     * exist in the record set).
-     *
-     * Example using objects in Set:
+     * Indicates if values have been changed since the last commit().
      *
-     * Set<IDftypedObject> set = dmRS.getRecordSetAsSet(); while (IDfTypedObject
-     * t : set) { String objId = t.getString("r_object_id"); ... }
+     * @return true, if there are uncommitted changes, else false.
      *
-     * Note: You must use the IDfTypedObject.getString("") syntax to access data
-     * from these objects. IDfTypedObject.getObjectId() will not return
-     * meaningful data.
+     */
+    public boolean isDirty() {
+        return !_dirty.isEmpty();
+    }
+
+    /**
+     * Return the numbers of the rows with uncommitted changes.
      *
-     * @return Set<IDfTypedObject> of records in the record set.
+     * @return int[] row numbers in ascending order
      *
      */
-    public Set<IDfTypedObject> getRecordSetAsSet() {
-        return new HashSet<IDfTypedObject>(_rows);
+    public int[] getDirtyRows() {
+        int[] rows = new int[_dirty.size()];
+        int i = 0;
+        for (int row : _dirty.keySet()) {
+            rows[i++] = row;
+        }
+        Arrays.sort(rows);
+        return rows;
     }
 
     /**
-     * Returns information about the record set
+     * Write the changed values to the repository of the dm_sysobjects
+     * identified by the r_object_id column.
      *
-     * @return String containing record set stats
+     * @param session session to run the updates on
+     * @param batchSize maximum number of objects per UPDATE statement
+     * @return dmCommitResult rows written and rows that failed
+     * @exception Exception if the record set has no r_object_id column
+     *
+     * @see dmRecordSet#commit(IDfSession, String, int) commit
      *
      */
-    public String getRecordSetInfo() {
-        StringBuilder sb = new StringBuilder();
+    public dmCommitResult commit(IDfSession session, int batchSize) throws Exception {
+        return commit(session, "dm_sysobject", batchSize);
+    }
+
+    /**
+     * Write the changed values to the repository with DQL UPDATE statements
+     * instead of a fetch and save() per object. Rows are identified by the
+     * r_object_id column. Rows whose changes are the same (the same columns
+     * set to the same values, e.g., a new owner for many documents) are
+     * written together, batchSize objects at a time:
+     * <pre>
+     *     update dm_document objects set owner_name = 'jsmith'
+     *         where r_object_id in ('09...', '09...', ...)
+     * </pre>
+     * A repeating attribute is written as TRUNCATE followed by an APPEND
+     * for each value. If a statement fails or updates fewer objects than
+     * it names, its rows are written one at a time to find the rows that
+     * fail. Rows without a valid object id fail without being written.
+     * Rows that fail stay changed and are reported in the result;
+     * commit() does not throw for them.
+     *
+     * The statements run in the session's current transaction, if any;
+     * start one with IDfSession.beginTrans() to make the commit all or
+     * nothing.
+     *
+     * @param session session to run the updates on
+     * @param typeName object type the changed attributes belong to
+     * @param batchSize maximum number of objects per UPDATE statement
+     * @return dmCommitResult rows written and rows that failed
+     * @exception Exception if the record set is frozen or streaming or has
+     * no r_object_id column
+     *
+     */
+    public dmCommitResult commit(IDfSession session, String typeName, int batchSize) throws Exception {
+        return commit(session, typeName, batchSize, UPDATE_EXECUTOR);
+    }
+
+    /**
+     * Write the changed values, running the UPDATE statements with the given
+     * executor (see commit(IDfSession, String, int)).
+     */
+    dmCommitResult commit(IDfSession session, String typeName, int batchSize, dmRecordSetCache.QueryExecutor executor)
+            throws Exception {
+        checkNotFrozen();
+        checkNotStreaming();
+        if (batchSize < 1) {
+            throw new Exception("The batch size must be at least 1.");
+        }
+        int idCol = resolveColumn("r_object_id");
+
+        // group the rows by their changes
+        dmCommitResult result = new dmCommitResult();
+        LinkedHashMap<String, ArrayList<Integer>> groups = new LinkedHashMap<String, ArrayList<Integer>>();
+        for (int row : getDirtyRows()) {
+            String id = _store.getId(row, idCol, 0);
+            if (id == null || id.isEmpty() || id.equals(dmRowStore.NULL_ID)) {
+                result.failed(row, "The row has no object ID.");
+                continue;
+            }
+            // rows with ids that cannot be written into DQL fail alone
+            String changes;
+            try {
+                checkId(id);
+                changes = updateClauses(row, _dirty.get(row));
+            } catch (DfException e) {
+                result.failed(row, e.getMessage());
+                DfLogger.warn(dmRecordSet.class, String.format("Row %d not committed: %s", row, e.getMessage()), null, null);
+                continue;
+            }
+            ArrayList<Integer> rows = groups.get(changes);
+            if (rows == null) {
+                rows = new ArrayList<Integer>();
+                groups.put(changes, rows);
+            }
+            rows.add(row);
+        }
+
+        for (Map.Entry<String, ArrayList<Integer>> group : groups.entrySet()) {
+            ArrayList<Integer> rows = group.getValue();
+            for (int start = 0; start < rows.size(); start += batchSize) {
+                List<Integer> batch = rows.subList(start, Math.min(start + batchSize, rows.size()));
+                commitBatch(executor, session, typeName, group.getKey(), idCol, batch, result);
+            }
+        }
+        for (int row : result.getUpdatedRows()) {
+            _dirty.remove(row);
+        }
+        DfLogger.debug(dmRecordSet.class, "Record set committed: " + result, null, null);
+        return result;
+    }
+
+    /**
+     * Return the record set as a List of IDfTypedObjects.
+     *
+     * Example using objects in List:
+     *
+     * List<IDftypedObject> list = dmRS.getRecordSetAsList(); while
+     * (IDfTypedObject t : list) { String objId = t.getString("r_object_id");
+     * ... }
+     *
+     * Note: You must use the IDfTypedObject.getString("") syntax to access data
+     * from these objects. IDfTypedObject.getObjectId() will not return
+     * meaningful data.
+     *
+     * The List of a frozen record set cannot be changed.
+     *
+     * @return List<IDfTypedObjects> of records in the record set.
+     *
+     */
+    public List<IDfTypedObject> getRecordSetAsList() {
+        List<IDfTypedObject> rows;
+        if (_store instanceof dmObjectRowStore && ((dmObjectRowStore) _store).getRows() != null) {
+            rows = ((dmObjectRowStore) _store).getRows();
+        } else {
+            rows = new ArrayList<IDfTypedObject>();
+            for (int i = getFirstAvailableRow(); i <= _lastRow; i++) {
+                rows.add(_store.getRow(i));
+            }
+        }
+        // the rows of a frozen record set may be shared with other threads
+        return (_frozen ? Collections.unmodifiableList(rows) : rows);
+    }
+
+    /**
+     * Return the record set as a Set of IDfTypedObjects. Note: the Set will
+     * contain only unique rows (rows whose values all equal those of an
+     * earlier row are not included), in row order. See distinct(). The Set
+     * of a streaming record set holds the rows of its window as they are.
+     *
+     * Example using objects in Set:
+     *
+     * Set<IDftypedObject> set = dmRS.getRecordSetAsSet(); while (IDfTypedObject
+     * t : set) { String objId = t.getString("r_object_id"); ... }
+     *
+     * Note: You must use the IDfTypedObject.getString("") syntax to access data
+     * from these objects. IDfTypedObject.getObjectId() will not return
+     * meaningful data.
+     *
+     * @return Set<IDfTypedObject> of records in the record set.
+     *
+     */
+    public Set<IDfTypedObject> getRecordSetAsSet() {
+
+        // streaming record sets hold only their window of rows
+        if (isStreaming()) {
+            return new LinkedHashSet<IDfTypedObject>(getRecordSetAsList());
+        }
+        try {
+            return new LinkedHashSet<IDfTypedObject>(distinct().getRecordSetAsList());
+        } catch (Exception e) {
+            DfLogger.warn(dmRecordSet.class, "Could not remove duplicate rows: " + e.getMessage(), null, e);
+            throw new RuntimeException("Could not remove duplicate rows: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Returns information about the record set
+     *
+     * @return String containing record set stats
+     *
+     */
+    public String getRecordSetInfo() {
+        StringBuilder sb = new StringBuilder();
         String[] dataTypes = new String[]{"BOOLEAN", "INTEGER", "STRING", "ID", "TIME", "DOUBLE", "UNDEFINED"};
 
         sb.append(getVersion());
@@ -624,20 +1460,1804 @@ public class dmRecordSet {
         for (int i = 0; i < getColumnCount(); i++) {
             sb.append(String.format("\t %s (%s)\n", _columnDefs.get(i).getName(), dataTypes[_columnDefs.get(i).getDataType()]));
         }
+        if (isStreaming()) {
+            sb.append(String.format("Streaming window: %d (source %s)\n", ((dmObjectRowStore) _store).getWindowSize(), (_source != null ? "open" : "closed")));
+        }
+        sb.append(String.format("Storage: %s\n", getStorage()));
         sb.append(String.format("is EOF: %s\n", Boolean.toString(isEOF())));
         sb.append(String.format("is BOF: %s\n", Boolean.toString(isBOF())));
+        if (_metrics != null) {
+            sb.append(String.format("Metrics: %s\n", _metrics));
+        }
 
         return sb.toString();
     }
 
     /**
-     * Return version information about dmRecordSet class
+     * Return a sequential Stream of the rows in the record set, in row
+     * order. The stream reads rows directly by row number and does not move
+     * the current row pointer, so it can be used while the record set is
+     * also being traversed with getNextRow(). Rows added after the stream
+     * is created are not included.
      *
-     * @return dmRecordSet version information
+     * For a streaming record set the stream reads the remaining rows of the
+     * IDfCollection through getNextRow(), and does move the row pointer. A
+     * record set still being read by loadAsync() is read to the end first.
+     *
+     * Example:
+     * <pre>
+     *     long large = dmRS.stream()
+     *         .filter(t -> t.getDouble("r_full_content_size") > 1000000)
+     *         .count();
+     * </pre>
+     *
+     * @return Stream<IDfTypedObject> of the rows
      *
      */
-    public static String getVersion() {
-        return _version;
+    public Stream<IDfTypedObject> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * Return a parallel Stream of the rows in the record set. The rows are
+     * split into ranges of row numbers that are processed by the ForkJoin
+     * common pool; none of the threads touch the record set's current row
+     * pointer. The record set must not be changed while the stream runs.
+     *
+     * @return Stream<IDfTypedObject> of the rows
+     *
+     * @see dmRecordSet#stream() stream
+     *
+     */
+    public Stream<IDfTypedObject> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+
+    /**
+     * Return a Spliterator over the rows of the record set.
+     */
+    private Spliterator<IDfTypedObject> spliterator() {
+        if (isStreaming()) {
+            Iterator<IDfTypedObject> rows = new Iterator<IDfTypedObject>() {
+
+                public boolean hasNext() {
+                    return dmRecordSet.this.hasNext();
+                }
+
+                public IDfTypedObject next() {
+                    try {
+                        return getNextRow();
+                    } catch (Exception e) {
+                        throw new NoSuchElementException(e.getMessage());
+                    }
+                }
+            };
+            return Spliterators.spliteratorUnknownSize(rows, Spliterator.ORDERED | Spliterator.NONNULL);
+        }
+        try {
+            awaitLoad();
+        } catch (DfException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+        return new dmRowSpliterator(_store, 0, _rowCount);
+    }
+
+    /**
+     * Return a sorted view of the record set. The view shares the rows of
+     * this record set and holds only a permutation of row numbers; this
+     * record set is not changed. Views are frozen.
+     *
+     * @param comparator Comparator used to order the rows
+     * @return dmRecordSet with the rows in sorted order
+     * @exception Exception if the record set is streaming
+     *
+     * @see dmRecordSet#sortBy(String...) sortBy
+     *
+     */
+    public dmRecordSet sort(Comparator<? super IDfTypedObject> comparator) throws Exception {
+        checkNotStreaming();
+        return sortedView(dmRowOrdering.byComparator(_store, comparator));
+    }
+
+    /**
+     * Return a view of the record set sorted by column values, without
+     * re-querying the docbase. Each argument names a column, optionally
+     * followed by ASC (default) or DESC, as in a DQL ORDER BY clause.
+     * Values are compared according to the column's data type (dates as
+     * dates, numbers as numbers). For repeating attributes the first value
+     * is used.
+     *
+     * The sort keys are read once into primitive arrays and the sort
+     * produces a permutation of row numbers; large record sets are sorted
+     * in parallel. This record set is not changed.
+     *
+     * Example:
+     * <pre>
+     *     dmRecordSet sorted = dmRS.sortBy("r_modify_date DESC", "object_name");
+     * </pre>
+     *
+     * @param orderings column names with optional ASC/DESC
+     * @return dmRecordSet with the rows in sorted order
+     * @exception Exception if a column does not exist or the record set is
+     * streaming
+     *
+     */
+    public dmRecordSet sortBy(String... orderings) throws Exception {
+        checkNotStreaming();
+        return sortedView(dmRowOrdering.byColumns(_store, orderings));
+    }
+
+    /**
+     * Return the first n rows of the record set in the order sortBy() would
+     * give them, without sorting the whole record set: the rows are scanned
+     * once and the best n are kept in a bounded heap. The result is a
+     * frozen view sharing the rows of this record set.
+     *
+     * For a streaming record set, the rest of the IDfCollection is read and
+     * only the best n rows (at most 2n at a time) are kept in memory; the
+     * result then holds those rows itself. Call topN() before rows have left
+     * the streaming window.
+     *
+     * Example:
+     * <pre>
+     *     // the 50 most recently modified documents
+     *     dmRecordSet newest = dmRS.topN(50, "r_modify_date DESC");
+     * </pre>
+     *
+     * @param n maximum number of rows to return
+     * @param orderings column names with optional ASC/DESC
+     * @return dmRecordSet with at most n rows in sorted order
+     * @exception Exception if a column does not exist or rows of a streaming
+     * record set have already left the window
+     *
+     */
+    public dmRecordSet topN(int n, String... orderings) throws Exception {
+        if (!isStreaming()) {
+            awaitLoad();
+            if (n < 0) {
+                throw new Exception("The number of rows cannot be negative.");
+            }
+            return new dmRecordSet(new dmViewRowStore(sharedStore(), dmRowOrdering.byColumns(_store, orderings).top(_rowCount, n)));
+        }
+        if (getFirstAvailableRow() > 0) {
+            throw new Exception("Rows have left the streaming window. Call topN() before traversing the record set.");
+        }
+        dmTopRows top = new dmTopRows(_schema, n, orderings);
+        for (int row = Math.max(0, getFirstAvailableRow()); row <= _lastRow || fetchRow(); row++) {
+            top.add(_store.getRow(row));
+        }
+        return new dmRecordSet(top.getRows(), false);
+    }
+
+    /**
+     * Return the first n rows of the record set in the order of a
+     * Comparator, without sorting the whole record set.
+     *
+     * @param n maximum number of rows to return
+     * @param comparator Comparator used to order the rows
+     * @return dmRecordSet with at most n rows in sorted order
+     * @exception Exception if the record set is streaming
+     *
+     * @see dmRecordSet#topN(int, String...) topN
+     *
+     */
+    public dmRecordSet topN(int n, Comparator<? super IDfTypedObject> comparator) throws Exception {
+        checkNotStreaming();
+        if (n < 0) {
+            throw new Exception("The number of rows cannot be negative.");
+        }
+        return new dmRecordSet(new dmViewRowStore(sharedStore(), dmRowOrdering.byComparator(_store, comparator).top(_rowCount, n)));
+    }
+
+    /**
+     * Read an IDfCollection and return only its first n rows in sort order.
+     * At most 2n rows are held in memory while the collection is read, so
+     * this can take the top rows of a query too large to load. The
+     * collection is closed.
+     *
+     * Example:
+     * <pre>
+     *     IDfCollection col = q.execute(session, DfQuery.DF_READ_QUERY);
+     *     dmRecordSet largest = dmRecordSet.topN(col, 100, "r_full_content_size DESC");
+     * </pre>
+     *
+     * @param col IDfCollection to read
+     * @param n maximum number of rows to keep
+     * @param orderings column names with optional ASC/DESC
+     * @return dmRecordSet with at most n rows in sorted order
+     * @exception Exception if the collection is closed or a column does not
+     * exist
+     *
+     */
+    public static dmRecordSet topN(IDfCollection col, int n, String... orderings) throws Exception {
+        if (col == null || col.getState() == IDfCollection.DF_CLOSED_STATE) {
+            throw new Exception("The IDfCollection object is null or in the closed state.");
+        }
+        try {
+            ArrayList<IDfAttr> columnDefs = new ArrayList<IDfAttr>();
+            for (int i = 0; i < col.getAttrCount(); i++) {
+                columnDefs.add(col.getAttr(i));
+            }
+            dmTopRows top = new dmTopRows(new dmRecordSetSchema(columnDefs), n, orderings);
+            while (col.next()) {
+                top.add(col.getTypedObject());
+            }
+            return new dmRecordSet(top.getRows(), false);
+        } finally {
+            col.close();
+        }
+    }
+
+    /**
+     * Return a view of a page of rows: rows offset to offset + limit - 1, or
+     * fewer at the end of the record set. The view holds only the row
+     * numbers of the page; no rows are copied and the row pointer is not
+     * moved. Combine with sortBy() or topN() for pages of sorted rows, e.g.,
+     * page k of 50 newest first is topN((k + 1) * 50, "r_modify_date
+     * DESC").page(k * 50, 50). Views are frozen.
+     *
+     * @param offset number of the first row of the page
+     * @param limit maximum number of rows on the page
+     * @return dmRecordSet with the rows of the page
+     * @exception Exception if the offset or limit is negative or the record
+     * set is streaming
+     *
+     */
+    public dmRecordSet page(int offset, int limit) throws Exception {
+        checkNotStreaming();
+        if (offset < 0 || limit < 0) {
+            throw new Exception("The offset and limit cannot be negative.");
+        }
+        int from = Math.min(offset, _rowCount);
+        int to = (int) Math.min((long) from + limit, _rowCount);
+        int[] rows = new int[to - from];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = from + i;
+        }
+        return new dmRecordSet(new dmViewRowStore(sharedStore(), rows));
+    }
+
+    /**
+     * Return a view with one row for each value of a repeating attribute:
+     * a row with three keywords becomes three rows, each with one of the
+     * keywords as the single value of the column and the values of the
+     * other columns of the row. Rows without values of the attribute are
+     * left out. The view holds only a row number and value index per row;
+     * the other columns are not copied. Views are frozen.
+     *
+     * Example:
+     * <pre>
+     *     // number of documents per folder
+     *     dmRecordSet perFolder = dmRS.unnest("i_folder_id").groupBy("i_folder_id").count().aggregate();
+     * </pre>
+     *
+     * @param columnName name of a repeating attribute
+     * @return dmRecordSet with a row per value
+     * @exception Exception if the column does not exist or is not repeating,
+     * or the record set is streaming
+     *
+     */
+    public dmRecordSet unnest(String columnName) throws Exception {
+        checkNotStreaming();
+        int col = resolveColumn(columnName);
+        if (!_columnDefs.get(col).isRepeating()) {
+            throw new Exception(String.format("Column %s is not a repeating attribute.", columnName));
+        }
+        return new dmRecordSet(new dmUnnestRowStore(sharedStore(), col));
+    }
+
+    /**
+     * Return a view of the rows of the record set that satisfy a predicate.
+     * The view shares the rows of this record set and holds only the
+     * numbers of the matching rows. Filtering a view creates a view over
+     * the original rows, not a chain of views. Views are frozen.
+     *
+     * Example:
+     * <pre>
+     *     dmRecordSet locked = dmRS.filter(t -> t.getString("r_lock_owner").length() > 0);
+     * </pre>
+     *
+     * @param predicate test applied to each row
+     * @return dmRecordSet with the matching rows, in order
+     * @exception Exception if the record set is streaming
+     *
+     */
+    public dmRecordSet filter(Predicate<? super IDfTypedObject> predicate) throws Exception {
+        checkNotStreaming();
+        int[] rows = new int[Math.min(_rowCount, 1024)];
+        int found = 0;
+        for (int i = 0; i < _rowCount; i++) {
+            if (predicate.test(_store.getRow(i))) {
+                if (found == rows.length) {
+                    rows = Arrays.copyOf(rows, found * 2);
+                }
+                rows[found++] = i;
+            }
+        }
+        return new dmRecordSet(new dmViewRowStore(sharedStore(), Arrays.copyOf(rows, found)));
+    }
+
+    /**
+     * Return a view of the distinct rows of the record set: the first row
+     * of each combination of values, in row order. Rows are compared by
+     * value, including all values of repeating attributes, not by
+     * IDfTypedObject identity. Each row is hashed once from its typed
+     * values; large record sets are deduplicated in parallel. Views are
+     * frozen.
+     *
+     * @return dmRecordSet with the distinct rows
+     * @exception Exception if the record set is streaming
+     *
+     */
+    public dmRecordSet distinct() throws Exception {
+        checkNotStreaming();
+        int[] columns = new int[_columnDefs.size()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = i;
+        }
+        return new dmRecordSet(new dmViewRowStore(sharedStore(), dmRowDistinct.distinctRows(_store, columns)));
+    }
+
+    /**
+     * Return a view of the first row of each distinct combination of values
+     * of some columns, in row order. The view has all columns of the record
+     * set, e.g., distinctBy("i_chronicle_id") keeps one version of each
+     * document.
+     *
+     * @param columnNames names of the columns to compare
+     * @return dmRecordSet with one row per distinct combination of values
+     * @exception Exception if a column does not exist or the record set is
+     * streaming
+     *
+     * @see dmRecordSet#distinct() distinct
+     *
+     */
+    public dmRecordSet distinctBy(String... columnNames) throws Exception {
+        checkNotStreaming();
+        if (columnNames == null || columnNames.length == 0) {
+            return distinct();
+        }
+        int[] columns = new int[columnNames.length];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = resolveColumn(columnNames[i]);
+        }
+        return new dmRecordSet(new dmViewRowStore(sharedStore(), dmRowDistinct.distinctRows(_store, columns)));
+    }
+
+    /**
+     * Return a view of the record set with only the named columns, in the
+     * order given. The view shares the rows of this record set; its column
+     * definitions are the IDfAttrs of the selected columns. Views are
+     * frozen.
+     *
+     * @param columnNames names of the columns to keep
+     * @return dmRecordSet with the selected columns
+     * @exception Exception if a column does not exist or the record set is
+     * streaming
+     *
+     */
+    public dmRecordSet select(String... columnNames) throws Exception {
+        checkNotStreaming();
+        int[] columns = new int[columnNames.length];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = resolveColumn(columnNames[i]);
+        }
+        return new dmRecordSet(new dmViewRowStore(sharedStore(), null, columns));
+    }
+
+    /**
+     * Group the rows of the record set by the values of one or more key
+     * columns. Add aggregates to the returned dmGroupBy and call
+     * aggregate() to compute them, e.g.,
+     * groupBy("owner_name").count().sum("r_full_content_size").aggregate().
+     *
+     * @param columnNames names of the key columns
+     * @return dmGroupBy to add aggregates to
+     * @exception Exception if a column does not exist or the record set is
+     * streaming
+     *
+     */
+    public dmGroupBy groupBy(String... columnNames) throws Exception {
+        checkNotStreaming();
+        if (columnNames == null || columnNames.length == 0) {
+            throw new DfException("No group by columns given.");
+        }
+        int[] keys = new int[columnNames.length];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = resolveColumn(columnNames[i]);
+        }
+        return new dmGroupBy(sharedStore(), keys);
+    }
+
+    /**
+     * Join the record set with another on the values of a column of each,
+     * like a DQL join on two queries run separately. The join is a hash
+     * join: a hash table is built on the smaller record set and the other
+     * is read once, so large record sets are not compared row by row.
+     *
+     * INNER and LEFT joins return a record set with the columns of this
+     * record set followed by the columns of <code>other</code>; columns of
+     * <code>other</code> whose names are already used get a "_2" suffix
+     * (e.g., r_object_id_2). A SEMI join returns the rows of this record set
+     * that have a match, with this record set's columns. Rows are in the
+     * order of this record set, then of <code>other</code>. For repeating
+     * columns the first value is the key; null IDs and null dates match
+     * nothing. Keys of different types are compared as numbers (INTEGER and
+     * DOUBLE), IDs (ID and STRING), or strings.
+     *
+     * The result shares the rows of both record sets and is frozen.
+     *
+     * @param other record set to join with
+     * @param leftColumn name of the key column in this record set
+     * @param rightColumn name of the key column in <code>other</code>
+     * @param type INNER, LEFT or SEMI
+     * @return dmRecordSet with the joined rows
+     * @exception Exception if a column does not exist or either record set
+     * is streaming
+     *
+     */
+    public dmRecordSet join(dmRecordSet other, String leftColumn, String rightColumn, JoinType type) throws Exception {
+        checkNotStreaming();
+        other.checkNotStreaming();
+        int leftCol = resolveColumn(leftColumn);
+        int rightCol = other.resolveColumn(rightColumn);
+        return new dmRecordSet(dmJoinRowStore.join(sharedStore(), leftCol, other.sharedStore(), rightCol, type));
+    }
+
+    /**
+     * Write the record set to a file in a compact binary format: a header
+     * with the column definitions followed by a block of typed values for
+     * each column. The file does not depend on a docbase session and can be
+     * read back with open(), e.g., to keep the results of an expensive
+     * query across restarts.
+     *
+     * @param file file to write (replaced if it exists)
+     * @exception Exception if the file cannot be written or the record set
+     * is streaming
+     *
+     */
+    public void writeTo(Path file) throws Exception {
+        checkNotStreaming();
+        dmMappedRowStore.write(_store, file);
+    }
+
+    /**
+     * Open a record set written by writeTo(). The file is memory-mapped and
+     * values are read from it as rows are accessed, so opening even a very
+     * large file is fast and the rows do not occupy the heap. Rows are
+     * read-only IDfTypedObject views of the values in the file. The record
+     * set is frozen.
+     *
+     * @param file file written by writeTo()
+     * @return dmRecordSet over the file
+     * @exception Exception if the file cannot be read, is not a record set
+     * file or is truncated
+     *
+     */
+    public static dmRecordSet open(Path file) throws Exception {
+        return new dmRecordSet(dmMappedRowStore.open(file));
+    }
+
+    /**
+     * Move the rows of the record set to a file and continue reading them
+     * from the memory-mapped file (see writeTo() and open()), releasing the
+     * heap they occupied (or, for Storage.OFF_HEAP, its memory unless a
+     * view, cursor or group by still reads it). Use this to keep very large record sets available
+     * without holding them in memory. Indexes remain valid. After spill(),
+     * rows are read-only IDfTypedObject views of the values in the file and
+     * the record set is frozen.
+     *
+     * @param file file to write (replaced if it exists)
+     * @exception Exception if the file cannot be written, the record set is
+     * streaming, or it has changes that have not been committed
+     *
+     */
+    public void spill(Path file) throws Exception {
+        checkNotStreaming();
+        if (!_dirty.isEmpty()) {
+            throw new Exception("The record set has changes that have not been committed.");
+        }
+        dmMappedRowStore.write(_store, file);
+        replaceStore(dmMappedRowStore.open(file));
+        _frozen = true;
+        if (_currentRowNumber >= 0 && _currentRowNumber < _rowCount) {
+            _currentRow = _store.getRow(_currentRowNumber);
+        }
+    }
+
+    /**
+     * Write the rows of the record set as CSV. Values are written according
+     * to their column's data type: numbers as digits, booleans as true or
+     * false, times in ISO 8601 format (see dmExportOptions) and strings
+     * quoted when needed. The values of repeating attributes are joined
+     * into one field. The Writer is flushed but not closed.
+     *
+     * @param out Writer to write to
+     * @param options export options, or null for the defaults
+     * @exception Exception if writing fails or the record set is streaming
+     *
+     */
+    public void exportCsv(Writer out, dmExportOptions options) throws Exception {
+        checkNotStreaming();
+        dmRecordSetExporter.export(_store, out, options, dmRecordSetExporter.Format.CSV);
+    }
+
+    /**
+     * Write the rows of the record set as CSV to an OutputStream, encoded
+     * with the options' character set. The stream is flushed but not
+     * closed.
+     *
+     * @param out OutputStream to write to
+     * @param options export options, or null for the defaults
+     * @exception Exception if writing fails or the record set is streaming
+     *
+     */
+    public void exportCsv(OutputStream out, dmExportOptions options) throws Exception {
+        exportCsv(newWriter(out, options), options);
+    }
+
+    /**
+     * Write the rows of the record set as JSON Lines: one JSON object per
+     * row with a member per column. Numbers and booleans are written as
+     * JSON numbers and booleans, null times as null, and repeating
+     * attributes as arrays. The Writer is flushed but not closed.
+     *
+     * @param out Writer to write to
+     * @param options export options, or null for the defaults
+     * @exception Exception if writing fails or the record set is streaming
+     *
+     */
+    public void exportJsonLines(Writer out, dmExportOptions options) throws Exception {
+        checkNotStreaming();
+        dmRecordSetExporter.export(_store, out, options, dmRecordSetExporter.Format.JSON_LINES);
+    }
+
+    /**
+     * Write the rows of the record set as JSON Lines to an OutputStream,
+     * encoded with the options' character set. The stream is flushed but
+     * not closed.
+     *
+     * @param out OutputStream to write to
+     * @param options export options, or null for the defaults
+     * @exception Exception if writing fails or the record set is streaming
+     *
+     */
+    public void exportJsonLines(OutputStream out, dmExportOptions options) throws Exception {
+        exportJsonLines(newWriter(out, options), options);
+    }
+
+    /**
+     * Write the rows of an IDfCollection as CSV without building a record
+     * set. Only the current row is held in memory. The collection is closed
+     * and the Writer flushed.
+     *
+     * @param col The IDfCollection containing the query results
+     * @param out Writer to write to
+     * @param options export options, or null for the defaults
+     * @return int number of rows written
+     * @exception Exception
+     *
+     */
+    public static int exportCsv(IDfCollection col, Writer out, dmExportOptions options) throws Exception {
+        return dmRecordSetExporter.export(col, out, options, dmRecordSetExporter.Format.CSV);
+    }
+
+    /**
+     * Write the rows of an IDfCollection as JSON Lines without building a
+     * record set. Only the current row is held in memory. The collection is
+     * closed and the Writer flushed.
+     *
+     * @param col The IDfCollection containing the query results
+     * @param out Writer to write to
+     * @param options export options, or null for the defaults
+     * @return int number of rows written
+     * @exception Exception
+     *
+     */
+    public static int exportJsonLines(IDfCollection col, Writer out, dmExportOptions options) throws Exception {
+        return dmRecordSetExporter.export(col, out, options, dmRecordSetExporter.Format.JSON_LINES);
+    }
+
+    /**
+     * Fetch the persistent object identified by a column of each row, in
+     * row order, with one query per batch of rows instead of a getObject()
+     * round trip per row. The next batch is fetched in the background while
+     * the current one is processed. Objects are queried from
+     * dm_sysobject (all); use fetchObjects(session, idColumn, batchSize,
+     * typeName) for other types.
+     *
+     * @param session session to fetch the objects with
+     * @param idColumn name of the column holding the object IDs
+     * @param batchSize number of rows per query (e.g., 100 to 500)
+     * @return dmObjectFetcher returning the objects
+     * @exception Exception if the column does not exist or the record set
+     * is streaming
+     *
+     */
+    public dmObjectFetcher fetchObjects(IDfSession session, String idColumn, int batchSize) throws Exception {
+        return fetchObjects(session, idColumn, batchSize, "dm_sysobject (all)");
+    }
+
+    /**
+     * Fetch the persistent object identified by a column of each row, in
+     * row order, querying the given type (see fetchObjects(IDfSession,
+     * String, int)).
+     *
+     * @param session session to fetch the objects with
+     * @param idColumn name of the column holding the object IDs
+     * @param batchSize number of rows per query
+     * @param typeName type to query, e.g., dmr_content
+     * @return dmObjectFetcher returning the objects
+     * @exception Exception if the column does not exist, the batch size is
+     * not positive or the record set is streaming
+     *
+     */
+    public dmObjectFetcher fetchObjects(IDfSession session, String idColumn, int batchSize, String typeName) throws Exception {
+        checkNotStreaming();
+        if (batchSize <= 0) {
+            throw new Exception("The batch size must be greater than 0.");
+        }
+        int col = resolveColumn(idColumn);
+        boolean isId = (_columnDefs.get(col).getDataType() == IDfAttr.DM_ID);
+        String[] ids = new String[_store.size()];
+        for (int row = 0; row < ids.length; row++) {
+            if (_store.getValueCount(row, col) > 0) {
+                String id = (isId ? _store.getId(row, col, 0) : _store.getString(row, col, 0));
+
+                // only well formed, non-null IDs are put in the query
+                if (dmColumnarRowStore.parseId(id) != -1 && !id.equals(dmRowStore.NULL_ID)) {
+                    ids[row] = id.toLowerCase();
+                }
+            }
+        }
+        return new dmObjectFetcher(session, typeName, ids, batchSize);
+    }
+
+    private static Writer newWriter(OutputStream out, dmExportOptions options) {
+        Charset charset = (options != null ? options.getCharset() : new dmExportOptions().getCharset());
+        return new OutputStreamWriter(out, charset);
+    }
+
+    /**
+     * Make the record set immutable so it can be shared between threads.
+     * After freeze(), addRow(), addRows(), createIndex() and dropIndex()
+     * fail, and the rows, column definitions and indexes never change.
+     * Threads reading a frozen record set should each use their own
+     * cursor() rather than the record set's row pointer.
+     *
+     * Create any indexes before freezing the record set.
+     *
+     * @return this record set
+     * @exception Exception if the record set is streaming
+     *
+     */
+    public dmRecordSet freeze() throws Exception {
+        if (isStreaming()) {
+            throw new Exception("Streaming record sets cannot be frozen.");
+        }
+        awaitLoad();
+        _frozen = true;
+        return this;
+    }
+
+    /**
+     * Indicates if the record set is frozen.
+     *
+     * @return true, if freeze() has been called, else false.
+     *
+     */
+    public boolean isFrozen() {
+        return _frozen;
+    }
+
+    /**
+     * Return a new cursor over the rows of the record set. Each cursor has
+     * its own current row pointer and BOF/EOF flags and does not affect the
+     * record set's row pointer or other cursors. Cursors over a frozen
+     * record set can be used from different threads without locking.
+     *
+     * @return dmRecordSetCursor positioned before the first row
+     * @exception Exception if the record set is streaming
+     *
+     */
+    public dmRecordSetCursor cursor() throws Exception {
+        if (isStreaming()) {
+            throw new Exception("Cursors are not supported on streaming record sets.");
+        }
+        awaitLoad();
+        return new dmRecordSetCursor(this, sharedStore());
+    }
+
+    /**
+     * Create a hash index over a column so that findRows() can locate the
+     * rows containing a value without scanning the record set. All values
+     * of repeating attributes are indexed. The index is kept up to date as
+     * rows are added with addRow() and addRows().
+     *
+     * @param columnName name of the column to index
+     * @exception Exception if the column does not exist or the record set
+     * is streaming
+     *
+     */
+    public void createIndex(String columnName) throws Exception {
+        buildIndex(columnName, false);
+    }
+
+    /**
+     * Create a unique hash index over a column. In addition to what
+     * createIndex() does, a unique index guarantees that each value appears
+     * in at most one row: creating the index fails if the column contains
+     * duplicates, and addRow() rejects rows that would add one.
+     *
+     * @param columnName name of the column to index
+     * @exception Exception if the column does not exist, contains duplicate
+     * values or the record set is streaming
+     *
+     */
+    public void createUniqueIndex(String columnName) throws Exception {
+        buildIndex(columnName, true);
+    }
+
+    /**
+     * Remove the index over a column, if there is one.
+     *
+     * @param columnName name of the indexed column
+     *
+     */
+    public void dropIndex(String columnName) {
+        if (_frozen) {
+            throw new IllegalStateException("The record set is frozen and cannot be changed.");
+        }
+        _indexes.remove(_schema.indexOf(columnName));
+    }
+
+    /**
+     * Indicates if a column is indexed.
+     *
+     * @param columnName name of the column
+     * @return true, if createIndex() or createUniqueIndex() was called for
+     * the column, else false.
+     *
+     */
+    public boolean hasIndex(String columnName) {
+        return _indexes.containsKey(_schema.indexOf(columnName));
+    }
+
+    /**
+     * Find the rows in which a column contains a value. The value may be
+     * given as a String (times in the format returned by getString()) or
+     * as the column's type (Integer, Double, Boolean, IDfId, IDfTime or
+     * java.util.Date). If the column is indexed, the rows
+     * are found with a single hash lookup, otherwise the record set is
+     * scanned. The current row pointer is not moved.
+     *
+     * @param columnName name of the column
+     * @param value value to find
+     * @return int[] numbers of the rows containing the value, in ascending
+     * order (empty if no rows contain it)
+     * @exception Exception if the column does not exist or a String value
+     * cannot be parsed as the column's type
+     *
+     */
+    public int[] findRows(String columnName, Object value) throws Exception {
+        awaitLoad();
+        int col = resolveColumn(columnName);
+        dmRecordSetIndex index = _indexes.get(col);
+        if (index == null) {
+            return scanRows(col, value, false);
+        }
+        return index.find(value);
+    }
+
+    /**
+     * Find the first row in which a column contains a value. This is the
+     * lookup to use with a unique index.
+     *
+     * @param columnName name of the column
+     * @param value value to find
+     * @return int number of the first row containing the value, or -1 if no
+     * rows contain it
+     * @exception Exception if the column does not exist or a String value
+     * cannot be parsed as the column's type
+     *
+     * @see dmRecordSet#findRows(String, Object) findRows
+     *
+     */
+    public int findRow(String columnName, Object value) throws Exception {
+        awaitLoad();
+        int col = resolveColumn(columnName);
+        dmRecordSetIndex index = _indexes.get(col);
+        if (index == null) {
+            int[] rows = scanRows(col, value, true);
+            return (rows.length > 0 ? rows[0] : -1);
+        }
+        return index.findFirst(value);
+    }
+
+    /**
+     * Indicates if the record set was created in streaming mode.
+     *
+     * @return true, if rows are pulled from the IDfCollection as the record
+     * set is traversed, else false.
+     *
+     */
+    public boolean isStreaming() {
+        return _store instanceof dmObjectRowStore && ((dmObjectRowStore) _store).getWindowSize() > 0;
+    }
+
+    /**
+     * Return how the rows of the record set are stored.
+     *
+     * @return Storage of the record set
+     *
+     */
+    public Storage getStorage() {
+        if (_store instanceof dmColumnarRowStore) {
+            return Storage.COLUMNAR;
+        } else if (_store instanceof dmOffHeapRowStore) {
+            return Storage.OFF_HEAP;
+        }
+        return Storage.OBJECTS;
+    }
+
+    /**
+     * Return the value of a column in a row as a String. Unlike getRow(),
+     * the typed value accessors do not move the current row pointer. For
+     * repeating attributes the first value is returned.
+     *
+     * @param rowNumber row number of the value
+     * @param columnNumber column number of the value (see getColumnDefs())
+     * @return String value
+     * @exception DfException if the row or column does not exist
+     *
+     */
+    public String getString(int rowNumber, int columnNumber) throws DfException {
+        checkValue(rowNumber, columnNumber);
+        return _store.getString(rowNumber, columnNumber, 0);
+    }
+
+    /**
+     * Return the value of a column in a row as an int. The current row
+     * pointer is not moved.
+     *
+     * @param rowNumber row number of the value
+     * @param columnNumber column number of the value (see getColumnDefs())
+     * @return int value
+     * @exception DfException if the row or column does not exist
+     *
+     */
+    public int getInt(int rowNumber, int columnNumber) throws DfException {
+        checkValue(rowNumber, columnNumber);
+        return _store.getInt(rowNumber, columnNumber, 0);
+    }
+
+    /**
+     * Return the value of a column in a row as a double. The current row
+     * pointer is not moved.
+     *
+     * @param rowNumber row number of the value
+     * @param columnNumber column number of the value (see getColumnDefs())
+     * @return double value
+     * @exception DfException if the row or column does not exist
+     *
+     */
+    public double getDouble(int rowNumber, int columnNumber) throws DfException {
+        checkValue(rowNumber, columnNumber);
+        return _store.getDouble(rowNumber, columnNumber, 0);
+    }
+
+    /**
+     * Return the value of a column in a row as a boolean. The current row
+     * pointer is not moved.
+     *
+     * @param rowNumber row number of the value
+     * @param columnNumber column number of the value (see getColumnDefs())
+     * @return boolean value
+     * @exception DfException if the row or column does not exist
+     *
+     */
+    public boolean getBoolean(int rowNumber, int columnNumber) throws DfException {
+        checkValue(rowNumber, columnNumber);
+        return _store.getBoolean(rowNumber, columnNumber, 0);
+    }
+
+    /**
+     * Return the value of a column in a row as an IDfTime. The current row
+     * pointer is not moved.
+     *
+     * @param rowNumber row number of the value
+     * @param columnNumber column number of the value (see getColumnDefs())
+     * @return IDfTime value, DfTime.DF_NULLDATE for a null date
+     * @exception DfException if the row or column does not exist
+     *
+     */
+    public IDfTime getTime(int rowNumber, int columnNumber) throws DfException {
+        checkValue(rowNumber, columnNumber);
+        return dmRowProxy.toTime(_store.getTime(rowNumber, columnNumber, 0));
+    }
+
+    /**
+     * Return the value of a column in a row as an IDfId. The current row
+     * pointer is not moved.
+     *
+     * @param rowNumber row number of the value
+     * @param columnNumber column number of the value (see getColumnDefs())
+     * @return IDfId value
+     * @exception DfException if the row or column does not exist
+     *
+     */
+    public IDfId getId(int rowNumber, int columnNumber) throws DfException {
+        checkValue(rowNumber, columnNumber);
+        return new DfId(_store.getId(rowNumber, columnNumber, 0));
+    }
+
+    /**
+     * Return the value of a named column in a row as a String. The current
+     * row pointer is not moved.
+     *
+     * @param rowNumber row number of the value
+     * @param columnName name of the column
+     * @return String value
+     * @exception DfException if the row or column does not exist
+     *
+     */
+    public String getString(int rowNumber, String columnName) throws DfException {
+        return getString(rowNumber, resolveColumn(columnName));
+    }
+
+    /**
+     * Return the value of a named column in a row as an int. The current row
+     * pointer is not moved.
+     *
+     * @param rowNumber row number of the value
+     * @param columnName name of the column
+     * @return int value
+     * @exception DfException if the row or column does not exist
+     *
+     */
+    public int getInt(int rowNumber, String columnName) throws DfException {
+        return getInt(rowNumber, resolveColumn(columnName));
+    }
+
+    /**
+     * Return the value of a named column in a row as a double. The current
+     * row pointer is not moved.
+     *
+     * @param rowNumber row number of the value
+     * @param columnName name of the column
+     * @return double value
+     * @exception DfException if the row or column does not exist
+     *
+     */
+    public double getDouble(int rowNumber, String columnName) throws DfException {
+        return getDouble(rowNumber, resolveColumn(columnName));
+    }
+
+    /**
+     * Return the value of a named column in a row as a boolean. The current
+     * row pointer is not moved.
+     *
+     * @param rowNumber row number of the value
+     * @param columnName name of the column
+     * @return boolean value
+     * @exception DfException if the row or column does not exist
+     *
+     */
+    public boolean getBoolean(int rowNumber, String columnName) throws DfException {
+        return getBoolean(rowNumber, resolveColumn(columnName));
+    }
+
+    /**
+     * Return the value of a named column in a row as an IDfTime. The current
+     * row pointer is not moved.
+     *
+     * @param rowNumber row number of the value
+     * @param columnName name of the column
+     * @return IDfTime value, DfTime.DF_NULLDATE for a null date
+     * @exception DfException if the row or column does not exist
+     *
+     */
+    public IDfTime getTime(int rowNumber, String columnName) throws DfException {
+        return getTime(rowNumber, resolveColumn(columnName));
+    }
+
+    /**
+     * Return the value of a named column in a row as an IDfId. The current
+     * row pointer is not moved.
+     *
+     * @param rowNumber row number of the value
+     * @param columnName name of the column
+     * @return IDfId value
+     * @exception DfException if the row or column does not exist
+     *
+     */
+    public IDfId getId(int rowNumber, String columnName) throws DfException {
+        return getId(rowNumber, resolveColumn(columnName));
+    }
+
+    /**
+     * Return the number of values of a column in a row: the number of
+     * values of a repeating attribute, 1 for a single valued one. The
+     * current row pointer is not moved.
+     *
+     * Example:
+     * <pre>
+     *     int keywords = dmRS.getColumnNumber("keywords");
+     *     for (int i = 0; i < dmRS.getValueCount(row, keywords); i++) {
+     *         count(dmRS.getRepeatingString(row, keywords, i));
+     *     }
+     * </pre>
+     *
+     * @param rowNumber row number
+     * @param columnNumber column number (see getColumnDefs())
+     * @return int number of values
+     * @exception DfException if the row or column does not exist
+     *
+     */
+    public int getValueCount(int rowNumber, int columnNumber) throws DfException {
+        checkValue(rowNumber, columnNumber);
+        return _store.getValueCount(rowNumber, columnNumber);
+    }
+
+    /**
+     * Return the number of values of a named column in a row. The current
+     * row pointer is not moved.
+     *
+     * @param rowNumber row number
+     * @param columnName name of the column
+     * @return int number of values
+     * @exception DfException if the row or column does not exist
+     *
+     */
+    public int getValueCount(int rowNumber, String columnName) throws DfException {
+        return getValueCount(rowNumber, resolveColumn(columnName));
+    }
+
+    /**
+     * Return a value of a repeating attribute in a row as a String. The
+     * values are read from the record set's storage without creating an
+     * IDfTypedObject for the row; the current row pointer is not moved.
+     *
+     * @param rowNumber row number of the value
+     * @param columnNumber column number of the value (see getColumnDefs())
+     * @param index index of the value (see getValueCount())
+     * @return String value
+     * @exception DfException if the row, column or value does not exist
+     *
+     */
+    public String getRepeatingString(int rowNumber, int columnNumber, int index) throws DfException {
+        checkValue(rowNumber, columnNumber);
+        return _store.getString(rowNumber, columnNumber, index);
+    }
+
+    /**
+     * Return a value of a repeating attribute in a row as an int. The
+     * current row pointer is not moved.
+     *
+     * @param rowNumber row number of the value
+     * @param columnNumber column number of the value (see getColumnDefs())
+     * @param index index of the value (see getValueCount())
+     * @return int value
+     * @exception DfException if the row, column or value does not exist
+     *
+     */
+    public int getRepeatingInt(int rowNumber, int columnNumber, int index) throws DfException {
+        checkValue(rowNumber, columnNumber);
+        return _store.getInt(rowNumber, columnNumber, index);
+    }
+
+    /**
+     * Return a value of a repeating attribute in a row as a double. The
+     * current row pointer is not moved.
+     *
+     * @param rowNumber row number of the value
+     * @param columnNumber column number of the value (see getColumnDefs())
+     * @param index index of the value (see getValueCount())
+     * @return double value
+     * @exception DfException if the row, column or value does not exist
+     *
+     */
+    public double getRepeatingDouble(int rowNumber, int columnNumber, int index) throws DfException {
+        checkValue(rowNumber, columnNumber);
+        return _store.getDouble(rowNumber, columnNumber, index);
+    }
+
+    /**
+     * Return a value of a repeating attribute in a row as a boolean. The
+     * current row pointer is not moved.
+     *
+     * @param rowNumber row number of the value
+     * @param columnNumber column number of the value (see getColumnDefs())
+     * @param index index of the value (see getValueCount())
+     * @return boolean value
+     * @exception DfException if the row, column or value does not exist
+     *
+     */
+    public boolean getRepeatingBoolean(int rowNumber, int columnNumber, int index) throws DfException {
+        checkValue(rowNumber, columnNumber);
+        return _store.getBoolean(rowNumber, columnNumber, index);
+    }
+
+    /**
+     * Return a value of a repeating time attribute in a row as an IDfTime.
+     * The current row pointer is not moved.
+     *
+     * @param rowNumber row number of the value
+     * @param columnNumber column number of the value (see getColumnDefs())
+     * @param index index of the value (see getValueCount())
+     * @return IDfTime value, DfTime.DF_NULLDATE for a null date
+     * @exception DfException if the row, column or value does not exist
+     *
+     */
+    public IDfTime getRepeatingTime(int rowNumber, int columnNumber, int index) throws DfException {
+        checkValue(rowNumber, columnNumber);
+        return dmRowProxy.toTime(_store.getTime(rowNumber, columnNumber, index));
+    }
+
+    /**
+     * Return a value of a repeating attribute in a row as an IDfId. The
+     * current row pointer is not moved.
+     *
+     * @param rowNumber row number of the value
+     * @param columnNumber column number of the value (see getColumnDefs())
+     * @param index index of the value (see getValueCount())
+     * @return IDfId value
+     * @exception DfException if the row, column or value does not exist
+     *
+     */
+    public IDfId getRepeatingId(int rowNumber, int columnNumber, int index) throws DfException {
+        checkValue(rowNumber, columnNumber);
+        return new DfId(_store.getId(rowNumber, columnNumber, index));
+    }
+
+    /**
+     * Return a value of a named repeating attribute in a row as a String.
+     * The current row pointer is not moved.
+     *
+     * @param rowNumber row number of the value
+     * @param columnName name of the column
+     * @param index index of the value (see getValueCount())
+     * @return String value
+     * @exception DfException if the row, column or value does not exist
+     *
+     */
+    public String getRepeatingString(int rowNumber, String columnName, int index) throws DfException {
+        return getRepeatingString(rowNumber, resolveColumn(columnName), index);
+    }
+
+    /**
+     * Return a value of a named repeating attribute in a row as an int.
+     * The current row pointer is not moved.
+     *
+     * @param rowNumber row number of the value
+     * @param columnName name of the column
+     * @param index index of the value (see getValueCount())
+     * @return int value
+     * @exception DfException if the row, column or value does not exist
+     *
+     */
+    public int getRepeatingInt(int rowNumber, String columnName, int index) throws DfException {
+        return getRepeatingInt(rowNumber, resolveColumn(columnName), index);
+    }
+
+    /**
+     * Return a value of a named repeating attribute in a row as a double.
+     * The current row pointer is not moved.
+     *
+     * @param rowNumber row number of the value
+     * @param columnName name of the column
+     * @param index index of the value (see getValueCount())
+     * @return double value
+     * @exception DfException if the row, column or value does not exist
+     *
+     */
+    public double getRepeatingDouble(int rowNumber, String columnName, int index) throws DfException {
+        return getRepeatingDouble(rowNumber, resolveColumn(columnName), index);
+    }
+
+    /**
+     * Return a value of a named repeating attribute in a row as a boolean.
+     * The current row pointer is not moved.
+     *
+     * @param rowNumber row number of the value
+     * @param columnName name of the column
+     * @param index index of the value (see getValueCount())
+     * @return boolean value
+     * @exception DfException if the row, column or value does not exist
+     *
+     */
+    public boolean getRepeatingBoolean(int rowNumber, String columnName, int index) throws DfException {
+        return getRepeatingBoolean(rowNumber, resolveColumn(columnName), index);
+    }
+
+    /**
+     * Return a value of a named repeating attribute in a row as an IDfTime.
+     * The current row pointer is not moved.
+     *
+     * @param rowNumber row number of the value
+     * @param columnName name of the column
+     * @param index index of the value (see getValueCount())
+     * @return IDfTime value, DfTime.DF_NULLDATE for a null date
+     * @exception DfException if the row, column or value does not exist
+     *
+     */
+    public IDfTime getRepeatingTime(int rowNumber, String columnName, int index) throws DfException {
+        return getRepeatingTime(rowNumber, resolveColumn(columnName), index);
+    }
+
+    /**
+     * Return a value of a named repeating attribute in a row as an IDfId.
+     * The current row pointer is not moved.
+     *
+     * @param rowNumber row number of the value
+     * @param columnName name of the column
+     * @param index index of the value (see getValueCount())
+     * @return IDfId value
+     * @exception DfException if the row, column or value does not exist
+     *
+     */
+    public IDfId getRepeatingId(int rowNumber, String columnName, int index) throws DfException {
+        return getRepeatingId(rowNumber, resolveColumn(columnName), index);
+    }
+
+    /**
+     * Close the IDfCollection underlying a streaming record set, or stop a
+     * loadAsync() load. Rows that have not been read yet are discarded. For
+     * a Storage.OFF_HEAP record set, also free the memory holding its rows;
+     * the record set and views of it (sortBy(), filter(), ...) cannot be
+     * read afterwards, and close() must not be called while another thread
+     * is reading them. Otherwise this method does nothing for record sets
+     * that are not streaming or loading or have already read their last
+     * row.
+     *
+     */
+    public void close() {
+        closeSource();
+        _store.close();
+    }
+
+    /**
+     * Return the store for a view, cursor or group by that keeps reading
+     * it. A shared store is not closed when it is replaced.
+     */
+    private dmRowStore sharedStore() {
+        _storeShared = true;
+        return _store;
+    }
+
+    /**
+     * Replace the store by refresh() or spill(), freeing the old one (see
+     * dmOffHeapRowStore) unless a view, cursor or group by still reads it.
+     */
+    private void replaceStore(dmRowStore store) {
+        if (!_storeShared) {
+            _store.close();
+        }
+        _store = store;
+        _storeShared = false;
+    }
+
+    /**
+     * Close the source collection or stop the background load.
+     */
+    private void closeSource() {
+        if (_loader != null) {
+            _loader.cancel();
+            _loader = null;
+        }
+        if (_source != null) {
+            try {
+                _source.close();
+            } catch (Exception e) {
+                DfLogger.warn(dmRecordSet.class, "Could not close IDfCollection: " + e.getMessage(), null, e);
+            }
+            _source = null;
+        }
+    }
+
+    /**
+     * Return version information about dmRecordSet class
+     *
+     * @return dmRecordSet version information
+     *
+     */
+    public static String getVersion() {
+        return _version;
+    }
+
+    /**
+     * Return the metrics of the record set. Metrics are collected only for
+     * record sets created while dmRecordSetMetrics.isEnabled() is true.
+     *
+     * @return dmRecordSetMetrics of this record set, or null if metrics were
+     * disabled when it was created
+     *
+     */
+    public dmRecordSetMetrics getMetrics() {
+        return _metrics;
+    }
+
+    /**
+     * Return an estimate of the heap retained by the rows of the record set
+     * (see dmRowStore.estimateBytes()).
+     */
+    long estimateBytes() throws DfException {
+        return _store.estimateBytes();
+    }
+
+    /**
+     * Log the version banner, once per JVM.
+     */
+    private static void logVersion() {
+        if (_versionLogged.compareAndSet(false, true)) {
+            DfLogger.info(dmRecordSet.class, _version, null, null);
+        }
+    }
+
+    /**
+     * Return the stored row for a row number. In streaming mode the row
+     * must be within the retained window.
+     */
+    private IDfTypedObject rowAt(int rowNumber) {
+
+        // every navigation method moves the row pointer through here
+        if (_metrics != null) {
+            _metrics.navigated();
+        }
+        return _store.getRow(rowNumber);
+    }
+
+    /**
+     * Append a row after the last row and update the row counters.
+     */
+    private void appendRow(IDfTypedObject row) throws DfException {
+        _store.add(row);
+
+        // update indexes; a row that breaks a unique index is not added
+        int rowNumber = _store.size() - 1;
+        if (!_indexes.isEmpty()) {
+            try {
+                for (dmRecordSetIndex index : _indexes.values()) {
+                    index.check(_store, rowNumber);
+                }
+            } catch (DfException e) {
+                _store.removeLast();
+                throw e;
+            }
+            for (dmRecordSetIndex index : _indexes.values()) {
+                index.add(_store, rowNumber);
+            }
+        }
+
+        _rowCount = _store.size();
+        _lastRow = _rowCount - 1;
+    }
+
+    /**
+     * Return the lowest row number that can still be read. This is always
+     * the first row unless the record set is streaming.
+     */
+    private int getFirstAvailableRow() {
+        if (_rowCount > 0) {
+            return _store.getFirstAvailableRow();
+        }
+        return _firstRow;
+    }
+
+    /**
+     * Build an index over all rows of the record set.
+     */
+    private void buildIndex(String columnName, boolean unique) throws Exception {
+        checkNotFrozen();
+        if (isStreaming()) {
+            throw new Exception("Indexes are not supported on streaming record sets.");
+        }
+        int col = resolveColumn(columnName);
+        dmRecordSetIndex index = new dmRecordSetIndex(col, _columnDefs.get(col).getDataType(), unique);
+        for (int i = 0; i < _rowCount; i++) {
+            index.check(_store, i);
+            index.add(_store, i);
+        }
+        _indexes.put(col, index);
+    }
+
+    /**
+     * Run one UPDATE for a batch of rows with the same changes, and write
+     * the rows one at a time if it does not update all of them. The ids of
+     * the rows have been checked by commit().
+     */
+    private void commitBatch(dmRecordSetCache.QueryExecutor executor, IDfSession session, String typeName,
+            String changes, int idCol, List<Integer> rows, dmCommitResult result) throws DfException {
+        LinkedHashSet<String> ids = new LinkedHashSet<String>();
+        for (int row : rows) {
+            ids.add(_store.getId(row, idCol, 0));
+        }
+        StringBuilder dql = new StringBuilder("update ").append(typeName).append(" objects ").append(changes)
+                .append(" where r_object_id in (");
+        boolean first = true;
+        for (String id : ids) {
+            if (!first) {
+                dql.append(',');
+            }
+            dql.append('\'').append(id).append('\'');
+            first = false;
+        }
+        dql.append(')');
+
+        String failure;
+        try {
+            result.executed(dql.toString());
+            int updated = executeUpdate(executor, session, dql.toString());
+            if (updated >= ids.size()) {
+                for (int row : rows) {
+                    result.updated(row);
+                }
+                return;
+            }
+            failure = "The object does not exist or cannot be changed.";
+        } catch (DfException e) {
+            failure = e.getMessage();
+        }
+        if (rows.size() == 1) {
+            result.failed(rows.get(0), failure);
+            DfLogger.warn(dmRecordSet.class, String.format("Row %d not committed: %s", rows.get(0), failure), null, null);
+            return;
+        }
+        for (int i = 0; i < rows.size(); i++) {
+            commitBatch(executor, session, typeName, changes, idCol, rows.subList(i, i + 1), result);
+        }
+    }
+
+    /**
+     * Run a DQL UPDATE and return the number of objects it updated.
+     */
+    private static int executeUpdate(dmRecordSetCache.QueryExecutor executor, IDfSession session, String dql)
+            throws DfException {
+        IDfCollection col = executor.execute(session, dql);
+        try {
+            return (col.next() ? col.getInt("objects_updated") : 0);
+        } finally {
+            col.close();
+        }
+    }
+
+    /**
+     * Return the DQL UPDATE clauses setting the changed columns of a row to
+     * their values.
+     */
+    private String updateClauses(int rowNumber, BitSet columns) throws DfException {
+        StringBuilder sb = new StringBuilder();
+        for (int col = columns.nextSetBit(0); col >= 0; col = columns.nextSetBit(col + 1)) {
+            IDfAttr attr = _columnDefs.get(col);
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            if (!attr.isRepeating()) {
+                sb.append("set ").append(attr.getName()).append(" = ").append(literal(rowNumber, col, 0));
+                continue;
+            }
+            sb.append("truncate ").append(attr.getName());
+            int count = _store.getValueCount(rowNumber, col);
+            for (int i = 0; i < count; i++) {
+                sb.append(", append ").append(attr.getName()).append(" = ").append(literal(rowNumber, col, i));
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Return a value as a DQL literal.
+     */
+    private String literal(int rowNumber, int col, int index) throws DfException {
+        switch (_columnDefs.get(col).getDataType()) {
+            case IDfAttr.DM_BOOLEAN:
+                return (_store.getBoolean(rowNumber, col, index) ? "TRUE" : "FALSE");
+            case IDfAttr.DM_INTEGER:
+                return Integer.toString(_store.getInt(rowNumber, col, index));
+            case IDfAttr.DM_DOUBLE:
+                return Double.toString(_store.getDouble(rowNumber, col, index));
+            case IDfAttr.DM_TIME:
+                long time = _store.getTime(rowNumber, col, index);
+                if (time == dmRowStore.NULL_TIME) {
+                    return "date('nulldate')";
+                }
+                return "date('" + dmRowStore.formatTime(time) + "','mm/dd/yyyy hh:mi:ss')";
+            case IDfAttr.DM_ID:
+                return "'" + checkId(_store.getId(rowNumber, col, index)) + "'";
+            default:
+                return "'" + _store.getString(rowNumber, col, index).replace("'", "''") + "'";
+        }
+    }
+
+    /**
+     * Return an object id written into DQL, after checking that it is 16 hex
+     * digits.
+     */
+    private static String checkId(String id) throws DfException {
+        if (dmColumnarRowStore.parseId(id) == -1) {
+            throw new DfException(String.format("'%s' is not an object id.", id));
+        }
+        return id;
+    }
+
+    /**
+     * Read the values of a column of a row in the form setValue() accepts.
+     */
+    private Object readValues(int rowNumber, int col) throws DfException {
+        int dataType = _columnDefs.get(col).getDataType();
+        if (!_columnDefs.get(col).isRepeating()) {
+            return dmRecordSetIndex.readKey(_store, rowNumber, col, dataType, 0);
+        }
+        Object[] values = new Object[_store.getValueCount(rowNumber, col)];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = dmRecordSetIndex.readKey(_store, rowNumber, col, dataType, i);
+        }
+        return values;
+    }
+
+    /**
+     * Rebuild the indexes after rows have been changed or removed. A unique
+     * index the rows no longer satisfy is dropped.
+     */
+    private void rebuildIndexes() {
+        Iterator<Map.Entry<Integer, dmRecordSetIndex>> entries = _indexes.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<Integer, dmRecordSetIndex> entry = entries.next();
+            int col = entry.getKey();
+            dmRecordSetIndex index = new dmRecordSetIndex(col, _columnDefs.get(col).getDataType(), entry.getValue().isUnique());
+            try {
+                for (int i = 0; i < _rowCount; i++) {
+                    index.check(_store, i);
+                    index.add(_store, i);
+                }
+                entry.setValue(index);
+            } catch (DfException e) {
+                DfLogger.warn(dmRecordSet.class, String.format("Unique index on %s dropped: %s",
+                        _columnDefs.get(col).getName(), e.getMessage()), null, null);
+                entries.remove();
+            }
+        }
+    }
+
+    /**
+     * Compare a row of another store with the same columns to a row of the
+     * record set, on one column or, for column -1, all columns.
+     */
+    private boolean sameValues(dmRowStore other, int otherRow, int rowNumber, int col) throws DfException {
+        int first = (col < 0 ? 0 : col);
+        int last = (col < 0 ? _columnDefs.size() - 1 : col);
+        for (int c = first; c <= last; c++) {
+            int dataType = _columnDefs.get(c).getDataType();
+            int count = _store.getValueCount(rowNumber, c);
+            if (count != other.getValueCount(otherRow, c)) {
+                return false;
+            }
+            for (int j = 0; j < count; j++) {
+                if (!dmRecordSetIndex.readKey(_store, rowNumber, c, dataType, j)
+                        .equals(dmRecordSetIndex.readKey(other, otherRow, c, dataType, j))) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Scan the record set for the rows in which a column that is not
+     * indexed contains a value.
+     */
+    private int[] scanRows(int col, Object value, boolean firstOnly) throws DfException {
+        int dataType = _columnDefs.get(col).getDataType();
+        Object key = dmRecordSetIndex.keyOf(dataType, value);
+        int[] rows = new int[16];
+        int found = 0;
+        for (int i = getFirstAvailableRow(); i <= _lastRow && key != null; i++) {
+            int count = _store.getValueCount(i, col);
+            for (int j = 0; j < count; j++) {
+                if (key.equals(dmRecordSetIndex.keyOf(dataType, readValue(col, i, j)))) {
+                    if (found == rows.length) {
+                        rows = Arrays.copyOf(rows, found * 2);
+                    }
+                    rows[found++] = i;
+                    break;
+                }
+            }
+            if (firstOnly && found > 0) {
+                break;
+            }
+        }
+        return Arrays.copyOf(rows, found);
+    }
+
+    /**
+     * Read a value in the representation dmRecordSetIndex.keyOf() accepts.
+     */
+    private Object readValue(int col, int rowNumber, int index) throws DfException {
+        switch (_columnDefs.get(col).getDataType()) {
+            case IDfAttr.DM_BOOLEAN:
+                return _store.getBoolean(rowNumber, col, index);
+            case IDfAttr.DM_INTEGER:
+                return _store.getInt(rowNumber, col, index);
+            case IDfAttr.DM_DOUBLE:
+                return _store.getDouble(rowNumber, col, index);
+            case IDfAttr.DM_TIME:
+                return _store.getTime(rowNumber, col, index);
+            case IDfAttr.DM_ID:
+                return _store.getId(rowNumber, col, index);
+            default:
+                return _store.getString(rowNumber, col, index);
+        }
+    }
+
+    /**
+     * Sort the row numbers of the record set and return them as a view.
+     */
+    private dmRecordSet sortedView(dmRowOrdering ordering) {
+        int[] rows = new int[_rowCount];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = i;
+        }
+        ordering.sort(rows);
+        return new dmRecordSet(new dmViewRowStore(sharedStore(), rows));
+    }
+
+    /**
+     * Fail if the record set is streaming.
+     */
+    private void checkNotStreaming() throws Exception {
+        if (isStreaming()) {
+            throw new Exception("This operation is not supported on streaming record sets.");
+        }
+
+        // operations over all rows wait for an asynchronous load to finish
+        awaitLoad();
+    }
+
+    /**
+     * Fail if the record set is frozen.
+     */
+    private void checkNotFrozen() throws Exception {
+        if (_frozen) {
+            throw new Exception("The record set is frozen and cannot be changed.");
+        }
+    }
+
+    /**
+     * Return the number of a named column.
+     *
+     * @exception DfException if the column does not exist
+     */
+    private int resolveColumn(String columnName) throws DfException {
+        int col = _schema.indexOf(columnName);
+        if (col < 0) {
+            throw new DfException(String.format("Column %s does not exist in the record set.", columnName));
+        }
+        return col;
+    }
+
+    /**
+     * Check that a value requested by row and column number exists and is
+     * still held by the record set.
+     */
+    private void checkValue(int rowNumber, int columnNumber) throws DfException {
+        while (rowNumber > _lastRow && fetchRow()) {
+        }
+        if (rowNumber < getFirstAvailableRow() || rowNumber > _lastRow || rowNumber < 0) {
+            throw new DfException(String.format("Row %d is not available in the record set.", rowNumber));
+        }
+        if (columnNumber < 0 || columnNumber >= _columnDefs.size()) {
+            throw new DfException(String.format("Column %d does not exist in the record set.", columnNumber));
+        }
+    }
+
+    /**
+     * Read the next row from the source collection of a streaming record
+     * set. The collection is closed when it has no more rows.
+     *
+     * @return true, if a row was read, else false.
+     */
+    private boolean fetchRow() throws DfException {
+        if (_loader != null) {
+            return loadRows(true);
+        }
+        if (_source == null) {
+            return false;
+        }
+        if (_metrics != null) {
+            long start = System.nanoTime();
+            boolean read = _source.next();
+            IDfTypedObject row = (read ? _source.getTypedObject() : null);
+            _sourceNanos += System.nanoTime() - start;
+            if (!read) {
+                closeSource();
+                _metrics.loaded(_rowCount, _sourceNanos);
+                return false;
+            }
+            appendRow(row);
+            _firstRow = 0;
+            return true;
+        }
+        if (_source.next()) {
+            appendRow(_source.getTypedObject());
+            _firstRow = 0;
+            return true;
+        }
+        closeSource();
+        return false;
+    }
+
+    /**
+     * Add the rows read by the background loader since the last call,
+     * waiting for at least one if <code>wait</code> is true.
+     *
+     * @return true, if rows were added, else false.
+     */
+    private boolean loadRows(boolean wait) throws DfException {
+        ArrayList<IDfTypedObject> rows;
+        try {
+            rows = _loader.take(wait);
+        } catch (DfException e) {
+
+            // kept so that operations over all rows fail as a synchronous
+            // load would
+            _loader = null;
+            _loadError = e;
+            throw e;
+        }
+        if (rows == null) {
+            if (_metrics != null) {
+                _metrics.loaded(_rowCount, _loader.getLoadNanos());
+            }
+            _loader = null;
+            return false;
+        }
+        for (IDfTypedObject row : rows) {
+            try {
+                appendRow(row);
+            } catch (DfException e) {
+                DfLogger.warn(dmRecordSet.class, "Row not added: " + e.getMessage(), null, e);
+            }
+        }
+        if (_rowCount > 0) {
+            _firstRow = 0;
+        }
+        return !rows.isEmpty();
+    }
+
+    /**
+     * Read the next row from the source collection if the cursor has caught
+     * up with the rows read so far. Errors are logged and end the stream.
+     */
+    private boolean peekRow() {
+        try {
+            return fetchRow();
+        } catch (DfException e) {
+            DfLogger.warn(dmRecordSet.class, "Could not read next row from IDfCollection: " + e.getMessage(), null, e);
+            closeSource();
+            return false;
+        }
+    }
+
+    /**
+     * Read the remainder of the source collection of a streaming record set,
+     * or wait for a loadAsync() load to finish.
+     */
+    private void drainSource() {
+        while (peekRow()) {
+        }
+    }
+
+    /**
+     * Wait for a loadAsync() load to finish.
+     *
+     * @exception DfException if reading the collection failed
+     */
+    private void awaitLoad() throws DfException {
+        while (_loader != null && loadRows(true)) {
+        }
+        if (_loadError != null) {
+            throw _loadError;
+        }
     }
 }
 
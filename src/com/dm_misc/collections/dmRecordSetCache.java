@@ -0,0 +1,496 @@
+/**
+ * Cache of the record sets of read-only DQL queries.
+ *
+ * (C) 2013 MS Roth
+ * <p/>
+ *
+ * Example use: <br/>
+ * <pre>
+ *     // up to 64 MB of record sets, each kept for at most 30 seconds
+ *     static final dmRecordSetCache CACHE = new dmRecordSetCache(64L &lt;&lt; 20, 30000);
+ *
+ *     dmRecordSet dmRS = CACHE.get(session, "select r_object_id, object_name from dm_folder where folder('/Temp')");
+ *     dmRecordSetCursor cursor = dmRS.cursor();
+ *     while (cursor.advance()) {
+ *         ...
+ *     }
+ *     System.out.println(CACHE);
+ * </pre>
+ *
+ * @author M. Scott Roth, http://msroth.wordpress.com
+ * @version 1.3
+ */
+package com.dm_misc.collections;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.documentum.fc.client.DfQuery;
+import com.documentum.fc.client.IDfCollection;
+import com.documentum.fc.client.IDfQuery;
+import com.documentum.fc.client.IDfSession;
+import com.documentum.fc.common.DfException;
+import com.documentum.fc.common.DfLogger;
+
+/**
+ * A dmRecordSetCache keeps the frozen record sets of read-only queries,
+ * keyed by docbase, scope and DQL, so that services repeating the same
+ * query (folder listings, value assistance, ...) read the docbase once per
+ * time-to-live instead of once per request.
+ *
+ * The scope separates results that depend on who runs the query. By
+ * default it is the session's login user; callers whose users share the
+ * same permissions can pass a wider scope (e.g., an ACL domain or group
+ * name) to share entries between them. The DQL is normalized before it is
+ * used as a key: whitespace is collapsed and text outside quoted literals
+ * is lower case, so queries differing only in formatting share an entry.
+ *
+ * Entries expire after the time-to-live. The cache is bounded by the
+ * estimated heap size of its record sets; when it is exceeded, the least
+ * recently used entries are evicted. A record set larger than the bound is
+ * returned but not cached. Threads that miss on a query another thread is
+ * already loading wait for that load instead of running the query again.
+ *
+ * Cached record sets are frozen and shared by all callers. Their row
+ * pointer is shared too, so concurrent readers should use cursor(),
+ * findRows() or the getString(row, column) style getters instead of
+ * getNextRow() and friends.
+ */
+public class dmRecordSetCache {
+
+    /**
+     * Runs a query for the cache. The default executor runs it as a
+     * DfQuery.DF_READ_QUERY; tests and callers with their own query
+     * handling can supply another.
+     */
+    public interface QueryExecutor {
+
+        IDfCollection execute(IDfSession session, String dql) throws DfException;
+    }
+
+    // approximate size of an entry without its record set
+    private static final long ENTRY_BYTES = 200;
+
+    private long _maxBytes;
+    private long _ttlNanos;
+    private dmRecordSet.Storage _storage = dmRecordSet.Storage.OBJECTS;
+    private QueryExecutor _executor = new QueryExecutor() {
+
+        public IDfCollection execute(IDfSession session, String dql) throws DfException {
+            IDfQuery q = new DfQuery();
+            q.setDQL(dql);
+            return q.execute(session, IDfQuery.DF_READ_QUERY);
+        }
+    };
+
+    // guarded by this
+    private LinkedHashMap<Key, Entry> _entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true);
+    private HashMap<Key, FutureTask<dmRecordSet>> _loading = new HashMap<Key, FutureTask<dmRecordSet>>();
+    private long _bytes = 0;
+    private long _generation = 0;
+
+    private LongAdder _hits = new LongAdder();
+    private LongAdder _misses = new LongAdder();
+    private LongAdder _loads = new LongAdder();
+    private LongAdder _loadFailures = new LongAdder();
+    private LongAdder _evictions = new LongAdder();
+
+    /**
+     * @param maxBytes maximum estimated heap size of the cached record sets
+     * @param ttlMillis time an entry is kept after it was loaded, or 0 to
+     * keep entries until they are evicted
+     */
+    public dmRecordSetCache(long maxBytes, long ttlMillis) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("The cache size must be positive.");
+        }
+        _maxBytes = maxBytes;
+        _ttlNanos = Math.max(0, ttlMillis) * 1000000;
+    }
+
+    /**
+     * Set how the rows of cached record sets are stored (default
+     * Storage.OBJECTS). Storage.COLUMNAR usually makes them several times
+     * smaller, so more of them fit in the cache. Storage.OFF_HEAP keeps them
+     * off the heap; their direct memory counts against the maximum size and
+     * is freed by the garbage collector once an evicted record set is no
+     * longer used, as callers may still hold it.
+     *
+     * @param storage how the rows are stored
+     * @return this cache
+     *
+     */
+    public dmRecordSetCache setStorage(dmRecordSet.Storage storage) {
+        _storage = storage;
+        return this;
+    }
+
+    /**
+     * Replace the executor that runs the queries.
+     *
+     * @param executor query executor
+     * @return this cache
+     *
+     */
+    public dmRecordSetCache setQueryExecutor(QueryExecutor executor) {
+        _executor = executor;
+        return this;
+    }
+
+    /**
+     * Return the record set of a query for the session's login user, from
+     * the cache or by running the query.
+     *
+     * @param session session to run the query on if it is not cached
+     * @param dql read-only DQL query
+     * @return dmRecordSet frozen record set of the query
+     * @exception Exception if the query fails
+     *
+     */
+    public dmRecordSet get(IDfSession session, String dql) throws Exception {
+        return get(session, session.getLoginUserName(), dql);
+    }
+
+    /**
+     * Return the record set of a query for a scope, from the cache or by
+     * running the query. Only use a scope shared by several users if the
+     * query returns the same rows for all of them.
+     *
+     * @param session session to run the query on if it is not cached
+     * @param scope user, ACL domain or other name whose results may be
+     * shared
+     * @param dql read-only DQL query
+     * @return dmRecordSet frozen record set of the query
+     * @exception Exception if the query fails
+     *
+     */
+    public dmRecordSet get(IDfSession session, String scope, String dql) throws Exception {
+        Key key = new Key(session.getDocbaseName(), scope, normalize(dql));
+        FutureTask<dmRecordSet> load;
+        boolean owner = false;
+        synchronized (this) {
+            Entry entry = _entries.get(key);
+            if (entry != null && !isExpired(entry, System.nanoTime())) {
+                _hits.increment();
+                return entry._recordSet;
+            }
+            if (entry != null) {
+                remove(key);
+            }
+            _misses.increment();
+
+            // join a load of the same query that is already running
+            load = _loading.get(key);
+            if (load == null) {
+                long generation = _generation;
+                load = new FutureTask<dmRecordSet>(() -> load(key, session, dql, generation));
+                _loading.put(key, load);
+                owner = true;
+            }
+        }
+        if (owner) {
+            load.run();
+        }
+        try {
+            return load.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DfException("Interrupted while waiting for the query to load.");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    /**
+     * Remove the entries of a query, for all docbases and scopes, e.g.,
+     * after the objects it returns have been changed.
+     *
+     * @param dql DQL query
+     * @return int number of entries removed
+     *
+     */
+    public synchronized int invalidate(String dql) {
+        String normalized = normalize(dql);
+        _generation++;
+        int removed = 0;
+        Iterator<Map.Entry<Key, Entry>> entries = _entries.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<Key, Entry> entry = entries.next();
+            if (entry.getKey()._dql.equals(normalized)) {
+                _bytes -= entry.getValue()._bytes;
+                entries.remove();
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Remove all entries. Loads in progress still return their record sets
+     * to their callers, but do not cache them.
+     *
+     */
+    public synchronized void invalidateAll() {
+        _generation++;
+        _entries.clear();
+        _bytes = 0;
+    }
+
+    /**
+     * Remove the entries whose time-to-live has passed. Expired entries are
+     * otherwise removed when they are asked for or evicted.
+     *
+     * @return int number of entries removed
+     *
+     */
+    public synchronized int cleanUp() {
+        long now = System.nanoTime();
+        int removed = 0;
+        Iterator<Entry> entries = _entries.values().iterator();
+        while (entries.hasNext()) {
+            Entry entry = entries.next();
+            if (isExpired(entry, now)) {
+                _bytes -= entry._bytes;
+                entries.remove();
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    public synchronized int size() {
+        return _entries.size();
+    }
+
+    /**
+     * Return the estimated heap size of the cached record sets.
+     *
+     * @return long estimated bytes
+     *
+     */
+    public synchronized long getEstimatedBytes() {
+        return _bytes;
+    }
+
+    public long getMaxBytes() {
+        return _maxBytes;
+    }
+
+    public long getHitCount() {
+        return _hits.sum();
+    }
+
+    /**
+     * Return the number of requests not answered from the cache, including
+     * those that waited for a load started by another request.
+     *
+     * @return long number of misses
+     *
+     */
+    public long getMissCount() {
+        return _misses.sum();
+    }
+
+    /**
+     * Return the number of queries run. Misses exceed loads by the number of
+     * requests that shared another request's load.
+     *
+     * @return long number of loads
+     *
+     */
+    public long getLoadCount() {
+        return _loads.sum();
+    }
+
+    public long getLoadFailureCount() {
+        return _loadFailures.sum();
+    }
+
+    /**
+     * Return the number of entries removed to keep the cache within its
+     * size.
+     *
+     * @return long number of evictions
+     *
+     */
+    public long getEvictionCount() {
+        return _evictions.sum();
+    }
+
+    /**
+     * Return the share of requests answered from the cache.
+     *
+     * @return double hit rate between 0 and 1, 0 before the first request
+     *
+     */
+    public double getHitRate() {
+        long hits = _hits.sum();
+        long requests = hits + _misses.sum();
+        return (requests == 0 ? 0 : (double) hits / requests);
+    }
+
+    /**
+     * Set all statistics to 0. The entries are kept.
+     *
+     */
+    public void resetStatistics() {
+        _hits.reset();
+        _misses.reset();
+        _loads.reset();
+        _loadFailures.reset();
+        _evictions.reset();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("dmRecordSetCache: entries=%d, bytes~%d/%d, hits=%d, misses=%d, hitRate=%.2f, loads=%d, failures=%d, evictions=%d",
+                size(), getEstimatedBytes(), _maxBytes, getHitCount(), getMissCount(), getHitRate(), getLoadCount(),
+                getLoadFailureCount(), getEvictionCount());
+    }
+
+    /**
+     * Normalize a DQL query for use as a key: collapse whitespace and lower
+     * the case of everything outside single quoted literals.
+     */
+    static String normalize(String dql) {
+        StringBuilder sb = new StringBuilder(dql.length());
+        boolean quoted = false;
+        boolean space = false;
+        for (int i = 0; i < dql.length(); i++) {
+            char c = dql.charAt(i);
+            if (c == '\'') {
+
+                // '' inside a literal toggles twice and leaves it quoted
+                quoted = !quoted;
+            } else if (!quoted && Character.isWhitespace(c)) {
+                space = true;
+                continue;
+            }
+            if (space && sb.length() > 0) {
+                sb.append(' ');
+            }
+            space = false;
+            sb.append(quoted || c == '\'' ? c : Character.toLowerCase(c));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Run a query and cache its record set, unless the cache was
+     * invalidated while the query ran.
+     */
+    private dmRecordSet load(Key key, IDfSession session, String dql, long generation) throws Exception {
+        IDfCollection col = null;
+        try {
+            _loads.increment();
+            col = _executor.execute(session, dql);
+            dmRecordSet dmRS = new dmRecordSet(col, _storage).freeze();
+            put(key, new Entry(dmRS, dmRS.estimateBytes() + ENTRY_BYTES + dmRowStore.stringBytes(key._dql), System.nanoTime()), generation);
+            return dmRS;
+        } catch (Exception e) {
+            _loadFailures.increment();
+            throw e;
+        } finally {
+            synchronized (this) {
+                _loading.remove(key);
+            }
+            if (col != null && col.getState() != IDfCollection.DF_CLOSED_STATE) {
+                try {
+                    col.close();
+                } catch (DfException e) {
+                    DfLogger.warn(dmRecordSetCache.class, "Could not close IDfCollection: " + e.getMessage(), null, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Add an entry and evict the least recently used entries until the
+     * cache is within its size again.
+     */
+    private synchronized void put(Key key, Entry entry, long generation) {
+        if (generation != _generation) {
+            return;
+        }
+        if (entry._bytes > _maxBytes) {
+            DfLogger.debug(dmRecordSetCache.class, String.format("Record set of %d bytes is larger than the cache and is not cached: %s",
+                    entry._bytes, key._dql), null, null);
+            return;
+        }
+        remove(key);
+        _entries.put(key, entry);
+        _bytes += entry._bytes;
+        Iterator<Entry> entries = _entries.values().iterator();
+        while (_bytes > _maxBytes) {
+            _bytes -= entries.next()._bytes;
+            entries.remove();
+            _evictions.increment();
+        }
+    }
+
+    private boolean isExpired(Entry entry, long now) {
+        return _ttlNanos > 0 && now - entry._loaded >= _ttlNanos;
+    }
+
+    private synchronized void remove(Key key) {
+        Entry entry = _entries.remove(key);
+        if (entry != null) {
+            _bytes -= entry._bytes;
+        }
+    }
+
+    private static final class Key {
+
+        private String _docbase;
+        private String _scope;
+        private String _dql;
+        private int _hash;
+
+        Key(String docbase, String scope, String dql) {
+            _docbase = docbase;
+            _scope = (scope == null ? "" : scope);
+            _dql = dql;
+            _hash = (_docbase.hashCode() * 31 + _scope.hashCode()) * 31 + _dql.hashCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return _hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return _hash == other._hash && _dql.equals(other._dql) && _scope.equals(other._scope)
+                    && _docbase.equals(other._docbase);
+        }
+    }
+
+    private static final class Entry {
+
+        private dmRecordSet _recordSet;
+        private long _bytes;
+        private long _loaded;
+
+        Entry(dmRecordSet recordSet, long bytes, long loaded) {
+            _recordSet = recordSet;
+            _bytes = bytes;
+            _loaded = loaded;
+        }
+    }
+}
+
+/*
+ *  <SDG><
+ */
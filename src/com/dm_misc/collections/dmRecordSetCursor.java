@@ -0,0 +1,306 @@
+/**
+ * An independent cursor over the rows of a dmRecordSet.
+ *
+ * (C) 2013 MS Roth
+ * <p/>
+ *
+ * Example use: <br/>
+ * <pre>
+ *     // build once, share between threads
+ *     dmRecordSet dmRS = new dmRecordSet(col).freeze();
+ *
+ *     // in each thread
+ *     dmRecordSetCursor cursor = dmRS.cursor();
+ *     while (cursor.hasNext()) {
+ *         tObj = cursor.getNextRow();
+ *         ...
+ *     }
+ * </pre>
+ *
+ * @author M. Scott Roth, http://msroth.wordpress.com
+ * @version 1.3
+ */
+package com.dm_misc.collections;
+
+import com.documentum.fc.client.IDfTypedObject;
+import com.documentum.fc.common.DfLogger;
+
+/**
+ * A dmRecordSetCursor keeps its own current row pointer and BOF/EOF flags
+ * over the rows of a dmRecordSet, and provides the same navigation methods
+ * as the record set. Any number of cursors can read a frozen record set
+ * (see dmRecordSet.freeze()) concurrently without locking or copying rows.
+ * A cursor itself is not thread safe; each thread should use its own.
+ */
+public class dmRecordSetCursor {
+
+    private dmRecordSet _recordSet;
+    private dmRowStore _store;
+    private IDfTypedObject _currentRow = null;
+    private int _currentRowNumber = -1;
+    private boolean _bof = true;
+    private boolean _eof = true;
+    private dmRowView _rowView = null;
+
+    dmRecordSetCursor(dmRecordSet recordSet, dmRowStore store) {
+        _recordSet = recordSet;
+        _store = store;
+        _eof = (recordSet.getRowCount() == 0);
+    }
+
+    /**
+     * Return the record set the cursor reads.
+     *
+     * @return dmRecordSet
+     *
+     */
+    public dmRecordSet getRecordSet() {
+        return _recordSet;
+    }
+
+    /**
+     * Return the number of rows contained in the record set.
+     *
+     * @return int row count
+     *
+     */
+    public int getRowCount() {
+        return _recordSet.getRowCount();
+    }
+
+    /**
+     * Beginning of file indicator.
+     *
+     * @return true, if the cursor is at the beginning of the record set,
+     * else false.
+     *
+     */
+    public boolean isBOF() {
+        return _bof;
+    }
+
+    /**
+     * End of file indicator.
+     *
+     * @return true, if the cursor is at the end of the record set, else
+     * false.
+     *
+     */
+    public boolean isEOF() {
+        return _eof;
+    }
+
+    /**
+     * Indicates if the record set has more rows after the cursor.
+     *
+     * @return true, if there are more rows beyond the current row, else
+     * false.
+     *
+     */
+    public boolean hasNext() {
+        return _currentRowNumber + 1 < getRowCount();
+    }
+
+    /**
+     * Indicates if the record set has a row preceding the cursor.
+     *
+     * @return true, if there is a row preceding the current row, else false.
+     *
+     */
+    public boolean hasPrevious() {
+        return _currentRowNumber - 1 >= 0;
+    }
+
+    /**
+     * Move the cursor to the next row.
+     *
+     * @return IDfTypedObject object representing the next row.
+     * @exception Exception if the cursor is already on the last row
+     *
+     */
+    public IDfTypedObject getNextRow() throws Exception {
+        return getRow(_currentRowNumber + 1);
+    }
+
+    /**
+     * Move the cursor to the previous row.
+     *
+     * @return IDfTypedObject object representing the previous row.
+     * @exception Exception if the cursor is already on the first row
+     *
+     */
+    public IDfTypedObject getPreviousRow() throws Exception {
+        return getRow(_currentRowNumber - 1);
+    }
+
+    /**
+     * Move the cursor to the first row.
+     *
+     * @return IDfTypedObject object representing the first row.
+     *
+     */
+    public IDfTypedObject getFirstRow() {
+        _currentRowNumber = 0;
+        _currentRow = _store.getRow(_currentRowNumber);
+        _eof = false;
+        _bof = true;
+        return _currentRow;
+    }
+
+    /**
+     * Move the cursor to the last row.
+     *
+     * @return IDfTypedObject object representing the last row.
+     *
+     */
+    public IDfTypedObject getLastRow() {
+        _currentRowNumber = getRowCount() - 1;
+        _currentRow = _store.getRow(_currentRowNumber);
+        _eof = true;
+        _bof = false;
+        return _currentRow;
+    }
+
+    /**
+     * Move the cursor to any row. As with dmRecordSet.getRow(), requesting a
+     * row before the first or after the last row moves the cursor to the
+     * first or last row, sets BOF or EOF and throws an exception.
+     *
+     * @param rowNumber record number to return
+     * @return IDfTypedObject object representing the specified record.
+     * @exception Exception if trying to access beyond BOF or EOF
+     *
+     */
+    public IDfTypedObject getRow(int rowNumber) throws Exception {
+        if (!moveTo(rowNumber)) {
+            String message;
+            if (rowNumber < 0) {
+                message = String.format("Row %d precedes first row.  Cursor reset to BOF.", rowNumber);
+            } else {
+                message = String.format("Row %d is beyond last row.  Cursor set to EOF.", rowNumber);
+            }
+            DfLogger.warn(dmRecordSetCursor.class, message, null, null);
+            throw new Exception("WARNING: " + message);
+        }
+        return _currentRow;
+    }
+
+    /**
+     * Move the cursor to any row without an exception for a row that does
+     * not exist (see dmRecordSet.tryGetRow()).
+     *
+     * @param rowNumber record number to return
+     * @return IDfTypedObject object representing the specified record, or
+     * null if the row does not exist.
+     *
+     */
+    public IDfTypedObject tryGetRow(int rowNumber) {
+        return (moveTo(rowNumber) ? _currentRow : null);
+    }
+
+    /**
+     * Move the cursor to the next row, without an exception at the end of
+     * the record set.
+     *
+     * @return true, if the cursor moved to the next row, false if there are
+     * no more rows.
+     *
+     */
+    public boolean advance() {
+        return moveTo(_currentRowNumber + 1);
+    }
+
+    /**
+     * Return a view of the values of the row the cursor is on. The same
+     * dmRowView is returned, repositioned, on every call.
+     *
+     * @return dmRowView of the current row
+     *
+     */
+    public dmRowView getRowView() {
+        if (_rowView == null) {
+            _rowView = new dmRowView(_store);
+        }
+        _rowView.setRow(_currentRowNumber);
+        return _rowView;
+    }
+
+    /**
+     * Move the cursor to a row, or to the first or last row with BOF or EOF
+     * set if the row does not exist.
+     *
+     * @return true, if the row exists, else false.
+     */
+    private boolean moveTo(int rowNumber) {
+        int lastRow = getRowCount() - 1;
+        if (lastRow < 0) {
+            _eof = true;
+            _bof = true;
+            return false;
+        }
+        if ((rowNumber >= 0) && (rowNumber <= lastRow)) {
+            _currentRowNumber = rowNumber;
+            _currentRow = _store.getRow(_currentRowNumber);
+            _eof = false;
+            _bof = false;
+            return true;
+        } else if (rowNumber < 0) {
+            _currentRowNumber = 0;
+            _currentRow = _store.getRow(_currentRowNumber);
+            _eof = false;
+            _bof = true;
+        } else {
+            _currentRowNumber = lastRow;
+            _currentRow = _store.getRow(_currentRowNumber);
+            _eof = true;
+            _bof = false;
+        }
+        return false;
+    }
+
+    /**
+     * Get the row the cursor is on.
+     *
+     * @return IDfTypedObject object representing the current row.
+     *
+     */
+    public IDfTypedObject getCurrentRow() {
+        return _currentRow;
+    }
+
+    /**
+     * Get the row number the cursor is on.
+     *
+     * @return int with current row number
+     *
+     */
+    public int getCurrentRowNumber() {
+        return _currentRowNumber;
+    }
+
+    /**
+     * Move the cursor to just before the first row.
+     *
+     */
+    public void resetToBeginning() {
+        _currentRowNumber = -1;
+        _currentRow = null;
+        _eof = false;
+        _bof = true;
+    }
+
+    /**
+     * Move the cursor to just past the last row.
+     *
+     */
+    public void resetToEnd() {
+        _currentRowNumber = getRowCount();
+        _currentRow = null;
+        _eof = true;
+        _bof = false;
+    }
+}
+
+/*
+ *  <SDG><
+ */
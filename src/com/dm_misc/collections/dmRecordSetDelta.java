@@ -0,0 +1,110 @@
+/**
+ * The changes dmRecordSet.refresh() made to a record set.
+ *
+ * (C) 2013 MS Roth
+ * <p/>
+ *
+ * Example use: <br/>
+ * <pre>
+ *     IDfCollection col = q.execute(session, DfQuery.DF_READ_QUERY);
+ *     dmRecordSetDelta delta = dmRS.refresh(col, "r_object_id", "i_vstamp");
+ *     for (int row : delta.getUpdatedRows()) {
+ *         redraw(row, dmRS.getRow(row));
+ *     }
+ * </pre>
+ *
+ * @author M. Scott Roth, http://msroth.wordpress.com
+ * @version 1.3
+ */
+package com.dm_misc.collections;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A dmRecordSetDelta lists the rows a refresh added, updated and removed.
+ * Added and updated rows are given by their row numbers after the refresh;
+ * removed rows by their row numbers before it, together with their keys
+ * since the rows themselves are gone. All arrays are in ascending order.
+ */
+public final class dmRecordSetDelta {
+
+    private int[] _added;
+    private int[] _updated;
+    private int[] _removed;
+    private List<Object> _removedKeys;
+
+    dmRecordSetDelta(int[] added, int[] updated, int[] removed, List<Object> removedKeys) {
+        _added = added;
+        _updated = updated;
+        _removed = removed;
+        _removedKeys = Collections.unmodifiableList(removedKeys);
+    }
+
+    /**
+     * Return the numbers of the rows the refresh appended.
+     *
+     * @return int[] row numbers after the refresh
+     *
+     */
+    public int[] getAddedRows() {
+        return _added.clone();
+    }
+
+    /**
+     * Return the numbers of the rows whose version changed and whose values
+     * were replaced.
+     *
+     * @return int[] row numbers after the refresh
+     *
+     */
+    public int[] getUpdatedRows() {
+        return _updated.clone();
+    }
+
+    /**
+     * Return the numbers the removed rows had before the refresh.
+     *
+     * @return int[] row numbers before the refresh
+     *
+     */
+    public int[] getRemovedRows() {
+        return _removed.clone();
+    }
+
+    /**
+     * Return the keys of the removed rows, in the order of getRemovedRows().
+     * Keys are in the form findRows() compares values in: String, Integer,
+     * Double, Boolean, Long milliseconds for times and lower case object
+     * ids.
+     *
+     * @return List of keys
+     *
+     */
+    public List<Object> getRemovedKeys() {
+        return _removedKeys;
+    }
+
+    /**
+     * Return the number of rows added, updated and removed.
+     *
+     * @return int number of changed rows
+     *
+     */
+    public int getChangeCount() {
+        return _added.length + _updated.length + _removed.length;
+    }
+
+    public boolean isEmpty() {
+        return getChangeCount() == 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("added=%d, updated=%d, removed=%d", _added.length, _updated.length, _removed.length);
+    }
+}
+
+/*
+ *  <SDG><
+ */
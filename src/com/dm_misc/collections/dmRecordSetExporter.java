@@ -0,0 +1,428 @@
+/**
+ * CSV and JSON Lines writer for the rows of a dmRowStore.
+ *
+ * (C) 2013 MS Roth
+ * <p/>
+ *
+ * @author M. Scott Roth, http://msroth.wordpress.com
+ * @version 1.3
+ */
+package com.dm_misc.collections;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+
+import com.documentum.fc.client.IDfCollection;
+import com.documentum.fc.common.DfException;
+import com.documentum.fc.common.IDfAttr;
+
+/**
+ * A dmRecordSetExporter writes rows as CSV or JSON Lines. Values are read
+ * from the store by column number with the getter matching the column's
+ * data type and are written into a reusable char buffer, which is passed
+ * to the Writer when full: integers and ISO 8601 times are formatted
+ * digit by digit, and strings are escaped as they are copied, so no
+ * String is created per cell for those values. JSON column names are
+ * escaped once per export.
+ */
+class dmRecordSetExporter {
+
+    enum Format { CSV, JSON_LINES }
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private Writer _out;
+    private dmExportOptions _options;
+    private Format _format;
+    private ArrayList<IDfAttr> _columnDefs;
+    private int[] _types;
+    private boolean[] _repeating;
+    private char[][] _jsonNames;
+    private char[] _buffer = new char[8192];
+    private int _length = 0;
+    private Calendar _calendar = Calendar.getInstance();
+    private SimpleDateFormat _timeFormat = null;
+
+    dmRecordSetExporter(Writer out, dmExportOptions options, Format format, ArrayList<IDfAttr> columnDefs) {
+        _out = out;
+        _options = (options != null ? options : new dmExportOptions());
+        _format = format;
+        _columnDefs = columnDefs;
+        int count = columnDefs.size();
+        _types = new int[count];
+        _repeating = new boolean[count];
+        _jsonNames = new char[count][];
+        for (int col = 0; col < count; col++) {
+            _types[col] = columnDefs.get(col).getDataType();
+            _repeating[col] = columnDefs.get(col).isRepeating();
+        }
+        if (_options.getTimePattern() != null) {
+            _timeFormat = new SimpleDateFormat(_options.getTimePattern());
+        }
+    }
+
+    /**
+     * Write all rows of a store and flush the Writer.
+     */
+    static void export(dmRowStore store, Writer out, dmExportOptions options, Format format) throws IOException, DfException {
+        dmRecordSetExporter exporter = new dmRecordSetExporter(out, options, format, store.getColumnDefs());
+        exporter.writeHeader();
+        int size = store.size();
+        for (int row = 0; row < size; row++) {
+            exporter.writeRow(store, row);
+        }
+        exporter.flush();
+    }
+
+    /**
+     * Write the rows of a collection as they are read, retaining only the
+     * current row, close the collection and flush the Writer.
+     *
+     * @return number of rows written
+     */
+    static int export(IDfCollection col, Writer out, dmExportOptions options, Format format) throws IOException, DfException {
+        try {
+            ArrayList<IDfAttr> columnDefs = new ArrayList<IDfAttr>();
+            for (int i = 0; i < col.getAttrCount(); i++) {
+                columnDefs.add(col.getAttr(i));
+            }
+            dmObjectRowStore store = new dmObjectRowStore(new dmRecordSetSchema(columnDefs), 1);
+            dmRecordSetExporter exporter = new dmRecordSetExporter(out, options, format, columnDefs);
+            exporter.writeHeader();
+            while (col.next()) {
+                store.add(col.getTypedObject());
+                exporter.writeRow(store, store.size() - 1);
+            }
+            exporter.flush();
+            return store.size();
+        } finally {
+            col.close();
+        }
+    }
+
+    /**
+     * Write the CSV header row, if enabled, or prepare the JSON member
+     * names. Called before the first row.
+     */
+    void writeHeader() throws IOException {
+        if (_format == Format.CSV) {
+            if (_options.isHeader()) {
+                for (int col = 0; col < _columnDefs.size(); col++) {
+                    if (col > 0) {
+                        append(_options.getDelimiter());
+                    }
+                    appendCsv(_columnDefs.get(col).getName());
+                }
+                append(_options.getLineSeparator());
+            }
+        } else {
+            for (int col = 0; col < _columnDefs.size(); col++) {
+                int start = _length;
+                append(col == 0 ? '{' : ',');
+                appendJson(_columnDefs.get(col).getName());
+                append(':');
+                _jsonNames[col] = new char[_length - start];
+                System.arraycopy(_buffer, start, _jsonNames[col], 0, _length - start);
+                _length = start;
+            }
+        }
+    }
+
+    void writeRow(dmRowStore store, int row) throws IOException, DfException {
+        if (_format == Format.CSV) {
+            writeCsvRow(store, row);
+        } else {
+            writeJsonRow(store, row);
+        }
+        append(_options.getLineSeparator());
+    }
+
+    void flush() throws IOException {
+        _out.write(_buffer, 0, _length);
+        _length = 0;
+        _out.flush();
+    }
+
+    private void writeCsvRow(dmRowStore store, int row) throws IOException, DfException {
+        for (int col = 0; col < _types.length; col++) {
+            if (col > 0) {
+                append(_options.getDelimiter());
+            }
+            if (_repeating[col]) {
+                int count = store.getValueCount(row, col);
+                if (_types[col] == IDfAttr.DM_STRING) {
+                    // quote the field as a whole if any value needs it
+                    boolean quote = false;
+                    for (int i = 0; i < count && !quote; i++) {
+                        quote = needsQuote(store.getString(row, col, i));
+                    }
+                    if (quote) {
+                        append(_options.getQuote());
+                    }
+                    for (int i = 0; i < count; i++) {
+                        if (i > 0) {
+                            append(_options.getRepeatingSeparator());
+                        }
+                        appendQuoted(store.getString(row, col, i), quote);
+                    }
+                    if (quote) {
+                        append(_options.getQuote());
+                    }
+                } else {
+                    for (int i = 0; i < count; i++) {
+                        if (i > 0) {
+                            append(_options.getRepeatingSeparator());
+                        }
+                        appendValue(store, row, col, i, false);
+                    }
+                }
+            } else {
+                appendValue(store, row, col, 0, false);
+            }
+        }
+    }
+
+    private void writeJsonRow(dmRowStore store, int row) throws IOException, DfException {
+        for (int col = 0; col < _types.length; col++) {
+            append(_jsonNames[col]);
+            if (_repeating[col]) {
+                append('[');
+                int count = store.getValueCount(row, col);
+                for (int i = 0; i < count; i++) {
+                    if (i > 0) {
+                        append(',');
+                    }
+                    appendValue(store, row, col, i, true);
+                }
+                append(']');
+            } else {
+                appendValue(store, row, col, 0, true);
+            }
+        }
+        append(_types.length == 0 ? "{}" : "}");
+    }
+
+    /**
+     * Append one value of a column formatted for its data type.
+     */
+    private void appendValue(dmRowStore store, int row, int col, int index, boolean json) throws IOException, DfException {
+        switch (_types[col]) {
+            case IDfAttr.DM_BOOLEAN:
+                append(store.getBoolean(row, col, index) ? "true" : "false");
+                break;
+            case IDfAttr.DM_INTEGER:
+                appendLong(store.getInt(row, col, index));
+                break;
+            case IDfAttr.DM_DOUBLE:
+                double d = store.getDouble(row, col, index);
+                if (json && (Double.isNaN(d) || Double.isInfinite(d))) {
+                    append("null");
+                } else if (d == (long) d && Math.abs(d) < 1e15) {
+                    appendLong((long) d);
+                    append(".0");
+                } else {
+                    append(Double.toString(d));
+                }
+                break;
+            case IDfAttr.DM_TIME:
+                long millis = store.getTime(row, col, index);
+                if (millis == dmRowStore.NULL_TIME) {
+                    if (json) {
+                        append("null");
+                    }
+                } else {
+                    if (json) {
+                        append('"');
+                    }
+                    appendTime(millis);
+                    if (json) {
+                        append('"');
+                    }
+                }
+                break;
+            case IDfAttr.DM_ID:
+                if (json) {
+                    appendJson(store.getId(row, col, index));
+                } else {
+                    appendCsv(store.getId(row, col, index));
+                }
+                break;
+            default:
+                if (json) {
+                    appendJson(store.getString(row, col, index));
+                } else {
+                    appendCsv(store.getString(row, col, index));
+                }
+        }
+    }
+
+    private void appendTime(long millis) throws IOException {
+        if (_timeFormat != null) {
+            append(_timeFormat.format(new Date(millis)));
+            return;
+        }
+        _calendar.setTimeInMillis(millis);
+        appendDigits(_calendar.get(Calendar.YEAR), 4);
+        append('-');
+        appendDigits(_calendar.get(Calendar.MONTH) + 1, 2);
+        append('-');
+        appendDigits(_calendar.get(Calendar.DAY_OF_MONTH), 2);
+        append('T');
+        appendDigits(_calendar.get(Calendar.HOUR_OF_DAY), 2);
+        append(':');
+        appendDigits(_calendar.get(Calendar.MINUTE), 2);
+        append(':');
+        appendDigits(_calendar.get(Calendar.SECOND), 2);
+    }
+
+    private void appendDigits(int value, int width) throws IOException {
+        ensure(width);
+        for (int i = _length + width - 1; i >= _length; i--) {
+            _buffer[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        _length += width;
+    }
+
+    private void appendLong(long value) throws IOException {
+        if (value == Long.MIN_VALUE) {
+            append(Long.toString(value));
+            return;
+        }
+        ensure(20);
+        if (value < 0) {
+            _buffer[_length++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        for (int i = _length + digits - 1; i >= _length; i--) {
+            _buffer[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        _length += digits;
+    }
+
+    private boolean needsQuote(String value) {
+        String separator = _options.getRepeatingSeparator();
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == _options.getDelimiter() || c == _options.getQuote() || c == '\r' || c == '\n'
+                    || (separator.length() > 0 && c == separator.charAt(0))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void appendCsv(String value) throws IOException {
+        if (needsQuote(value)) {
+            append(_options.getQuote());
+            appendQuoted(value, true);
+            append(_options.getQuote());
+        } else {
+            appendQuoted(value, false);
+        }
+    }
+
+    /**
+     * Append a CSV value, doubling quotes if it is quoted. The caller
+     * writes the enclosing quotes.
+     */
+    private void appendQuoted(String value, boolean quoted) throws IOException {
+        char quote = _options.getQuote();
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (quoted && c == quote) {
+                append(quote);
+            }
+            append(c);
+        }
+    }
+
+    private void appendJson(String value) throws IOException {
+        append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    append("\\\"");
+                    break;
+                case '\\':
+                    append("\\\\");
+                    break;
+                case '\n':
+                    append("\\n");
+                    break;
+                case '\r':
+                    append("\\r");
+                    break;
+                case '\t':
+                    append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        append("\\u00");
+                        append(HEX[c >> 4]);
+                        append(HEX[c & 0xf]);
+                    } else {
+                        append(c);
+                    }
+            }
+        }
+        append('"');
+    }
+
+    private void append(char c) throws IOException {
+        if (_length == _buffer.length) {
+            drain();
+        }
+        _buffer[_length++] = c;
+    }
+
+    private void append(String s) throws IOException {
+        int n = s.length();
+        if (n > _buffer.length - _length) {
+            drain();
+            if (n > _buffer.length) {
+                _out.write(s);
+                return;
+            }
+        }
+        s.getChars(0, n, _buffer, _length);
+        _length += n;
+    }
+
+    private void append(char[] chars) throws IOException {
+        if (chars.length > _buffer.length - _length) {
+            drain();
+            if (chars.length > _buffer.length) {
+                _out.write(chars);
+                return;
+            }
+        }
+        System.arraycopy(chars, 0, _buffer, _length, chars.length);
+        _length += chars.length;
+    }
+
+    private void ensure(int chars) throws IOException {
+        if (_buffer.length - _length < chars) {
+            drain();
+        }
+    }
+
+    private void drain() throws IOException {
+        _out.write(_buffer, 0, _length);
+        _length = 0;
+    }
+}
+
+/*
+ *  <SDG><
+ */
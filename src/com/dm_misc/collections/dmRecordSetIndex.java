@@ -0,0 +1,228 @@
+/**
+ * Hash index over a column of a dmRecordSet.
+ *
+ * (C) 2013 MS Roth
+ * <p/>
+ *
+ * @author M. Scott Roth, http://msroth.wordpress.com
+ * @version 1.3
+ */
+package com.dm_misc.collections;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+
+import com.documentum.fc.common.DfException;
+import com.documentum.fc.common.IDfAttr;
+import com.documentum.fc.common.IDfId;
+import com.documentum.fc.common.IDfTime;
+
+/**
+ * A dmRecordSetIndex maps the values of one column to the numbers of the
+ * rows that contain them. Every value of a repeating attribute is indexed.
+ * Keys are normalized by the column's data type (see keyOf()) so a value
+ * can be looked up as a String, Number, Boolean, IDfId, IDfTime or Date.
+ */
+class dmRecordSetIndex {
+
+    private static final int[] NO_ROWS = new int[0];
+
+    private int _col;
+    private int _dataType;
+    private boolean _unique;
+
+    /**
+     * Row numbers for each key. The first element of each array is the
+     * number of row numbers that follow it.
+     */
+    private HashMap<Object, int[]> _rows = new HashMap<Object, int[]>();
+
+    dmRecordSetIndex(int col, int dataType, boolean unique) {
+        _col = col;
+        _dataType = dataType;
+        _unique = unique;
+    }
+
+    boolean isUnique() {
+        return _unique;
+    }
+
+    /**
+     * Check that the values of a row can be added to a unique index.
+     *
+     * @exception DfException if the index is unique and a value is already
+     * indexed for another row
+     */
+    void check(dmRowStore store, int row) throws DfException {
+        if (!_unique) {
+            return;
+        }
+        int count = store.getValueCount(row, _col);
+        for (int i = 0; i < count; i++) {
+            int[] rows = _rows.get(readKey(store, row, i));
+            if (rows != null && rows[1] != row) {
+                throw new DfException(String.format("Value %s of %s is not unique (rows %d and %d).",
+                        store.getString(row, _col, i), store.getColumnDefs().get(_col).getName(), rows[1], row));
+            }
+        }
+    }
+
+    /**
+     * Add the values of a row to the index. Unique indexes must check() the
+     * row first.
+     */
+    void add(dmRowStore store, int row) throws DfException {
+        int count = store.getValueCount(row, _col);
+        for (int i = 0; i < count; i++) {
+            Object key = readKey(store, row, i);
+            int[] rows = _rows.get(key);
+            if (rows == null) {
+                rows = new int[]{1, row};
+                _rows.put(key, rows);
+                continue;
+            }
+
+            // rows are usually added in order; a changed row is inserted
+            int pos = (rows[rows[0]] < row ? -(rows[0] + 2) : Arrays.binarySearch(rows, 1, rows[0] + 1, row));
+            if (pos < 0) {
+                pos = -(pos + 1);
+                if (rows[0] + 1 == rows.length) {
+                    rows = Arrays.copyOf(rows, rows.length * 2);
+                    _rows.put(key, rows);
+                }
+                System.arraycopy(rows, pos, rows, pos + 1, rows[0] + 1 - pos);
+                rows[0]++;
+                rows[pos] = row;
+            }
+        }
+    }
+
+    /**
+     * Remove the values of a row from the index, before they are changed.
+     */
+    void remove(dmRowStore store, int row) throws DfException {
+        int count = store.getValueCount(row, _col);
+        for (int i = 0; i < count; i++) {
+            Object key = readKey(store, row, i);
+            int[] rows = _rows.get(key);
+            int pos = (rows == null ? -1 : Arrays.binarySearch(rows, 1, rows[0] + 1, row));
+            if (pos < 0) {
+                continue;
+            }
+            if (rows[0] == 1) {
+                _rows.remove(key);
+            } else {
+                System.arraycopy(rows, pos + 1, rows, pos, rows[0] - pos);
+                rows[0]--;
+            }
+        }
+    }
+
+    /**
+     * Return the numbers of the rows containing a value, in ascending order.
+     */
+    int[] find(Object value) throws DfException {
+        int[] rows = _rows.get(keyOf(_dataType, value));
+        if (rows == null) {
+            return NO_ROWS;
+        }
+        return Arrays.copyOfRange(rows, 1, rows[0] + 1);
+    }
+
+    /**
+     * Return the number of the first row containing a value, or -1.
+     */
+    int findFirst(Object value) throws DfException {
+        int[] rows = _rows.get(keyOf(_dataType, value));
+        return (rows == null ? -1 : rows[1]);
+    }
+
+    private Object readKey(dmRowStore store, int row, int index) throws DfException {
+        return readKey(store, row, _col, _dataType, index);
+    }
+
+    /**
+     * Read a value of a column as the key keyOf() would make of it.
+     */
+    static Object readKey(dmRowStore store, int row, int col, int dataType, int index) throws DfException {
+        switch (dataType) {
+            case IDfAttr.DM_BOOLEAN:
+                return store.getBoolean(row, col, index);
+            case IDfAttr.DM_INTEGER:
+                return store.getInt(row, col, index);
+            case IDfAttr.DM_DOUBLE:
+                return store.getDouble(row, col, index);
+            case IDfAttr.DM_TIME:
+                return store.getTime(row, col, index);
+            case IDfAttr.DM_ID:
+                return store.getId(row, col, index).toLowerCase();
+            default:
+                return store.getString(row, col, index);
+        }
+    }
+
+    /**
+     * Normalize a value to the key type used for a column data type:
+     * Boolean, Integer, Double, Long (epoch milliseconds) for TIME, lower
+     * case String for ID and String for STRING. Strings given for INTEGER,
+     * DOUBLE and TIME columns must parse; times in the format returned by
+     * getString().
+     *
+     * @exception DfException if a string cannot be parsed as the type
+     */
+    static Object keyOf(int dataType, Object value) throws DfException {
+        if (value == null) {
+            return null;
+        }
+        switch (dataType) {
+            case IDfAttr.DM_BOOLEAN:
+                if (value instanceof Boolean) {
+                    return value;
+                }
+                return dmRowStore.parseBoolean(value.toString());
+            case IDfAttr.DM_INTEGER:
+                if (value instanceof Number) {
+                    return ((Number) value).intValue();
+                }
+                try {
+                    return Integer.parseInt(value.toString().trim());
+                } catch (NumberFormatException e) {
+                    throw new DfException(String.format("'%s' is not an integer.", value));
+                }
+            case IDfAttr.DM_DOUBLE:
+                if (value instanceof Number) {
+                    return ((Number) value).doubleValue();
+                }
+                try {
+                    return Double.parseDouble(value.toString().trim());
+                } catch (NumberFormatException e) {
+                    throw new DfException(String.format("'%s' is not a number.", value));
+                }
+            case IDfAttr.DM_TIME:
+                if (value instanceof IDfTime) {
+                    return dmRowStore.toMillis((IDfTime) value);
+                } else if (value instanceof Date) {
+                    return ((Date) value).getTime();
+                } else if (value instanceof Number) {
+                    return ((Number) value).longValue();
+                }
+                try {
+                    return dmRowStore.parseTime(value.toString());
+                } catch (IllegalArgumentException e) {
+                    throw new DfException(e.getMessage());
+                }
+            case IDfAttr.DM_ID:
+                if (value instanceof IDfId) {
+                    return dmRowStore.toIdString((IDfId) value).toLowerCase();
+                }
+                return value.toString().toLowerCase();
+            default:
+                return value.toString();
+        }
+    }
+}
+
+/*
+ *  <SDG><
+ */
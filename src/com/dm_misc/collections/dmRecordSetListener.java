@@ -0,0 +1,74 @@
+/**
+ * Listener for dmRecordSet lifecycle events.
+ *
+ * (C) 2013 MS Roth
+ * <p/>
+ *
+ * Example use: <br/>
+ * <pre>
+ *     dmRecordSetMetrics.setEnabled(true);
+ *     dmRecordSetMetrics.addListener(new dmRecordSetListener() {
+ *         public void recordSetLoaded(dmRecordSetMetrics metrics, int rows, long nanos) {
+ *             if (nanos &gt; 5000000000L)
+ *                 System.out.println("slow load: " + rows + " rows in " + nanos / 1000000 + " ms");
+ *         }
+ *     });
+ * </pre>
+ *
+ * @author M. Scott Roth, http://msroth.wordpress.com
+ * @version 1.3
+ */
+package com.dm_misc.collections;
+
+/**
+ * A dmRecordSetListener is notified of events of record sets created while
+ * metrics are enabled (see dmRecordSetMetrics.addListener()). Methods are
+ * called on the thread that caused the event, after the record set's
+ * metrics have been updated, and should return quickly. Exceptions thrown
+ * by a listener are logged and otherwise ignored. All methods do nothing
+ * by default.
+ */
+public interface dmRecordSetListener {
+
+    /**
+     * Called when a record set has read the last row of its IDfCollection.
+     *
+     * @param metrics metrics of the record set
+     * @param rows number of rows read
+     * @param nanos time spent reading the rows, in nanoseconds
+     */
+    default void recordSetLoaded(dmRecordSetMetrics metrics, int rows, long nanos) {
+    }
+
+    /**
+     * Called when refresh() has brought a record set up to date.
+     *
+     * @param metrics metrics of the record set
+     * @param delta the rows added, updated and removed
+     */
+    default void recordSetRefreshed(dmRecordSetMetrics metrics, dmRecordSetDelta delta) {
+    }
+
+    /**
+     * Called when getRow(int) is asked for a row that does not exist or is
+     * no longer in the streaming window.
+     *
+     * @param metrics metrics of the record set
+     * @param rowNumber the row number requested
+     */
+    default void rowOutOfRange(dmRecordSetMetrics metrics, int rowNumber) {
+    }
+
+    /**
+     * Called when addRow() rejects a row whose columns do not match the
+     * record set.
+     *
+     * @param metrics metrics of the record set
+     */
+    default void rowRejected(dmRecordSetMetrics metrics) {
+    }
+}
+
+/*
+ *  <SDG><
+ */
@@ -0,0 +1,375 @@
+/**
+ * Parallel loader running several DQL queries into one dmRecordSet.
+ *
+ * (C) 2013 MS Roth
+ * <p/>
+ *
+ * Example use: <br/>
+ * <pre>
+ *     final IDfSessionManager sessionMgr = ...;
+ *     dmRecordSetLoader.SessionProvider sessions = new dmRecordSetLoader.SessionProvider() {
+ *         public IDfSession getSession() throws DfException {
+ *             return sessionMgr.getSession("repo1");
+ *         }
+ *         public void release(IDfSession session) {
+ *             sessionMgr.release(session);
+ *         }
+ *     };
+ *
+ *     // one query per i_partition, merged in r_object_id order
+ *     dmRecordSetLoader loader = new dmRecordSetLoader(sessions);
+ *     for (int p = 0; p &lt; 4; p++) {
+ *         loader.addQuery("select r_object_id, object_name from dm_document"
+ *                 + " where i_partition = " + p + " order by r_object_id");
+ *     }
+ *     dmRecordSet dmRS = loader.setMergeOrder("r_object_id").load();
+ * </pre>
+ *
+ * @author M. Scott Roth, http://msroth.wordpress.com
+ * @version 1.3
+ */
+package com.dm_misc.collections;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.documentum.fc.client.DfQuery;
+import com.documentum.fc.client.IDfCollection;
+import com.documentum.fc.client.IDfQuery;
+import com.documentum.fc.client.IDfSession;
+import com.documentum.fc.common.DfException;
+import com.documentum.fc.common.DfLogger;
+import com.documentum.fc.common.IDfAttr;
+
+/**
+ * A dmRecordSetLoader runs a set of DQL queries that return the same
+ * columns (e.g., one query per r_object_id range or i_partition)
+ * concurrently, each on its own session, and combines their rows into one
+ * dmRecordSet. The columns of each query are compared with the first
+ * query's once, instead of every row being checked as addRows() does.
+ *
+ * By default the rows are concatenated in the order the queries were
+ * added. With setMergeOrder(), the rows are merged with a k-way merge
+ * instead, which produces a sorted record set provided each query returns
+ * its rows in that order (i.e., has the matching ORDER BY clause). Rows
+ * that compare equal keep the order of their queries.
+ */
+public class dmRecordSetLoader {
+
+    /**
+     * Source of the sessions the queries are run on. getSession() is called
+     * once per query, from the thread running it, and each session is
+     * passed to release() when its query's rows have been read.
+     */
+    public interface SessionProvider {
+
+        IDfSession getSession() throws DfException;
+
+        void release(IDfSession session);
+    }
+
+    private static final AtomicInteger _threadNumber = new AtomicInteger();
+
+    private SessionProvider _sessions;
+    private dmRecordSetCache.QueryExecutor _executor = new dmRecordSetCache.QueryExecutor() {
+
+        public IDfCollection execute(IDfSession session, String dql) throws DfException {
+            IDfQuery q = new DfQuery();
+            q.setDQL(dql);
+            return q.execute(session, IDfQuery.DF_READ_QUERY);
+        }
+    };
+    private ArrayList<String> _queries = new ArrayList<String>();
+    private dmRecordSet.Storage _storage = dmRecordSet.Storage.OBJECTS;
+    private int _threads = 0;
+    private String[] _mergeOrder = null;
+
+    /**
+     * @param sessions source of sessions for the queries
+     */
+    public dmRecordSetLoader(SessionProvider sessions) {
+        _sessions = sessions;
+    }
+
+    /**
+     * Add a query. All queries must return the same columns, in the same
+     * order.
+     *
+     * @param dql DQL query
+     * @return this loader
+     *
+     */
+    public dmRecordSetLoader addQuery(String dql) {
+        _queries.add(dql);
+        return this;
+    }
+
+    /**
+     * Set how the rows of the record set are stored (default
+     * Storage.OBJECTS).
+     *
+     * @param storage how the rows are stored
+     * @return this loader
+     *
+     */
+    public dmRecordSetLoader setStorage(dmRecordSet.Storage storage) {
+        _storage = storage;
+        return this;
+    }
+
+    /**
+     * Set the number of queries run at the same time (default: all of
+     * them).
+     *
+     * @param threads maximum number of concurrent queries
+     * @return this loader
+     *
+     */
+    public dmRecordSetLoader setThreads(int threads) {
+        _threads = threads;
+        return this;
+    }
+
+    /**
+     * Merge the rows of the queries in sort order instead of concatenating
+     * them. The arguments are as for dmRecordSet.sortBy(), e.g.,
+     * "r_object_id" or "r_modify_date DESC"; each query must return its
+     * rows in the same order.
+     *
+     * @param orderings column names with optional ASC/DESC, or none to
+     * concatenate
+     * @return this loader
+     *
+     */
+    public dmRecordSetLoader setMergeOrder(String... orderings) {
+        _mergeOrder = (orderings == null || orderings.length == 0 ? null : orderings);
+        return this;
+    }
+
+    /**
+     * Replace the executor that runs the queries (default: a
+     * DfQuery.DF_READ_QUERY).
+     *
+     * @param executor query executor
+     * @return this loader
+     *
+     */
+    public dmRecordSetLoader setQueryExecutor(dmRecordSetCache.QueryExecutor executor) {
+        _executor = executor;
+        return this;
+    }
+
+    /**
+     * Run the queries and combine their rows. The method returns when all
+     * queries have been read. If a query fails, the others are cancelled
+     * and its exception is thrown.
+     *
+     * @return dmRecordSet with the rows of all queries
+     * @exception Exception if a query fails or returns different columns
+     * than the first query
+     *
+     */
+    public dmRecordSet load() throws Exception {
+        if (_queries.isEmpty()) {
+            throw new Exception("No queries to load.");
+        }
+
+        // run the queries
+        int threads = (_threads > 0 ? Math.min(_threads, _queries.size()) : _queries.size());
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "dmRecordSetLoader-" + _threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        List<Partition> partitions = new ArrayList<Partition>();
+        boolean loaded = false;
+        try {
+            try {
+                List<Future<Partition>> futures = new ArrayList<Future<Partition>>();
+                for (String dql : _queries) {
+                    futures.add(executor.submit(new Partition(dql)));
+                }
+                for (Future<Partition> future : futures) {
+                    partitions.add(await(future, futures));
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+            dmRecordSet rs = combine(partitions);
+            loaded = true;
+            return rs;
+        } finally {
+            if (!loaded) {
+                for (Partition partition : partitions) {
+                    partition.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Combine the rows of the queries into one record set.
+     */
+    private dmRecordSet combine(List<Partition> partitions) throws Exception {
+
+        // check the schemas once per query
+        dmRecordSetSchema schema = partitions.get(0)._schema;
+        for (int p = 1; p < partitions.size(); p++) {
+            if (!schema.matches(partitions.get(p)._schema)) {
+                throw new DfException(String.format("Query %d returns different columns than query 0: %s", p, _queries.get(p)));
+            }
+        }
+
+        // append the rows of the other queries to the first query's
+        dmRowStore rows = partitions.get(0)._store;
+        int[] starts = new int[partitions.size() + 1];
+        starts[1] = rows.size();
+        for (int p = 1; p < partitions.size(); p++) {
+            dmRowStore part = partitions.get(p)._store;
+            for (int i = 0; i < part.size(); i++) {
+                rows.add(part.getRow(i));
+            }
+            partitions.get(p).close();
+            starts[p + 1] = rows.size();
+        }
+        if (_mergeOrder == null || partitions.size() == 1) {
+            return new dmRecordSet(rows, false);
+        }
+
+        // merge the sorted runs into new storage
+        int[] order = merge(rows, starts);
+        dmRowStore store = dmRecordSet.newStore(_storage, schema);
+        for (int row : order) {
+            store.add(rows.getRow(row));
+        }
+        rows.close();
+        return new dmRecordSet(store, false);
+    }
+
+    /**
+     * K-way merge of the sorted runs rows[starts[p], starts[p + 1]).
+     *
+     * @return row numbers in merged order
+     */
+    private int[] merge(dmRowStore rows, int[] starts) throws DfException {
+        final dmRowOrdering ordering = dmRowOrdering.byColumns(rows, _mergeOrder);
+        final int[] heads = starts.clone();
+        int runs = starts.length - 1;
+        PriorityQueue<Integer> queue = new PriorityQueue<Integer>(Math.max(1, runs), (a, b) -> {
+            int c = ordering.compare(heads[a], heads[b]);
+            return (c != 0 ? c : Integer.compare(a, b));
+        });
+        for (int p = 0; p < runs; p++) {
+            if (heads[p] < starts[p + 1]) {
+                queue.add(p);
+            }
+        }
+        int[] order = new int[rows.size()];
+        int n = 0;
+        while (!queue.isEmpty()) {
+            int p = queue.poll();
+            order[n++] = heads[p]++;
+            if (heads[p] < starts[p + 1]) {
+                queue.add(p);
+            }
+        }
+        return order;
+    }
+
+    private Partition await(Future<Partition> future, List<Future<Partition>> futures) throws Exception {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancel(futures);
+            throw new DfException("Interrupted while loading the record set.");
+        } catch (ExecutionException e) {
+            cancel(futures);
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private void cancel(List<Future<Partition>> futures) {
+        for (Future<Partition> future : futures) {
+            future.cancel(true);
+        }
+    }
+
+    /**
+     * Rows and columns returned by one query. The rows are added to storage
+     * of the loader's type as they are read.
+     */
+    private class Partition implements Callable<Partition> {
+
+        private String _dql;
+        private dmRecordSetSchema _schema;
+        private dmRowStore _store;
+
+        Partition(String dql) {
+            _dql = dql;
+        }
+
+        public Partition call() throws Exception {
+            IDfSession session = _sessions.getSession();
+            IDfCollection col = null;
+            boolean read = false;
+            try {
+                col = _executor.execute(session, _dql);
+                ArrayList<IDfAttr> columnDefs = new ArrayList<IDfAttr>();
+                for (int i = 0; i < col.getAttrCount(); i++) {
+                    columnDefs.add(col.getAttr(i));
+                }
+                _schema = new dmRecordSetSchema(columnDefs);
+                _store = dmRecordSet.newStore(_storage, _schema);
+                while (col.next()) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        throw new DfException("Loading cancelled.");
+                    }
+                    _store.add(col.getTypedObject());
+                }
+                read = true;
+                return this;
+            } finally {
+                if (!read) {
+                    close();
+                }
+                if (col != null) {
+                    try {
+                        col.close();
+                    } catch (DfException e) {
+                        DfLogger.warn(dmRecordSetLoader.class, "Could not close IDfCollection: " + e.getMessage(), null, e);
+                    }
+                }
+                _sessions.release(session);
+            }
+        }
+
+        /**
+         * Free the rows (see dmOffHeapRowStore).
+         */
+        void close() {
+            if (_store != null) {
+                _store.close();
+                _store = null;
+            }
+        }
+    }
+}
+
+/*
+ *  <SDG><
+ */
@@ -0,0 +1,333 @@
+/**
+ * Runtime metrics of dmRecordSet loads and access.
+ *
+ * (C) 2013 MS Roth
+ * <p/>
+ *
+ * Example use: <br/>
+ * <pre>
+ *     // or start the JVM with -DdmRecordSet.metrics=true
+ *     dmRecordSetMetrics.setEnabled(true);
+ *     dmRecordSetMetrics.getGlobal().registerMBean();
+ *
+ *     dmRecordSet dmRS = new dmRecordSet(col);
+ *     dmRecordSetMetrics m = dmRS.getMetrics();
+ *     System.out.println(m.getRowsLoaded() + " rows at " + m.getRowsPerSecond() + " rows/s, ~"
+ *             + m.getEstimatedBytes() + " bytes");
+ *     System.out.println(dmRecordSetMetrics.getGlobal());
+ * </pre>
+ *
+ * @author M. Scott Roth, http://msroth.wordpress.com
+ * @version 1.3
+ */
+package com.dm_misc.collections;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.ObjectName;
+
+import com.documentum.fc.common.DfException;
+import com.documentum.fc.common.DfLogger;
+
+/**
+ * dmRecordSetMetrics counts, for one record set or for all record sets in
+ * the JVM (getGlobal()):
+ * <ul>
+ * <li>loads - collections read to the end</li>
+ * <li>rows loaded and the time spent reading them from the collections,
+ * and the resulting rows per second</li>
+ * <li>estimated bytes - the heap retained by the rows: for a record set,
+ * estimated from its rows when asked; for the global view, the sum of the
+ * estimates taken when each load finished</li>
+ * <li>navigation calls - rows visited with getNextRow(), getPreviousRow(),
+ * getRow(int), getFirstRow(), getLastRow() and their equivalents</li>
+ * <li>out of range errors - getRow(int) exceptions</li>
+ * <li>rejected rows - rows addRow() refused because their columns do not
+ * match</li>
+ * </ul>
+ * Metrics are disabled by default; enable them with setEnabled(true) or
+ * the system property dmRecordSet.metrics=true. Only record sets created
+ * while metrics are enabled are counted. Their getMetrics() returns their
+ * metrics; other record sets have none (null), and their only cost is a
+ * null check on navigation, getRow() errors and rejected rows.
+ *
+ * Each view can be registered as a standard MBean with registerMBean().
+ * Listeners added with addListener() are notified of loads, refreshes,
+ * out of range errors and rejected rows.
+ */
+public class dmRecordSetMetrics implements dmRecordSetMetricsMBean {
+
+    /** JMX domain and type of registered metrics. */
+    public static final String MBEAN_DOMAIN = "com.dm_misc.collections:type=dmRecordSetMetrics";
+
+    private static volatile boolean _enabled = Boolean.getBoolean("dmRecordSet.metrics");
+    private static final CopyOnWriteArrayList<dmRecordSetListener> _listeners = new CopyOnWriteArrayList<dmRecordSetListener>();
+    private static final AtomicLong _instanceNumber = new AtomicLong();
+    private static final dmRecordSetMetrics _global = new dmRecordSetMetrics(null, "global");
+
+    private dmRecordSet _recordSet;
+    private String _name;
+    private ObjectName _mbeanName = null;
+    private LongAdder _loads = new LongAdder();
+    private LongAdder _rowsLoaded = new LongAdder();
+    private LongAdder _loadNanos = new LongAdder();
+    private LongAdder _loadedBytes = new LongAdder();
+    private LongAdder _navigationCalls = new LongAdder();
+    private LongAdder _outOfRange = new LongAdder();
+    private LongAdder _rejectedRows = new LongAdder();
+
+    private dmRecordSetMetrics(dmRecordSet recordSet, String name) {
+        _recordSet = recordSet;
+        _name = name;
+    }
+
+    /**
+     * Return new metrics for a record set, or null if metrics are disabled.
+     */
+    static dmRecordSetMetrics newInstance(dmRecordSet recordSet) {
+        if (!_enabled) {
+            return null;
+        }
+        return new dmRecordSetMetrics(recordSet, "recordSet-" + _instanceNumber.incrementAndGet());
+    }
+
+    /**
+     * Enable or disable metrics for record sets created from now on.
+     * Record sets already created keep counting, or not counting.
+     *
+     * @param enabled true to collect metrics
+     *
+     */
+    public static void setEnabled(boolean enabled) {
+        _enabled = enabled;
+    }
+
+    public static boolean isEnabled() {
+        return _enabled;
+    }
+
+    /**
+     * Return the metrics of all record sets created while metrics were
+     * enabled.
+     *
+     * @return dmRecordSetMetrics aggregate of all record sets
+     *
+     */
+    public static dmRecordSetMetrics getGlobal() {
+        return _global;
+    }
+
+    /**
+     * Add a listener for the events of record sets created while metrics are
+     * enabled.
+     *
+     * @param listener listener to add
+     *
+     */
+    public static void addListener(dmRecordSetListener listener) {
+        _listeners.add(listener);
+    }
+
+    public static void removeListener(dmRecordSetListener listener) {
+        _listeners.remove(listener);
+    }
+
+    /**
+     * Register these metrics with the platform MBean server, as
+     * "com.dm_misc.collections:type=dmRecordSetMetrics,name=global" for the
+     * global view or "...,name=recordSet-&lt;n&gt;" for a record set.
+     *
+     * @return ObjectName the metrics are registered under
+     * @exception Exception if the MBean cannot be registered
+     *
+     */
+    public synchronized ObjectName registerMBean() throws Exception {
+        if (_mbeanName == null) {
+            ObjectName name = new ObjectName(MBEAN_DOMAIN + ",name=" + _name);
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+            _mbeanName = name;
+        }
+        return _mbeanName;
+    }
+
+    /**
+     * Unregister these metrics from the platform MBean server, if
+     * registered.
+     *
+     * @exception Exception if the MBean cannot be unregistered
+     *
+     */
+    public synchronized void unregisterMBean() throws Exception {
+        if (_mbeanName != null) {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(_mbeanName);
+            _mbeanName = null;
+        }
+    }
+
+    /**
+     * Return the name of these metrics: "global" or "recordSet-&lt;n&gt;".
+     *
+     * @return String name
+     *
+     */
+    public String getName() {
+        return _name;
+    }
+
+    /**
+     * Return the number of collections read to the end.
+     *
+     * @return long number of loads
+     *
+     */
+    public long getLoads() {
+        return _loads.sum();
+    }
+
+    public long getRowsLoaded() {
+        return _rowsLoaded.sum();
+    }
+
+    /**
+     * Return the time spent reading rows from collections. For a streaming
+     * record set this is the time spent in IDfCollection.next(); for
+     * loadAsync() it is the time taken by the loader thread.
+     *
+     * @return long milliseconds
+     *
+     */
+    public long getLoadTimeMillis() {
+        return _loadNanos.sum() / 1000000;
+    }
+
+    /**
+     * Return the rows loaded per second of load time.
+     *
+     * @return double rows per second, 0 before the first load
+     *
+     */
+    public double getRowsPerSecond() {
+        long nanos = _loadNanos.sum();
+        return (nanos == 0 ? 0 : _rowsLoaded.sum() * 1e9 / nanos);
+    }
+
+    /**
+     * Return the estimated heap retained by the rows. For a record set this
+     * is estimated from its rows now; rows of memory-mapped record sets are
+     * not on the heap and are not counted. For the global view it is the
+     * sum of the estimates taken at the end of each load.
+     *
+     * @return long estimated bytes
+     *
+     */
+    public long getEstimatedBytes() {
+        if (_recordSet == null) {
+            return _loadedBytes.sum();
+        }
+        try {
+            return _recordSet.estimateBytes();
+        } catch (DfException e) {
+            DfLogger.warn(dmRecordSetMetrics.class, "Could not estimate record set size: " + e.getMessage(), null, e);
+            return 0;
+        }
+    }
+
+    public long getNavigationCalls() {
+        return _navigationCalls.sum();
+    }
+
+    public long getOutOfRangeErrors() {
+        return _outOfRange.sum();
+    }
+
+    public long getRejectedRows() {
+        return _rejectedRows.sum();
+    }
+
+    /**
+     * Set all counts to 0.
+     *
+     */
+    public void reset() {
+        _loads.reset();
+        _rowsLoaded.reset();
+        _loadNanos.reset();
+        _loadedBytes.reset();
+        _navigationCalls.reset();
+        _outOfRange.reset();
+        _rejectedRows.reset();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: loads=%d, rows=%d, loadTime=%dms, rows/s=%.0f, bytes~%d, navigation=%d, outOfRange=%d, rejected=%d",
+                _name, getLoads(), getRowsLoaded(), getLoadTimeMillis(), getRowsPerSecond(), getEstimatedBytes(),
+                getNavigationCalls(), getOutOfRangeErrors(), getRejectedRows());
+    }
+
+    /**
+     * Record the end of a load.
+     */
+    void loaded(int rows, long nanos) {
+        _loads.increment();
+        _rowsLoaded.add(rows);
+        _loadNanos.add(nanos);
+        _global._loads.increment();
+        _global._rowsLoaded.add(rows);
+        _global._loadNanos.add(nanos);
+        _global._loadedBytes.add(getEstimatedBytes());
+        for (dmRecordSetListener listener : _listeners) {
+            try {
+                listener.recordSetLoaded(this, rows, nanos);
+            } catch (RuntimeException e) {
+                DfLogger.warn(dmRecordSetMetrics.class, "dmRecordSetListener failed: " + e.getMessage(), null, e);
+            }
+        }
+    }
+
+    void refreshed(dmRecordSetDelta delta) {
+        for (dmRecordSetListener listener : _listeners) {
+            try {
+                listener.recordSetRefreshed(this, delta);
+            } catch (RuntimeException e) {
+                DfLogger.warn(dmRecordSetMetrics.class, "dmRecordSetListener failed: " + e.getMessage(), null, e);
+            }
+        }
+    }
+
+    void navigated() {
+        _navigationCalls.increment();
+        _global._navigationCalls.increment();
+    }
+
+    void outOfRange(int rowNumber) {
+        _outOfRange.increment();
+        _global._outOfRange.increment();
+        for (dmRecordSetListener listener : _listeners) {
+            try {
+                listener.rowOutOfRange(this, rowNumber);
+            } catch (RuntimeException e) {
+                DfLogger.warn(dmRecordSetMetrics.class, "dmRecordSetListener failed: " + e.getMessage(), null, e);
+            }
+        }
+    }
+
+    void rejected() {
+        _rejectedRows.increment();
+        _global._rejectedRows.increment();
+        for (dmRecordSetListener listener : _listeners) {
+            try {
+                listener.rowRejected(this);
+            } catch (RuntimeException e) {
+                DfLogger.warn(dmRecordSetMetrics.class, "dmRecordSetListener failed: " + e.getMessage(), null, e);
+            }
+        }
+    }
+}
+
+/*
+ *  <SDG><
+ */
@@ -0,0 +1,39 @@
+/**
+ * JMX management interface of dmRecordSetMetrics.
+ *
+ * (C) 2013 MS Roth
+ * <p/>
+ *
+ * @author M. Scott Roth, http://msroth.wordpress.com
+ * @version 1.3
+ */
+package com.dm_misc.collections;
+
+/**
+ * The attributes and operations dmRecordSetMetrics exposes as a standard
+ * MBean. See dmRecordSetMetrics for the meaning of each value.
+ */
+public interface dmRecordSetMetricsMBean {
+
+    long getLoads();
+
+    long getRowsLoaded();
+
+    long getLoadTimeMillis();
+
+    double getRowsPerSecond();
+
+    long getEstimatedBytes();
+
+    long getNavigationCalls();
+
+    long getOutOfRangeErrors();
+
+    long getRejectedRows();
+
+    void reset();
+}
+
+/*
+ *  <SDG><
+ */
@@ -0,0 +1,222 @@
+/**
+ * The column layout of a dmRecordSet.
+ *
+ * (C) 2013 MS Roth
+ * <p/>
+ *
+ * @author M. Scott Roth, http://msroth.wordpress.com
+ * @version 1.3
+ */
+package com.dm_misc.collections;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Locale;
+
+import com.documentum.fc.client.IDfTypedObject;
+import com.documentum.fc.common.DfException;
+import com.documentum.fc.common.IDfAttr;
+
+/**
+ * The dmRecordSetSchema holds the ordered column definitions of a record
+ * set, a case insensitive column name to column number map, and a
+ * fingerprint of the column names. It is used to resolve column names once
+ * instead of on every value access and to check that rows added to a
+ * record set have the record set's columns.
+ */
+public final class dmRecordSetSchema {
+
+    private ArrayList<IDfAttr> _columnDefs;
+    private String[] _names;
+    private HashMap<String, Integer> _index = new HashMap<String, Integer>();
+    private long _fingerprint;
+
+    /**
+     * Create a schema from a list of column definitions.
+     *
+     * @param columnDefs IDfAttr for each column, in order
+     *
+     */
+    public dmRecordSetSchema(ArrayList<IDfAttr> columnDefs) {
+        _columnDefs = columnDefs;
+        _names = new String[columnDefs.size()];
+
+        /**
+         * The fingerprint is a 64 bit FNV-1a hash of the lower case column
+         * names, each followed by a separator so that columns "ab","c" and
+         * "a","bc" do not produce the same value.
+         */
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < _names.length; i++) {
+            _names[i] = columnDefs.get(i).getName();
+            String key = _names[i].toLowerCase(Locale.ENGLISH);
+            if (!_index.containsKey(key)) {
+                _index.put(key, i);
+            }
+            for (int j = 0; j < key.length(); j++) {
+                hash ^= key.charAt(j);
+                hash *= 0x100000001b3L;
+            }
+            hash ^= 0xff;
+            hash *= 0x100000001b3L;
+        }
+        _fingerprint = hash;
+    }
+
+    /**
+     * Return the column definitions of the schema.
+     *
+     * @return ArrayList<IDfAttr>
+     *
+     */
+    public ArrayList<IDfAttr> getColumnDefs() {
+        return _columnDefs;
+    }
+
+    /**
+     * Return the number of columns in the schema.
+     *
+     * @return int column count
+     *
+     */
+    public int getColumnCount() {
+        return _names.length;
+    }
+
+    /**
+     * Return the name of a column.
+     *
+     * @param columnNumber column number
+     * @return String column name
+     *
+     */
+    public String getColumnName(int columnNumber) {
+        return _names[columnNumber];
+    }
+
+    /**
+     * Return the number of the column with the given name. Column names are
+     * not case sensitive.
+     *
+     * @param name column name
+     * @return int column number, or -1 if the schema has no such column
+     *
+     */
+    public int indexOf(String name) {
+        Integer i = _index.get(name.toLowerCase(Locale.ENGLISH));
+        return (i != null ? i : -1);
+    }
+
+    /**
+     * Return the fingerprint of the column names. Schemas with the same
+     * column names (in the same order) have the same fingerprint.
+     *
+     * @return long fingerprint
+     *
+     */
+    public long getFingerprint() {
+        return _fingerprint;
+    }
+
+    /**
+     * Indicates if a row has the columns of this schema, in order. The
+     * column names of the row are compared in place without building any
+     * strings; rows handed out by a record set with this schema are
+     * accepted without looking at their columns.
+     *
+     * @param row IDfTypedObject to check
+     * @return true, if the row's columns match the schema, else false.
+     * @exception DfException
+     *
+     */
+    public boolean matches(IDfTypedObject row) throws DfException {
+        dmRecordSetSchema rowSchema = dmRowProxy.getSchema(row);
+        if (rowSchema != null) {
+            return matches(rowSchema);
+        }
+        if (row.getAttrCount() != _names.length) {
+            return false;
+        }
+        for (int i = 0; i < _names.length; i++) {
+            if (!_names[i].equalsIgnoreCase(row.getAttr(i).getName())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Create a column definition for a computed column, such as the result
+     * of an aggregate or a renamed join column. The IDfAttr returned
+     * supports getName(), getDataType(), isRepeating(), getLength() and
+     * isQualifiable().
+     *
+     * @param name column name
+     * @param dataType IDfAttr data type (IDfAttr.DM_STRING, ...)
+     * @param repeating true for a repeating attribute
+     * @return IDfAttr column definition
+     *
+     */
+    public static IDfAttr newAttr(String name, int dataType, boolean repeating) {
+        return newAttr(name, dataType, repeating, 0);
+    }
+
+    /**
+     * Create a column definition with a length, e.g., for a column read
+     * back from a file.
+     */
+    static IDfAttr newAttr(final String name, final int dataType, final boolean repeating, final int length) {
+        return (IDfAttr) Proxy.newProxyInstance(IDfAttr.class.getClassLoader(), new Class<?>[]{IDfAttr.class},
+                new InvocationHandler() {
+
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                String m = method.getName();
+                if (m.equals("getName") || m.equals("toString")) {
+                    return name;
+                } else if (m.equals("getDataType")) {
+                    return dataType;
+                } else if (m.equals("isRepeating")) {
+                    return repeating;
+                } else if (m.equals("getLength") || m.equals("getAllowedLength")) {
+                    return length;
+                } else if (m.equals("isQualifiable")) {
+                    return false;
+                } else if (m.equals("equals")) {
+                    return proxy == args[0];
+                } else if (m.equals("hashCode")) {
+                    return System.identityHashCode(proxy);
+                }
+                throw new UnsupportedOperationException(String.format("%s() is not supported by computed columns.", m));
+            }
+        });
+    }
+
+    /**
+     * Indicates if another schema has the same column names, in order.
+     *
+     * @param other schema to compare
+     * @return true, if the schemas match, else false.
+     *
+     */
+    public boolean matches(dmRecordSetSchema other) {
+        if (other == this) {
+            return true;
+        }
+        if (other._fingerprint != _fingerprint || other._names.length != _names.length) {
+            return false;
+        }
+        for (int i = 0; i < _names.length; i++) {
+            if (!_names[i].equalsIgnoreCase(other._names[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
+
+/*
+ *  <SDG><
+ */
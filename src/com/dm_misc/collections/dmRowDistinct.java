@@ -0,0 +1,257 @@
+/**
+ * Removal of duplicate rows of a dmRowStore.
+ *
+ * (C) 2013 MS Roth
+ * <p/>
+ *
+ * @author M. Scott Roth, http://msroth.wordpress.com
+ * @version 1.3
+ */
+package com.dm_misc.collections;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import com.documentum.fc.common.DfException;
+import com.documentum.fc.common.IDfAttr;
+
+/**
+ * A dmRowDistinct finds the first row of each distinct combination of
+ * values of a set of columns. All values of repeating attributes are
+ * compared, in order. Values are compared by type as findRows() compares
+ * them: object ids ignore case, times compare by millisecond.
+ *
+ * Each row is hashed once from its typed values. Rows are then split into
+ * partitions by hash, and each partition is deduplicated with an open
+ * addressing table of row numbers, comparing the values of two rows only
+ * when their hashes are equal. Large stores hash and deduplicate their
+ * partitions in parallel on the ForkJoin common pool.
+ */
+final class dmRowDistinct {
+
+    private dmRowStore _store;
+    private int[] _cols;
+    private int[] _dataTypes;
+    private long[] _hashes;
+
+    private dmRowDistinct(dmRowStore store, int[] cols) {
+        _store = store;
+        _cols = cols;
+        _dataTypes = new int[cols.length];
+        for (int c = 0; c < cols.length; c++) {
+            _dataTypes[c] = store.getColumnDefs().get(cols[c]).getDataType();
+        }
+    }
+
+    /**
+     * Return the numbers of the first row of each distinct combination of
+     * values of the columns, in ascending order.
+     */
+    static int[] distinctRows(dmRowStore store, int[] cols) throws DfException {
+        return new dmRowDistinct(store, cols).run();
+    }
+
+    private int[] run() throws DfException {
+        int size = _store.size();
+        _hashes = new long[size];
+        boolean parallel = (size >= dmRowOrdering.PARALLEL_THRESHOLD);
+        int tasks = (parallel ? ForkJoinPool.commonPool().getParallelism() * 4 : 1);
+
+        // hash every row
+        List<Callable<Void>> hashTasks = new ArrayList<Callable<Void>>();
+        for (int t = 0; t < tasks; t++) {
+            final int from = (int) ((long) size * t / tasks);
+            final int to = (int) ((long) size * (t + 1) / tasks);
+            hashTasks.add(() -> {
+                for (int row = from; row < to; row++) {
+                    _hashes[row] = hash(row);
+                }
+                return null;
+            });
+        }
+        invoke(hashTasks);
+
+        // split the row numbers into partitions by the high bits of their
+        // hashes, keeping them in ascending order within each partition
+        int bits = (parallel ? 32 - Integer.numberOfLeadingZeros(tasks - 1) : 0);
+        int partitions = 1 << bits;
+        int[] starts = new int[partitions + 1];
+        for (int row = 0; row < size; row++) {
+            starts[partition(row, bits) + 1]++;
+        }
+        for (int p = 0; p < partitions; p++) {
+            starts[p + 1] += starts[p];
+        }
+        int[] rows = new int[size];
+        int[] next = starts.clone();
+        for (int row = 0; row < size; row++) {
+            rows[next[partition(row, bits)]++] = row;
+        }
+
+        // deduplicate each partition; the first row of each value is kept
+        final boolean[] keep = new boolean[size];
+        List<Callable<Void>> dedupTasks = new ArrayList<Callable<Void>>();
+        for (int p = 0; p < partitions; p++) {
+            final int from = starts[p];
+            final int to = starts[p + 1];
+            dedupTasks.add(() -> {
+                deduplicate(rows, from, to, keep);
+                return null;
+            });
+        }
+        invoke(dedupTasks);
+
+        int count = 0;
+        for (int row = 0; row < size; row++) {
+            if (keep[row]) {
+                rows[count++] = row;
+            }
+        }
+        return Arrays.copyOf(rows, count);
+    }
+
+    private int partition(int row, int bits) {
+        return (bits == 0 ? 0 : (int) (_hashes[row] >>> (64 - bits)));
+    }
+
+    /**
+     * Mark the first row of each distinct value among rows[from, to).
+     */
+    private void deduplicate(int[] rows, int from, int to, boolean[] keep) throws DfException {
+        int capacity = Integer.highestOneBit(Math.max(2, (to - from) * 2 - 1)) << 1;
+        int mask = capacity - 1;
+
+        // slots hold row number + 1; 0 is an empty slot
+        int[] table = new int[capacity];
+        for (int i = from; i < to; i++) {
+            int row = rows[i];
+            long hash = _hashes[row];
+            int slot = (int) hash & mask;
+            while (true) {
+                int other = table[slot] - 1;
+                if (other < 0) {
+                    table[slot] = row + 1;
+                    keep[row] = true;
+                    break;
+                }
+                if (_hashes[other] == hash && equal(row, other)) {
+                    break;
+                }
+                slot = (slot + 1) & mask;
+            }
+        }
+    }
+
+    private long hash(int row) throws DfException {
+        long h = 1;
+        for (int c = 0; c < _cols.length; c++) {
+            int col = _cols[c];
+            int count = _store.getValueCount(row, col);
+            h = h * 31 + count;
+            for (int i = 0; i < count; i++) {
+                long v;
+                switch (_dataTypes[c]) {
+                    case IDfAttr.DM_BOOLEAN:
+                        v = (_store.getBoolean(row, col, i) ? 1 : 0);
+                        break;
+                    case IDfAttr.DM_INTEGER:
+                        v = _store.getInt(row, col, i);
+                        break;
+                    case IDfAttr.DM_DOUBLE:
+                        v = Double.doubleToLongBits(_store.getDouble(row, col, i));
+                        break;
+                    case IDfAttr.DM_TIME:
+                        v = _store.getTime(row, col, i);
+                        break;
+                    case IDfAttr.DM_ID:
+                        v = _store.getId(row, col, i).toLowerCase().hashCode();
+                        break;
+                    default:
+                        v = _store.getString(row, col, i).hashCode();
+                }
+                h = h * 31 + v;
+            }
+        }
+
+        // spread the bits, so both the low bits (slots) and the high bits
+        // (partitions) vary
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private boolean equal(int rowA, int rowB) throws DfException {
+        for (int c = 0; c < _cols.length; c++) {
+            int col = _cols[c];
+            int count = _store.getValueCount(rowA, col);
+            if (count != _store.getValueCount(rowB, col)) {
+                return false;
+            }
+            for (int i = 0; i < count; i++) {
+                boolean equal;
+                switch (_dataTypes[c]) {
+                    case IDfAttr.DM_BOOLEAN:
+                        equal = (_store.getBoolean(rowA, col, i) == _store.getBoolean(rowB, col, i));
+                        break;
+                    case IDfAttr.DM_INTEGER:
+                        equal = (_store.getInt(rowA, col, i) == _store.getInt(rowB, col, i));
+                        break;
+                    case IDfAttr.DM_DOUBLE:
+                        equal = (Double.doubleToLongBits(_store.getDouble(rowA, col, i))
+                                == Double.doubleToLongBits(_store.getDouble(rowB, col, i)));
+                        break;
+                    case IDfAttr.DM_TIME:
+                        equal = (_store.getTime(rowA, col, i) == _store.getTime(rowB, col, i));
+                        break;
+                    case IDfAttr.DM_ID:
+                        equal = _store.getId(rowA, col, i).equalsIgnoreCase(_store.getId(rowB, col, i));
+                        break;
+                    default:
+                        equal = _store.getString(rowA, col, i).equals(_store.getString(rowB, col, i));
+                }
+                if (!equal) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static void invoke(List<Callable<Void>> tasks) throws DfException {
+        if (tasks.size() == 1) {
+            try {
+                tasks.get(0).call();
+                return;
+            } catch (DfException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+        for (Future<Void> future : ForkJoinPool.commonPool().invokeAll(tasks)) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new DfException("Interrupted while removing duplicate rows.");
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof DfException) {
+                    throw (DfException) e.getCause();
+                }
+                throw new RuntimeException(e.getCause());
+            }
+        }
+    }
+}
+
+/*
+ *  <SDG><
+ */
@@ -0,0 +1,320 @@
+/**
+ * Ordering of the rows of a dmRowStore.
+ *
+ * (C) 2013 MS Roth
+ * <p/>
+ *
+ * @author M. Scott Roth, http://msroth.wordpress.com
+ * @version 1.3
+ */
+package com.dm_misc.collections;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.documentum.fc.client.IDfTypedObject;
+import com.documentum.fc.common.DfException;
+import com.documentum.fc.common.IDfAttr;
+
+/**
+ * A dmRowOrdering compares rows of a store by row number and sorts arrays
+ * of row numbers with a stable merge sort. The sort never moves rows; it
+ * produces a permutation of row numbers. Large arrays are sorted in
+ * parallel on the ForkJoin common pool.
+ *
+ * byColumns() orders rows by column values, like a DQL ORDER BY clause.
+ * The sort keys are read once per row into primitive arrays selected by
+ * the column's data type, so comparisons do not touch the store.
+ */
+abstract class dmRowOrdering {
+
+    /** Arrays with at least this many rows are sorted in parallel. */
+    static final int PARALLEL_THRESHOLD = 100000;
+
+    /** Size below which the parallel sort stops splitting. */
+    private static final int PARALLEL_GRAIN = 8192;
+
+    /**
+     * Compare two rows by row number.
+     */
+    abstract int compare(int rowA, int rowB);
+
+    /**
+     * Create an ordering from sort specifications of the form
+     * "column [ASC|DESC]". Keys are read for rows 0 to size() - 1 of the
+     * store. For repeating attributes the first value is used; rows with no
+     * values sort first.
+     *
+     * @exception DfException if a column does not exist or a specification
+     * cannot be parsed
+     */
+    static dmRowOrdering byColumns(dmRowStore store, String... orderings) throws DfException {
+        if (orderings == null || orderings.length == 0) {
+            throw new DfException("No sort columns given.");
+        }
+        Key[] keys = new Key[orderings.length];
+        for (int i = 0; i < orderings.length; i++) {
+            String[] parts = orderings[i].trim().split("\\s+");
+            int col = store.findColumn(parts[0]);
+            if (col < 0) {
+                throw new DfException(String.format("Column %s does not exist in the record set.", parts[0]));
+            }
+            boolean descending = false;
+            if (parts.length == 2 && parts[1].equalsIgnoreCase("DESC")) {
+                descending = true;
+            } else if (parts.length > 2 || (parts.length == 2 && !parts[1].equalsIgnoreCase("ASC"))) {
+                throw new DfException(String.format("Cannot parse sort order '%s'.", orderings[i]));
+            }
+            keys[i] = new Key(store, col, descending);
+        }
+        return new ColumnOrdering(keys);
+    }
+
+    /**
+     * Create an ordering from a Comparator of IDfTypedObjects.
+     */
+    static dmRowOrdering byComparator(final dmRowStore store, final Comparator<? super IDfTypedObject> comparator) {
+        return new dmRowOrdering() {
+
+            int compare(int rowA, int rowB) {
+                return comparator.compare(store.getRow(rowA), store.getRow(rowB));
+            }
+        };
+    }
+
+    /**
+     * Sort an array of row numbers in place.
+     */
+    void sort(int[] rows) {
+        int[] src = rows.clone();
+        if (rows.length >= PARALLEL_THRESHOLD) {
+            ForkJoinPool.commonPool().invoke(new SortTask(src, rows, 0, rows.length));
+        } else {
+            mergeSort(src, rows, 0, rows.length);
+        }
+    }
+
+    /**
+     * Return the first n of rows 0 to rowCount - 1 in sorted order, as
+     * sort() would order them, keeping only n row numbers in a heap instead
+     * of sorting all rows.
+     */
+    int[] top(int rowCount, int n) {
+        int size = Math.min(Math.max(n, 0), rowCount);
+        int[] heap = new int[size];
+        if (size == 0) {
+            return heap;
+        }
+
+        // max-heap with the row that would sort last at the root; equal
+        // rows sort by row number, as the stable sort leaves them
+        for (int row = 0; row < rowCount; row++) {
+            if (row < size) {
+                heap[row] = row;
+                for (int i = row; i > 0 && after(heap[i], heap[(i - 1) / 2]); i = (i - 1) / 2) {
+                    int t = heap[i];
+                    heap[i] = heap[(i - 1) / 2];
+                    heap[(i - 1) / 2] = t;
+                }
+            } else if (compare(row, heap[0]) < 0) {
+                heap[0] = row;
+                int i = 0;
+                while (true) {
+                    int largest = i;
+                    int left = 2 * i + 1;
+                    int right = left + 1;
+                    if (left < size && after(heap[left], heap[largest])) {
+                        largest = left;
+                    }
+                    if (right < size && after(heap[right], heap[largest])) {
+                        largest = right;
+                    }
+                    if (largest == i) {
+                        break;
+                    }
+                    int t = heap[i];
+                    heap[i] = heap[largest];
+                    heap[largest] = t;
+                    i = largest;
+                }
+            }
+        }
+        Arrays.sort(heap);
+        sort(heap);
+        return heap;
+    }
+
+    /**
+     * Indicates if rowA sorts after rowB, taking the row number into
+     * account for equal rows.
+     */
+    private boolean after(int rowA, int rowB) {
+        int c = compare(rowA, rowB);
+        return (c > 0 || (c == 0 && rowA > rowB));
+    }
+
+    /**
+     * Sort dest[low..high) using src as scratch space. Both arrays must hold
+     * the same values on entry.
+     */
+    private void mergeSort(int[] src, int[] dest, int low, int high) {
+        int length = high - low;
+        if (length < 7) {
+            for (int i = low; i < high; i++) {
+                for (int j = i; j > low && compare(dest[j - 1], dest[j]) > 0; j--) {
+                    int t = dest[j];
+                    dest[j] = dest[j - 1];
+                    dest[j - 1] = t;
+                }
+            }
+            return;
+        }
+        int mid = (low + high) >>> 1;
+        mergeSort(dest, src, low, mid);
+        mergeSort(dest, src, mid, high);
+        merge(src, dest, low, mid, high);
+    }
+
+    /**
+     * Merge the sorted runs src[low..mid) and src[mid..high) into dest.
+     */
+    private void merge(int[] src, int[] dest, int low, int mid, int high) {
+        if (compare(src[mid - 1], src[mid]) <= 0) {
+            System.arraycopy(src, low, dest, low, high - low);
+            return;
+        }
+        for (int i = low, p = low, q = mid; i < high; i++) {
+            if (q >= high || (p < mid && compare(src[p], src[q]) <= 0)) {
+                dest[i] = src[p++];
+            } else {
+                dest[i] = src[q++];
+            }
+        }
+    }
+
+    /**
+     * Parallel version of mergeSort(). The halves write to disjoint ranges
+     * of the arrays and are sorted concurrently.
+     */
+    private class SortTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+        private int[] _src;
+        private int[] _dest;
+        private int _low;
+        private int _high;
+
+        SortTask(int[] src, int[] dest, int low, int high) {
+            _src = src;
+            _dest = dest;
+            _low = low;
+            _high = high;
+        }
+
+        protected void compute() {
+            if (_high - _low <= PARALLEL_GRAIN) {
+                mergeSort(_src, _dest, _low, _high);
+                return;
+            }
+            int mid = (_low + _high) >>> 1;
+            invokeAll(new SortTask(_dest, _src, _low, mid), new SortTask(_dest, _src, mid, _high));
+            merge(_src, _dest, _low, mid, _high);
+        }
+    }
+
+    /**
+     * Sort key of one column, read into an array matching its data type.
+     */
+    private static final class Key {
+
+        private int _type;
+        private boolean _descending;
+        private int[] _ints;
+        private long[] _longs;
+        private double[] _doubles;
+        private String[] _strings;
+
+        Key(dmRowStore store, int col, boolean descending) throws DfException {
+            _type = store.getColumnDefs().get(col).getDataType();
+            _descending = descending;
+            int n = store.size();
+            switch (_type) {
+                case IDfAttr.DM_BOOLEAN:
+                case IDfAttr.DM_INTEGER:
+                    _ints = new int[n];
+                    for (int i = 0; i < n; i++) {
+                        if (store.getValueCount(i, col) == 0) {
+                            _ints[i] = Integer.MIN_VALUE;
+                        } else if (_type == IDfAttr.DM_BOOLEAN) {
+                            _ints[i] = (store.getBoolean(i, col, 0) ? 1 : 0);
+                        } else {
+                            _ints[i] = store.getInt(i, col, 0);
+                        }
+                    }
+                    break;
+                case IDfAttr.DM_TIME:
+                    _longs = new long[n];
+                    for (int i = 0; i < n; i++) {
+                        _longs[i] = (store.getValueCount(i, col) == 0 ? dmRowStore.NULL_TIME : store.getTime(i, col, 0));
+                    }
+                    break;
+                case IDfAttr.DM_DOUBLE:
+                    _doubles = new double[n];
+                    for (int i = 0; i < n; i++) {
+                        _doubles[i] = (store.getValueCount(i, col) == 0 ? Double.NEGATIVE_INFINITY : store.getDouble(i, col, 0));
+                    }
+                    break;
+                case IDfAttr.DM_ID:
+                    _strings = new String[n];
+                    for (int i = 0; i < n; i++) {
+                        _strings[i] = (store.getValueCount(i, col) == 0 ? "" : store.getId(i, col, 0));
+                    }
+                    break;
+                default:
+                    _strings = new String[n];
+                    for (int i = 0; i < n; i++) {
+                        _strings[i] = (store.getValueCount(i, col) == 0 ? "" : store.getString(i, col, 0));
+                    }
+            }
+        }
+
+        int compare(int rowA, int rowB) {
+            int c;
+            if (_ints != null) {
+                c = Integer.compare(_ints[rowA], _ints[rowB]);
+            } else if (_longs != null) {
+                c = Long.compare(_longs[rowA], _longs[rowB]);
+            } else if (_doubles != null) {
+                c = Double.compare(_doubles[rowA], _doubles[rowB]);
+            } else {
+                c = _strings[rowA].compareTo(_strings[rowB]);
+            }
+            return (_descending ? -c : c);
+        }
+    }
+
+    private static final class ColumnOrdering extends dmRowOrdering {
+
+        private Key[] _keys;
+
+        ColumnOrdering(Key[] keys) {
+            _keys = keys;
+        }
+
+        int compare(int rowA, int rowB) {
+            for (Key key : _keys) {
+                int c = key.compare(rowA, rowB);
+                if (c != 0) {
+                    return c;
+                }
+            }
+            return 0;
+        }
+    }
+}
+
+/*
+ *  <SDG><
+ */
@@ -0,0 +1,236 @@
+/**
+ * IDfTypedObject view of a row held in a dmRowStore.
+ *
+ * (C) 2013 MS Roth
+ * <p/>
+ *
+ * @author M. Scott Roth, http://msroth.wordpress.com
+ * @version 1.3
+ */
+package com.dm_misc.collections;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Date;
+
+import com.documentum.fc.client.IDfTypedObject;
+import com.documentum.fc.common.DfException;
+import com.documentum.fc.common.DfId;
+import com.documentum.fc.common.DfTime;
+import com.documentum.fc.common.IDfAttr;
+import com.documentum.fc.common.IDfId;
+import com.documentum.fc.common.IDfTime;
+import com.documentum.fc.common.IDfValue;
+
+/**
+ * Stores that do not retain the IDfTypedObjects of their rows hand out
+ * dynamic proxies implementing IDfTypedObject over the stored values. The
+ * proxies support the read methods of IDfTypedObject (getString(),
+ * getInt(), getRepeatingString(), getValueCount(), getAttr(), ...); methods
+ * that change values or need a session throw UnsupportedOperationException.
+ */
+class dmRowProxy implements InvocationHandler {
+
+    private dmRowStore _store;
+    private int _row;
+
+    private dmRowProxy(dmRowStore store, int row) {
+        _store = store;
+        _row = row;
+    }
+
+    /**
+     * Create an IDfTypedObject view of a row in a store.
+     */
+    static IDfTypedObject newRow(dmRowStore store, int row) {
+        return (IDfTypedObject) Proxy.newProxyInstance(IDfTypedObject.class.getClassLoader(),
+                new Class<?>[]{IDfTypedObject.class}, new dmRowProxy(store, row));
+    }
+
+    /**
+     * Return the schema of the store behind a row created by newRow(), or
+     * null if the row is not such a view.
+     */
+    static dmRecordSetSchema getSchema(IDfTypedObject row) {
+        if (row != null && Proxy.isProxyClass(row.getClass())) {
+            InvocationHandler handler = Proxy.getInvocationHandler(row);
+            if (handler instanceof dmRowProxy) {
+                return ((dmRowProxy) handler)._store.getSchema();
+            }
+        }
+        return null;
+    }
+
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        String name = method.getName();
+        int argCount = (args == null ? 0 : args.length);
+
+        // java.lang.Object methods
+        if (name.equals("equals") && argCount == 1) {
+            return proxy == args[0];
+        } else if (name.equals("hashCode") && argCount == 0) {
+            return System.identityHashCode(proxy);
+        } else if (name.equals("toString") && argCount == 0) {
+            return dump();
+        }
+
+        // attribute definitions
+        if (name.equals("getAttrCount")) {
+            return _store.getColumnDefs().size();
+        } else if (name.equals("getAttr")) {
+            return _store.getColumnDefs().get((Integer) args[0]);
+        } else if (name.equals("findAttrIndex")) {
+            return _store.findColumn((String) args[0]);
+        } else if (name.equals("hasAttr")) {
+            return _store.findColumn((String) args[0]) >= 0;
+        } else if (name.equals("isAttrRepeating")) {
+            return attr(column(args[0])).isRepeating();
+        } else if (name.equals("getAttrDataType")) {
+            return attr(column(args[0])).getDataType();
+        } else if (name.equals("dump")) {
+            return dump();
+        }
+
+        // single valued getters
+        if (argCount == 1 && args[0] instanceof String) {
+            int col = column(args[0]);
+            if (name.equals("getValueCount")) {
+                return _store.getValueCount(_row, col);
+            } else if (name.equals("isNull")) {
+                return isNull(col);
+            }
+            return getValue(name.replace("get", "getRepeating"), col, 0);
+        } else if (name.equals("getValueAt")) {
+            return getValue("getRepeatingValue", (Integer) args[0], 0);
+        }
+
+        // repeating getters
+        if (argCount == 2 && name.startsWith("getRepeating")) {
+            return getValue(name, column(args[0]), (Integer) args[1]);
+        } else if (name.equals("getAllRepeatingStrings") && argCount == 2) {
+            int col = column(args[0]);
+            String separator = (args[1] == null ? "," : (String) args[1]);
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < _store.getValueCount(_row, col); i++) {
+                if (i > 0) {
+                    sb.append(separator);
+                }
+                sb.append(_store.getString(_row, col, i));
+            }
+            return sb.toString();
+        }
+
+        throw new UnsupportedOperationException(String.format("%s() is not supported by dmRecordSet rows.", name));
+    }
+
+    private IDfAttr attr(int col) {
+        return _store.getColumnDefs().get(col);
+    }
+
+    private int column(Object name) throws DfException {
+        int col = _store.findColumn((String) name);
+        if (col < 0) {
+            throw new DfException(String.format("Attribute %s does not exist in the record set.", name));
+        }
+        return col;
+    }
+
+    private Object getValue(String method, int col, int index) throws DfException {
+        if (method.equals("getRepeatingString")) {
+            return _store.getString(_row, col, index);
+        } else if (method.equals("getRepeatingInt")) {
+            return _store.getInt(_row, col, index);
+        } else if (method.equals("getRepeatingLong")) {
+            return (long) _store.getInt(_row, col, index);
+        } else if (method.equals("getRepeatingDouble")) {
+            return _store.getDouble(_row, col, index);
+        } else if (method.equals("getRepeatingBoolean")) {
+            return _store.getBoolean(_row, col, index);
+        } else if (method.equals("getRepeatingTime")) {
+            return toTime(_store.getTime(_row, col, index));
+        } else if (method.equals("getRepeatingId")) {
+            return new DfId(_store.getId(_row, col, index));
+        } else if (method.equals("getRepeatingValue")) {
+            return newValue(_store, _row, col, index);
+        }
+        throw new UnsupportedOperationException(String.format("%s() is not supported by dmRecordSet rows.", method));
+    }
+
+    private boolean isNull(int col) throws DfException {
+        if (_store.getValueCount(_row, col) == 0) {
+            return true;
+        }
+        switch (attr(col).getDataType()) {
+            case IDfAttr.DM_STRING:
+                return _store.getString(_row, col, 0).length() == 0;
+            case IDfAttr.DM_TIME:
+                return _store.getTime(_row, col, 0) == dmRowStore.NULL_TIME;
+            case IDfAttr.DM_ID:
+                return _store.getId(_row, col, 0).equals(dmRowStore.NULL_ID);
+            default:
+                return false;
+        }
+    }
+
+    private String dump() throws DfException {
+        StringBuilder sb = new StringBuilder();
+        for (int col = 0; col < _store.getColumnDefs().size(); col++) {
+            String name = attr(col).getName();
+            int count = _store.getValueCount(_row, col);
+            if (!attr(col).isRepeating()) {
+                sb.append(String.format("  %s : %s\n", name, _store.getString(_row, col, 0)));
+            } else {
+                for (int i = 0; i < count; i++) {
+                    sb.append(String.format("  %s[%d]: %s\n", name, i, _store.getString(_row, col, i)));
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    static IDfTime toTime(long millis) {
+        if (millis == dmRowStore.NULL_TIME) {
+            return DfTime.DF_NULLDATE;
+        }
+        return new DfTime(new Date(millis));
+    }
+
+    /**
+     * Create an IDfValue view of one value in a store.
+     */
+    static IDfValue newValue(final dmRowStore store, final int row, final int col, final int index) {
+        return (IDfValue) Proxy.newProxyInstance(IDfValue.class.getClassLoader(),
+                new Class<?>[]{IDfValue.class}, new InvocationHandler() {
+
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                String name = method.getName();
+                if (name.equals("asString") || name.equals("toString")) {
+                    return store.getString(row, col, index);
+                } else if (name.equals("asInteger")) {
+                    return store.getInt(row, col, index);
+                } else if (name.equals("asDouble")) {
+                    return store.getDouble(row, col, index);
+                } else if (name.equals("asBoolean")) {
+                    return store.getBoolean(row, col, index);
+                } else if (name.equals("asTime")) {
+                    return toTime(store.getTime(row, col, index));
+                } else if (name.equals("asId")) {
+                    IDfId id = new DfId(store.getId(row, col, index));
+                    return id;
+                } else if (name.equals("getDataType")) {
+                    return store.getColumnDefs().get(col).getDataType();
+                } else if (name.equals("equals")) {
+                    return proxy == args[0];
+                } else if (name.equals("hashCode")) {
+                    return System.identityHashCode(proxy);
+                }
+                throw new UnsupportedOperationException(String.format("%s() is not supported by dmRecordSet values.", name));
+            }
+        });
+    }
+}
+
+/*
+ *  <SDG><
+ */
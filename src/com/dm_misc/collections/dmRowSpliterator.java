@@ -0,0 +1,80 @@
+/**
+ * Spliterator over the rows of a dmRecordSet.
+ *
+ * (C) 2013 MS Roth
+ * <p/>
+ *
+ * @author M. Scott Roth, http://msroth.wordpress.com
+ * @version 1.3
+ */
+package com.dm_misc.collections;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+import com.documentum.fc.client.IDfTypedObject;
+
+/**
+ * A dmRowSpliterator traverses a range of row numbers of a dmRowStore. It
+ * reads rows straight from the store and never touches the record set's
+ * cursor, so the halves it splits into can be traversed by different
+ * threads (e.g., by a parallel stream's ForkJoin pool).
+ */
+class dmRowSpliterator implements Spliterator<IDfTypedObject> {
+
+    /** Do not split ranges smaller than this. */
+    private static final int MIN_SPLIT = 64;
+
+    private dmRowStore _store;
+    private int _origin;
+    private int _fence;
+
+    /**
+     * @param store rows to traverse
+     * @param origin first row number (inclusive)
+     * @param fence last row number (exclusive)
+     */
+    dmRowSpliterator(dmRowStore store, int origin, int fence) {
+        _store = store;
+        _origin = origin;
+        _fence = fence;
+    }
+
+    public boolean tryAdvance(Consumer<? super IDfTypedObject> action) {
+        if (_origin < _fence) {
+            action.accept(_store.getRow(_origin++));
+            return true;
+        }
+        return false;
+    }
+
+    public void forEachRemaining(Consumer<? super IDfTypedObject> action) {
+        int fence = _fence;
+        for (int i = _origin; i < fence; i++) {
+            action.accept(_store.getRow(i));
+        }
+        _origin = fence;
+    }
+
+    public Spliterator<IDfTypedObject> trySplit() {
+        int mid = (_origin + _fence) >>> 1;
+        if (mid - _origin < MIN_SPLIT) {
+            return null;
+        }
+        dmRowSpliterator prefix = new dmRowSpliterator(_store, _origin, mid);
+        _origin = mid;
+        return prefix;
+    }
+
+    public long estimateSize() {
+        return _fence - _origin;
+    }
+
+    public int characteristics() {
+        return ORDERED | SIZED | SUBSIZED | NONNULL;
+    }
+}
+
+/*
+ *  <SDG><
+ */
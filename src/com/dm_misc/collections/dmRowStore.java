@@ -0,0 +1,356 @@
+/**
+ * Base class for the storage engines behind a dmRecordSet.
+ *
+ * (C) 2013 MS Roth
+ * <p/>
+ *
+ * @author M. Scott Roth, http://msroth.wordpress.com
+ * @version 1.3
+ */
+package com.dm_misc.collections;
+
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+
+import com.documentum.fc.client.IDfTypedObject;
+import com.documentum.fc.common.DfException;
+import com.documentum.fc.common.IDfAttr;
+import com.documentum.fc.common.IDfId;
+import com.documentum.fc.common.IDfTime;
+
+/**
+ * A row store holds the rows of a record set and provides typed access to
+ * their values by row and column number, without moving the record set's
+ * cursor. Column numbers are positions in the record set's column
+ * definitions; value indexes select a value of a repeating attribute and
+ * are always 0 for single valued attributes.
+ */
+abstract class dmRowStore {
+
+    /** Time value used for a null date. */
+    static final long NULL_TIME = Long.MIN_VALUE;
+
+    /** ID value used for a null object id. */
+    static final String NULL_ID = "0000000000000000";
+
+    /** Default string format of a time value. */
+    static final String TIME_PATTERN = "MM/dd/yyyy HH:mm:ss";
+
+    /** Number of rows sampled by estimateBytes(). */
+    static final int SAMPLE_ROWS = 64;
+
+    protected dmRecordSetSchema _schema;
+    protected ArrayList<IDfAttr> _columnDefs;
+
+    dmRowStore(dmRecordSetSchema schema) {
+        _schema = schema;
+        _columnDefs = schema.getColumnDefs();
+    }
+
+    /**
+     * Return the schema of the rows in the store.
+     */
+    dmRecordSetSchema getSchema() {
+        return _schema;
+    }
+
+    /**
+     * Return the column definitions of the rows in the store.
+     */
+    ArrayList<IDfAttr> getColumnDefs() {
+        return _columnDefs;
+    }
+
+    /**
+     * Return the number of rows added to the store.
+     */
+    abstract int size();
+
+    /**
+     * Return the lowest row number whose values are still held by the store.
+     */
+    int getFirstAvailableRow() {
+        return 0;
+    }
+
+    /**
+     * Append a row to the store. The row must have the store's columns.
+     */
+    abstract void add(IDfTypedObject row) throws DfException;
+
+    /**
+     * Remove the last row added to the store.
+     */
+    abstract void removeLast();
+
+    /**
+     * Return a row as an IDfTypedObject.
+     */
+    abstract IDfTypedObject getRow(int row);
+
+    /**
+     * Change a value of a row. The value is given as a Java object (see
+     * intValue() and friends); the value of a repeating attribute is an
+     * Object[] holding all of its values.
+     */
+    void setValue(int row, int col, Object value) throws DfException {
+        throw new UnsupportedOperationException("The rows of this record set cannot be changed.");
+    }
+
+    /**
+     * Free memory held outside the heap. The store cannot be read
+     * afterwards. Stores holding their rows on the heap do nothing.
+     */
+    void close() {
+    }
+
+    abstract int getValueCount(int row, int col) throws DfException;
+
+    abstract String getString(int row, int col, int index) throws DfException;
+
+    abstract int getInt(int row, int col, int index) throws DfException;
+
+    abstract double getDouble(int row, int col, int index) throws DfException;
+
+    abstract boolean getBoolean(int row, int col, int index) throws DfException;
+
+    /**
+     * Return a time value in epoch milliseconds, or NULL_TIME for a null
+     * date.
+     */
+    abstract long getTime(int row, int col, int index) throws DfException;
+
+    /**
+     * Return an ID value as its 16 character string form.
+     */
+    abstract String getId(int row, int col, int index) throws DfException;
+
+    /**
+     * Return the number of the column with the given name (case
+     * insensitive), or -1 if the store has no such column.
+     */
+    int findColumn(String name) {
+        return _schema.indexOf(name);
+    }
+
+    /**
+     * Return a rough estimate of the heap retained by the rows held, from
+     * the values of up to SAMPLE_ROWS rows spread over the store. This
+     * default assumes the rows are IDfTypedObjects, each holding an object
+     * per value; stores holding their values otherwise override it.
+     */
+    long estimateBytes() throws DfException {
+        int first = getFirstAvailableRow();
+        int rows = size() - first;
+        if (rows <= 0) {
+            return 0;
+        }
+        int step = Math.max(1, rows / SAMPLE_ROWS);
+        long sampled = 0;
+        int sampledRows = 0;
+        for (int row = first; row < size(); row += step) {
+
+            // the row object, its value list and the store's reference
+            long bytes = 64 + 16L * _columnDefs.size();
+            for (int col = 0; col < _columnDefs.size(); col++) {
+                int count = getValueCount(row, col);
+                for (int i = 0; i < count; i++) {
+                    switch (_columnDefs.get(col).getDataType()) {
+                        case IDfAttr.DM_STRING:
+                            bytes += stringBytes(getString(row, col, i));
+                            break;
+                        case IDfAttr.DM_ID:
+                            bytes += 16 + stringBytes(NULL_ID);
+                            break;
+                        case IDfAttr.DM_TIME:
+                            bytes += 40;
+                            break;
+                        default:
+                            bytes += 16;
+                    }
+                }
+            }
+            sampled += bytes;
+            sampledRows++;
+        }
+        return sampled * rows / sampledRows;
+    }
+
+    /**
+     * Return the approximate size of a String and its characters.
+     */
+    static long stringBytes(String value) {
+        return (value == null ? 0 : 40 + 2L * value.length());
+    }
+
+    /**
+     * Convert an IDfTime to epoch milliseconds.
+     */
+    static long toMillis(IDfTime time) {
+        if (time == null || time.isNullDate() || !time.isValid()) {
+            return NULL_TIME;
+        }
+        return time.getDate().getTime();
+    }
+
+    /**
+     * Convert an IDfId to its string form.
+     */
+    static String toIdString(IDfId id) {
+        if (id == null) {
+            return NULL_ID;
+        }
+        return id.getId();
+    }
+
+    /**
+     * Format a time value the way it is returned by getString().
+     */
+    static String formatTime(long millis) {
+        if (millis == NULL_TIME) {
+            return "";
+        }
+        return new SimpleDateFormat(TIME_PATTERN).format(new Date(millis));
+    }
+
+    /**
+     * Format a boolean value the way it is returned by getString().
+     */
+    static String formatBoolean(boolean value) {
+        return value ? "T" : "F";
+    }
+
+    /**
+     * Conversions of Java values (Number, Boolean, String, Date, IDfTime,
+     * IDfId) to the types stored for each column data type.
+     */
+    static int intValue(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).intValue();
+        } else if (value instanceof Boolean) {
+            return ((Boolean) value ? 1 : 0);
+        }
+        return (value == null ? 0 : parseInt(value.toString()));
+    }
+
+    static double doubleValue(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        return (value == null ? 0 : parseDouble(value.toString()));
+    }
+
+    static boolean booleanValue(Object value) {
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        } else if (value instanceof Number) {
+            return ((Number) value).intValue() != 0;
+        }
+        return (value != null && parseBoolean(value.toString()));
+    }
+
+    static long timeValue(Object value) {
+        if (value instanceof IDfTime) {
+            return toMillis((IDfTime) value);
+        } else if (value instanceof Date) {
+            return ((Date) value).getTime();
+        } else if (value instanceof Number) {
+            return ((Number) value).longValue();
+        } else if (value instanceof String) {
+            return parseTime((String) value);
+        }
+        return NULL_TIME;
+    }
+
+    static String idValue(Object value) {
+        if (value instanceof IDfId) {
+            return toIdString((IDfId) value);
+        }
+        return (value == null ? NULL_ID : value.toString());
+    }
+
+    static String stringValue(Object value) {
+        if (value instanceof IDfTime) {
+            return formatTime(toMillis((IDfTime) value));
+        } else if (value instanceof IDfId) {
+            return toIdString((IDfId) value);
+        }
+        return (value == null ? "" : value.toString());
+    }
+
+    /**
+     * Parse a time in the format returned by getString(). An empty string
+     * is the null time.
+     *
+     * @exception IllegalArgumentException if the value is not a time
+     */
+    static long parseTime(String value) {
+        String s = value.trim();
+        if (s.isEmpty()) {
+            return NULL_TIME;
+        }
+        SimpleDateFormat format = new SimpleDateFormat(TIME_PATTERN);
+        format.setLenient(false);
+        ParsePosition position = new ParsePosition(0);
+        Date date = format.parse(s, position);
+        if (date == null || position.getIndex() != s.length()) {
+            throw new IllegalArgumentException(String.format("'%s' is not a time in the format %s.", value, TIME_PATTERN));
+        }
+        return date.getTime();
+    }
+
+    /**
+     * Check that a value given to setValue() can be stored in a column of a
+     * data type: strings given for times must parse and object ids must be
+     * 16 hex digits. The values of a repeating attribute are checked one by
+     * one.
+     */
+    static void checkValue(int dataType, Object value) throws DfException {
+        if (value instanceof Object[]) {
+            for (Object v : (Object[]) value) {
+                checkValue(dataType, v);
+            }
+        } else if (dataType == IDfAttr.DM_TIME && value instanceof String) {
+            try {
+                parseTime((String) value);
+            } catch (IllegalArgumentException e) {
+                throw new DfException(e.getMessage());
+            }
+        } else if (dataType == IDfAttr.DM_ID) {
+            String id = idValue(value);
+            if (!id.equals(NULL_ID) && dmColumnarRowStore.parseId(id) == -1) {
+                throw new DfException(String.format("'%s' is not an object id.", id));
+            }
+        }
+    }
+
+    /**
+     * Lenient conversions used when a value is read as a different type
+     * than it is stored as.
+     */
+    static int parseInt(String value) {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return (int) parseDouble(value);
+        }
+    }
+
+    static double parseDouble(String value) {
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    static boolean parseBoolean(String value) {
+        return value.equalsIgnoreCase("T") || value.equalsIgnoreCase("true") || value.equals("1");
+    }
+}
+
+/*
+ *  <SDG><
+ */
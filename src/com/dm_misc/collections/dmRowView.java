@@ -0,0 +1,202 @@
+/**
+ * Reusable typed accessor for the values of one row of a dmRecordSet.
+ *
+ * (C) 2013 MS Roth
+ * <p/>
+ *
+ * Example use: <br/>
+ * <pre>
+ *     int size = dmRS.getColumnNumber("r_full_content_size");
+ *     while (dmRS.advance()) {
+ *         total += dmRS.getRowView().getDouble(size);
+ *     }
+ *
+ *     dmRS.forEachRow(row -&gt; names.add(row.getString("object_name")));
+ * </pre>
+ *
+ * @author M. Scott Roth, http://msroth.wordpress.com
+ * @version 1.3
+ */
+package com.dm_misc.collections;
+
+import com.documentum.fc.client.IDfTypedObject;
+import com.documentum.fc.common.DfException;
+import com.documentum.fc.common.DfId;
+import com.documentum.fc.common.IDfId;
+import com.documentum.fc.common.IDfTime;
+
+/**
+ * A dmRowView reads the values of a row straight from the record set's
+ * storage, by column number or name, without creating an IDfTypedObject
+ * for the row. The same view is repositioned from row to row: by
+ * dmRecordSet.getRowView() to the current row, and by forEachRow() to
+ * each row in turn. Keep the row number (getRowNumber()), not the view,
+ * to refer to a row later.
+ */
+public final class dmRowView {
+
+    private dmRowStore _store;
+    private int _row = -1;
+
+    dmRowView(dmRowStore store) {
+        _store = store;
+    }
+
+    dmRowStore getStore() {
+        return _store;
+    }
+
+    void setRow(int row) {
+        _row = row;
+    }
+
+    /**
+     * Return the number of the row the view is on.
+     *
+     * @return int row number
+     *
+     */
+    public int getRowNumber() {
+        return _row;
+    }
+
+    public int getColumnCount() {
+        return _store.getColumnDefs().size();
+    }
+
+    /**
+     * Return the number of a named column (case insensitive).
+     *
+     * @param columnName name of the column
+     * @return int column number, or -1 if there is no such column
+     *
+     */
+    public int getColumnNumber(String columnName) {
+        return _store.findColumn(columnName);
+    }
+
+    public String getString(int columnNumber) throws DfException {
+        return _store.getString(_row, columnNumber, 0);
+    }
+
+    public int getInt(int columnNumber) throws DfException {
+        return _store.getInt(_row, columnNumber, 0);
+    }
+
+    public double getDouble(int columnNumber) throws DfException {
+        return _store.getDouble(_row, columnNumber, 0);
+    }
+
+    public boolean getBoolean(int columnNumber) throws DfException {
+        return _store.getBoolean(_row, columnNumber, 0);
+    }
+
+    /**
+     * Return the value of a time column.
+     *
+     * @param columnNumber column number of the value
+     * @return IDfTime value, DfTime.DF_NULLDATE for a null date
+     * @exception DfException if the column does not exist
+     *
+     */
+    public IDfTime getTime(int columnNumber) throws DfException {
+        return dmRowProxy.toTime(_store.getTime(_row, columnNumber, 0));
+    }
+
+    public IDfId getId(int columnNumber) throws DfException {
+        return new DfId(_store.getId(_row, columnNumber, 0));
+    }
+
+    /**
+     * Return the number of values of a column: the number of values of a
+     * repeating attribute, 1 for a single valued one.
+     *
+     * @param columnNumber column number
+     * @return int number of values
+     * @exception DfException if the column does not exist
+     *
+     */
+    public int getValueCount(int columnNumber) throws DfException {
+        return _store.getValueCount(_row, columnNumber);
+    }
+
+    /**
+     * Return a value of a repeating attribute as a String.
+     *
+     * @param columnNumber column number of the value
+     * @param index index of the value
+     * @return String value
+     * @exception DfException if the column or value does not exist
+     *
+     */
+    public String getRepeatingString(int columnNumber, int index) throws DfException {
+        return _store.getString(_row, columnNumber, index);
+    }
+
+    public int getRepeatingInt(int columnNumber, int index) throws DfException {
+        return _store.getInt(_row, columnNumber, index);
+    }
+
+    public double getRepeatingDouble(int columnNumber, int index) throws DfException {
+        return _store.getDouble(_row, columnNumber, index);
+    }
+
+    public boolean getRepeatingBoolean(int columnNumber, int index) throws DfException {
+        return _store.getBoolean(_row, columnNumber, index);
+    }
+
+    public IDfTime getRepeatingTime(int columnNumber, int index) throws DfException {
+        return dmRowProxy.toTime(_store.getTime(_row, columnNumber, index));
+    }
+
+    public IDfId getRepeatingId(int columnNumber, int index) throws DfException {
+        return new DfId(_store.getId(_row, columnNumber, index));
+    }
+
+    public String getString(String columnName) throws DfException {
+        return getString(column(columnName));
+    }
+
+    public int getInt(String columnName) throws DfException {
+        return getInt(column(columnName));
+    }
+
+    public double getDouble(String columnName) throws DfException {
+        return getDouble(column(columnName));
+    }
+
+    public boolean getBoolean(String columnName) throws DfException {
+        return getBoolean(column(columnName));
+    }
+
+    public IDfTime getTime(String columnName) throws DfException {
+        return getTime(column(columnName));
+    }
+
+    public IDfId getId(String columnName) throws DfException {
+        return getId(column(columnName));
+    }
+
+    /**
+     * Return the row as an IDfTypedObject, e.g., to keep it or pass it to
+     * code expecting one.
+     *
+     * @return IDfTypedObject of the row
+     *
+     */
+    public IDfTypedObject getTypedObject() {
+        return _store.getRow(_row);
+    }
+
+    private int column(String columnName) throws DfException {
+        int col = _store.findColumn(columnName);
+        if (col < 0) {
+            throw new DfException(String.format("Column %s does not exist in the record set.", columnName));
+        }
+        return col;
+    }
+}
+
+/*
+ *  <SDG><
+ */
@@ -0,0 +1,73 @@
+/**
+ * Bounded collector of the first rows of a stream of rows in sort order.
+ *
+ * (C) 2013 MS Roth
+ * <p/>
+ *
+ * @author M. Scott Roth, http://msroth.wordpress.com
+ * @version 1.3
+ */
+package com.dm_misc.collections;
+
+import com.documentum.fc.client.IDfTypedObject;
+import com.documentum.fc.common.DfException;
+
+/**
+ * A dmTopRows keeps the first n rows, in the order of a set of sort
+ * specifications, of rows added one at a time, e.g., while an
+ * IDfCollection is read. Rows are collected until there are 2n of them;
+ * then the first n are kept with dmRowOrdering.top() and the others are
+ * dropped. At most 2n rows are held at any time, and the result is the
+ * same as the first n rows of sortBy() over all rows.
+ */
+class dmTopRows {
+
+    private dmRecordSetSchema _schema;
+    private int _n;
+    private String[] _orderings;
+    private dmObjectRowStore _rows;
+
+    dmTopRows(dmRecordSetSchema schema, int n, String... orderings) throws DfException {
+        if (n < 0) {
+            throw new DfException("The number of rows cannot be negative.");
+        }
+        _schema = schema;
+        _n = n;
+        _orderings = orderings;
+        _rows = new dmObjectRowStore(schema);
+
+        // check the orderings before any rows are read
+        dmRowOrdering.byColumns(_rows, orderings);
+    }
+
+    void add(IDfTypedObject row) throws DfException {
+        if (_n == 0) {
+            return;
+        }
+        _rows.add(row);
+        if (_rows.size() >= 2 * _n) {
+            keepTop();
+        }
+    }
+
+    /**
+     * Return the first n rows added, in sorted order.
+     */
+    dmRowStore getRows() throws DfException {
+        keepTop();
+        return _rows;
+    }
+
+    private void keepTop() throws DfException {
+        int[] top = dmRowOrdering.byColumns(_rows, _orderings).top(_rows.size(), _n);
+        dmObjectRowStore kept = new dmObjectRowStore(_schema);
+        for (int row : top) {
+            kept.add(_rows.getRow(row));
+        }
+        _rows = kept;
+    }
+}
+
+/*
+ *  <SDG><
+ */
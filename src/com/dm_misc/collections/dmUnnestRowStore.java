@@ -0,0 +1,165 @@
+/**
+ * Row store presenting one row per value of a repeating attribute of
+ * another store.
+ *
+ * (C) 2013 MS Roth
+ * <p/>
+ *
+ * @author M. Scott Roth, http://msroth.wordpress.com
+ * @version 1.3
+ */
+package com.dm_misc.collections;
+
+import java.util.ArrayList;
+
+import com.documentum.fc.client.IDfTypedObject;
+import com.documentum.fc.common.DfException;
+import com.documentum.fc.common.IDfAttr;
+
+/**
+ * A dmUnnestRowStore has a row for each value of a repeating attribute in
+ * each row of a base store. It holds two int[]: the base row number and
+ * the index of the value for each of its rows. The repeating attribute
+ * becomes a single valued column holding that value; the other columns
+ * read the base row, so their values are not copied. Base rows without
+ * values of the attribute have no rows. Unnested stores are read-only.
+ */
+class dmUnnestRowStore extends dmRowStore {
+
+    private dmRowStore _base;
+    private int _col;
+    private int[] _rows;
+    private int[] _indexes;
+
+    /**
+     * @param base store holding the rows
+     * @param col column number of the repeating attribute
+     */
+    dmUnnestRowStore(dmRowStore base, int col) throws DfException {
+        super(unnestSchema(base, col));
+        _base = base;
+        _col = col;
+
+        int[] counts = new int[base.size()];
+        long total = 0;
+        for (int row = 0; row < counts.length; row++) {
+            counts[row] = base.getValueCount(row, col);
+            total += counts[row];
+        }
+        if (total > Integer.MAX_VALUE - 8) {
+            throw new DfException(String.format("Column %s has too many values to unnest.", base.getColumnDefs().get(col).getName()));
+        }
+        _rows = new int[(int) total];
+        _indexes = new int[(int) total];
+        int i = 0;
+        for (int row = 0; row < counts.length; row++) {
+            for (int index = 0; index < counts[row]; index++) {
+                _rows[i] = row;
+                _indexes[i] = index;
+                i++;
+            }
+        }
+    }
+
+    /**
+     * Return the schema of the base store with the repeating attribute
+     * made single valued.
+     */
+    private static dmRecordSetSchema unnestSchema(dmRowStore base, int col) {
+        ArrayList<IDfAttr> columnDefs = new ArrayList<IDfAttr>(base.getColumnDefs());
+        IDfAttr attr = columnDefs.get(col);
+        columnDefs.set(col, dmRecordSetSchema.newAttr(attr.getName(), attr.getDataType(), false));
+        return new dmRecordSetSchema(columnDefs);
+    }
+
+    /**
+     * Return the base row number of a row.
+     */
+    int getBaseRow(int row) {
+        return _rows[row];
+    }
+
+    @Override
+    int size() {
+        return _rows.length;
+    }
+
+    @Override
+    long estimateBytes() {
+        return 8L * _rows.length;
+    }
+
+    @Override
+    void add(IDfTypedObject row) {
+        throw new UnsupportedOperationException("Rows cannot be added to a record set view.");
+    }
+
+    @Override
+    void removeLast() {
+        throw new UnsupportedOperationException("Rows cannot be removed from a record set view.");
+    }
+
+    @Override
+    IDfTypedObject getRow(int row) {
+        if (row < 0 || row >= _rows.length) {
+            throw new IndexOutOfBoundsException(String.format("Row %d is not in the record set.", row));
+        }
+        return dmRowProxy.newRow(this, row);
+    }
+
+    @Override
+    int getValueCount(int row, int col) throws DfException {
+        if (col == _col) {
+            return 1;
+        }
+        return _base.getValueCount(_rows[row], col);
+    }
+
+    @Override
+    String getString(int row, int col, int index) throws DfException {
+        return _base.getString(_rows[row], col, baseIndex(row, col, index));
+    }
+
+    @Override
+    int getInt(int row, int col, int index) throws DfException {
+        return _base.getInt(_rows[row], col, baseIndex(row, col, index));
+    }
+
+    @Override
+    double getDouble(int row, int col, int index) throws DfException {
+        return _base.getDouble(_rows[row], col, baseIndex(row, col, index));
+    }
+
+    @Override
+    boolean getBoolean(int row, int col, int index) throws DfException {
+        return _base.getBoolean(_rows[row], col, baseIndex(row, col, index));
+    }
+
+    @Override
+    long getTime(int row, int col, int index) throws DfException {
+        return _base.getTime(_rows[row], col, baseIndex(row, col, index));
+    }
+
+    @Override
+    String getId(int row, int col, int index) throws DfException {
+        return _base.getId(_rows[row], col, baseIndex(row, col, index));
+    }
+
+    /**
+     * Return the index of a value in the base row: the unnested column has
+     * the one value the row was made for.
+     */
+    private int baseIndex(int row, int col, int index) throws DfException {
+        if (col != _col) {
+            return index;
+        }
+        if (index != 0) {
+            throw new DfException(String.format("Value %d of %s does not exist in row %d.", index, _columnDefs.get(col).getName(), row));
+        }
+        return _indexes[row];
+    }
+}
+
+/*
+ *  <SDG><
+ */
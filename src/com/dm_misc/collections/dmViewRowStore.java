@@ -0,0 +1,185 @@
+/**
+ * Row store presenting a selection of the rows of another store.
+ *
+ * (C) 2013 MS Roth
+ * <p/>
+ *
+ * @author M. Scott Roth, http://msroth.wordpress.com
+ * @version 1.3
+ */
+package com.dm_misc.collections;
+
+import java.util.ArrayList;
+
+import com.documentum.fc.client.IDfTypedObject;
+import com.documentum.fc.common.DfException;
+import com.documentum.fc.common.IDfAttr;
+
+/**
+ * A dmViewRowStore maps its row numbers onto the rows of a base store
+ * through an int[] (view row number to base row number), and optionally
+ * its column numbers onto a subset of the base store's columns. Values are
+ * read from the base store; no rows are copied. Views of views are
+ * flattened when they are created so a value is always one array lookup
+ * away from the store holding it. Views are read-only.
+ */
+class dmViewRowStore extends dmRowStore {
+
+    private dmRowStore _base;
+    private int[] _rows;
+    private int[] _columns;
+    private int _size;
+
+    /**
+     * @param base store holding the rows
+     * @param rows base row number for each row of the view
+     */
+    dmViewRowStore(dmRowStore base, int[] rows) {
+        this(base, rows, null);
+    }
+
+    /**
+     * @param base store holding the rows
+     * @param rows base row number for each row of the view, or null for
+     * all rows of the base store
+     * @param columns base column number for each column of the view, or
+     * null for all columns of the base store
+     */
+    dmViewRowStore(dmRowStore base, int[] rows, int[] columns) {
+        super(viewSchema(base, columns));
+        if (base instanceof dmViewRowStore) {
+            dmViewRowStore view = (dmViewRowStore) base;
+            if (rows == null) {
+                rows = view._rows;
+            } else if (view._rows != null) {
+                int[] mapped = new int[rows.length];
+                for (int i = 0; i < rows.length; i++) {
+                    mapped[i] = view._rows[rows[i]];
+                }
+                rows = mapped;
+            }
+            if (columns == null) {
+                columns = view._columns;
+            } else if (view._columns != null) {
+                int[] mapped = new int[columns.length];
+                for (int i = 0; i < columns.length; i++) {
+                    mapped[i] = view._columns[columns[i]];
+                }
+                columns = mapped;
+            }
+            _size = (rows != null ? rows.length : view._size);
+            base = view._base;
+        } else {
+            _size = (rows != null ? rows.length : base.size());
+        }
+        _base = base;
+        _rows = rows;
+        _columns = columns;
+    }
+
+    /**
+     * Return the schema of a view with a subset of the base store's columns.
+     */
+    private static dmRecordSetSchema viewSchema(dmRowStore base, int[] columns) {
+        if (columns == null) {
+            return base.getSchema();
+        }
+        ArrayList<IDfAttr> columnDefs = new ArrayList<IDfAttr>();
+        for (int col : columns) {
+            columnDefs.add(base.getColumnDefs().get(col));
+        }
+        return new dmRecordSetSchema(columnDefs);
+    }
+
+    /**
+     * Return the store holding the rows of the view.
+     */
+    dmRowStore getBase() {
+        return _base;
+    }
+
+    /**
+     * Return the base row number of a row of the view.
+     */
+    int getBaseRow(int row) {
+        return (_rows != null ? _rows[row] : row);
+    }
+
+    /**
+     * Return the base column number of a column of the view.
+     */
+    int getBaseColumn(int col) {
+        return (_columns != null ? _columns[col] : col);
+    }
+
+    @Override
+    int size() {
+        return _size;
+    }
+
+    /**
+     * A view retains its row and column numbers only; the rows belong to
+     * the base store.
+     */
+    @Override
+    long estimateBytes() {
+        return 4L * ((_rows != null ? _rows.length : 0) + (_columns != null ? _columns.length : 0));
+    }
+
+    @Override
+    void add(IDfTypedObject row) {
+        throw new UnsupportedOperationException("Rows cannot be added to a record set view.");
+    }
+
+    @Override
+    void removeLast() {
+        throw new UnsupportedOperationException("Rows cannot be removed from a record set view.");
+    }
+
+    @Override
+    IDfTypedObject getRow(int row) {
+        if (_columns != null) {
+            return dmRowProxy.newRow(this, row);
+        }
+        return _base.getRow(getBaseRow(row));
+    }
+
+    @Override
+    int getValueCount(int row, int col) throws DfException {
+        return _base.getValueCount(getBaseRow(row), getBaseColumn(col));
+    }
+
+    @Override
+    String getString(int row, int col, int index) throws DfException {
+        return _base.getString(getBaseRow(row), getBaseColumn(col), index);
+    }
+
+    @Override
+    int getInt(int row, int col, int index) throws DfException {
+        return _base.getInt(getBaseRow(row), getBaseColumn(col), index);
+    }
+
+    @Override
+    double getDouble(int row, int col, int index) throws DfException {
+        return _base.getDouble(getBaseRow(row), getBaseColumn(col), index);
+    }
+
+    @Override
+    boolean getBoolean(int row, int col, int index) throws DfException {
+        return _base.getBoolean(getBaseRow(row), getBaseColumn(col), index);
+    }
+
+    @Override
+    long getTime(int row, int col, int index) throws DfException {
+        return _base.getTime(getBaseRow(row), getBaseColumn(col), index);
+    }
+
+    @Override
+    String getId(int row, int col, int index) throws DfException {
+        return _base.getId(getBaseRow(row), getBaseColumn(col), index);
+    }
+}
+
+/*
+ *  <SDG><
+ */
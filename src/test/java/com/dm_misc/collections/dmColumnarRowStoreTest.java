@@ -0,0 +1,182 @@
+/**
+ * Tests of reading, changing and sorting values, run for each storage.
+ *
+ * (C) 2013 MS Roth
+ * <p/>
+ *
+ * @author M. Scott Roth, http://msroth.wordpress.com
+ * @version 1.3
+ */
+package com.dm_misc.collections;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import com.documentum.fc.client.IDfTypedObject;
+import com.documentum.fc.common.DfId;
+import com.documentum.fc.common.IDfAttr;
+
+@RunWith(Parameterized.class)
+public class dmColumnarRowStoreTest {
+
+    private static final IDfAttr[] ATTRS = {
+        dmTestStubs.attr("r_object_id", IDfAttr.DM_ID, false),
+        dmTestStubs.attr("object_name", IDfAttr.DM_STRING, false),
+        dmTestStubs.attr("r_content_size", IDfAttr.DM_INTEGER, false),
+        dmTestStubs.attr("a_rate", IDfAttr.DM_DOUBLE, false),
+        dmTestStubs.attr("r_immutable_flag", IDfAttr.DM_BOOLEAN, false),
+        dmTestStubs.attr("r_modify_date", IDfAttr.DM_TIME, false),
+        dmTestStubs.attr("keywords", IDfAttr.DM_STRING, true),
+        dmTestStubs.attr("a_counts", IDfAttr.DM_INTEGER, true) };
+
+    private static final long TIME = 1356998400000L;
+
+    @Parameters(name = "{0}")
+    public static Collection<Object[]> storages() {
+        List<Object[]> storages = new ArrayList<Object[]>();
+        for (dmRecordSet.Storage storage : dmRecordSet.Storage.values()) {
+            storages.add(new Object[] { storage });
+        }
+        return storages;
+    }
+
+    private dmRecordSet.Storage _storage;
+    private dmRecordSet _rs;
+
+    public dmColumnarRowStoreTest(dmRecordSet.Storage storage) {
+        _storage = storage;
+    }
+
+    private static String id(int row) {
+        return String.format("09%014x", row);
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        List<Object[]> rows = new ArrayList<Object[]>();
+        for (int i = 0; i < 20; i++) {
+            rows.add(new Object[] { id(i), "doc" + (i % 5), i * 10, i / 2.0, i % 3 == 0, TIME + (i % 4) * 60000L,
+                    new Object[] { "k" + i }, new Object[] { i, i + 1 } });
+        }
+        _rs = new dmRecordSet(dmTestStubs.collection(ATTRS, rows), _storage);
+    }
+
+    @After
+    public void tearDown() {
+        _rs.close();
+    }
+
+    @Test
+    public void testReadsEveryType() throws Exception {
+        assertEquals(_storage, _rs.getStorage());
+        assertEquals(20, _rs.getRowCount());
+        assertEquals(id(7), _rs.getId(7, "r_object_id").getId());
+        assertEquals("doc2", _rs.getString(7, "object_name"));
+        assertEquals(70, _rs.getInt(7, "r_content_size"));
+        assertEquals("70", _rs.getString(7, "r_content_size"));
+        assertEquals(3.5, _rs.getDouble(7, "a_rate"), 0);
+        assertEquals(false, _rs.getBoolean(7, "r_immutable_flag"));
+        assertEquals(TIME + 3 * 60000L, dmRowStore.toMillis(_rs.getTime(7, "r_modify_date")));
+        assertEquals(dmRowStore.formatTime(TIME + 3 * 60000L), _rs.getString(7, "r_modify_date"));
+
+        IDfTypedObject row = _rs.getRow(7);
+        assertEquals("doc2", row.getString("object_name"));
+        assertEquals(70, row.getInt("r_content_size"));
+        assertEquals(8, row.getRepeatingInt("a_counts", 1));
+    }
+
+    @Test
+    public void testSetsEveryType() throws Exception {
+        _rs.setValue(3, "r_object_id", new DfId(id(99)));
+        _rs.setValue(3, "object_name", "renamed");
+        _rs.setValue(3, "r_content_size", "42");
+        _rs.setValue(3, "a_rate", 0.25);
+        _rs.setValue(3, "r_immutable_flag", false);
+        _rs.setValue(3, "r_modify_date", new Date(TIME + 1000));
+
+        assertEquals(id(99), _rs.getString(3, "r_object_id"));
+        assertEquals("renamed", _rs.getString(3, "object_name"));
+        assertEquals(42, _rs.getInt(3, "r_content_size"));
+        assertEquals(0.25, _rs.getDouble(3, "a_rate"), 0);
+        assertEquals(false, _rs.getBoolean(3, "r_immutable_flag"));
+        assertEquals(TIME + 1000, dmRowStore.toMillis(_rs.getTime(3, "r_modify_date")));
+
+        // the neighbouring rows are unchanged
+        assertEquals("doc2", _rs.getString(2, "object_name"));
+        assertEquals(40, _rs.getInt(4, "r_content_size"));
+    }
+
+    @Test
+    public void testSetsRepeatingValues() throws Exception {
+
+        // grow and shrink the values of some rows many times, so the values
+        // of the repeating columns are moved around
+        for (int n = 0; n < 50; n++) {
+            int row = n % 10;
+            Object[] values = new Object[n % 7];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = "v" + n + "." + i;
+            }
+            _rs.setValue(row, "keywords", values);
+            _rs.setValue(row, "a_counts", new Object[] { n });
+        }
+        for (int row = 0; row < 10; row++) {
+            int n = 40 + row;
+            assertEquals(n % 7, _rs.getValueCount(row, "keywords"));
+            for (int i = 0; i < n % 7; i++) {
+                assertEquals("v" + n + "." + i, _rs.getRepeatingString(row, "keywords", i));
+            }
+            assertEquals(1, _rs.getValueCount(row, "a_counts"));
+            assertEquals(n, _rs.getRepeatingInt(row, "a_counts", 0));
+        }
+        for (int row = 10; row < 20; row++) {
+            assertEquals(1, _rs.getValueCount(row, "keywords"));
+            assertEquals("k" + row, _rs.getRepeatingString(row, "keywords", 0));
+            assertEquals(row + 1, _rs.getRepeatingInt(row, "a_counts", 1));
+        }
+    }
+
+    @Test
+    public void testSortsByTypedValues() throws Exception {
+        dmRecordSet sorted = _rs.sortBy("r_modify_date DESC", "object_name");
+        assertEquals(20, sorted.getRowCount());
+
+        // rows with the same date are ordered by name
+        int[] expected = { 15, 11, 7, 3, 19, 10, 6, 2, 18, 14, 5, 1, 17, 13, 9, 0, 16, 12, 8, 4 };
+        int[] actual = new int[20];
+        for (int i = 0; i < 20; i++) {
+            actual[i] = sorted.getInt(i, "r_content_size") / 10;
+        }
+        assertEquals(Arrays.toString(expected), Arrays.toString(actual));
+
+        // numbers sort as numbers, not as strings
+        dmRecordSet bySize = _rs.sortBy("r_content_size");
+        assertEquals(0, bySize.getInt(0, "r_content_size"));
+        assertEquals(10, bySize.getInt(1, "r_content_size"));
+        assertEquals(190, bySize.getInt(19, "r_content_size"));
+
+        // equal values keep their order, changed values are sorted by their
+        // new value
+        _rs.setValue(4, "object_name", "doc9");
+        dmRecordSet byName = _rs.sortBy("object_name DESC");
+        assertEquals(40, byName.getInt(0, "r_content_size"));
+        assertEquals(90, byName.getInt(1, "r_content_size"));
+        assertEquals(140, byName.getInt(2, "r_content_size"));
+    }
+}
+
+/*
+ *  <SDG><
+ */
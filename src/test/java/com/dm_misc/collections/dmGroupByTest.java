@@ -0,0 +1,164 @@
+/**
+ * Tests of groupBy() and its aggregates.
+ *
+ * (C) 2013 MS Roth
+ * <p/>
+ *
+ * @author M. Scott Roth, http://msroth.wordpress.com
+ * @version 1.3
+ */
+package com.dm_misc.collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.documentum.fc.common.IDfAttr;
+
+public class dmGroupByTest {
+
+    private static final IDfAttr[] ATTRS = {
+        dmTestStubs.attr("r_object_id", IDfAttr.DM_ID, false),
+        dmTestStubs.attr("owner_name", IDfAttr.DM_STRING, false),
+        dmTestStubs.attr("r_content_size", IDfAttr.DM_INTEGER, false),
+        dmTestStubs.attr("a_rate", IDfAttr.DM_DOUBLE, false),
+        dmTestStubs.attr("r_modify_date", IDfAttr.DM_TIME, false),
+        dmTestStubs.attr("i_folder_id", IDfAttr.DM_ID, false),
+        dmTestStubs.attr("keywords", IDfAttr.DM_STRING, true) };
+
+    private static final long TIME = 1356998400000L;
+
+    private static dmRecordSet newRecordSet(dmRecordSet.Storage storage) throws Exception {
+        List<Object[]> rows = new ArrayList<Object[]>();
+        rows.add(new Object[] { "0900000000000001", "alice", 10, 1.0, TIME, "0B0000000000000A", new Object[] { "x", "y" } });
+        rows.add(new Object[] { "0900000000000002", "bob", 20, 2.0, TIME + 1000, "0b0000000000000c", new Object[] { "x" } });
+        rows.add(new Object[] { "0900000000000003", "alice", 30, 3.0, TIME + 2000, "0b0000000000000B", new Object[0] });
+        rows.add(new Object[] { "0900000000000004", "alice", 40, 4.0, TIME + 1000, "0b0000000000000a", new Object[] { "z", "x" } });
+        rows.add(new Object[] { "0900000000000005", "bob", 50, 5.0, TIME, "0B0000000000000C", new Object[] { "y" } });
+        return new dmRecordSet(dmTestStubs.collection(ATTRS, rows), storage);
+    }
+
+    @Test
+    public void testAggregates() throws Exception {
+        for (dmRecordSet.Storage storage : dmRecordSet.Storage.values()) {
+            dmRecordSet report = newRecordSet(storage).groupBy("owner_name")
+                    .count().sum("r_content_size").avg("a_rate").min("r_modify_date").max("r_content_size")
+                    .countDistinct("keywords").aggregate();
+            String message = storage.toString();
+            assertEquals(message, 2, report.getRowCount());
+            assertEquals(7, report.getColumnCount());
+
+            assertEquals("alice", report.getString(0, "owner_name"));
+            assertEquals(3, report.getInt(0, "count"));
+            assertEquals(80.0, report.getDouble(0, "sum_r_content_size"), 0);
+            assertEquals(8.0 / 3, report.getDouble(0, "avg_a_rate"), 1e-9);
+            assertEquals(TIME, dmRowStore.toMillis(report.getTime(0, "min_r_modify_date")));
+            assertEquals(40, report.getInt(0, "max_r_content_size"));
+            assertEquals(3, report.getInt(0, "count_distinct_keywords"));
+
+            assertEquals("bob", report.getString(1, "owner_name"));
+            assertEquals(2, report.getInt(1, "count"));
+            assertEquals(2, report.getInt(1, "count_distinct_keywords"));
+        }
+    }
+
+    @Test
+    public void testResultColumnTypes() throws Exception {
+        dmRecordSet report = newRecordSet(dmRecordSet.Storage.OBJECTS).groupBy("owner_name")
+                .count().sum("r_content_size").min("r_modify_date").max("i_folder_id").aggregate();
+        int[] types = { IDfAttr.DM_STRING, IDfAttr.DM_INTEGER, IDfAttr.DM_DOUBLE, IDfAttr.DM_TIME, IDfAttr.DM_ID };
+        for (int col = 0; col < types.length; col++) {
+            assertEquals(types[col], report.getColumnDefs().get(col).getDataType());
+        }
+    }
+
+    @Test
+    public void testGroupsIdsIgnoringCase() throws Exception {
+        dmRecordSet report = newRecordSet(dmRecordSet.Storage.COLUMNAR).groupBy("i_folder_id")
+                .count().sum("r_content_size").aggregate();
+        assertEquals(3, report.getRowCount());
+        assertEquals(2, report.getInt(0, "count"));
+        assertEquals(50.0, report.getDouble(0, "sum_r_content_size"), 0);
+        assertEquals(70.0, report.getDouble(1, "sum_r_content_size"), 0);
+        assertEquals(30.0, report.getDouble(2, "sum_r_content_size"), 0);
+    }
+
+    @Test
+    public void testMinAndMaxOfIdsIgnoreCase() throws Exception {
+        for (dmRecordSet.Storage storage : dmRecordSet.Storage.values()) {
+            dmRecordSet report = newRecordSet(storage).groupBy("owner_name")
+                    .min("i_folder_id").max("i_folder_id").aggregate();
+            assertEquals(storage.toString(), "0b0000000000000a", report.getString(0, "min_i_folder_id"));
+            assertEquals("0b0000000000000b", report.getString(0, "max_i_folder_id"));
+            assertEquals("0b0000000000000c", report.getString(1, "min_i_folder_id"));
+            assertEquals("0b0000000000000c", report.getString(1, "max_i_folder_id"));
+        }
+    }
+
+    @Test
+    public void testTimesAndRepeatingKeys() throws Exception {
+        dmRecordSet rs = newRecordSet(dmRecordSet.Storage.OFF_HEAP);
+        dmRecordSet byDate = rs.groupBy("r_modify_date").count().aggregate();
+        assertEquals(3, byDate.getRowCount());
+        assertEquals(2, byDate.getInt(1, "count"));
+
+        // a repeating key is grouped by its first value and becomes a
+        // single valued column; rows without values form a group with
+        // a null key, and min() over no values is null
+        dmRecordSet byKeyword = rs.groupBy("keywords", "owner_name").count().min("keywords").aggregate();
+        assertEquals(5, byKeyword.getRowCount());
+        assertFalse(byKeyword.getColumnDefs().get(0).isRepeating());
+        assertEquals("x", byKeyword.getString(0, "keywords"));
+        assertEquals("x", byKeyword.getString(1, "keywords"));
+        assertEquals("", byKeyword.getString(2, "keywords"));
+        assertEquals(1, byKeyword.getInt(2, "count"));
+        assertEquals("", byKeyword.getString(2, "min_keywords"));
+        assertEquals("x", byKeyword.getString(3, "min_keywords"));
+        rs.close();
+    }
+
+    @Test
+    public void testLargeRecordSetsMatchASimpleCount() throws Exception {
+        int rowCount = dmRowOrdering.PARALLEL_THRESHOLD * 2 + 123;
+        Random random = new Random(7);
+        List<Object[]> rows = new ArrayList<Object[]>();
+        HashMap<String, Integer> counts = new HashMap<String, Integer>();
+        HashMap<String, Integer> max = new HashMap<String, Integer>();
+        HashMap<String, HashSet<Integer>> distinct = new HashMap<String, HashSet<Integer>>();
+        for (int i = 0; i < rowCount; i++) {
+            String owner = "owner" + random.nextInt(500);
+            int size = random.nextInt(10000);
+            rows.add(new Object[] { String.format("09%014x", i), owner, size, 0.0, TIME, "0b00000000000001",
+                    new Object[0] });
+            counts.put(owner, (counts.containsKey(owner) ? counts.get(owner) : 0) + 1);
+            max.put(owner, Math.max(size, (max.containsKey(owner) ? max.get(owner) : 0)));
+            if (!distinct.containsKey(owner)) {
+                distinct.put(owner, new HashSet<Integer>());
+            }
+            distinct.get(owner).add(size % 100);
+        }
+        for (Object[] row : rows) {
+            row[3] = (double) ((Integer) row[2] % 100);
+        }
+        dmRecordSet report = new dmRecordSet(dmTestStubs.collection(ATTRS, rows), dmRecordSet.Storage.COLUMNAR)
+                .groupBy("owner_name").count().max("r_content_size").countDistinct("a_rate").aggregate();
+        assertEquals(counts.size(), report.getRowCount());
+        for (int g = 0; g < report.getRowCount(); g++) {
+            String owner = report.getString(g, "owner_name");
+            assertEquals(owner, counts.get(owner).intValue(), report.getInt(g, "count"));
+            assertEquals(owner, max.get(owner).intValue(), report.getInt(g, "max_r_content_size"));
+            assertEquals(owner, distinct.get(owner).size(), report.getInt(g, "count_distinct_a_rate"));
+        }
+    }
+}
+
+/*
+ *  <SDG><
+ */
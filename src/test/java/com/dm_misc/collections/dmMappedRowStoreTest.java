@@ -0,0 +1,189 @@
+/**
+ * Tests of the dmRecordSet file format: writeTo(), open() and spill().
+ *
+ * (C) 2013 MS Roth
+ * <p/>
+ *
+ * @author M. Scott Roth, http://msroth.wordpress.com
+ * @version 1.3
+ */
+package com.dm_misc.collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.documentum.fc.common.IDfAttr;
+
+public class dmMappedRowStoreTest {
+
+    private static final IDfAttr[] ATTRS = {
+        dmTestStubs.attr("r_object_id", IDfAttr.DM_ID, false),
+        dmTestStubs.attr("object_name", IDfAttr.DM_STRING, false),
+        dmTestStubs.attr("r_content_size", IDfAttr.DM_INTEGER, false),
+        dmTestStubs.attr("a_rate", IDfAttr.DM_DOUBLE, false),
+        dmTestStubs.attr("r_immutable_flag", IDfAttr.DM_BOOLEAN, false),
+        dmTestStubs.attr("r_modify_date", IDfAttr.DM_TIME, false),
+        dmTestStubs.attr("i_chronicle_id", IDfAttr.DM_ID, false),
+        dmTestStubs.attr("keywords", IDfAttr.DM_STRING, true),
+        dmTestStubs.attr("i_folder_id", IDfAttr.DM_ID, true),
+        dmTestStubs.attr("a_counts", IDfAttr.DM_INTEGER, true),
+        dmTestStubs.attr("a_rates", IDfAttr.DM_DOUBLE, true),
+        dmTestStubs.attr("a_flags", IDfAttr.DM_BOOLEAN, true),
+        dmTestStubs.attr("a_times", IDfAttr.DM_TIME, true) };
+
+    private static final long TIME = 1356998400000L;
+
+    private Path _file;
+
+    @Before
+    public void setUp() throws IOException {
+        _file = Files.createTempFile("dmMappedRowStoreTest", ".dat");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(_file);
+    }
+
+    private static String id(int row) {
+        return String.format("09%014x", row);
+    }
+
+    /**
+     * Rows with a value of every type, null ids and times in row 0, and an
+     * i_chronicle_id that is not an id in row 1 (stored as strings).
+     */
+    private static List<Object[]> rows(int rowCount) {
+        List<Object[]> rows = new ArrayList<Object[]>();
+        for (int i = 0; i < rowCount; i++) {
+            rows.add(new Object[] { id(i), "doc \u00e9 " + i, i, i * 1.5, i % 2 == 0, TIME + i * 1000L, id(i * 2),
+                    new Object[] { "k" + i, "", "k" + (i + 1) }, new Object[] { id(i + 100) },
+                    new Object[] { i, -i }, new Object[] { i / 3.0 }, new Object[] { true, false },
+                    new Object[] { TIME, TIME + i } });
+        }
+        rows.get(0)[0] = dmRowStore.NULL_ID;
+        rows.get(0)[5] = dmRowStore.NULL_TIME;
+        rows.get(0)[7] = new Object[0];
+        rows.get(0)[12] = new Object[] { dmRowStore.NULL_TIME };
+        rows.get(1)[6] = "not an id";
+        return rows;
+    }
+
+    private static void assertSameRows(String message, dmRecordSet expected, dmRecordSet actual) throws Exception {
+        assertEquals(message, expected.getRowCount(), actual.getRowCount());
+        assertEquals(message, expected.getColumnCount(), actual.getColumnCount());
+        for (int col = 0; col < expected.getColumnCount(); col++) {
+            IDfAttr attr = actual.getColumnDefs().get(col);
+            assertEquals(message, ATTRS[col].getName(), attr.getName());
+            assertEquals(message, ATTRS[col].getDataType(), attr.getDataType());
+            assertEquals(message, ATTRS[col].isRepeating(), attr.isRepeating());
+        }
+        for (int row = 0; row < expected.getRowCount(); row++) {
+            for (int col = 0; col < expected.getColumnCount(); col++) {
+                String where = String.format("%s row %d column %d", message, row, col);
+                assertEquals(where, expected.getValueCount(row, col), actual.getValueCount(row, col));
+                for (int i = 0; i < expected.getValueCount(row, col); i++) {
+                    assertEquals(where, expected.getRepeatingString(row, col, i), actual.getRepeatingString(row, col, i));
+                }
+            }
+            assertEquals(expected.getInt(row, 2), actual.getInt(row, 2));
+            assertEquals(expected.getDouble(row, 3), actual.getDouble(row, 3), 0);
+            assertEquals(expected.getBoolean(row, 4), actual.getBoolean(row, 4));
+            assertEquals(dmRowStore.toMillis(expected.getTime(row, 5)), dmRowStore.toMillis(actual.getTime(row, 5)));
+            assertEquals(expected.getRepeatingDouble(row, 10, 0), actual.getRepeatingDouble(row, 10, 0), 0);
+        }
+    }
+
+    @Test
+    public void testRoundTripsEveryType() throws Exception {
+        for (dmRecordSet.Storage storage : dmRecordSet.Storage.values()) {
+            dmRecordSet rs = new dmRecordSet(dmTestStubs.collection(ATTRS, rows(50)), storage);
+            rs.writeTo(_file);
+            dmRecordSet read = dmRecordSet.open(_file);
+            assertTrue(read.isFrozen());
+            assertSameRows(storage.toString(), rs, read);
+            rs.close();
+        }
+    }
+
+    @Test
+    public void testNullIdsAndTimes() throws Exception {
+        new dmRecordSet(dmTestStubs.collection(ATTRS, rows(3))).writeTo(_file);
+        dmRecordSet read = dmRecordSet.open(_file);
+        assertEquals(dmRowStore.NULL_ID, read.getString(0, "r_object_id"));
+        assertEquals(dmRowStore.NULL_TIME, dmRowStore.toMillis(read.getTime(0, "r_modify_date")));
+        assertEquals(dmRowStore.NULL_TIME, dmRowStore.toMillis(read.getRepeatingTime(0, "a_times", 0)));
+        assertEquals(0, read.getValueCount(0, "keywords"));
+        assertEquals("not an id", read.getString(1, "i_chronicle_id"));
+        assertEquals(id(4), read.getString(2, "i_chronicle_id"));
+    }
+
+    @Test
+    public void testEmptyRecordSet() throws Exception {
+        new dmRecordSet(dmTestStubs.collection(ATTRS, new ArrayList<Object[]>())).writeTo(_file);
+        dmRecordSet read = dmRecordSet.open(_file);
+        assertEquals(0, read.getRowCount());
+        assertEquals(ATTRS.length, read.getColumnCount());
+    }
+
+    @Test
+    public void testSpill() throws Exception {
+        dmRecordSet rs = new dmRecordSet(dmTestStubs.collection(ATTRS, rows(20)), dmRecordSet.Storage.COLUMNAR);
+        dmRecordSet copy = new dmRecordSet(dmTestStubs.collection(ATTRS, rows(20)));
+        rs.getNextRow();
+        rs.getNextRow();
+        rs.spill(_file);
+        assertTrue(rs.isFrozen());
+        assertEquals(1, rs.getCurrentRowNumber());
+        assertEquals(id(1), rs.getCurrentRow().getString("r_object_id"));
+        assertSameRows("spill", copy, rs);
+    }
+
+    @Test
+    public void testRejectsOtherFiles() throws Exception {
+        Files.write(_file, "r_object_id,object_name\n".getBytes("UTF-8"));
+        assertOpenFails("is not a dmRecordSet file");
+
+        new dmRecordSet(dmTestStubs.collection(ATTRS, rows(5))).writeTo(_file);
+        byte[] bytes = Files.readAllBytes(_file);
+        ByteBuffer.wrap(bytes).putInt(4, 2);
+        Files.write(_file, bytes);
+        assertOpenFails("has unsupported format version 2");
+    }
+
+    @Test
+    public void testRejectsTruncatedFiles() throws Exception {
+        new dmRecordSet(dmTestStubs.collection(ATTRS, rows(5))).writeTo(_file);
+        byte[] bytes = Files.readAllBytes(_file);
+        for (int length : new int[] { 8, 40, 200, bytes.length - 1 }) {
+            Files.write(_file, Arrays.copyOf(bytes, length));
+            assertOpenFails((length < 16 ? "is not a dmRecordSet file" : "is truncated"));
+        }
+    }
+
+    private void assertOpenFails(String message) throws Exception {
+        try {
+            dmRecordSet.open(_file);
+            fail("open() read a file that is not a record set file");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().endsWith(message + "."));
+        }
+    }
+}
+
+/*
+ *  <SDG><
+ */
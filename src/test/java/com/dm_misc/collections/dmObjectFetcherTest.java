@@ -0,0 +1,185 @@
+/**
+ * Tests of dmObjectFetcher against a stubbed session.
+ *
+ * (C) 2013 MS Roth
+ * <p/>
+ *
+ * @author M. Scott Roth, http://msroth.wordpress.com
+ * @version 1.3
+ */
+package com.dm_misc.collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.documentum.fc.client.IDfPersistentObject;
+import com.documentum.fc.client.IDfSession;
+import com.documentum.fc.common.IDfAttr;
+
+/**
+ * The stub session records each query and returns an object for each id
+ * it names, except the ids in _missing, in reverse order.
+ */
+public class dmObjectFetcherTest {
+
+    private static final IDfAttr[] ATTRS = {
+        dmTestStubs.attr("r_object_id", IDfAttr.DM_ID, false),
+        dmTestStubs.attr("object_name", IDfAttr.DM_STRING, false) };
+
+    private List<String> _queries = Collections.synchronizedList(new ArrayList<String>());
+    private HashSet<String> _missing = new HashSet<String>();
+
+    private IDfSession _session = dmTestStubs.session("docbase", "dmadmin", new dmTestStubs.QueryHandler() {
+
+        public List<IDfPersistentObject> getObjectsByQuery(String dql) {
+            _queries.add(dql);
+            return objects(dql);
+        }
+    });
+
+    private static String id(int row) {
+        return String.format("09%014x", row);
+    }
+
+    private List<IDfPersistentObject> objects(String dql) {
+        ArrayList<IDfPersistentObject> objects = new ArrayList<IDfPersistentObject>();
+        for (String id : dmTestStubs.quotedIds(dql)) {
+            if (!_missing.contains(id)) {
+                objects.add(0, dmTestStubs.object(id));
+            }
+        }
+        return objects;
+    }
+
+    private static dmRecordSet newRecordSet(String... ids) throws Exception {
+        List<Object[]> rows = new ArrayList<Object[]>();
+        for (int i = 0; i < ids.length; i++) {
+            rows.add(new Object[] { ids[i], "doc" + i });
+        }
+        return new dmRecordSet(dmTestStubs.collection(ATTRS, rows));
+    }
+
+    private static dmRecordSet newRecordSet(int rowCount) throws Exception {
+        String[] ids = new String[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+            ids[i] = id(i);
+        }
+        return newRecordSet(ids);
+    }
+
+    @Test
+    public void testOneQueryPerBatchInRowOrder() throws Exception {
+        dmObjectFetcher fetcher = newRecordSet(10).fetchObjects(_session, "r_object_id", 4);
+        for (int row = 0; row < 10; row++) {
+            assertTrue(fetcher.hasNext());
+            assertEquals(id(row), fetcher.getNextObject().getObjectId().getId());
+            assertEquals(row, fetcher.getRowNumber());
+        }
+        assertFalse(fetcher.hasNext());
+
+        assertEquals(3, _queries.size());
+        assertEquals(3, fetcher.getRoundTrips());
+        assertEquals("select * from dm_sysobject (all) where r_object_id in ('" + id(0) + "','" + id(1) + "','" + id(2)
+                + "','" + id(3) + "')", _queries.get(0));
+        assertEquals(Arrays.asList(id(4), id(5), id(6), id(7)), dmTestStubs.quotedIds(_queries.get(1)));
+        assertEquals(Arrays.asList(id(8), id(9)), dmTestStubs.quotedIds(_queries.get(2)));
+    }
+
+    @Test
+    public void testNullMissingAndDuplicateIds() throws Exception {
+        _missing.add(id(3));
+        dmObjectFetcher fetcher = newRecordSet(id(1), dmRowStore.NULL_ID, id(1), "not an id", id(3),
+                id(2).toUpperCase()).fetchObjects(_session, "r_object_id", 10);
+
+        IDfPersistentObject first = fetcher.getNextObject();
+        assertEquals(id(1), first.getObjectId().getId());
+        assertNull(fetcher.getNextObject());
+        assertSame(first, fetcher.getNextObject());
+        assertNull(fetcher.getNextObject());
+        assertNull(fetcher.getNextObject());
+        assertEquals(id(2), fetcher.getNextObject().getObjectId().getId());
+
+        // null and invalid ids are left out, duplicates are asked for once
+        assertEquals(1, _queries.size());
+        assertEquals(Arrays.asList(id(1), id(3), id(2)), dmTestStubs.quotedIds(_queries.get(0)));
+    }
+
+    @Test
+    public void testNoQueryForABatchWithoutIds() throws Exception {
+        dmObjectFetcher fetcher = newRecordSet(dmRowStore.NULL_ID, dmRowStore.NULL_ID, id(2))
+                .fetchObjects(_session, "r_object_id", 2);
+        assertNull(fetcher.getNextObject());
+        assertNull(fetcher.getNextObject());
+        assertEquals(id(2), fetcher.getNextObject().getObjectId().getId());
+        assertEquals(1, fetcher.getRoundTrips());
+    }
+
+    @Test
+    public void testFetchesTheNextBatchAhead() throws Exception {
+        final CountDownLatch secondBatch = new CountDownLatch(1);
+        IDfSession session = dmTestStubs.session("docbase", "dmadmin", new dmTestStubs.QueryHandler() {
+
+            public List<IDfPersistentObject> getObjectsByQuery(String dql) {
+                if (dql.contains(id(4))) {
+                    secondBatch.countDown();
+                }
+                return objects(dql);
+            }
+        });
+        dmObjectFetcher fetcher = newRecordSet(8).fetchObjects(session, "r_object_id", 4);
+
+        // reading the first batch starts the query of the second
+        fetcher.getNextObject();
+        assertTrue(secondBatch.await(5, TimeUnit.SECONDS));
+        assertEquals(2, fetcher.getRoundTrips());
+        fetcher.close();
+    }
+
+    @Test
+    public void testCloseCancelsThePendingFetch() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        final CountDownLatch never = new CountDownLatch(1);
+        IDfSession session = dmTestStubs.session("docbase", "dmadmin", new dmTestStubs.QueryHandler() {
+
+            public List<IDfPersistentObject> getObjectsByQuery(String dql) {
+                _queries.add(dql);
+                if (dql.contains(id(4))) {
+                    started.countDown();
+                    try {
+                        never.await();
+                    } catch (InterruptedException e) {
+                        interrupted.countDown();
+                    }
+                }
+                return objects(dql);
+            }
+        });
+        dmObjectFetcher fetcher = newRecordSet(12).fetchObjects(session, "r_object_id", 4);
+        fetcher.getNextObject();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        fetcher.close();
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        assertFalse(fetcher.hasNext());
+        assertEquals(2, fetcher.getRoundTrips());
+        assertEquals(2, _queries.size());
+    }
+}
+
+/*
+ *  <SDG><
+ */
@@ -0,0 +1,167 @@
+/**
+ * Tests of Storage.OFF_HEAP record sets.
+ *
+ * (C) 2013 MS Roth
+ * <p/>
+ *
+ * @author M. Scott Roth, http://msroth.wordpress.com
+ * @version 1.3
+ */
+package com.dm_misc.collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.documentum.fc.client.IDfTypedObject;
+import com.documentum.fc.common.DfException;
+import com.documentum.fc.common.IDfAttr;
+
+public class dmOffHeapRowStoreTest {
+
+    private static final IDfAttr[] ATTRS = {
+        dmTestStubs.attr("r_object_id", IDfAttr.DM_ID, false),
+        dmTestStubs.attr("object_name", IDfAttr.DM_STRING, false),
+        dmTestStubs.attr("r_content_size", IDfAttr.DM_INTEGER, false),
+        dmTestStubs.attr("a_rate", IDfAttr.DM_DOUBLE, false),
+        dmTestStubs.attr("r_immutable_flag", IDfAttr.DM_BOOLEAN, false),
+        dmTestStubs.attr("r_modify_date", IDfAttr.DM_TIME, false),
+        dmTestStubs.attr("keywords", IDfAttr.DM_STRING, true),
+        dmTestStubs.attr("i_folder_id", IDfAttr.DM_ID, true),
+        dmTestStubs.attr("r_version_label", IDfAttr.DM_STRING, true),
+        dmTestStubs.attr("a_counts", IDfAttr.DM_INTEGER, true),
+        dmTestStubs.attr("a_times", IDfAttr.DM_TIME, true) };
+
+    private static final long TIME = 1356998400000L;
+
+    private static String id(int row) {
+        return String.format("09%014x", row);
+    }
+
+    private static List<Object[]> rows(int rowCount) {
+        List<Object[]> rows = new ArrayList<Object[]>();
+        for (int i = 0; i < rowCount; i++) {
+            rows.add(new Object[] { id(i), "doc" + i + " \u00e9", i, i / 4.0, i % 2 == 0, TIME + i * 1000L,
+                    new Object[] { "k" + i, "shared" }, new Object[] { "0b" + id(i).substring(2) },
+                    new Object[0], new Object[] { i, -i }, new Object[] { TIME, dmRowStore.NULL_TIME } });
+        }
+        return rows;
+    }
+
+    private static dmRecordSet newRecordSet(List<Object[]> rows) throws Exception {
+        return new dmRecordSet(dmTestStubs.collection(ATTRS, rows), dmRecordSet.Storage.OFF_HEAP);
+    }
+
+    @Test
+    public void testStoresEveryType() throws Exception {
+        dmRecordSet rs = newRecordSet(rows(100));
+        assertEquals(dmRecordSet.Storage.OFF_HEAP, rs.getStorage());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(id(i), rs.getString(i, "r_object_id"));
+            assertEquals("doc" + i + " \u00e9", rs.getString(i, "object_name"));
+            assertEquals(i, rs.getInt(i, "r_content_size"));
+            assertEquals(i / 4.0, rs.getDouble(i, "a_rate"), 0);
+            assertEquals(i % 2 == 0, rs.getBoolean(i, "r_immutable_flag"));
+            assertEquals(TIME + i * 1000L, dmRowStore.toMillis(rs.getTime(i, "r_modify_date")));
+        }
+        rs.close();
+    }
+
+    @Test
+    public void testStoresRepeatingValues() throws Exception {
+        dmRecordSet rs = newRecordSet(rows(10));
+        assertEquals(2, rs.getValueCount(3, "keywords"));
+        assertEquals("k3", rs.getRepeatingString(3, "keywords", 0));
+        assertEquals("shared", rs.getRepeatingString(3, "keywords", 1));
+        assertEquals("0b" + id(3).substring(2), rs.getRepeatingId(3, "i_folder_id", 0).getId());
+        assertEquals(0, rs.getValueCount(3, "r_version_label"));
+        assertEquals(-3, rs.getRepeatingInt(3, "a_counts", 1));
+        assertEquals(dmRowStore.NULL_TIME, dmRowStore.toMillis(rs.getRepeatingTime(3, "a_times", 1)));
+
+        rs.setValue(3, "keywords", new Object[] { "a", "b", "c" });
+        assertEquals(3, rs.getValueCount(3, "keywords"));
+        assertEquals("c", rs.getRepeatingString(3, "keywords", 2));
+        assertEquals("k4", rs.getRepeatingString(4, "keywords", 0));
+        rs.close();
+    }
+
+    @Test
+    public void testNullAndInvalidIds() throws Exception {
+        List<Object[]> rows = rows(3);
+        rows.get(0)[0] = null;
+        rows.get(1)[0] = "not an id";
+        dmRecordSet rs = newRecordSet(rows);
+        assertEquals(dmRowStore.NULL_ID, rs.getString(0, "r_object_id"));
+        assertEquals("not an id", rs.getString(1, "r_object_id"));
+        assertEquals(id(2), rs.getString(2, "r_object_id"));
+        rs.close();
+    }
+
+    @Test
+    public void testReadingAfterCloseFails() throws Exception {
+        dmRecordSet rs = newRecordSet(rows(10));
+        IDfTypedObject row = rs.getRow(2);
+        rs.close();
+        rs.close();
+        try {
+            rs.getString(2, "object_name");
+            fail("a closed record set was read");
+        } catch (DfException e) {
+            // expected
+        }
+        try {
+            row.getString("object_name");
+            fail("a row of a closed record set was read");
+        } catch (DfException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testRefreshFreesTheOldStorage() throws Exception {
+        dmRecordSet rs = newRecordSet(rows(10));
+        IDfTypedObject row = rs.getRow(2);
+        rs.refresh(dmTestStubs.collection(ATTRS, rows(10)), "r_object_id", null);
+        assertEquals("doc2 \u00e9", rs.getString(2, "object_name"));
+        try {
+            row.getString("object_name");
+            fail("the storage replaced by refresh() was not freed");
+        } catch (DfException e) {
+            // expected
+        }
+        rs.close();
+    }
+
+    @Test
+    public void testViewsKeepTheOldStorage() throws Exception {
+        dmRecordSet rs = newRecordSet(rows(10));
+        dmRecordSet view = rs.sortBy("r_content_size desc");
+        rs.refresh(dmTestStubs.collection(ATTRS, rows(5)), "r_object_id", null);
+        assertEquals(5, rs.getRowCount());
+        assertEquals(10, view.getRowCount());
+        assertEquals("doc9 \u00e9", view.getString(0, "object_name"));
+
+        Path file = Files.createTempFile("dmOffHeapRowStoreTest", ".dat");
+        try {
+            rs.spill(file);
+            assertTrue(rs.isFrozen());
+            assertEquals("doc4 \u00e9", rs.getString(4, "object_name"));
+            assertFalse(rs.getStorage() == dmRecordSet.Storage.OFF_HEAP);
+            rs.close();
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
+
+/*
+ *  <SDG><
+ */
@@ -0,0 +1,95 @@
+/**
+ * Tests of record sets read in the background by loadAsync().
+ *
+ * (C) 2013 MS Roth
+ * <p/>
+ *
+ * @author M. Scott Roth, http://msroth.wordpress.com
+ * @version 1.3
+ */
+package com.dm_misc.collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import com.documentum.fc.common.DfException;
+import com.documentum.fc.common.IDfAttr;
+
+public class dmRecordSetAsyncTest {
+
+    private static final IDfAttr[] ATTRS = {
+        dmTestStubs.attr("r_object_id", IDfAttr.DM_ID, false),
+        dmTestStubs.attr("r_content_size", IDfAttr.DM_INTEGER, false) };
+
+    private static List<Object[]> rows(int rowCount) {
+        List<Object[]> rows = new ArrayList<Object[]>();
+        for (int i = 0; i < rowCount; i++) {
+            rows.add(new Object[] { String.format("09%014x", i), i });
+        }
+        return rows;
+    }
+
+    @Test
+    public void testLoadsEveryRow() throws Exception {
+        for (dmRecordSet.Storage storage : dmRecordSet.Storage.values()) {
+            dmRecordSet rs = dmRecordSet.loadAsync(dmTestStubs.collection(ATTRS, rows(1000)), storage);
+            assertEquals(storage.toString(), 1000, rs.sortBy("r_content_size desc").getRowCount());
+            assertEquals(999, rs.sortBy("r_content_size desc").getRow(0).getInt("r_content_size"));
+            rs.close();
+        }
+    }
+
+    @Test
+    public void testOperationsOverAllRowsRethrowTheLoadFailure() throws Exception {
+        dmRecordSet rs = dmRecordSet.loadAsync(dmTestStubs.collection(ATTRS, rows(1000), 500));
+        try {
+            rs.sortBy("r_content_size");
+            fail("sortBy() returned the rows read before the failure");
+        } catch (DfException e) {
+            assertTrue(e.getMessage().contains("Connection lost"));
+        }
+        try {
+            rs.freeze();
+            fail("freeze() returned the rows read before the failure");
+        } catch (DfException e) {
+            // expected
+        }
+        try {
+            rs.groupBy("r_content_size");
+            fail("groupBy() grouped the rows read before the failure");
+        } catch (DfException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testStreamReadsALoadingSetWithoutMovingTheCursor() throws Exception {
+        dmRecordSet rs = dmRecordSet.loadAsync(dmTestStubs.collection(ATTRS, rows(1000)));
+        rs.getNextRow();
+        rs.getNextRow();
+        List<Integer> sizes = rs.stream().map(r -> {
+            try {
+                return r.getInt("r_content_size");
+            } catch (DfException e) {
+                throw new RuntimeException(e);
+            }
+        }).collect(Collectors.toList());
+
+        assertEquals(1000, sizes.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, sizes.get(i).intValue());
+        }
+        assertEquals(1, rs.getCurrentRowNumber());
+    }
+}
+
+/*
+ *  <SDG><
+ */
@@ -0,0 +1,203 @@
+/**
+ * Tests of dmRecordSetCache with a counting query executor.
+ *
+ * (C) 2013 MS Roth
+ * <p/>
+ *
+ * @author M. Scott Roth, http://msroth.wordpress.com
+ * @version 1.3
+ */
+package com.dm_misc.collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.documentum.fc.client.IDfCollection;
+import com.documentum.fc.client.IDfSession;
+import com.documentum.fc.common.DfException;
+import com.documentum.fc.common.IDfAttr;
+
+/**
+ * The executor counts the queries it runs and can hold them until
+ * _release is opened, so tests can act while a load is in flight.
+ */
+public class dmRecordSetCacheTest {
+
+    private static final IDfAttr[] ATTRS = {
+        dmTestStubs.attr("r_object_id", IDfAttr.DM_ID, false),
+        dmTestStubs.attr("object_name", IDfAttr.DM_STRING, false) };
+
+    private IDfSession _session = dmTestStubs.session("docbase", "dmadmin", null);
+    private AtomicInteger _executed = new AtomicInteger();
+    private CountDownLatch _started = new CountDownLatch(1);
+    private CountDownLatch _release = new CountDownLatch(0);
+    private ExecutorService _threads = Executors.newCachedThreadPool();
+
+    private dmRecordSetCache.QueryExecutor _executor = new dmRecordSetCache.QueryExecutor() {
+
+        public IDfCollection execute(IDfSession session, String dql) throws DfException {
+            _executed.incrementAndGet();
+            _started.countDown();
+            try {
+                _release.await();
+            } catch (InterruptedException e) {
+                throw new DfException("Interrupted.");
+            }
+            List<Object[]> rows = new ArrayList<Object[]>();
+            for (int i = 0; i < 20; i++) {
+                rows.add(new Object[] { String.format("09%014x", i), "doc" + i });
+            }
+            return dmTestStubs.collection(ATTRS, rows);
+        }
+    };
+
+    @After
+    public void tearDown() {
+        _threads.shutdownNow();
+    }
+
+    private dmRecordSetCache newCache(long maxBytes, long ttlMillis) {
+        return new dmRecordSetCache(maxBytes, ttlMillis).setQueryExecutor(_executor);
+    }
+
+    private Future<dmRecordSet> getLater(final dmRecordSetCache cache, final String dql) {
+        return _threads.submit(new Callable<dmRecordSet>() {
+
+            public dmRecordSet call() throws Exception {
+                return cache.get(_session, dql);
+            }
+        });
+    }
+
+    @Test
+    public void testHitsAndMisses() throws Exception {
+        dmRecordSetCache cache = newCache(1L << 30, 0);
+        dmRecordSet first = cache.get(_session, "select * from dm_document where owner_name = 'A'");
+        assertTrue(first.isFrozen());
+        assertSame(first, cache.get(_session, "SELECT *  FROM dm_document\n where owner_name = 'A'"));
+        assertNotSame(first, cache.get(_session, "select * from dm_document where owner_name = 'a'"));
+
+        assertEquals(2, _executed.get());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(2, cache.getLoadCount());
+        assertEquals(1.0 / 3, cache.getHitRate(), 1e-9);
+        assertEquals(2, cache.size());
+
+        cache.resetStatistics();
+        assertEquals(0, cache.getHitCount());
+        assertEquals(0, cache.getMissCount());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void testScopes() throws Exception {
+        dmRecordSetCache cache = newCache(1L << 30, 0);
+        IDfSession other = dmTestStubs.session("docbase", "jsmith", null);
+        dmRecordSet rs = cache.get(_session, "select * from dm_document");
+        assertNotSame(rs, cache.get(other, "select * from dm_document"));
+        assertSame(rs, cache.get(other, "dmadmin", "select * from dm_document"));
+        assertEquals(2, _executed.get());
+    }
+
+    @Test
+    public void testEntriesExpire() throws Exception {
+        dmRecordSetCache cache = newCache(1L << 30, 50);
+        dmRecordSet rs = cache.get(_session, "select * from dm_document");
+        assertSame(rs, cache.get(_session, "select * from dm_document"));
+        Thread.sleep(100);
+
+        assertNotSame(rs, cache.get(_session, "select * from dm_document"));
+        assertEquals(2, _executed.get());
+        Thread.sleep(100);
+        assertEquals(1, cache.cleanUp());
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getEstimatedBytes());
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsedBySize() throws Exception {
+        dmRecordSetCache sizing = newCache(1L << 30, 0);
+        sizing.get(_session, "select * from t1");
+        long entryBytes = sizing.getEstimatedBytes();
+        assertTrue(entryBytes > 0);
+
+        // room for two entries
+        dmRecordSetCache cache = newCache(entryBytes * 5 / 2, 0);
+        _executed.set(0);
+        dmRecordSet t1 = cache.get(_session, "select * from t1");
+        cache.get(_session, "select * from t2");
+        assertSame(t1, cache.get(_session, "select * from t1"));
+        cache.get(_session, "select * from t3");
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(2 * entryBytes, cache.getEstimatedBytes());
+        assertSame(t1, cache.get(_session, "select * from t1"));
+        cache.get(_session, "select * from t2");
+        assertEquals(4, _executed.get());
+    }
+
+    @Test
+    public void testRecordSetLargerThanTheCacheIsNotCached() throws Exception {
+        dmRecordSetCache cache = newCache(100, 0);
+        dmRecordSet rs = cache.get(_session, "select * from dm_document");
+        assertEquals(20, rs.getRowCount());
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getEvictionCount());
+    }
+
+    @Test
+    public void testConcurrentMissesShareOneLoad() throws Exception {
+        dmRecordSetCache cache = newCache(1L << 30, 0);
+        _release = new CountDownLatch(1);
+        Future<dmRecordSet> first = getLater(cache, "select * from dm_document");
+        assertTrue(_started.await(5, TimeUnit.SECONDS));
+        Future<dmRecordSet> second = getLater(cache, "select * from dm_document");
+        for (int i = 0; i < 500 && cache.getMissCount() < 2; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(2, cache.getMissCount());
+
+        _release.countDown();
+        assertSame(first.get(5, TimeUnit.SECONDS), second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, _executed.get());
+        assertEquals(1, cache.getLoadCount());
+    }
+
+    @Test
+    public void testInvalidateDuringLoad() throws Exception {
+        dmRecordSetCache cache = newCache(1L << 30, 0);
+        _release = new CountDownLatch(1);
+        Future<dmRecordSet> loading = getLater(cache, "select * from dm_document");
+        assertTrue(_started.await(5, TimeUnit.SECONDS));
+        assertEquals(0, cache.invalidate("select * from dm_document"));
+
+        // the caller gets the rows, but they are not cached
+        _release.countDown();
+        assertEquals(20, loading.get(5, TimeUnit.SECONDS).getRowCount());
+        assertEquals(0, cache.size());
+        cache.get(_session, "select * from dm_document");
+        assertEquals(2, _executed.get());
+        assertEquals(1, cache.size());
+    }
+}
+
+/*
+ *  <SDG><
+ */
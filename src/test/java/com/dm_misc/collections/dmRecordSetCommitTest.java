@@ -0,0 +1,229 @@
+/**
+ * Tests of dmRecordSet.commit() against a stubbed session.
+ *
+ * (C) 2013 MS Roth
+ * <p/>
+ *
+ * @author M. Scott Roth, http://msroth.wordpress.com
+ * @version 1.3
+ */
+package com.dm_misc.collections;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.documentum.fc.client.IDfCollection;
+import com.documentum.fc.client.IDfSession;
+import com.documentum.fc.common.DfException;
+import com.documentum.fc.common.IDfAttr;
+
+/**
+ * The executor records each UPDATE statement and reports every object it
+ * names as updated, except the objects in _missing.
+ */
+public class dmRecordSetCommitTest {
+
+    private static final IDfAttr[] ATTRS = {
+        dmTestStubs.attr("r_object_id", IDfAttr.DM_ID, false),
+        dmTestStubs.attr("object_name", IDfAttr.DM_STRING, false),
+        dmTestStubs.attr("owner_name", IDfAttr.DM_STRING, false),
+        dmTestStubs.attr("r_modify_date", IDfAttr.DM_TIME, false),
+        dmTestStubs.attr("keywords", IDfAttr.DM_STRING, true) };
+
+    private IDfSession _session = dmTestStubs.session("docbase", "dmadmin", null);
+    private List<String> _executed = new ArrayList<String>();
+    private HashSet<String> _missing = new HashSet<String>();
+    private dmRecordSetCache.QueryExecutor _executor = new dmRecordSetCache.QueryExecutor() {
+
+        public IDfCollection execute(IDfSession session, String dql) {
+            _executed.add(dql);
+            int updated = 0;
+            for (String id : dmTestStubs.quotedIds(dql)) {
+                if (!_missing.contains(id)) {
+                    updated++;
+                }
+            }
+            return dmTestStubs.updateResult(updated);
+        }
+    };
+
+    private dmRecordSet _rs;
+
+    @Before
+    public void setUp() throws Exception {
+        _rs = newRecordSet(10, dmRecordSet.Storage.OBJECTS);
+    }
+
+    private static String id(int row) {
+        return String.format("09%014x", row);
+    }
+
+    private static dmRecordSet newRecordSet(int rowCount, dmRecordSet.Storage storage) throws Exception {
+        List<Object[]> rows = new ArrayList<Object[]>();
+        for (int i = 0; i < rowCount; i++) {
+            rows.add(new Object[] { id(i), "doc" + i, "owner" + (i % 2), 1356998400000L + i * 60000L,
+                    new Object[] { "k" + i } });
+        }
+        return new dmRecordSet(dmTestStubs.collection(ATTRS, rows), storage);
+    }
+
+    @Test
+    public void testGroupsRowsByChanges() throws Exception {
+        _rs.setValue(0, "owner_name", "jsmith");
+        _rs.setValue(1, "owner_name", "ajones");
+        _rs.setValue(2, "owner_name", "jsmith");
+        _rs.setValue(3, "object_name", "renamed");
+        _rs.setValue(4, "owner_name", "jsmith");
+
+        dmCommitResult result = _rs.commit(_session, "dm_document", 100, _executor);
+
+        assertEquals(Arrays.asList(
+                "update dm_document objects set owner_name = 'jsmith' where r_object_id in ('" + id(0) + "','" + id(2)
+                        + "','" + id(4) + "')",
+                "update dm_document objects set owner_name = 'ajones' where r_object_id in ('" + id(1) + "')",
+                "update dm_document objects set object_name = 'renamed' where r_object_id in ('" + id(3) + "')"),
+                _executed);
+        assertEquals(_executed, result.getStatements());
+        assertArrayEquals(new int[] { 0, 1, 2, 3, 4 }, result.getUpdatedRows());
+        assertTrue(result.isSuccessful());
+        assertFalse(_rs.isDirty());
+    }
+
+    @Test
+    public void testWritesRepeatingValuesAndTimes() throws Exception {
+        _rs.setValue(5, "r_modify_date", "01/02/2020 10:00:00");
+        _rs.setValue(5, "keywords", new Object[] { "a", "it's" });
+
+        _rs.commit(_session, "dm_document", 100, _executor);
+
+        assertEquals(Arrays.asList("update dm_document objects"
+                + " set r_modify_date = date('01/02/2020 10:00:00','mm/dd/yyyy hh:mi:ss'),"
+                + " truncate keywords, append keywords = 'a', append keywords = 'it''s'"
+                + " where r_object_id in ('" + id(5) + "')"), _executed);
+    }
+
+    @Test
+    public void testSplitsBatches() throws Exception {
+        for (int row = 0; row < 7; row++) {
+            _rs.setValue(row, "owner_name", "jsmith");
+        }
+
+        dmCommitResult result = _rs.commit(_session, "dm_document", 3, _executor);
+
+        assertEquals(3, _executed.size());
+        assertEquals(Arrays.asList(id(0), id(1), id(2)), dmTestStubs.quotedIds(_executed.get(0)));
+        assertEquals(Arrays.asList(id(3), id(4), id(5)), dmTestStubs.quotedIds(_executed.get(1)));
+        assertEquals(Arrays.asList(id(6)), dmTestStubs.quotedIds(_executed.get(2)));
+        assertEquals(7, result.getUpdatedRows().length);
+    }
+
+    @Test
+    public void testWritesRowsOneAtATimeWhenABatchFallsShort() throws Exception {
+        for (int row = 0; row < 4; row++) {
+            _rs.setValue(row, "owner_name", "jsmith");
+        }
+        _missing.add(id(2));
+
+        dmCommitResult result = _rs.commit(_session, "dm_document", 4, _executor);
+
+        // the batch, then each of its rows
+        assertEquals(5, _executed.size());
+        assertEquals(4, dmTestStubs.quotedIds(_executed.get(0)).size());
+        for (int row = 0; row < 4; row++) {
+            assertEquals(Arrays.asList(id(row)), dmTestStubs.quotedIds(_executed.get(row + 1)));
+        }
+        assertArrayEquals(new int[] { 0, 1, 3 }, result.getUpdatedRows());
+        assertArrayEquals(new int[] { 2 }, result.getFailedRows());
+        assertFalse(result.isSuccessful());
+        assertArrayEquals(new int[] { 2 }, _rs.getDirtyRows());
+    }
+
+    @Test
+    public void testSameStatementsForEachStorage() throws Exception {
+        List<String> expected = null;
+        for (dmRecordSet.Storage storage : dmRecordSet.Storage.values()) {
+            dmRecordSet rs = newRecordSet(10, storage);
+            rs.setValue(1, "owner_name", "jsmith");
+            rs.setValue(2, "keywords", new Object[] { "x", "y" });
+            rs.setValue(3, "owner_name", "jsmith");
+            _executed.clear();
+            rs.commit(_session, "dm_document", 100, _executor);
+            if (expected == null) {
+                expected = new ArrayList<String>(_executed);
+            }
+            assertEquals(storage.toString(), expected, _executed);
+            rs.close();
+        }
+    }
+
+    @Test
+    public void testRejectsValuesThatAreNotIdsOrTimes() throws Exception {
+        try {
+            _rs.setValue(0, "r_object_id", "0900000000000001') or (1=1");
+            fail("an invalid object id was accepted");
+        } catch (DfException e) {
+            // expected
+        }
+        try {
+            _rs.setValue(0, "r_modify_date", "13/45/2020 10:00:00");
+            fail("an invalid time was accepted");
+        } catch (DfException e) {
+            // expected
+        }
+        assertFalse(_rs.isDirty());
+    }
+
+    @Test
+    public void testRowsWithInvalidIdsFail() throws Exception {
+        List<Object[]> rows = new ArrayList<Object[]>();
+        rows.add(new Object[] { id(0), "doc0", "owner", 0L, new Object[0] });
+        rows.add(new Object[] { "09') or (1=1 --", "doc1", "owner", 0L, new Object[0] });
+        rows.add(new Object[] { id(2), "doc2", "owner", 0L, new Object[0] });
+        dmRecordSet rs = new dmRecordSet(dmTestStubs.collection(ATTRS, rows));
+        rs.setValue(0, "object_name", "first");
+        rs.setValue(1, "owner_name", "jsmith");
+        rs.setValue(2, "owner_name", "jsmith");
+
+        dmCommitResult result = rs.commit(_session, "dm_document", 100, _executor);
+
+        // the other rows are written, the invalid id never reaches DQL
+        assertEquals(Arrays.asList(
+                "update dm_document objects set object_name = 'first' where r_object_id in ('" + id(0) + "')",
+                "update dm_document objects set owner_name = 'jsmith' where r_object_id in ('" + id(2) + "')"),
+                _executed);
+        assertArrayEquals(new int[] { 0, 2 }, result.getUpdatedRows());
+        assertArrayEquals(new int[] { 1 }, result.getFailedRows());
+        assertArrayEquals(new int[] { 1 }, rs.getDirtyRows());
+    }
+
+    @Test
+    public void testSpillRequiresCommit() throws Exception {
+        _rs.setValue(0, "owner_name", "jsmith");
+        Path file = Files.createTempFile("dmRecordSetCommitTest", ".dat");
+        try {
+            _rs.spill(file);
+            fail("a record set with changes was spilled");
+        } catch (Exception e) {
+            assertTrue(_rs.isDirty());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
+
+/*
+ *  <SDG><
+ */
@@ -0,0 +1,117 @@
+/**
+ * Tests of cursors over frozen record sets.
+ *
+ * (C) 2013 MS Roth
+ * <p/>
+ *
+ * @author M. Scott Roth, http://msroth.wordpress.com
+ * @version 1.3
+ */
+package com.dm_misc.collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import com.documentum.fc.client.IDfTypedObject;
+import com.documentum.fc.common.IDfAttr;
+
+public class dmRecordSetCursorTest {
+
+    private static final IDfAttr[] ATTRS = {
+        dmTestStubs.attr("r_object_id", IDfAttr.DM_ID, false),
+        dmTestStubs.attr("r_content_size", IDfAttr.DM_INTEGER, false) };
+
+    private static dmRecordSet newRecordSet(int rowCount, dmRecordSet.Storage storage) throws Exception {
+        List<Object[]> rows = new ArrayList<Object[]>();
+        for (int i = 0; i < rowCount; i++) {
+            rows.add(new Object[] { String.format("09%014x", i), i });
+        }
+        return new dmRecordSet(dmTestStubs.collection(ATTRS, rows), storage);
+    }
+
+    @Test
+    public void testListOfAFrozenSetCannotBeChanged() throws Exception {
+        for (dmRecordSet.Storage storage : dmRecordSet.Storage.values()) {
+            dmRecordSet rs = newRecordSet(5, storage).freeze();
+            List<IDfTypedObject> list = rs.getRecordSetAsList();
+            try {
+                list.clear();
+                fail(storage + ": the list of a frozen record set was cleared");
+            } catch (UnsupportedOperationException e) {
+                // expected
+            }
+            assertEquals(5, rs.getRowCount());
+            assertEquals(4, rs.getRow(4).getInt("r_content_size"));
+            rs.close();
+        }
+    }
+
+    @Test
+    public void testFrozenSetRejectsChanges() throws Exception {
+        dmRecordSet rs = newRecordSet(5, dmRecordSet.Storage.OBJECTS).freeze();
+        assertTrue(rs.isFrozen());
+        try {
+            rs.setValue(0, "r_content_size", 1);
+            fail("a frozen record set was changed");
+        } catch (Exception e) {
+            assertFalse(rs.isDirty());
+        }
+    }
+
+    @Test
+    public void testCursorsAreIndependent() throws Exception {
+        dmRecordSet rs = newRecordSet(10, dmRecordSet.Storage.COLUMNAR).freeze();
+        dmRecordSetCursor first = rs.cursor();
+        dmRecordSetCursor second = rs.cursor();
+        first.getNextRow();
+        first.getNextRow();
+        second.getLastRow();
+
+        assertEquals(1, first.getCurrentRowNumber());
+        assertEquals(9, second.getCurrentRowNumber());
+        assertEquals(-1, rs.getCurrentRowNumber());
+        assertEquals(0, second.getPreviousRow().getInt("r_content_size") - 8);
+    }
+
+    @Test
+    public void testCursorsFromManyThreads() throws Exception {
+        final dmRecordSet rs = newRecordSet(1000, dmRecordSet.Storage.COLUMNAR).freeze();
+        ExecutorService threads = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Long>> sums = new ArrayList<Future<Long>>();
+            for (int t = 0; t < 8; t++) {
+                sums.add(threads.submit(new Callable<Long>() {
+
+                    public Long call() throws Exception {
+                        long sum = 0;
+                        dmRecordSetCursor cursor = rs.cursor();
+                        while (cursor.hasNext()) {
+                            sum += cursor.getNextRow().getInt("r_content_size");
+                        }
+                        return sum;
+                    }
+                }));
+            }
+            for (Future<Long> sum : sums) {
+                assertEquals(999L * 1000 / 2, sum.get().longValue());
+            }
+        } finally {
+            threads.shutdownNow();
+        }
+    }
+}
+
+/*
+ *  <SDG><
+ */
@@ -0,0 +1,149 @@
+/**
+ * Tests of distinct(), distinctBy() and getRecordSetAsSet().
+ *
+ * (C) 2013 MS Roth
+ * <p/>
+ *
+ * @author M. Scott Roth, http://msroth.wordpress.com
+ * @version 1.3
+ */
+package com.dm_misc.collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.documentum.fc.client.IDfTypedObject;
+import com.documentum.fc.common.IDfAttr;
+
+public class dmRecordSetDistinctTest {
+
+    private static final IDfAttr[] ATTRS = {
+        dmTestStubs.attr("i_chronicle_id", IDfAttr.DM_ID, false),
+        dmTestStubs.attr("object_name", IDfAttr.DM_STRING, false),
+        dmTestStubs.attr("r_modify_date", IDfAttr.DM_TIME, false),
+        dmTestStubs.attr("keywords", IDfAttr.DM_STRING, true) };
+
+    private static final long TIME = 1356998400000L;
+
+    /**
+     * Rows 1, 3 and 4 repeat row 0, and rows 2, 5 and 6 differ from it in
+     * one way each; row 8 repeats row 7 with a lower case id.
+     */
+    private static List<Object[]> rows() {
+        List<Object[]> rows = new ArrayList<Object[]>();
+        rows.add(new Object[] { "0900000000000001", "a", TIME, new Object[] { "x", "y" } });
+        rows.add(new Object[] { "0900000000000001", "a", TIME, new Object[] { "x", "y" } });
+        rows.add(new Object[] { "0900000000000001", "a", TIME, new Object[] { "y", "x" } });
+        rows.add(new Object[] { "0900000000000001", "a", TIME, new Object[] { "x", "y" } });
+        rows.add(new Object[] { "0900000000000001", "a", TIME, new Object[] { "x", "y" } });
+        rows.add(new Object[] { "0900000000000001", "a", TIME, new Object[] { "x" } });
+        rows.add(new Object[] { "0900000000000001", "A", TIME + 1, new Object[] { "x", "y" } });
+        rows.add(new Object[] { "090000000000000B", "b", TIME, new Object[0] });
+        rows.add(new Object[] { "090000000000000b", "b", TIME, new Object[0] });
+        return rows;
+    }
+
+    private static dmRecordSet newRecordSet(dmRecordSet.Storage storage) throws Exception {
+        return new dmRecordSet(dmTestStubs.collection(ATTRS, rows()), storage);
+    }
+
+    private static List<String> names(dmRecordSet rs) throws Exception {
+        List<String> names = new ArrayList<String>();
+        for (int row = 0; row < rs.getRowCount(); row++) {
+            names.add(rs.getString(row, "object_name") + rs.getValueCount(row, "keywords"));
+        }
+        return names;
+    }
+
+    @Test
+    public void testDistinct() throws Exception {
+        for (dmRecordSet.Storage storage : dmRecordSet.Storage.values()) {
+            dmRecordSet distinct = newRecordSet(storage).distinct();
+            String message = storage.toString();
+            assertTrue(message, distinct.isFrozen());
+
+            // repeating values are compared in order, ids ignoring case
+            assertEquals(message, Arrays.asList("a2", "a2", "a1", "A2", "b0"), names(distinct));
+            assertEquals("y", distinct.getRepeatingString(1, "keywords", 0));
+        }
+    }
+
+    @Test
+    public void testDistinctBy() throws Exception {
+        for (dmRecordSet.Storage storage : dmRecordSet.Storage.values()) {
+            dmRecordSet rs = newRecordSet(storage);
+            String message = storage.toString();
+            dmRecordSet byId = rs.distinctBy("I_CHRONICLE_ID");
+            assertEquals(message, 2, byId.getRowCount());
+            assertEquals(4, byId.getColumnCount());
+            assertEquals("b", byId.getString(1, "object_name"));
+
+            assertEquals(message, Arrays.asList("a2", "A2", "b0"), names(rs.distinctBy("object_name", "r_modify_date")));
+            assertEquals(message, names(rs.distinct()), names(rs.distinctBy()));
+        }
+    }
+
+    @Test
+    public void testDistinctByUnknownColumn() throws Exception {
+        try {
+            newRecordSet(dmRecordSet.Storage.OBJECTS).distinctBy("object_name", "no_such_column");
+            fail("an unknown column was accepted");
+        } catch (Exception e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testRecordSetAsSet() throws Exception {
+        for (dmRecordSet.Storage storage : dmRecordSet.Storage.values()) {
+            Set<IDfTypedObject> set = newRecordSet(storage).getRecordSetAsSet();
+            assertEquals(storage.toString(), 5, set.size());
+            List<String> names = new ArrayList<String>();
+            for (IDfTypedObject row : set) {
+                names.add(row.getString("object_name") + row.getValueCount("keywords"));
+            }
+            assertEquals(Arrays.asList("a2", "a2", "a1", "A2", "b0"), names);
+        }
+    }
+
+    @Test
+    public void testLargeRecordSets() throws Exception {
+        int rowCount = dmRowOrdering.PARALLEL_THRESHOLD + 5000;
+        Random random = new Random(11);
+        List<Object[]> rows = new ArrayList<Object[]>();
+        HashSet<String> expected = new HashSet<String>();
+        for (int i = 0; i < rowCount; i++) {
+            int n = random.nextInt(20000);
+            rows.add(new Object[] { String.format("09%014x", n % 100), "doc" + n, TIME,
+                    new Object[] { "k" + (n % 7) } });
+            expected.add("doc" + n);
+        }
+        dmRecordSet rs = new dmRecordSet(dmTestStubs.collection(ATTRS, rows), dmRecordSet.Storage.COLUMNAR);
+        dmRecordSet distinct = rs.distinct();
+        assertEquals(expected.size(), distinct.getRowCount());
+
+        // the first row of each value, in row order
+        HashSet<String> seen = new HashSet<String>();
+        int next = 0;
+        for (int row = 0; row < rowCount; row++) {
+            if (seen.add(rs.getString(row, "object_name"))) {
+                assertEquals(rs.getString(row, "object_name"), distinct.getString(next++, "object_name"));
+            }
+        }
+        assertEquals(100, rs.distinctBy("i_chronicle_id").getRowCount());
+    }
+}
+
+/*
+ *  <SDG><
+ */
@@ -0,0 +1,157 @@
+/**
+ * Tests of the CSV and JSON Lines export of dmRecordSet.
+ *
+ * (C) 2013 MS Roth
+ * <p/>
+ *
+ * @author M. Scott Roth, http://msroth.wordpress.com
+ * @version 1.3
+ */
+package com.dm_misc.collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.nio.charset.Charset;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.documentum.fc.client.IDfCollection;
+import com.documentum.fc.common.IDfAttr;
+
+public class dmRecordSetExportTest {
+
+    private static final IDfAttr[] ATTRS = {
+        dmTestStubs.attr("r_object_id", IDfAttr.DM_ID, false),
+        dmTestStubs.attr("object_name", IDfAttr.DM_STRING, false),
+        dmTestStubs.attr("r_content_size", IDfAttr.DM_INTEGER, false),
+        dmTestStubs.attr("a_rate", IDfAttr.DM_DOUBLE, false),
+        dmTestStubs.attr("a_is_template", IDfAttr.DM_BOOLEAN, false),
+        dmTestStubs.attr("r_modify_date", IDfAttr.DM_TIME, false),
+        dmTestStubs.attr("keywords", IDfAttr.DM_STRING, true),
+        dmTestStubs.attr("r_version_label", IDfAttr.DM_INTEGER, true) };
+
+    private static final long TIME = 1356998400000L;
+
+    private static final String ISO_TIME = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss").format(new Date(TIME));
+
+    private static List<Object[]> rows() {
+        List<Object[]> rows = new ArrayList<Object[]>();
+        rows.add(new Object[] { "0900000000000001", "plain", 42, 1.5, true, TIME,
+                new Object[] { "a", "b" }, new Object[] { 1, 2 } });
+        rows.add(new Object[] { "0900000000000002", "say \"hi\", then\nleave", -7, 3.0, false,
+                dmRowStore.NULL_TIME, new Object[] { "x|y", "z" }, new Object[0] });
+        rows.add(new Object[] { "0900000000000003", "tab\tback\\slash \u00e9", 0, Double.NaN, false, TIME,
+                new Object[0], new Object[] { 3 } });
+        return rows;
+    }
+
+    private static dmRecordSet newRecordSet(dmRecordSet.Storage storage) throws Exception {
+        return new dmRecordSet(dmTestStubs.collection(ATTRS, rows()), storage);
+    }
+
+    private static final String CSV = "r_object_id,object_name,r_content_size,a_rate,a_is_template,r_modify_date,"
+            + "keywords,r_version_label\r\n"
+            + "0900000000000001,plain,42,1.5,true," + ISO_TIME + ",a|b,1|2\r\n"
+            + "0900000000000002,\"say \"\"hi\"\", then\nleave\",-7,3.0,false,,\"x|y|z\",\r\n"
+            + "0900000000000003,tab\tback\\slash \u00e9,0,NaN,false," + ISO_TIME + ",,3\r\n";
+
+    private static final String JSON = "{\"r_object_id\":\"0900000000000001\",\"object_name\":\"plain\","
+            + "\"r_content_size\":42,\"a_rate\":1.5,\"a_is_template\":true,\"r_modify_date\":\"" + ISO_TIME + "\","
+            + "\"keywords\":[\"a\",\"b\"],\"r_version_label\":[1,2]}\r\n"
+            + "{\"r_object_id\":\"0900000000000002\",\"object_name\":\"say \\\"hi\\\", then\\nleave\","
+            + "\"r_content_size\":-7,\"a_rate\":3.0,\"a_is_template\":false,\"r_modify_date\":null,"
+            + "\"keywords\":[\"x|y\",\"z\"],\"r_version_label\":[]}\r\n"
+            + "{\"r_object_id\":\"0900000000000003\",\"object_name\":\"tab\\tback\\\\slash \u00e9\","
+            + "\"r_content_size\":0,\"a_rate\":null,\"a_is_template\":false,\"r_modify_date\":\"" + ISO_TIME + "\","
+            + "\"keywords\":[],\"r_version_label\":[3]}\r\n";
+
+    @Test
+    public void testCsv() throws Exception {
+        for (dmRecordSet.Storage storage : dmRecordSet.Storage.values()) {
+            StringWriter out = new StringWriter();
+            newRecordSet(storage).exportCsv(out, null);
+            assertEquals(storage.toString(), CSV, out.toString());
+        }
+    }
+
+    @Test
+    public void testJsonLines() throws Exception {
+        for (dmRecordSet.Storage storage : dmRecordSet.Storage.values()) {
+            StringWriter out = new StringWriter();
+            newRecordSet(storage).exportJsonLines(out, null);
+            assertEquals(storage.toString(), JSON, out.toString());
+        }
+    }
+
+    @Test
+    public void testCsvOptions() throws Exception {
+        dmExportOptions options = new dmExportOptions().setDelimiter(';').setQuote('\'').setHeader(false)
+                .setRepeatingSeparator(",").setLineSeparator("\n").setTimePattern("dd.MM.yyyy");
+        StringWriter out = new StringWriter();
+        newRecordSet(dmRecordSet.Storage.COLUMNAR).select("object_name", "r_modify_date", "keywords")
+                .exportCsv(out, options);
+        String date = new SimpleDateFormat("dd.MM.yyyy").format(new Date(TIME));
+        assertEquals("plain;" + date + ";a,b\n"
+                + "'say \"hi\", then\nleave';;x|y,z\n"
+                + "tab\tback\\slash \u00e9;" + date + ";\n", out.toString());
+    }
+
+    @Test
+    public void testOutputStreamCharset() throws Exception {
+        dmRecordSet rs = newRecordSet(dmRecordSet.Storage.OBJECTS).select("object_name");
+        ByteArrayOutputStream utf8 = new ByteArrayOutputStream();
+        rs.exportCsv(utf8, null);
+        assertEquals("object_name\r\nplain\r\n\"say \"\"hi\"\", then\nleave\"\r\ntab\tback\\slash \u00e9\r\n",
+                new String(utf8.toByteArray(), "UTF-8"));
+
+        Charset latin1 = Charset.forName("ISO-8859-1");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        rs.exportJsonLines(bytes, new dmExportOptions().setCharset(latin1));
+        byte[] encoded = bytes.toByteArray();
+        assertEquals((byte) 0xe9, encoded[encoded.length - 5]);
+        assertEquals("{\"object_name\":\"plain\"}", new String(encoded, latin1).split("\r\n")[0]);
+    }
+
+    @Test
+    public void testCollectionExportMatchesRecordSetExport() throws Exception {
+        StringWriter csv = new StringWriter();
+        IDfCollection col = dmTestStubs.collection(ATTRS, rows());
+        assertEquals(3, dmRecordSet.exportCsv(col, csv, null));
+        assertEquals(CSV, csv.toString());
+        assertEquals(IDfCollection.DF_CLOSED_STATE, col.getState());
+
+        StringWriter json = new StringWriter();
+        assertEquals(3, dmRecordSet.exportJsonLines(dmTestStubs.collection(ATTRS, rows()), json, null));
+        assertEquals(JSON, json.toString());
+    }
+
+    @Test
+    public void testValuesLargerThanTheBuffer() throws Exception {
+        char[] chars = new char[20000];
+        Arrays.fill(chars, 'v');
+        String value = new String(chars);
+        List<Object[]> rows = new ArrayList<Object[]>();
+        for (int i = 0; i < 3; i++) {
+            rows.add(new Object[] { "0900000000000001", value + i, i, 0.0, false, TIME, new Object[0], new Object[0] });
+        }
+        StringWriter out = new StringWriter();
+        new dmRecordSet(dmTestStubs.collection(ATTRS, rows)).exportCsv(out, new dmExportOptions().setHeader(false));
+        String[] lines = out.toString().split("\r\n");
+        assertEquals(3, lines.length);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(lines[i].startsWith("0900000000000001," + value + i + "," + i + ",0.0,"));
+        }
+    }
+}
+
+/*
+ *  <SDG><
+ */
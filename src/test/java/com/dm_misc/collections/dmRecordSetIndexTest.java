@@ -0,0 +1,173 @@
+/**
+ * Tests of findRows() and findRow() with and without indexes.
+ *
+ * (C) 2013 MS Roth
+ * <p/>
+ *
+ * @author M. Scott Roth, http://msroth.wordpress.com
+ * @version 1.3
+ */
+package com.dm_misc.collections;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.documentum.fc.common.DfException;
+import com.documentum.fc.common.DfId;
+import com.documentum.fc.common.IDfAttr;
+
+public class dmRecordSetIndexTest {
+
+    private static final IDfAttr[] ATTRS = {
+        dmTestStubs.attr("r_object_id", IDfAttr.DM_ID, false),
+        dmTestStubs.attr("owner_name", IDfAttr.DM_STRING, false),
+        dmTestStubs.attr("r_content_size", IDfAttr.DM_INTEGER, false),
+        dmTestStubs.attr("a_rate", IDfAttr.DM_DOUBLE, false),
+        dmTestStubs.attr("r_immutable_flag", IDfAttr.DM_BOOLEAN, false),
+        dmTestStubs.attr("r_modify_date", IDfAttr.DM_TIME, false),
+        dmTestStubs.attr("keywords", IDfAttr.DM_STRING, true) };
+
+    private static final long TIME = 1356998400000L;
+
+    private static String id(int row) {
+        return String.format("09%014x", row + 0xa0);
+    }
+
+    private static dmRecordSet newRecordSet(dmRecordSet.Storage storage) throws Exception {
+        List<Object[]> rows = new ArrayList<Object[]>();
+        for (int i = 0; i < 10; i++) {
+            rows.add(new Object[] { id(i), "owner" + (i % 3), i % 4, i / 2.0, i == 7, TIME + (i % 2) * 1000L,
+                    new Object[] { "k" + i, "all" } });
+        }
+        return new dmRecordSet(dmTestStubs.collection(ATTRS, rows), storage);
+    }
+
+    /**
+     * Run the lookups on a record set, without and then with indexes.
+     */
+    private interface Lookups {
+
+        void check(dmRecordSet rs) throws Exception;
+    }
+
+    private static void withAndWithoutIndexes(Lookups lookups) throws Exception {
+        for (dmRecordSet.Storage storage : dmRecordSet.Storage.values()) {
+            dmRecordSet rs = newRecordSet(storage);
+            lookups.check(rs);
+            for (IDfAttr attr : ATTRS) {
+                rs.createIndex(attr.getName());
+                assertTrue(rs.hasIndex(attr.getName()));
+            }
+            lookups.check(rs);
+            rs.close();
+        }
+    }
+
+    @Test
+    public void testFindsTypedValues() throws Exception {
+        withAndWithoutIndexes(new Lookups() {
+
+            public void check(dmRecordSet rs) throws Exception {
+                assertArrayEquals(new int[] { 1, 4, 7 }, rs.findRows("owner_name", "owner1"));
+                assertArrayEquals(new int[] { 2, 6 }, rs.findRows("r_content_size", 2));
+                assertArrayEquals(new int[] { 2, 6 }, rs.findRows("r_content_size", " 2 "));
+                assertArrayEquals(new int[] { 3 }, rs.findRows("a_rate", "1.5"));
+                assertArrayEquals(new int[] { 7 }, rs.findRows("r_immutable_flag", true));
+                assertArrayEquals(new int[] { 7 }, rs.findRows("r_immutable_flag", "T"));
+                assertArrayEquals(new int[] { 5 }, rs.findRows("keywords", "k5"));
+                assertEquals(10, rs.findRows("keywords", "all").length);
+                assertArrayEquals(new int[0], rs.findRows("owner_name", "nobody"));
+                assertEquals(-1, rs.findRow("owner_name", "nobody"));
+                assertEquals(2, rs.findRow("owner_name", "owner2"));
+            }
+        });
+    }
+
+    @Test
+    public void testFindsTimesAndIdsInAnyForm() throws Exception {
+        withAndWithoutIndexes(new Lookups() {
+
+            public void check(dmRecordSet rs) throws Exception {
+                int[] odd = { 1, 3, 5, 7, 9 };
+                assertArrayEquals(odd, rs.findRows("r_modify_date", dmRowStore.formatTime(TIME + 1000)));
+                assertArrayEquals(odd, rs.findRows("r_modify_date", new Date(TIME + 1000)));
+                assertArrayEquals(odd, rs.findRows("r_modify_date", dmRowProxy.toTime(TIME + 1000)));
+                assertEquals(3, rs.findRow("r_object_id", id(3)));
+                assertEquals(3, rs.findRow("r_object_id", id(3).toUpperCase()));
+                assertEquals(3, rs.findRow("r_object_id", new DfId(id(3))));
+            }
+        });
+    }
+
+    @Test
+    public void testRejectsValuesThatDoNotParse() throws Exception {
+        withAndWithoutIndexes(new Lookups() {
+
+            public void check(dmRecordSet rs) throws Exception {
+                try {
+                    rs.findRows("r_content_size", "ten");
+                    fail("'ten' was looked up as an integer");
+                } catch (DfException e) {
+                    // expected
+                }
+                try {
+                    rs.findRows("r_modify_date", "yesterday");
+                    fail("'yesterday' was looked up as a time");
+                } catch (DfException e) {
+                    // expected
+                }
+            }
+        });
+    }
+
+    @Test
+    public void testIndexesFollowChanges() throws Exception {
+        dmRecordSet rs = newRecordSet(dmRecordSet.Storage.COLUMNAR);
+        rs.createIndex("owner_name");
+        rs.setValue(1, "owner_name", "jsmith");
+        rs.addRow(rs.getRow(4));
+        assertArrayEquals(new int[] { 1 }, rs.findRows("owner_name", "jsmith"));
+        assertArrayEquals(new int[] { 4, 7, 10 }, rs.findRows("owner_name", "owner1"));
+
+        rs.dropIndex("owner_name");
+        assertFalse(rs.hasIndex("owner_name"));
+        assertArrayEquals(new int[] { 4, 7, 10 }, rs.findRows("owner_name", "owner1"));
+    }
+
+    @Test
+    public void testUniqueIndexes() throws Exception {
+        dmRecordSet rs = newRecordSet(dmRecordSet.Storage.OBJECTS);
+        try {
+            rs.createUniqueIndex("owner_name");
+            fail("a unique index was created over duplicate values");
+        } catch (Exception e) {
+            assertFalse(rs.hasIndex("owner_name"));
+        }
+        rs.createUniqueIndex("r_object_id");
+        try {
+            rs.addRow(rs.getRow(0));
+            fail("a row with a duplicate key was added");
+        } catch (Exception e) {
+            assertEquals(10, rs.getRowCount());
+        }
+        try {
+            rs.setValue(1, "r_object_id", id(2));
+            fail("a value was changed to a duplicate key");
+        } catch (Exception e) {
+            assertEquals(1, rs.findRow("r_object_id", id(1)));
+        }
+    }
+}
+
+/*
+ *  <SDG><
+ */
@@ -0,0 +1,189 @@
+/**
+ * Tests of dmRecordSet.join().
+ *
+ * (C) 2013 MS Roth
+ * <p/>
+ *
+ * @author M. Scott Roth, http://msroth.wordpress.com
+ * @version 1.3
+ */
+package com.dm_misc.collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.documentum.fc.common.IDfAttr;
+
+public class dmRecordSetJoinTest {
+
+    private static final IDfAttr[] DOCUMENTS = {
+        dmTestStubs.attr("r_object_id", IDfAttr.DM_ID, false),
+        dmTestStubs.attr("object_name", IDfAttr.DM_STRING, false),
+        dmTestStubs.attr("i_folder_id", IDfAttr.DM_ID, true),
+        dmTestStubs.attr("r_content_size", IDfAttr.DM_INTEGER, false),
+        dmTestStubs.attr("r_modify_date", IDfAttr.DM_TIME, false) };
+
+    private static final IDfAttr[] FOLDERS = {
+        dmTestStubs.attr("r_object_id", IDfAttr.DM_ID, false),
+        dmTestStubs.attr("object_name", IDfAttr.DM_STRING, false),
+        dmTestStubs.attr("folder_path", IDfAttr.DM_STRING, false),
+        dmTestStubs.attr("a_size", IDfAttr.DM_DOUBLE, false),
+        dmTestStubs.attr("r_creation_date", IDfAttr.DM_TIME, false) };
+
+    private static final long TIME = 1356998400000L;
+
+    private static String folder(int n) {
+        return String.format("0b%014x", n);
+    }
+
+    /**
+     * Five documents: two in folder 1 (one with an upper case id), one in
+     * folder 2, one with no folder and one with a null folder id.
+     */
+    private static dmRecordSet documents(dmRecordSet.Storage storage) throws Exception {
+        List<Object[]> rows = new ArrayList<Object[]>();
+        rows.add(new Object[] { "0900000000000000", "doc0", new Object[] { folder(1), folder(2) }, 100, TIME });
+        rows.add(new Object[] { "0900000000000001", "doc1", new Object[] { folder(2) }, 200, dmRowStore.NULL_TIME });
+        rows.add(new Object[] { "0900000000000002", "doc2", new Object[0], 300, TIME + 1000 });
+        rows.add(new Object[] { "0900000000000003", "doc3", new Object[] { folder(1).toUpperCase() }, 400, TIME });
+        rows.add(new Object[] { "0900000000000004", "doc4", new Object[] { dmRowStore.NULL_ID }, 500, TIME });
+        return new dmRecordSet(dmTestStubs.collection(DOCUMENTS, rows), storage);
+    }
+
+    /**
+     * Folder 1 twice (as a folder may be returned once per path), folder 2,
+     * and folder 3, which holds no documents.
+     */
+    private static dmRecordSet folders(dmRecordSet.Storage storage) throws Exception {
+        List<Object[]> rows = new ArrayList<Object[]>();
+        rows.add(new Object[] { folder(1), "one", "/a/one", 100.0, TIME });
+        rows.add(new Object[] { folder(2), "two", "/two", 400.0, dmRowStore.NULL_TIME });
+        rows.add(new Object[] { folder(1), "one", "/b/one", 300.0, TIME + 1000 });
+        rows.add(new Object[] { folder(3), "three", "/three", 0.0, TIME });
+        return new dmRecordSet(dmTestStubs.collection(FOLDERS, rows), storage);
+    }
+
+    @Test
+    public void testInnerJoin() throws Exception {
+        for (dmRecordSet.Storage storage : dmRecordSet.Storage.values()) {
+            dmRecordSet join = documents(storage).join(folders(storage), "i_folder_id", "r_object_id",
+                    dmRecordSet.JoinType.INNER);
+            String message = storage.toString();
+            assertTrue(message, join.isFrozen());
+            assertEquals(message, 5, join.getRowCount());
+            assertEquals(10, join.getColumnCount());
+
+            // rows of the left set in order, then matches in right order;
+            // ids match ignoring case, the first repeating value is the key
+            assertEquals("doc0", join.getString(0, "object_name"));
+            assertEquals("/a/one", join.getString(0, "folder_path"));
+            assertEquals("doc0", join.getString(1, "object_name"));
+            assertEquals("/b/one", join.getString(1, "folder_path"));
+            assertEquals("doc1", join.getString(2, "object_name"));
+            assertEquals("two", join.getString(2, "object_name_2"));
+            assertEquals("doc3", join.getString(3, "object_name"));
+            assertEquals(folder(1), join.getString(3, "r_object_id_2"));
+            assertEquals("/b/one", join.getString(4, "folder_path"));
+            assertEquals(2, join.getValueCount(0, "i_folder_id"));
+        }
+    }
+
+    @Test
+    public void testRenamesClashingColumns() throws Exception {
+        dmRecordSet join = documents(dmRecordSet.Storage.OBJECTS).join(folders(dmRecordSet.Storage.OBJECTS),
+                "r_content_size", "a_size", dmRecordSet.JoinType.INNER);
+        String[] names = { "r_object_id", "object_name", "i_folder_id", "r_content_size", "r_modify_date",
+            "r_object_id_2", "object_name_2", "folder_path", "a_size", "r_creation_date" };
+        for (int col = 0; col < names.length; col++) {
+            assertEquals(names[col], join.getColumnDefs().get(col).getName());
+        }
+    }
+
+    @Test
+    public void testLeftJoin() throws Exception {
+        for (dmRecordSet.Storage storage : dmRecordSet.Storage.values()) {
+            dmRecordSet join = documents(storage).join(folders(storage), "i_folder_id", "r_object_id",
+                    dmRecordSet.JoinType.LEFT);
+            String message = storage.toString();
+            assertEquals(message, 7, join.getRowCount());
+
+            // unmatched rows read as nulls; neither an empty repeating
+            // attribute nor a null id matches
+            assertEquals("doc2", join.getString(3, "object_name"));
+            assertEquals("", join.getString(3, "folder_path"));
+            assertEquals(0.0, join.getDouble(3, "a_size"), 0);
+            assertEquals(dmRowStore.NULL_ID, join.getId(3, "r_object_id_2").getId());
+            assertEquals("doc4", join.getString(6, "object_name"));
+            assertEquals("", join.getString(6, "object_name_2"));
+            assertEquals("/a/one", join.getString(4, "folder_path"));
+        }
+    }
+
+    @Test
+    public void testSemiJoin() throws Exception {
+        for (dmRecordSet.Storage storage : dmRecordSet.Storage.values()) {
+            dmRecordSet docs = documents(storage);
+            dmRecordSet folders = folders(storage);
+
+            // each matching row once, whichever set is smaller
+            dmRecordSet withFolder = docs.join(folders, "i_folder_id", "r_object_id", dmRecordSet.JoinType.SEMI);
+            String message = storage.toString();
+            assertEquals(message, 5, withFolder.getColumnCount());
+            assertEquals(message, 3, withFolder.getRowCount());
+            assertEquals("doc0", withFolder.getString(0, "object_name"));
+            assertEquals("doc1", withFolder.getString(1, "object_name"));
+            assertEquals("doc3", withFolder.getString(2, "object_name"));
+
+            dmRecordSet used = folders.join(docs, "r_object_id", "i_folder_id", dmRecordSet.JoinType.SEMI);
+            assertEquals(message, 3, used.getRowCount());
+            assertEquals("/a/one", used.getString(0, "folder_path"));
+            assertEquals("/two", used.getString(1, "folder_path"));
+            assertEquals("/b/one", used.getString(2, "folder_path"));
+        }
+    }
+
+    @Test
+    public void testNullDatesMatchNothing() throws Exception {
+        dmRecordSet join = documents(dmRecordSet.Storage.COLUMNAR).join(folders(dmRecordSet.Storage.COLUMNAR),
+                "r_modify_date", "r_creation_date", dmRecordSet.JoinType.INNER);
+        assertEquals(7, join.getRowCount());
+        for (int row = 0; row < join.getRowCount(); row++) {
+            assertEquals(dmRowStore.toMillis(join.getTime(row, "r_modify_date")),
+                    dmRowStore.toMillis(join.getTime(row, "r_creation_date")));
+        }
+    }
+
+    @Test
+    public void testKeysOfDifferentTypes() throws Exception {
+        for (dmRecordSet.Storage storage : dmRecordSet.Storage.values()) {
+            // INTEGER and DOUBLE compare as numbers
+            dmRecordSet bySize = documents(storage).join(folders(storage), "r_content_size", "a_size",
+                    dmRecordSet.JoinType.INNER);
+            String message = storage.toString();
+            assertEquals(message, 3, bySize.getRowCount());
+            assertEquals("doc0", bySize.getString(0, "object_name"));
+            assertEquals("doc2", bySize.getString(1, "object_name"));
+            assertEquals("doc3", bySize.getString(2, "object_name"));
+
+            // STRING and ID compare as ids, ignoring case
+            List<Object[]> rows = new ArrayList<Object[]>();
+            rows.add(new Object[] { folder(2).toUpperCase() });
+            rows.add(new Object[] { "not an id" });
+            IDfAttr[] attrs = { dmTestStubs.attr("folder", IDfAttr.DM_STRING, false) };
+            dmRecordSet names = new dmRecordSet(dmTestStubs.collection(attrs, rows), storage);
+            dmRecordSet byId = names.join(folders(storage), "folder", "r_object_id", dmRecordSet.JoinType.LEFT);
+            assertEquals(message, 2, byId.getRowCount());
+            assertEquals("two", byId.getString(0, "object_name"));
+            assertEquals("", byId.getString(1, "object_name"));
+        }
+    }
+}
+
+/*
+ *  <SDG><
+ */
@@ -0,0 +1,140 @@
+/**
+ * Tests of dmRecordSetLoader with a stubbed query executor.
+ *
+ * (C) 2013 MS Roth
+ * <p/>
+ *
+ * @author M. Scott Roth, http://msroth.wordpress.com
+ * @version 1.3
+ */
+package com.dm_misc.collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.documentum.fc.client.IDfCollection;
+import com.documentum.fc.client.IDfSession;
+import com.documentum.fc.common.DfException;
+import com.documentum.fc.common.IDfAttr;
+
+/**
+ * The executor answers "part N" with rows whose r_content_size values are
+ * N, N + 3, N + 6, ... so the parts interleave when merged. The session
+ * provider counts the sessions handed out and released.
+ */
+public class dmRecordSetLoaderTest {
+
+    private static final IDfAttr[] ATTRS = {
+        dmTestStubs.attr("r_object_id", IDfAttr.DM_ID, false),
+        dmTestStubs.attr("r_content_size", IDfAttr.DM_INTEGER, false),
+        dmTestStubs.attr("keywords", IDfAttr.DM_STRING, true) };
+
+    private AtomicInteger _sessionsOpen = new AtomicInteger();
+    private AtomicInteger _queries = new AtomicInteger();
+
+    private dmRecordSetLoader.SessionProvider _sessions = new dmRecordSetLoader.SessionProvider() {
+
+        public IDfSession getSession() {
+            _sessionsOpen.incrementAndGet();
+            return dmTestStubs.session("docbase", "dmadmin", null);
+        }
+
+        public void release(IDfSession session) {
+            _sessionsOpen.decrementAndGet();
+        }
+    };
+
+    private dmRecordSetCache.QueryExecutor _executor = new dmRecordSetCache.QueryExecutor() {
+
+        public IDfCollection execute(IDfSession session, String dql) throws DfException {
+            _queries.incrementAndGet();
+            if (dql.equals("fail")) {
+                throw new DfException("The query failed.");
+            } else if (dql.equals("other columns")) {
+                return dmTestStubs.collection(new IDfAttr[] { ATTRS[0] }, new ArrayList<Object[]>());
+            }
+            int part = Integer.parseInt(dql.substring(5));
+            List<Object[]> rows = new ArrayList<Object[]>();
+            for (int size = part; size < 30; size += 3) {
+                rows.add(new Object[] { String.format("09%014x", size), size, new Object[] { "p" + part } });
+            }
+            return dmTestStubs.collection(ATTRS, rows);
+        }
+    };
+
+    private dmRecordSetLoader newLoader(String... queries) {
+        dmRecordSetLoader loader = new dmRecordSetLoader(_sessions).setQueryExecutor(_executor);
+        for (String dql : queries) {
+            loader.addQuery(dql);
+        }
+        return loader;
+    }
+
+    @Test
+    public void testConcatenatesInQueryOrder() throws Exception {
+        for (dmRecordSet.Storage storage : dmRecordSet.Storage.values()) {
+            dmRecordSet rs = newLoader("part 2", "part 0", "part 1").setStorage(storage).load();
+            assertEquals(storage, rs.getStorage());
+            assertEquals(30, rs.getRowCount());
+            assertEquals(2, rs.getInt(0, "r_content_size"));
+            assertEquals(0, rs.getInt(10, "r_content_size"));
+            assertEquals(28, rs.getInt(29, "r_content_size"));
+            assertEquals("p0", rs.getRepeatingString(10, "keywords", 0));
+            rs.close();
+        }
+        assertEquals(0, _sessionsOpen.get());
+    }
+
+    @Test
+    public void testMergesInSortOrder() throws Exception {
+        for (dmRecordSet.Storage storage : dmRecordSet.Storage.values()) {
+            dmRecordSet rs = newLoader("part 0", "part 1", "part 2").setStorage(storage).setThreads(2)
+                    .setMergeOrder("r_content_size").load();
+            assertEquals(storage, rs.getStorage());
+            assertEquals(30, rs.getRowCount());
+            for (int i = 0; i < 30; i++) {
+                assertEquals(storage.toString(), i, rs.getInt(i, "r_content_size"));
+                assertEquals("p" + (i % 3), rs.getRepeatingString(i, "keywords", 0));
+            }
+            rs.close();
+        }
+    }
+
+    @Test
+    public void testAFailedQueryFailsTheLoad() throws Exception {
+        try {
+            newLoader("part 0", "fail", "part 1").setStorage(dmRecordSet.Storage.OFF_HEAP).load();
+            fail("the load succeeded without the rows of a query");
+        } catch (DfException e) {
+            assertEquals("The query failed.", e.getMessage());
+        }
+
+        // cancelled queries release their sessions as they stop
+        for (int i = 0; i < 500 && _sessionsOpen.get() > 0; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, _sessionsOpen.get());
+    }
+
+    @Test
+    public void testQueriesMustReturnTheSameColumns() throws Exception {
+        try {
+            newLoader("part 0", "other columns").load();
+            fail("queries with different columns were combined");
+        } catch (DfException e) {
+            assertTrue(e.getMessage().startsWith("Query 1 returns different columns"));
+        }
+        assertEquals(2, _queries.get());
+    }
+}
+
+/*
+ *  <SDG><
+ */
@@ -0,0 +1,205 @@
+/**
+ * Tests of dmRecordSetMetrics and dmRecordSetListener.
+ *
+ * (C) 2013 MS Roth
+ * <p/>
+ *
+ * @author M. Scott Roth, http://msroth.wordpress.com
+ * @version 1.3
+ */
+package com.dm_misc.collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.documentum.fc.common.IDfAttr;
+
+/**
+ * The listener records the events it is sent. The global metrics are
+ * shared by all record sets in the JVM, so tests compare them before and
+ * after.
+ */
+public class dmRecordSetMetricsTest {
+
+    private static final IDfAttr[] ATTRS = {
+        dmTestStubs.attr("r_object_id", IDfAttr.DM_ID, false),
+        dmTestStubs.attr("i_vstamp", IDfAttr.DM_INTEGER, false) };
+
+    private List<String> _events = new ArrayList<String>();
+    private dmRecordSetListener _listener = new dmRecordSetListener() {
+
+        @Override
+        public void recordSetLoaded(dmRecordSetMetrics metrics, int rows, long nanos) {
+            _events.add("loaded " + rows);
+        }
+
+        @Override
+        public void recordSetRefreshed(dmRecordSetMetrics metrics, dmRecordSetDelta delta) {
+            _events.add("refreshed " + delta.getChangeCount());
+        }
+
+        @Override
+        public void rowOutOfRange(dmRecordSetMetrics metrics, int rowNumber) {
+            _events.add("out of range " + rowNumber);
+        }
+
+        @Override
+        public void rowRejected(dmRecordSetMetrics metrics) {
+            _events.add("rejected");
+        }
+    };
+
+    @Before
+    public void setUp() {
+        dmRecordSetMetrics.setEnabled(true);
+        dmRecordSetMetrics.addListener(_listener);
+    }
+
+    @After
+    public void tearDown() {
+        dmRecordSetMetrics.removeListener(_listener);
+        dmRecordSetMetrics.setEnabled(false);
+    }
+
+    private static String id(int row) {
+        return String.format("09%014x", row);
+    }
+
+    private static List<Object[]> rows(int rowCount, int version) {
+        List<Object[]> rows = new ArrayList<Object[]>();
+        for (int i = 0; i < rowCount; i++) {
+            rows.add(new Object[] { id(i), version });
+        }
+        return rows;
+    }
+
+    private static dmRecordSet newRecordSet(int rowCount) throws Exception {
+        return new dmRecordSet(dmTestStubs.collection(ATTRS, rows(rowCount, 0)));
+    }
+
+    @Test
+    public void testNoMetricsWhenDisabled() throws Exception {
+        dmRecordSetMetrics.setEnabled(false);
+        dmRecordSet rs = newRecordSet(10);
+        assertNull(rs.getMetrics());
+        rs.getNextRow();
+        assertTrue(_events.isEmpty());
+    }
+
+    @Test
+    public void testLoads() throws Exception {
+        dmRecordSetMetrics global = dmRecordSetMetrics.getGlobal();
+        long loads = global.getLoads();
+        long rowsLoaded = global.getRowsLoaded();
+
+        dmRecordSet rs = newRecordSet(250);
+        dmRecordSetMetrics metrics = rs.getMetrics();
+        assertNotNull(metrics);
+        assertEquals(1, metrics.getLoads());
+        assertEquals(250, metrics.getRowsLoaded());
+        assertEquals(rs.estimateBytes(), metrics.getEstimatedBytes());
+        assertTrue(metrics.getEstimatedBytes() > 0);
+        assertTrue(metrics.toString().startsWith(metrics.getName() + ": loads=1, rows=250,"));
+        assertEquals(loads + 1, global.getLoads());
+        assertEquals(rowsLoaded + 250, global.getRowsLoaded());
+        assertEquals("[loaded 250]", _events.toString());
+    }
+
+    @Test
+    public void testNavigationAndErrors() throws Exception {
+        dmRecordSet rs = newRecordSet(5);
+        dmRecordSetMetrics metrics = rs.getMetrics();
+        rs.getNextRow();
+        rs.getNextRow();
+        rs.getRow(4);
+        rs.getPreviousRow();
+        assertEquals(4, metrics.getNavigationCalls());
+
+        try {
+            rs.getRow(7);
+            fail("row 7 of 5 was returned");
+        } catch (Exception e) {
+            // expected
+        }
+        try {
+            rs.addRow(dmTestStubs.row(new IDfAttr[] { ATTRS[0] }, new Object[] { id(9) }));
+            fail("a row with the wrong columns was added");
+        } catch (Exception e) {
+            // expected
+        }
+        assertEquals(1, metrics.getOutOfRangeErrors());
+        assertEquals(1, metrics.getRejectedRows());
+        assertEquals("[loaded 5, out of range 7, rejected]", _events.toString());
+
+        metrics.reset();
+        assertEquals(0, metrics.getLoads());
+        assertEquals(0, metrics.getNavigationCalls());
+        assertEquals(0, metrics.getOutOfRangeErrors());
+        assertEquals(0, metrics.getRejectedRows());
+    }
+
+    @Test
+    public void testRefreshNotifiesListeners() throws Exception {
+        dmRecordSet rs = newRecordSet(5);
+        List<Object[]> rows = rows(4, 0);
+        rows.get(1)[1] = 1;
+        rs.refresh(dmTestStubs.collection(ATTRS, rows), "r_object_id", "i_vstamp");
+        assertEquals("[loaded 5, refreshed 2]", _events.toString());
+    }
+
+    @Test
+    public void testFailingListenersAreIgnored() throws Exception {
+        dmRecordSetListener failing = new dmRecordSetListener() {
+
+            @Override
+            public void recordSetLoaded(dmRecordSetMetrics metrics, int rows, long nanos) {
+                throw new IllegalStateException("listener failed");
+            }
+        };
+        dmRecordSetMetrics.addListener(failing);
+        try {
+            assertEquals(3, newRecordSet(3).getRowCount());
+            assertEquals("[loaded 3]", _events.toString());
+        } finally {
+            dmRecordSetMetrics.removeListener(failing);
+        }
+    }
+
+    @Test
+    public void testMBean() throws Exception {
+        dmRecordSetMetrics metrics = newRecordSet(20).getMetrics();
+        ObjectName name = metrics.registerMBean();
+        assertSame(name, metrics.registerMBean());
+        assertEquals(dmRecordSetMetrics.MBEAN_DOMAIN + ",name=" + metrics.getName(), name.toString());
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            assertEquals(20L, server.getAttribute(name, "RowsLoaded"));
+            server.invoke(name, "reset", null, null);
+            assertEquals(0L, server.getAttribute(name, "Loads"));
+        } finally {
+            metrics.unregisterMBean();
+        }
+        assertFalse(server.isRegistered(name));
+    }
+}
+
+/*
+ *  <SDG><
+ */
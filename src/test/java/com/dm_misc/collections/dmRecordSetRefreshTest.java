@@ -0,0 +1,85 @@
+/**
+ * Tests of dmRecordSet.refresh() for each storage.
+ *
+ * (C) 2013 MS Roth
+ * <p/>
+ *
+ * @author M. Scott Roth, http://msroth.wordpress.com
+ * @version 1.3
+ */
+package com.dm_misc.collections;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.documentum.fc.common.IDfAttr;
+
+public class dmRecordSetRefreshTest {
+
+    private static final IDfAttr[] ATTRS = {
+        dmTestStubs.attr("r_object_id", IDfAttr.DM_ID, false),
+        dmTestStubs.attr("object_name", IDfAttr.DM_STRING, false),
+        dmTestStubs.attr("i_vstamp", IDfAttr.DM_INTEGER, false) };
+
+    private static String id(int row) {
+        return String.format("09%014x", row);
+    }
+
+    private static List<Object[]> rows(int... numbers) {
+        List<Object[]> rows = new ArrayList<Object[]>();
+        for (int i : numbers) {
+            rows.add(new Object[] { id(i), "doc" + i, 0 });
+        }
+        return rows;
+    }
+
+    @Test
+    public void testDelta() throws Exception {
+        for (dmRecordSet.Storage storage : dmRecordSet.Storage.values()) {
+            dmRecordSet rs = new dmRecordSet(dmTestStubs.collection(ATTRS, rows(0, 1, 2, 3)), storage);
+            List<Object[]> newRows = rows(0, 2, 3, 4);
+            newRows.get(1)[1] = "renamed";
+            newRows.get(1)[2] = 1;
+
+            dmRecordSetDelta delta = rs.refresh(dmTestStubs.collection(ATTRS, newRows), "r_object_id", "i_vstamp");
+
+            // rows 0, 2 and 3 keep their order, row 4 is added at the end
+            assertArrayEquals(storage.toString(), new int[] { 3 }, delta.getAddedRows());
+            assertArrayEquals(new int[] { 1 }, delta.getUpdatedRows());
+            assertArrayEquals(new int[] { 1 }, delta.getRemovedRows());
+            assertEquals(Arrays.asList((Object) id(1)), delta.getRemovedKeys());
+            assertEquals(storage, rs.getStorage());
+            assertEquals(4, rs.getRowCount());
+            assertEquals("renamed", rs.getString(1, "object_name"));
+            assertEquals(id(4), rs.getString(3, "r_object_id"));
+            rs.close();
+        }
+    }
+
+    @Test
+    public void testViewsKeepTheirRows() throws Exception {
+        for (dmRecordSet.Storage storage : dmRecordSet.Storage.values()) {
+            dmRecordSet rs = new dmRecordSet(dmTestStubs.collection(ATTRS, rows(0, 1, 2)), storage);
+            dmRecordSet view = rs.select("r_object_id", "object_name");
+
+            rs.refresh(dmTestStubs.collection(ATTRS, rows(0, 1, 2)), "r_object_id", null);
+            rs.setValue(0, "object_name", "changed");
+            rs.setValue(1, "object_name", "changed");
+
+            assertEquals("changed", rs.getString(0, "object_name"));
+            assertEquals(storage.toString(), "doc0", view.getString(0, "object_name"));
+            assertEquals(storage.toString(), "doc1", view.getRow(1).getString("object_name"));
+            rs.close();
+        }
+    }
+}
+
+/*
+ *  <SDG><
+ */
@@ -0,0 +1,196 @@
+/**
+ * Tests of the repeating value accessors of dmRecordSet and of unnest().
+ *
+ * (C) 2013 MS Roth
+ * <p/>
+ *
+ * @author M. Scott Roth, http://msroth.wordpress.com
+ * @version 1.3
+ */
+package com.dm_misc.collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.documentum.fc.common.DfException;
+import com.documentum.fc.common.DfTime;
+import com.documentum.fc.common.IDfAttr;
+
+public class dmRecordSetRepeatingTest {
+
+    private static final IDfAttr[] ATTRS = {
+        dmTestStubs.attr("r_object_id", IDfAttr.DM_ID, false),
+        dmTestStubs.attr("keywords", IDfAttr.DM_STRING, true),
+        dmTestStubs.attr("a_sizes", IDfAttr.DM_INTEGER, true),
+        dmTestStubs.attr("a_rates", IDfAttr.DM_DOUBLE, true),
+        dmTestStubs.attr("a_flags", IDfAttr.DM_BOOLEAN, true),
+        dmTestStubs.attr("a_dates", IDfAttr.DM_TIME, true),
+        dmTestStubs.attr("i_folder_id", IDfAttr.DM_ID, true) };
+
+    private static final long TIME = 1356998400000L;
+
+    private static String id(int row) {
+        return String.format("09%014x", row);
+    }
+
+    private static String folder(int n) {
+        return String.format("0b%014x", n);
+    }
+
+    /**
+     * Row i has i values in each repeating column; row 2 has a null date.
+     */
+    private static dmRecordSet newRecordSet(dmRecordSet.Storage storage) throws Exception {
+        List<Object[]> rows = new ArrayList<Object[]>();
+        for (int i = 0; i < 4; i++) {
+            Object[] keywords = new Object[i];
+            Object[] sizes = new Object[i];
+            Object[] rates = new Object[i];
+            Object[] flags = new Object[i];
+            Object[] dates = new Object[i];
+            Object[] folders = new Object[i];
+            for (int v = 0; v < i; v++) {
+                keywords[v] = "k" + i + v;
+                sizes[v] = i * 10 + v;
+                rates[v] = i + v / 4.0;
+                flags[v] = v % 2 == 0;
+                dates[v] = (i == 2 && v == 1 ? dmRowStore.NULL_TIME : TIME + v * 1000L);
+                folders[v] = folder(v);
+            }
+            rows.add(new Object[] { id(i), keywords, sizes, rates, flags, dates, folders });
+        }
+        return new dmRecordSet(dmTestStubs.collection(ATTRS, rows), storage);
+    }
+
+    @Test
+    public void testRepeatingValues() throws Exception {
+        for (dmRecordSet.Storage storage : dmRecordSet.Storage.values()) {
+            dmRecordSet rs = newRecordSet(storage);
+            String message = storage.toString();
+            for (int row = 0; row < 4; row++) {
+                for (int col = 1; col < ATTRS.length; col++) {
+                    assertEquals(message, row, rs.getValueCount(row, col));
+                    assertEquals(message, row, rs.getValueCount(row, ATTRS[col].getName()));
+                }
+                for (int v = 0; v < row; v++) {
+                    assertEquals(message, "k" + row + v, rs.getRepeatingString(row, 1, v));
+                    assertEquals("k" + row + v, rs.getRepeatingString(row, "KEYWORDS", v));
+                    assertEquals(row * 10 + v, rs.getRepeatingInt(row, 2, v));
+                    assertEquals(row * 10 + v, rs.getRepeatingInt(row, "a_sizes", v));
+                    assertEquals(row + v / 4.0, rs.getRepeatingDouble(row, 3, v), 0);
+                    assertEquals(row + v / 4.0, rs.getRepeatingDouble(row, "a_rates", v), 0);
+                    assertEquals(v % 2 == 0, rs.getRepeatingBoolean(row, 4, v));
+                    assertEquals(v % 2 == 0, rs.getRepeatingBoolean(row, "a_flags", v));
+                    assertEquals(folder(v), rs.getRepeatingId(row, 6, v).getId());
+                    assertEquals(folder(v), rs.getRepeatingId(row, "i_folder_id", v).getId());
+                    if (row == 2 && v == 1) {
+                        assertTrue(message, rs.getRepeatingTime(row, 5, v).isNullDate());
+                    } else {
+                        assertEquals(TIME + v * 1000L, dmRowStore.toMillis(rs.getRepeatingTime(row, "a_dates", v)));
+                    }
+                }
+            }
+            assertEquals(message, -1, rs.getCurrentRowNumber());
+            rs.close();
+        }
+    }
+
+    @Test
+    public void testValuesThatDoNotExist() throws Exception {
+        dmRecordSet rs = newRecordSet(dmRecordSet.Storage.OBJECTS);
+        try {
+            rs.getRepeatingString(4, 1, 0);
+            fail("a value of row 4 of 4 was returned");
+        } catch (DfException e) {
+            // expected
+        }
+        try {
+            rs.getRepeatingInt(1, 7, 0);
+            fail("a value of column 7 of 7 was returned");
+        } catch (DfException e) {
+            // expected
+        }
+        try {
+            rs.getRepeatingTime(1, "no_such_column", 0);
+            fail("a value of an unknown column was returned");
+        } catch (DfException e) {
+            // expected
+        }
+        assertEquals(DfTime.DF_NULLDATE, rs.getRepeatingTime(2, "a_dates", 1));
+
+        // Storage.OBJECTS leaves the index check to the DFC
+        for (dmRecordSet.Storage storage : new dmRecordSet.Storage[] { dmRecordSet.Storage.COLUMNAR,
+            dmRecordSet.Storage.OFF_HEAP }) {
+            dmRecordSet stored = newRecordSet(storage);
+            try {
+                stored.getRepeatingDouble(2, "a_rates", 2);
+                fail(storage + ": value 2 of 2 was returned");
+            } catch (DfException e) {
+                // expected
+            }
+            try {
+                stored.getRepeatingString(2, "keywords", -1);
+                fail(storage + ": value -1 was returned");
+            } catch (DfException e) {
+                // expected
+            }
+            stored.close();
+        }
+    }
+
+    @Test
+    public void testUnnest() throws Exception {
+        for (dmRecordSet.Storage storage : dmRecordSet.Storage.values()) {
+            dmRecordSet rs = newRecordSet(storage);
+            dmRecordSet unnested = rs.unnest("keywords");
+            String message = storage.toString();
+            assertTrue(message, unnested.isFrozen());
+            assertFalse(unnested.getColumnDefs().get(1).isRepeating());
+            assertTrue(unnested.getColumnDefs().get(2).isRepeating());
+
+            // a row per value; row 0 has none and is left out
+            assertEquals(message, 6, unnested.getRowCount());
+            String[] keywords = { "k10", "k20", "k21", "k30", "k31", "k32" };
+            String[] ids = { id(1), id(2), id(2), id(3), id(3), id(3) };
+            for (int row = 0; row < keywords.length; row++) {
+                assertEquals(message, keywords[row], unnested.getString(row, "keywords"));
+                assertEquals(1, unnested.getValueCount(row, "keywords"));
+                assertEquals(ids[row], unnested.getString(row, "r_object_id"));
+                assertEquals(ids[row], unnested.getRow(row).getString("r_object_id"));
+            }
+
+            // the other repeating columns keep all their values
+            assertEquals(3, unnested.getValueCount(5, "a_sizes"));
+            assertEquals(32, unnested.getRepeatingInt(5, "a_sizes", 2));
+            assertTrue(unnested.getRepeatingTime(1, "a_dates", 1).isNullDate());
+
+            // times unnest as times
+            dmRecordSet dates = rs.unnest("a_dates");
+            assertEquals(IDfAttr.DM_TIME, dates.getColumnDefs().get(5).getDataType());
+            assertTrue(dates.getTime(2, "a_dates").isNullDate());
+            assertEquals(TIME + 2000L, dmRowStore.toMillis(dates.getTime(5, "a_dates")));
+            rs.close();
+        }
+    }
+
+    @Test
+    public void testUnnestOfSingleValuedColumn() throws Exception {
+        try {
+            newRecordSet(dmRecordSet.Storage.OBJECTS).unnest("r_object_id");
+            fail("a single valued column was unnested");
+        } catch (Exception e) {
+            // expected
+        }
+    }
+}
+
+/*
+ *  <SDG><
+ */
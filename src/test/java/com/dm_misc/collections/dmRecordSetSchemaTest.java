@@ -0,0 +1,103 @@
+/**
+ * Tests of dmRecordSetSchema column lookups and row checks.
+ *
+ * (C) 2013 MS Roth
+ * <p/>
+ *
+ * @author M. Scott Roth, http://msroth.wordpress.com
+ * @version 1.3
+ */
+package com.dm_misc.collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import com.documentum.fc.common.IDfAttr;
+
+public class dmRecordSetSchemaTest {
+
+    private static final IDfAttr[] ATTRS = {
+        dmTestStubs.attr("r_object_id", IDfAttr.DM_ID, false),
+        dmTestStubs.attr("Object_Name", IDfAttr.DM_STRING, false),
+        dmTestStubs.attr("owner_name", IDfAttr.DM_STRING, false) };
+
+    private static dmRecordSetSchema schema(String... names) {
+        ArrayList<IDfAttr> columnDefs = new ArrayList<IDfAttr>();
+        for (String name : names) {
+            columnDefs.add(dmTestStubs.attr(name, IDfAttr.DM_STRING, false));
+        }
+        return new dmRecordSetSchema(columnDefs);
+    }
+
+    @Test
+    public void testLooksUpColumnsIgnoringCase() {
+        dmRecordSetSchema schema = new dmRecordSetSchema(new ArrayList<IDfAttr>(Arrays.asList(ATTRS)));
+        assertEquals(3, schema.getColumnCount());
+        assertEquals(0, schema.indexOf("r_object_id"));
+        assertEquals(1, schema.indexOf("object_name"));
+        assertEquals(1, schema.indexOf("OBJECT_NAME"));
+        assertEquals("Object_Name", schema.getColumnName(1));
+        assertEquals(-1, schema.indexOf("title"));
+        assertEquals(-1, schema.indexOf("object_nam"));
+    }
+
+    @Test
+    public void testRepeatedNamesFindTheFirstColumn() {
+        assertEquals(1, schema("a", "b", "B").indexOf("b"));
+    }
+
+    @Test
+    public void testFingerprints() {
+        assertEquals(schema("a", "b").getFingerprint(), schema("A", "b").getFingerprint());
+        assertNotEquals(schema("a", "b").getFingerprint(), schema("b", "a").getFingerprint());
+        assertNotEquals(schema("ab", "c").getFingerprint(), schema("a", "bc").getFingerprint());
+        assertNotEquals(schema("a").getFingerprint(), schema("a", "").getFingerprint());
+    }
+
+    @Test
+    public void testMatchesRows() throws Exception {
+        dmRecordSetSchema schema = schema("r_object_id", "object_name", "OWNER_NAME");
+        assertTrue(schema.matches(dmTestStubs.row(ATTRS, new Object[3])));
+        assertFalse(schema.matches(dmTestStubs.row(new IDfAttr[] { ATTRS[0], ATTRS[2], ATTRS[1] }, new Object[3])));
+        assertFalse(schema.matches(dmTestStubs.row(new IDfAttr[] { ATTRS[0], ATTRS[1] }, new Object[2])));
+    }
+
+    @Test
+    public void testRecordSetResolvesColumns() throws Exception {
+        dmRecordSet rs = new dmRecordSet(dmTestStubs.collection(ATTRS,
+                Collections.singletonList(new Object[] { "0900000000000001", "doc", "dmadmin" })));
+        assertEquals(2, rs.getColumnNumber("OWNER_NAME"));
+        assertEquals(-1, rs.getColumnNumber("title"));
+        assertEquals("doc", rs.getString(0, "object_name"));
+        try {
+            rs.getString(0, "title");
+            fail("a column that does not exist was read");
+        } catch (Exception e) {
+            // expected
+        }
+
+        // rows of the record set itself are accepted, other rows by name
+        rs.addRow(rs.getRow(0));
+        rs.addRow(dmTestStubs.row(ATTRS, new Object[] { "0900000000000002", "doc2", "jsmith" }));
+        assertEquals(3, rs.getRowCount());
+        try {
+            rs.addRow(dmTestStubs.row(new IDfAttr[] { ATTRS[0] }, new Object[] { "0900000000000003" }));
+            fail("a row with other columns was added");
+        } catch (Exception e) {
+            assertEquals(3, rs.getRowCount());
+        }
+    }
+}
+
+/*
+ *  <SDG><
+ */
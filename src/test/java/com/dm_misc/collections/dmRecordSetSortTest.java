@@ -0,0 +1,156 @@
+/**
+ * Tests of sortBy() and sort().
+ *
+ * (C) 2013 MS Roth
+ * <p/>
+ *
+ * @author M. Scott Roth, http://msroth.wordpress.com
+ * @version 1.3
+ */
+package com.dm_misc.collections;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.documentum.fc.client.IDfTypedObject;
+import com.documentum.fc.common.DfException;
+import com.documentum.fc.common.IDfAttr;
+
+/**
+ * Each row holds its original row number in r_content_size, so the order
+ * of a sorted view can be read back from it.
+ */
+public class dmRecordSetSortTest {
+
+    private static final IDfAttr[] ATTRS = {
+        dmTestStubs.attr("r_content_size", IDfAttr.DM_INTEGER, false),
+        dmTestStubs.attr("object_name", IDfAttr.DM_STRING, false),
+        dmTestStubs.attr("a_rate", IDfAttr.DM_DOUBLE, false),
+        dmTestStubs.attr("r_immutable_flag", IDfAttr.DM_BOOLEAN, false),
+        dmTestStubs.attr("r_modify_date", IDfAttr.DM_TIME, false),
+        dmTestStubs.attr("keywords", IDfAttr.DM_STRING, true) };
+
+    private static final long TIME = 1356998400000L;
+
+    private static final Object[][] VALUES = {
+        { 0, "b", 10.0, true, TIME + 2000, new Object[] { "m" } },
+        { 1, "a", -1.5, false, TIME, new Object[0] },
+        { 2, "c", 2.0, true, dmRowStore.NULL_TIME, new Object[] { "a", "z" } },
+        { 3, "a", 10.0, false, TIME + 1000, new Object[] { "b" } },
+        { 4, "b", 9.0, true, TIME, new Object[] { "m" } } };
+
+    private static dmRecordSet newRecordSet(dmRecordSet.Storage storage) throws Exception {
+        List<Object[]> rows = new ArrayList<Object[]>();
+        for (Object[] row : VALUES) {
+            rows.add(row.clone());
+        }
+        return new dmRecordSet(dmTestStubs.collection(ATTRS, rows), storage);
+    }
+
+    private static int[] order(dmRecordSet sorted) throws Exception {
+        int[] order = new int[sorted.getRowCount()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = sorted.getInt(i, "r_content_size");
+        }
+        return order;
+    }
+
+    @Test
+    public void testSortsByEachType() throws Exception {
+        for (dmRecordSet.Storage storage : dmRecordSet.Storage.values()) {
+            dmRecordSet rs = newRecordSet(storage);
+            String message = storage.toString();
+
+            // equal values keep their order
+            assertArrayEquals(message, new int[] { 1, 3, 0, 4, 2 }, order(rs.sortBy("object_name")));
+            assertArrayEquals(message, new int[] { 1, 2, 4, 0, 3 }, order(rs.sortBy("a_rate")));
+            assertArrayEquals(message, new int[] { 1, 3, 0, 2, 4 }, order(rs.sortBy("r_immutable_flag")));
+            assertArrayEquals(message, new int[] { 2, 1, 4, 3, 0 }, order(rs.sortBy("r_modify_date")));
+            assertArrayEquals(message, new int[] { 0, 3, 1, 4, 2 }, order(rs.sortBy("r_modify_date DESC")));
+
+            // the first value of a repeating attribute; no values sort first
+            assertArrayEquals(message, new int[] { 1, 2, 3, 0, 4 }, order(rs.sortBy("keywords")));
+            rs.close();
+        }
+    }
+
+    @Test
+    public void testSortsByManyKeys() throws Exception {
+        dmRecordSet rs = newRecordSet(dmRecordSet.Storage.COLUMNAR);
+        assertArrayEquals(new int[] { 3, 1, 0, 4, 2 }, order(rs.sortBy("object_name ASC", "a_rate desc")));
+        assertArrayEquals(new int[] { 0, 4, 2, 3, 1 }, order(rs.sortBy("r_immutable_flag DESC", "  r_modify_date  DESC ")));
+    }
+
+    @Test
+    public void testSortedViewsLeaveTheRecordSetAlone() throws Exception {
+        dmRecordSet rs = newRecordSet(dmRecordSet.Storage.OBJECTS);
+        rs.getRow(3);
+        dmRecordSet sorted = rs.sortBy("object_name");
+        assertTrue(sorted.isFrozen());
+        assertEquals(3, rs.getCurrentRowNumber());
+        assertArrayEquals(new int[] { 0, 1, 2, 3, 4 }, order(rs));
+
+        // a view can be sorted again
+        assertArrayEquals(new int[] { 2, 4, 0, 3, 1 }, order(sorted.sortBy("object_name DESC", "r_content_size DESC")));
+    }
+
+    @Test
+    public void testSortsWithAComparator() throws Exception {
+        dmRecordSet rs = newRecordSet(dmRecordSet.Storage.OFF_HEAP);
+        dmRecordSet sorted = rs.sort(new Comparator<IDfTypedObject>() {
+
+            public int compare(IDfTypedObject a, IDfTypedObject b) {
+                try {
+                    return Integer.compare(a.getString("object_name").length() + a.getInt("r_content_size") % 2,
+                            b.getString("object_name").length() + b.getInt("r_content_size") % 2);
+                } catch (DfException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        });
+        assertArrayEquals(new int[] { 0, 2, 4, 1, 3 }, order(sorted));
+        rs.close();
+    }
+
+    @Test
+    public void testRejectsBadOrderings() throws Exception {
+        dmRecordSet rs = newRecordSet(dmRecordSet.Storage.OBJECTS);
+        for (String ordering : new String[] { "title", "object_name DOWN", "object_name ASC DESC" }) {
+            try {
+                rs.sortBy(ordering);
+                fail("sorted by '" + ordering + "'");
+            } catch (DfException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testSortsLargeRecordSetsInParallel() throws Exception {
+        int rowCount = dmRowOrdering.PARALLEL_THRESHOLD + 1000;
+        Random random = new Random(42);
+        List<Object[]> rows = new ArrayList<Object[]>();
+        for (int i = 0; i < rowCount; i++) {
+            rows.add(new Object[] { i, "n" + random.nextInt(1000), 0.0, false, 0L, new Object[0] });
+        }
+        dmRecordSet sorted = new dmRecordSet(dmTestStubs.collection(ATTRS, rows), dmRecordSet.Storage.COLUMNAR)
+                .sortBy("object_name");
+        for (int i = 1; i < rowCount; i++) {
+            int c = sorted.getString(i - 1, "object_name").compareTo(sorted.getString(i, "object_name"));
+            assertTrue(c < 0 || (c == 0 && sorted.getInt(i - 1, "r_content_size") < sorted.getInt(i, "r_content_size")));
+        }
+    }
+}
+
+/*
+ *  <SDG><
+ */
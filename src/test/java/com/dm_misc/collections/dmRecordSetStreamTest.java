@@ -0,0 +1,97 @@
+/**
+ * Tests of stream() and parallelStream().
+ *
+ * (C) 2013 MS Roth
+ * <p/>
+ *
+ * @author M. Scott Roth, http://msroth.wordpress.com
+ * @version 1.3
+ */
+package com.dm_misc.collections;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import com.documentum.fc.client.IDfTypedObject;
+import com.documentum.fc.common.DfException;
+import com.documentum.fc.common.IDfAttr;
+
+public class dmRecordSetStreamTest {
+
+    private static final IDfAttr[] ATTRS = {
+        dmTestStubs.attr("r_object_id", IDfAttr.DM_ID, false),
+        dmTestStubs.attr("r_content_size", IDfAttr.DM_INTEGER, false) };
+
+    private static List<Object[]> rows(int rowCount) {
+        List<Object[]> rows = new ArrayList<Object[]>();
+        for (int i = 0; i < rowCount; i++) {
+            rows.add(new Object[] { String.format("09%014x", i), i });
+        }
+        return rows;
+    }
+
+    private static int size(IDfTypedObject row) {
+        try {
+            return row.getInt("r_content_size");
+        } catch (DfException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Test
+    public void testStreamsRowsInOrderWithoutMovingTheRowPointer() throws Exception {
+        for (dmRecordSet.Storage storage : dmRecordSet.Storage.values()) {
+            dmRecordSet rs = new dmRecordSet(dmTestStubs.collection(ATTRS, rows(500)), storage);
+            rs.getRow(10);
+            List<Integer> sizes = rs.stream().map(dmRecordSetStreamTest::size).collect(Collectors.toList());
+            assertEquals(500, sizes.size());
+            for (int i = 0; i < 500; i++) {
+                assertEquals(storage.toString(), i, sizes.get(i).intValue());
+            }
+            assertEquals(10, rs.getCurrentRowNumber());
+            rs.close();
+        }
+    }
+
+    @Test
+    public void testParallelStreamVisitsEachRowOnce() throws Exception {
+        for (dmRecordSet.Storage storage : dmRecordSet.Storage.values()) {
+            dmRecordSet rs = new dmRecordSet(dmTestStubs.collection(ATTRS, rows(20000)), storage);
+            Set<Integer> seen = ConcurrentHashMap.newKeySet();
+            long sum = rs.parallelStream().mapToLong(row -> {
+                int size = size(row);
+                seen.add(size);
+                return size;
+            }).sum();
+            assertEquals(storage.toString(), 20000, seen.size());
+            assertEquals(19999L * 20000 / 2, sum);
+            assertEquals(-1, rs.getCurrentRowNumber());
+
+            // ordered operations keep row order
+            assertEquals(rs.parallelStream().map(dmRecordSetStreamTest::size).collect(Collectors.toList()),
+                    rs.stream().map(dmRecordSetStreamTest::size).collect(Collectors.toList()));
+            rs.close();
+        }
+    }
+
+    @Test
+    public void testStreamingSetsAreReadThroughTheRowPointer() throws Exception {
+        dmRecordSet rs = new dmRecordSet(dmTestStubs.collection(ATTRS, rows(100)), 5);
+        rs.getRow(9);
+        List<Integer> sizes = rs.stream().map(dmRecordSetStreamTest::size).collect(Collectors.toList());
+        assertEquals(90, sizes.size());
+        assertEquals(10, sizes.get(0).intValue());
+        assertEquals(99, rs.getCurrentRowNumber());
+    }
+}
+
+/*
+ *  <SDG><
+ */
@@ -0,0 +1,134 @@
+/**
+ * Tests of streaming record sets.
+ *
+ * (C) 2013 MS Roth
+ * <p/>
+ *
+ * @author M. Scott Roth, http://msroth.wordpress.com
+ * @version 1.3
+ */
+package com.dm_misc.collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.AbstractList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.documentum.fc.client.IDfCollection;
+import com.documentum.fc.common.IDfAttr;
+
+/**
+ * The rows of the collections are generated as they are read, and _read
+ * is the highest row read so far.
+ */
+public class dmRecordSetStreamingTest {
+
+    private static final IDfAttr[] ATTRS = {
+        dmTestStubs.attr("r_object_id", IDfAttr.DM_ID, false),
+        dmTestStubs.attr("r_content_size", IDfAttr.DM_INTEGER, false) };
+
+    private int _read = -1;
+
+    private IDfCollection collection(final int rowCount) {
+        List<Object[]> rows = new AbstractList<Object[]>() {
+
+            public Object[] get(int row) {
+                _read = Math.max(_read, row);
+                return new Object[] { String.format("09%014x", row), row };
+            }
+
+            public int size() {
+                return rowCount;
+            }
+        };
+        return dmTestStubs.collection(ATTRS, rows);
+    }
+
+    @Test
+    public void testReadsRowsAsTheyAreTraversed() throws Exception {
+        dmRecordSet rs = new dmRecordSet(collection(1000), 10);
+        assertTrue(rs.isStreaming());
+        assertTrue(_read < 10);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, rs.getNextRow().getInt("r_content_size"));
+        }
+        assertTrue(_read < 110);
+        assertEquals(_read + 1, rs.getRowCount());
+
+        rs.getLastRow();
+        assertEquals(999, _read);
+        assertEquals(1000, rs.getRowCount());
+    }
+
+    @Test
+    public void testOnlyTheWindowIsRetained() throws Exception {
+        dmRecordSet rs = new dmRecordSet(collection(100), 10);
+        rs.getRow(50);
+        assertEquals(41, rs.getRow(41).getInt("r_content_size"));
+        assertNull(rs.tryGetRow(40));
+        try {
+            rs.getRow(30);
+            fail("a row that left the window was returned");
+        } catch (Exception e) {
+            assertTrue(e.getMessage().contains("no longer in the streaming window"));
+        }
+        assertEquals(99, rs.getLastRow().getInt("r_content_size"));
+    }
+
+    @Test
+    public void testHasPreviousStopsAtTheWindow() throws Exception {
+        dmRecordSet rs = new dmRecordSet(collection(100), 5);
+        rs.getRow(20);
+        int steps = 0;
+        while (rs.hasPrevious()) {
+            rs.getPreviousRow();
+            steps++;
+        }
+        assertEquals(4, steps);
+        assertEquals(16, rs.getCurrentRowNumber());
+    }
+
+    @Test
+    public void testWholeSetOperationsAreRejected() throws Exception {
+        dmRecordSet rs = new dmRecordSet(collection(100), 5);
+        try {
+            rs.sortBy("r_content_size");
+            fail("a streaming record set was sorted");
+        } catch (Exception e) {
+            // expected
+        }
+        try {
+            rs.freeze();
+            fail("a streaming record set was frozen");
+        } catch (Exception e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testCloseStopsReading() throws Exception {
+        dmRecordSet rs = new dmRecordSet(collection(100), 5);
+        rs.getRow(3);
+        rs.close();
+        assertFalse(rs.hasNext());
+        assertTrue(_read < 10);
+    }
+
+    @Test
+    public void testWindowOfZeroReadsEverything() throws Exception {
+        dmRecordSet rs = new dmRecordSet(collection(100), 0);
+        assertFalse(rs.isStreaming());
+        assertEquals(99, _read);
+        assertEquals(100, rs.getRowCount());
+    }
+}
+
+/*
+ *  <SDG><
+ */
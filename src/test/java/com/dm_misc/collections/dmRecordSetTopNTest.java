@@ -0,0 +1,180 @@
+/**
+ * Tests of topN() and page().
+ *
+ * (C) 2013 MS Roth
+ * <p/>
+ *
+ * @author M. Scott Roth, http://msroth.wordpress.com
+ * @version 1.3
+ */
+package com.dm_misc.collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.documentum.fc.client.IDfCollection;
+import com.documentum.fc.client.IDfTypedObject;
+import com.documentum.fc.common.DfException;
+import com.documentum.fc.common.IDfAttr;
+
+public class dmRecordSetTopNTest {
+
+    private static final IDfAttr[] ATTRS = {
+        dmTestStubs.attr("r_object_id", IDfAttr.DM_ID, false),
+        dmTestStubs.attr("owner_name", IDfAttr.DM_STRING, false),
+        dmTestStubs.attr("r_full_content_size", IDfAttr.DM_DOUBLE, false),
+        dmTestStubs.attr("r_modify_date", IDfAttr.DM_TIME, false) };
+
+    private static final int ROWS = 500;
+
+    private static final String[] ORDERINGS = { "owner_name", "r_full_content_size DESC" };
+
+    private static String id(int row) {
+        return String.format("09%014x", row);
+    }
+
+    /**
+     * Rows with few distinct values, so there are many ties.
+     */
+    private static List<Object[]> rows() {
+        Random random = new Random(3);
+        List<Object[]> rows = new ArrayList<Object[]>();
+        for (int i = 0; i < ROWS; i++) {
+            rows.add(new Object[] { id(i), "owner" + random.nextInt(5), (double) random.nextInt(10),
+                    1356998400000L + random.nextInt(100) * 1000L });
+        }
+        return rows;
+    }
+
+    private static IDfCollection collection() {
+        return dmTestStubs.collection(ATTRS, rows());
+    }
+
+    private static List<String> ids(dmRecordSet rs) throws Exception {
+        List<String> ids = new ArrayList<String>();
+        for (int row = 0; row < rs.getRowCount(); row++) {
+            ids.add(rs.getString(row, "r_object_id"));
+        }
+        return ids;
+    }
+
+    /**
+     * The ids of the first n rows of a fully sorted record set.
+     */
+    private static List<String> sortedIds(int n, String... orderings) throws Exception {
+        return ids(new dmRecordSet(collection()).sortBy(orderings)).subList(0, Math.min(n, ROWS));
+    }
+
+    private static String owner(IDfTypedObject row) {
+        try {
+            return row.getString("owner_name");
+        } catch (DfException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Test
+    public void testTopNMatchesSortBy() throws Exception {
+        for (dmRecordSet.Storage storage : dmRecordSet.Storage.values()) {
+            dmRecordSet rs = new dmRecordSet(collection(), storage);
+            String message = storage.toString();
+            for (int n : new int[] { 0, 1, 7, 100, ROWS, ROWS + 10 }) {
+                dmRecordSet top = rs.topN(n, ORDERINGS);
+                assertTrue(message, top.isFrozen());
+                assertEquals(message + " " + n, sortedIds(n, ORDERINGS), ids(top));
+            }
+            assertEquals(message, sortedIds(20, "r_modify_date DESC"), ids(rs.topN(20, "r_modify_date DESC")));
+
+            // the record set itself is not sorted
+            assertEquals(id(0), rs.getString(0, "r_object_id"));
+            rs.close();
+        }
+    }
+
+    @Test
+    public void testTopNWithComparator() throws Exception {
+        Comparator<IDfTypedObject> byOwner = new Comparator<IDfTypedObject>() {
+
+            public int compare(IDfTypedObject a, IDfTypedObject b) {
+                return owner(b).compareTo(owner(a));
+            }
+        };
+        dmRecordSet rs = new dmRecordSet(collection());
+        dmRecordSet top = rs.topN(30, byOwner);
+        assertEquals(ids(rs.sort(byOwner)).subList(0, 30), ids(top));
+    }
+
+    @Test
+    public void testNegativeCounts() throws Exception {
+        dmRecordSet rs = new dmRecordSet(collection());
+        try {
+            rs.topN(-1, ORDERINGS);
+            fail("a negative count was accepted");
+        } catch (Exception e) {
+            // expected
+        }
+        try {
+            rs.page(-1, 10);
+            fail("a negative offset was accepted");
+        } catch (Exception e) {
+            // expected
+        }
+        try {
+            rs.page(0, -10);
+            fail("a negative limit was accepted");
+        } catch (Exception e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testTopNOfStreamingRecordSets() throws Exception {
+        dmRecordSet streaming = new dmRecordSet(collection(), 10);
+        assertEquals(sortedIds(25, ORDERINGS), ids(streaming.topN(25, ORDERINGS)));
+
+        IDfCollection col = collection();
+        assertEquals(sortedIds(25, ORDERINGS), ids(dmRecordSet.topN(col, 25, ORDERINGS)));
+        assertEquals(IDfCollection.DF_CLOSED_STATE, col.getState());
+        try {
+            dmRecordSet.topN(col, 25, ORDERINGS);
+            fail("a closed collection was read");
+        } catch (Exception e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testPage() throws Exception {
+        for (dmRecordSet.Storage storage : dmRecordSet.Storage.values()) {
+            dmRecordSet rs = new dmRecordSet(collection(), storage);
+            rs.getRow(42);
+            List<String> all = ids(rs);
+            String message = storage.toString();
+
+            dmRecordSet page = rs.page(100, 50);
+            assertTrue(message, page.isFrozen());
+            assertEquals(message, all.subList(100, 150), ids(page));
+            assertEquals(message, all.subList(480, ROWS), ids(rs.page(480, 50)));
+            assertEquals(0, rs.page(ROWS, 50).getRowCount());
+            assertEquals(0, rs.page(10, 0).getRowCount());
+            assertEquals(42, rs.getCurrentRowNumber());
+
+            // page 3 of 20 rows in sort order
+            assertEquals(message, sortedIds(80, ORDERINGS).subList(60, 80),
+                    ids(rs.topN(80, ORDERINGS).page(60, 20)));
+            rs.close();
+        }
+    }
+}
+
+/*
+ *  <SDG><
+ */
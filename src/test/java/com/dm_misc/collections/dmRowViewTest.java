@@ -0,0 +1,189 @@
+/**
+ * Tests of tryGetRow(), advance(), getRowView() and forEachRow().
+ *
+ * (C) 2013 MS Roth
+ * <p/>
+ *
+ * @author M. Scott Roth, http://msroth.wordpress.com
+ * @version 1.3
+ */
+package com.dm_misc.collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.documentum.fc.common.IDfAttr;
+
+public class dmRowViewTest {
+
+    private static final IDfAttr[] ATTRS = {
+        dmTestStubs.attr("r_object_id", IDfAttr.DM_ID, false),
+        dmTestStubs.attr("object_name", IDfAttr.DM_STRING, false),
+        dmTestStubs.attr("i_vstamp", IDfAttr.DM_INTEGER, false),
+        dmTestStubs.attr("r_full_content_size", IDfAttr.DM_DOUBLE, false),
+        dmTestStubs.attr("a_is_template", IDfAttr.DM_BOOLEAN, false),
+        dmTestStubs.attr("r_modify_date", IDfAttr.DM_TIME, false),
+        dmTestStubs.attr("keywords", IDfAttr.DM_STRING, true) };
+
+    private static final long TIME = 1356998400000L;
+
+    private static String id(int row) {
+        return String.format("09%014x", row);
+    }
+
+    private static List<Object[]> rows(int rowCount) {
+        List<Object[]> rows = new ArrayList<Object[]>();
+        for (int i = 0; i < rowCount; i++) {
+            Object[] keywords = new Object[i % 3];
+            for (int k = 0; k < keywords.length; k++) {
+                keywords[k] = "k" + i + "_" + k;
+            }
+            rows.add(new Object[] { id(i), "doc" + i, i, i * 1.5, i % 2 == 0, TIME + i * 1000L, keywords });
+        }
+        return rows;
+    }
+
+    private static dmRecordSet newRecordSet(int rowCount, dmRecordSet.Storage storage) throws Exception {
+        return new dmRecordSet(dmTestStubs.collection(ATTRS, rows(rowCount)), storage);
+    }
+
+    @Test
+    public void testTryGetRow() throws Exception {
+        dmRecordSet rs = newRecordSet(5, dmRecordSet.Storage.OBJECTS);
+        assertNotNull(rs.tryGetRow(3));
+        assertEquals(3, rs.getCurrentRowNumber());
+        assertEquals("doc3", rs.tryGetRow(3).getString("object_name"));
+
+        assertNull(rs.tryGetRow(5));
+        assertTrue(rs.isEOF());
+        assertNull(rs.tryGetRow(-1));
+        assertTrue(rs.isBOF());
+        assertNotNull(rs.tryGetRow(0));
+        assertFalse(rs.isBOF());
+        assertFalse(rs.isEOF());
+
+        assertNull(newRecordSet(0, dmRecordSet.Storage.OBJECTS).tryGetRow(0));
+    }
+
+    @Test
+    public void testAdvanceAndRowView() throws Exception {
+        for (dmRecordSet.Storage storage : dmRecordSet.Storage.values()) {
+            dmRecordSet rs = newRecordSet(10, storage);
+            int size = rs.getRowView().getColumnNumber("r_full_content_size");
+            int keywords = rs.getRowView().getColumnNumber("KEYWORDS");
+            String message = storage.toString();
+            int row = 0;
+            while (rs.advance()) {
+                dmRowView view = rs.getRowView();
+                assertSame(message, view, rs.getRowView());
+                assertEquals(message, row, view.getRowNumber());
+                assertEquals(id(row), view.getId(0).getId());
+                assertEquals(id(row), view.getString("r_object_id"));
+                assertEquals("doc" + row, view.getString(1));
+                assertEquals(row, view.getInt("i_vstamp"));
+                assertEquals(row * 1.5, view.getDouble(size), 0);
+                assertEquals(row % 2 == 0, view.getBoolean("a_is_template"));
+                assertEquals(TIME + row * 1000L, dmRowStore.toMillis(view.getTime("r_modify_date")));
+                assertEquals(row % 3, view.getValueCount(keywords));
+                for (int k = 0; k < row % 3; k++) {
+                    assertEquals("k" + row + "_" + k, view.getRepeatingString(keywords, k));
+                }
+                assertEquals("doc" + row, view.getTypedObject().getString("object_name"));
+                row++;
+            }
+            assertEquals(message, 10, row);
+            assertFalse(rs.advance());
+            assertTrue(rs.isEOF());
+            assertEquals(7, rs.getRowView().getColumnCount());
+            rs.close();
+        }
+    }
+
+    @Test
+    public void testForEachRow() throws Exception {
+        for (dmRecordSet.Storage storage : dmRecordSet.Storage.values()) {
+            dmRecordSet rs = newRecordSet(10, storage);
+            rs.getRow(4);
+            final double[] total = new double[1];
+            final List<Integer> rows = new ArrayList<Integer>();
+            int count = rs.forEachRow(new dmRecordSet.RowConsumer() {
+
+                public void accept(dmRowView row) throws Exception {
+                    total[0] += row.getDouble("r_full_content_size");
+                    rows.add(row.getRowNumber());
+                }
+            });
+            String message = storage.toString();
+            assertEquals(message, 10, count);
+            assertEquals(message, 45 * 1.5, total[0], 0);
+            assertEquals(0, rows.get(0).intValue());
+            assertEquals(9, rows.get(9).intValue());
+
+            // the row pointer is not moved
+            assertEquals(4, rs.getCurrentRowNumber());
+            rs.close();
+        }
+    }
+
+    @Test
+    public void testForEachRowStopsOnException() throws Exception {
+        dmRecordSet rs = newRecordSet(10, dmRecordSet.Storage.COLUMNAR);
+        final int[] visited = new int[1];
+        try {
+            rs.forEachRow(new dmRecordSet.RowConsumer() {
+
+                public void accept(dmRowView row) throws Exception {
+                    visited[0]++;
+                    if (row.getRowNumber() == 3) {
+                        throw new Exception("stop");
+                    }
+                }
+            });
+            fail("the consumer's exception was not thrown");
+        } catch (Exception e) {
+            assertEquals("stop", e.getMessage());
+        }
+        assertEquals(4, visited[0]);
+    }
+
+    @Test
+    public void testStreamingRecordSet() throws Exception {
+        dmRecordSet rs = new dmRecordSet(dmTestStubs.collection(ATTRS, rows(10)), 3);
+        int count = 0;
+        while (rs.advance()) {
+            assertEquals("doc" + count, rs.getRowView().getString("object_name"));
+            count++;
+        }
+        assertEquals(10, count);
+
+        // rows that have left the window are not returned
+        assertNull(rs.tryGetRow(0));
+        assertNotNull(rs.tryGetRow(8));
+
+        dmRecordSet rest = new dmRecordSet(dmTestStubs.collection(ATTRS, rows(10)), 3);
+        rest.getRow(1);
+        final List<Integer> rows = new ArrayList<Integer>();
+        rest.forEachRow(new dmRecordSet.RowConsumer() {
+
+            public void accept(dmRowView row) {
+                rows.add(row.getRowNumber());
+            }
+        });
+        assertEquals(10, rows.size());
+        assertEquals(9, rows.get(9).intValue());
+    }
+}
+
+/*
+ *  <SDG><
+ */
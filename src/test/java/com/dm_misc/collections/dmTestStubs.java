@@ -0,0 +1,332 @@
+/**
+ * Stubbed DFC sessions, collections and objects for the dmRecordSet tests.
+ *
+ * (C) 2013 MS Roth
+ * <p/>
+ *
+ * @author M. Scott Roth, http://msroth.wordpress.com
+ * @version 1.3
+ */
+package com.dm_misc.collections;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import com.documentum.fc.client.IDfCollection;
+import com.documentum.fc.client.IDfEnumeration;
+import com.documentum.fc.client.IDfPersistentObject;
+import com.documentum.fc.client.IDfSession;
+import com.documentum.fc.client.IDfTypedObject;
+import com.documentum.fc.common.DfException;
+import com.documentum.fc.common.DfId;
+import com.documentum.fc.common.IDfAttr;
+import com.documentum.fc.common.IDfId;
+import com.documentum.fc.common.IDfTime;
+
+/**
+ * Dynamic proxies standing in for the DFC interfaces the record set uses,
+ * so the tests run without a Content Server. Row values are given as Java
+ * values per column: String for STRING and ID columns, Integer, Double,
+ * Boolean, and Long epoch milliseconds for TIME columns; repeating columns
+ * hold an Object[].
+ */
+final class dmTestStubs {
+
+    private dmTestStubs() {
+    }
+
+    /**
+     * Answers the queries of a stub session.
+     */
+    interface QueryHandler {
+
+        List<IDfPersistentObject> getObjectsByQuery(String dql) throws Exception;
+    }
+
+    static IDfAttr attr(final String name, final int dataType, final boolean repeating) {
+        return (IDfAttr) Proxy.newProxyInstance(dmTestStubs.class.getClassLoader(),
+                new Class<?>[] { IDfAttr.class }, new InvocationHandler() {
+
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                String methodName = method.getName();
+                if (methodName.equals("getName")) {
+                    return name;
+                } else if (methodName.equals("getDataType")) {
+                    return dataType;
+                } else if (methodName.equals("isRepeating")) {
+                    return repeating;
+                } else if (methodName.equals("getLength") || methodName.equals("getAllowedLength")) {
+                    return (dataType == IDfAttr.DM_STRING ? 255 : 0);
+                } else if (method.getDeclaringClass() == Object.class) {
+                    return objectMethod(proxy, method, args, name);
+                }
+                return defaultValue(method);
+            }
+        });
+    }
+
+    /**
+     * Create a row. Its values can be changed through the IDfTypedObject
+     * setters, as record sets with Storage.OBJECTS do.
+     */
+    static IDfTypedObject row(final IDfAttr[] attrs, final Object[] values) {
+        return (IDfTypedObject) Proxy.newProxyInstance(dmTestStubs.class.getClassLoader(),
+                new Class<?>[] { IDfTypedObject.class }, new InvocationHandler() {
+
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                String name = method.getName();
+                if (name.equals("getAttrCount")) {
+                    return attrs.length;
+                } else if (name.equals("getAttr")) {
+                    return attrs[(Integer) args[0]];
+                } else if (method.getDeclaringClass() == Object.class) {
+                    return objectMethod(proxy, method, args, Arrays.deepToString(values));
+                } else if (args == null || !(args[0] instanceof String)) {
+                    throw new UnsupportedOperationException(name);
+                }
+
+                int col = findAttr(attrs, (String) args[0]);
+                if (name.equals("hasAttr")) {
+                    return col >= 0;
+                } else if (col < 0) {
+                    throw new IllegalArgumentException("No such attribute: " + args[0]);
+                } else if (name.equals("findAttrIndex")) {
+                    return col;
+                } else if (name.equals("isAttrRepeating")) {
+                    return attrs[col].isRepeating();
+                } else if (name.equals("getAttrDataType")) {
+                    return attrs[col].getDataType();
+                } else if (name.equals("getValueCount")) {
+                    return (values[col] instanceof Object[] ? ((Object[]) values[col]).length : 1);
+                } else if (name.equals("truncate")) {
+                    values[col] = Arrays.copyOf((Object[]) values[col], (Integer) args[1]);
+                    return null;
+                } else if (name.startsWith("set")) {
+                    values[col] = fromDfc(args[1]);
+                    return null;
+                } else if (name.startsWith("append")) {
+                    Object[] repeating = (Object[]) values[col];
+                    repeating = Arrays.copyOf(repeating, repeating.length + 1);
+                    repeating[repeating.length - 1] = fromDfc(args[1]);
+                    values[col] = repeating;
+                    return null;
+                }
+
+                // getX(name) or getRepeatingX(name, index)
+                Object value = values[col];
+                if (value instanceof Object[]) {
+                    value = ((Object[]) value)[args.length > 1 ? (Integer) args[1] : 0];
+                }
+                return toDfc(value, attrs[col].getDataType(), method.getReturnType(), name);
+            }
+        });
+    }
+
+    /**
+     * Create a collection in the ready state over rows of values.
+     */
+    static IDfCollection collection(IDfAttr[] attrs, List<Object[]> rows) {
+        return collection(attrs, rows, -1);
+    }
+
+    /**
+     * Create a collection whose next() fails when it reaches a row, as a
+     * collection does when the connection to the server is lost.
+     */
+    static IDfCollection collection(final IDfAttr[] attrs, final List<Object[]> rows, final int failAt) {
+        return (IDfCollection) Proxy.newProxyInstance(dmTestStubs.class.getClassLoader(),
+                new Class<?>[] { IDfCollection.class }, new InvocationHandler() {
+
+            private int _row = -1;
+            private boolean _closed = false;
+
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                String name = method.getName();
+                if (name.equals("next")) {
+                    if (_closed || _row + 1 >= rows.size()) {
+                        return false;
+                    } else if (_row + 1 == failAt) {
+                        throw new DfException("Connection lost reading row " + failAt + ".");
+                    }
+                    _row++;
+                    return true;
+                } else if (name.equals("getTypedObject")) {
+                    return row(attrs, rows.get(_row).clone());
+                } else if (name.equals("getState")) {
+                    return (_closed ? IDfCollection.DF_CLOSED_STATE : IDfCollection.DF_READY_STATE);
+                } else if (name.equals("close")) {
+                    _closed = true;
+                    return null;
+                } else if (name.equals("getAttrCount")) {
+                    return attrs.length;
+                } else if (name.equals("getAttr")) {
+                    return attrs[(Integer) args[0]];
+                } else if (method.getDeclaringClass() == Object.class) {
+                    return objectMethod(proxy, method, args, "collection");
+                }
+                // typed getters read the current row
+                try {
+                    return method.invoke(row(attrs, rows.get(_row)), args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+        });
+    }
+
+    /**
+     * Create the one row collection a DQL UPDATE returns.
+     */
+    static IDfCollection updateResult(int objectsUpdated) {
+        IDfAttr[] attrs = { attr("objects_updated", IDfAttr.DM_INTEGER, false) };
+        return collection(attrs, Collections.singletonList(new Object[] { objectsUpdated }));
+    }
+
+    /**
+     * Create a session on a docbase whose getObjectsByQuery() is answered
+     * by a handler. Other methods return null, 0 or false.
+     */
+    static IDfSession session(final String docbase, final String user, final QueryHandler handler) {
+        return (IDfSession) Proxy.newProxyInstance(dmTestStubs.class.getClassLoader(),
+                new Class<?>[] { IDfSession.class }, new InvocationHandler() {
+
+            public Object invoke(Object proxy, Method method, Object[] args) throws Exception {
+                String name = method.getName();
+                if (name.equals("getDocbaseName")) {
+                    return docbase;
+                } else if (name.equals("getLoginUserName")) {
+                    return user;
+                } else if (name.equals("getObjectsByQuery")) {
+                    return enumeration(handler.getObjectsByQuery((String) args[0]));
+                } else if (method.getDeclaringClass() == Object.class) {
+                    return objectMethod(proxy, method, args, "session@" + docbase);
+                }
+                return defaultValue(method);
+            }
+        });
+    }
+
+    /**
+     * Create a persistent object with an object id.
+     */
+    static IDfPersistentObject object(final String id) {
+        return (IDfPersistentObject) Proxy.newProxyInstance(dmTestStubs.class.getClassLoader(),
+                new Class<?>[] { IDfPersistentObject.class }, new InvocationHandler() {
+
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if (method.getName().equals("getObjectId")) {
+                    return new DfId(id);
+                } else if (method.getDeclaringClass() == Object.class) {
+                    return objectMethod(proxy, method, args, id);
+                }
+                return defaultValue(method);
+            }
+        });
+    }
+
+    /**
+     * Return the object ids quoted in a DQL statement, in order.
+     */
+    static List<String> quotedIds(String dql) {
+        ArrayList<String> ids = new ArrayList<String>();
+        int start = dql.indexOf(" in (");
+        for (String part : dql.substring(start + 5, dql.lastIndexOf(')')).split(",")) {
+            ids.add(part.trim().replace("'", ""));
+        }
+        return ids;
+    }
+
+    private static IDfEnumeration enumeration(List<IDfPersistentObject> objects) {
+        final Iterator<IDfPersistentObject> i = objects.iterator();
+        return (IDfEnumeration) Proxy.newProxyInstance(dmTestStubs.class.getClassLoader(),
+                new Class<?>[] { IDfEnumeration.class }, new InvocationHandler() {
+
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                String name = method.getName();
+                if (name.equals("hasMoreElements")) {
+                    return i.hasNext();
+                } else if (name.equals("nextElement")) {
+                    return i.next();
+                } else if (method.getDeclaringClass() == Object.class) {
+                    return objectMethod(proxy, method, args, "enumeration");
+                }
+                return defaultValue(method);
+            }
+        });
+    }
+
+    private static int findAttr(IDfAttr[] attrs, String name) {
+        for (int i = 0; i < attrs.length; i++) {
+            if (attrs[i].getName().equalsIgnoreCase(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static Object toDfc(Object value, int dataType, Class<?> type, String methodName) {
+        if (type == String.class) {
+            if (dataType == IDfAttr.DM_TIME) {
+                return dmRowStore.formatTime((Long) value);
+            } else if (dataType == IDfAttr.DM_BOOLEAN) {
+                return dmRowStore.formatBoolean((Boolean) value);
+            }
+            return String.valueOf(value);
+        } else if (type == int.class) {
+            return ((Number) value).intValue();
+        } else if (type == double.class) {
+            return ((Number) value).doubleValue();
+        } else if (type == boolean.class) {
+            return value;
+        } else if (type == IDfTime.class) {
+            return dmRowProxy.toTime((Long) value);
+        } else if (type == IDfId.class) {
+            return new DfId((String) value);
+        }
+        throw new UnsupportedOperationException(methodName);
+    }
+
+    private static Object fromDfc(Object value) {
+        if (value instanceof IDfTime) {
+            return dmRowStore.toMillis((IDfTime) value);
+        } else if (value instanceof IDfId) {
+            return ((IDfId) value).getId();
+        }
+        return value;
+    }
+
+    private static Object objectMethod(Object proxy, Method method, Object[] args, String label) {
+        String name = method.getName();
+        if (name.equals("equals")) {
+            return proxy == args[0];
+        } else if (name.equals("hashCode")) {
+            return System.identityHashCode(proxy);
+        }
+        return label;
+    }
+
+    private static Object defaultValue(Method method) {
+        Class<?> type = method.getReturnType();
+        if (type == boolean.class) {
+            return false;
+        } else if (type == int.class) {
+            return 0;
+        } else if (type == long.class) {
+            return 0L;
+        } else if (type == double.class) {
+            return 0.0;
+        }
+        return null;
+    }
+}
+
+/*
+ *  <SDG><
+ */
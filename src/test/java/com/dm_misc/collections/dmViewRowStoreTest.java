@@ -0,0 +1,134 @@
+/**
+ * Tests of filter() and select() views.
+ *
+ * (C) 2013 MS Roth
+ * <p/>
+ *
+ * @author M. Scott Roth, http://msroth.wordpress.com
+ * @version 1.3
+ */
+package com.dm_misc.collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.documentum.fc.client.IDfTypedObject;
+import com.documentum.fc.common.DfException;
+import com.documentum.fc.common.IDfAttr;
+
+public class dmViewRowStoreTest {
+
+    private static final IDfAttr[] ATTRS = {
+        dmTestStubs.attr("r_object_id", IDfAttr.DM_ID, false),
+        dmTestStubs.attr("object_name", IDfAttr.DM_STRING, false),
+        dmTestStubs.attr("r_content_size", IDfAttr.DM_INTEGER, false),
+        dmTestStubs.attr("keywords", IDfAttr.DM_STRING, true) };
+
+    private static dmRecordSet newRecordSet(dmRecordSet.Storage storage) throws Exception {
+        List<Object[]> rows = new ArrayList<Object[]>();
+        for (int i = 0; i < 10; i++) {
+            rows.add(new Object[] { String.format("09%014x", i), "doc" + i, i * 100, new Object[] { "k" + i, "x" } });
+        }
+        return new dmRecordSet(dmTestStubs.collection(ATTRS, rows), storage);
+    }
+
+    private static boolean large(IDfTypedObject row) {
+        try {
+            return row.getInt("r_content_size") >= 500;
+        } catch (DfException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static boolean even(IDfTypedObject row) {
+        try {
+            return row.getInt("r_content_size") % 200 == 0;
+        } catch (DfException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Test
+    public void testFilter() throws Exception {
+        for (dmRecordSet.Storage storage : dmRecordSet.Storage.values()) {
+            dmRecordSet rs = newRecordSet(storage);
+            dmRecordSet view = rs.filter(dmViewRowStoreTest::large);
+            assertEquals(storage.toString(), 5, view.getRowCount());
+            assertEquals("doc5", view.getString(0, "object_name"));
+            assertEquals("k9", view.getRepeatingString(4, "keywords", 0));
+            assertEquals("doc6", view.getRow(1).getString("object_name"));
+            assertTrue(view.isFrozen());
+
+            // a filter of a view filters the same rows
+            dmRecordSet even = view.filter(dmViewRowStoreTest::even);
+            assertEquals(2, even.getRowCount());
+            assertEquals("doc8", even.getString(1, "object_name"));
+            assertEquals(0, rs.filter(row -> false).getRowCount());
+            rs.close();
+        }
+    }
+
+    @Test
+    public void testSelect() throws Exception {
+        for (dmRecordSet.Storage storage : dmRecordSet.Storage.values()) {
+            dmRecordSet rs = newRecordSet(storage);
+            dmRecordSet view = rs.select("keywords", "OBJECT_NAME");
+            assertEquals(storage.toString(), 2, view.getColumnCount());
+            assertEquals("keywords", view.getColumnDefs().get(0).getName());
+            assertEquals("object_name", view.getColumnDefs().get(1).getName());
+            assertEquals(-1, view.getColumnNumber("r_content_size"));
+            assertEquals(10, view.getRowCount());
+            assertEquals("doc3", view.getString(3, 1));
+            assertEquals(2, view.getValueCount(3, "keywords"));
+
+            IDfTypedObject row = view.getRow(3);
+            assertEquals(2, row.getAttrCount());
+            assertEquals("doc3", row.getString("object_name"));
+
+            // views of views select from the selected columns
+            dmRecordSet names = view.filter(r -> true).select("object_name");
+            assertEquals(1, names.getColumnCount());
+            assertEquals("doc9", names.getString(9, 0));
+            rs.close();
+        }
+    }
+
+    @Test
+    public void testSelectRejectsUnknownColumns() throws Exception {
+        try {
+            newRecordSet(dmRecordSet.Storage.OBJECTS).select("object_name", "title");
+            fail("a column that does not exist was selected");
+        } catch (Exception e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testViewsShareTheRows() throws Exception {
+        for (dmRecordSet.Storage storage : dmRecordSet.Storage.values()) {
+            dmRecordSet rs = newRecordSet(storage);
+            dmRecordSet view = rs.filter(dmViewRowStoreTest::large).select("object_name");
+            rs.setValue(7, "object_name", "renamed");
+            assertEquals(storage.toString(), "renamed", view.getString(2, "object_name"));
+            try {
+                view.setValue(0, "object_name", "changed");
+                fail("a view was changed");
+            } catch (Exception e) {
+                assertEquals("doc5", rs.getString(5, "object_name"));
+            }
+            assertFalse(view.isDirty());
+            rs.close();
+        }
+    }
+}
+
+/*
+ *  <SDG><
+ */